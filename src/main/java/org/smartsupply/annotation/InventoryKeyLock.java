@@ -0,0 +1,21 @@
+package org.smartsupply.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sérialise dans la JVM les appels portant sur les mêmes couples (produit, entrepôt),
+ * avant l'ouverture de la transaction. Les valeurs sont des index de paramètres.
+ * Le paramètre produit peut aussi être une liste d'InventoryRequestDto : une stripe par
+ * produit, dans le seul entrepôt désigné par warehouses.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface InventoryKeyLock {
+    int product() default 0;
+    int[] warehouses() default {1};
+    // pas de stripe pour un inventaire shardé : la charge est déjà répartie sur ses buckets
+    boolean skipWhenSharded() default false;
+}
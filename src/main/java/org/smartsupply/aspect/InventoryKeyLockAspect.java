@@ -0,0 +1,70 @@
+package org.smartsupply.aspect;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.smartsupply.annotation.InventoryKeyLock;
+import org.smartsupply.dto.request.InventoryRequestDto;
+import org.smartsupply.service.InventoryShardingService;
+import org.smartsupply.service.implementation.InventoryStripedLock;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Prend les stripes avant l'intercepteur @Transactional (ordre le plus prioritaire),
+ * pour qu'aucune connexion ne soit empruntée pendant l'attente. Dans une transaction
+ * déjà ouverte (lot, commande, vague), elles sont aussi rendues dès le retour de l'appel :
+ * ces appelants enchaînent les clés dans leur propre ordre, et garder chaque stripe jusqu'à
+ * la fin de la transaction ferait attendre deux threads l'un sur l'autre dans la JVM,
+ * hors de portée du détecteur d'interblocages de la base. Les verrous de ligne encore
+ * posés par la transaction englobante restent gérés par Postgres.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class InventoryKeyLockAspect {
+
+    private final InventoryStripedLock stripedLock;
+    private final InventoryShardingService shardingService;
+
+    @Around("@annotation(org.smartsupply.annotation.InventoryKeyLock)")
+    public Object lockInventoryKeys(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!stripedLock.isEnabled()) {
+            return joinPoint.proceed();
+        }
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        InventoryKeyLock keyLock = method.getAnnotation(InventoryKeyLock.class);
+        Object[] args = joinPoint.getArgs();
+        Long[] warehouseIds = new Long[keyLock.warehouses().length];
+        for (int i = 0; i < warehouseIds.length; i++) {
+            warehouseIds[i] = (Long) args[keyLock.warehouses()[i]];
+        }
+
+        int[] held;
+        if (args[keyLock.product()] instanceof Collection<?> lines) {
+            List<Long> productIds = lines.stream()
+                    .map(line -> ((InventoryRequestDto) line).getProductId())
+                    .toList();
+            held = stripedLock.lockAll(productIds, warehouseIds[0]);
+        } else {
+            Long productId = (Long) args[keyLock.product()];
+            if (keyLock.skipWhenSharded() && shardingService.isSharded(productId, warehouseIds[0])) {
+                return joinPoint.proceed();
+            }
+            held = stripedLock.lock(productId, warehouseIds);
+        }
+        try {
+            return joinPoint.proceed();
+        } finally {
+            stripedLock.unlock(held);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.smartsupply.config;
 import lombok.RequiredArgsConstructor;
 import org.smartsupply.interceptor.AuthInterceptor;
+import org.smartsupply.interceptor.IdempotencyInterceptor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -10,10 +11,14 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 public class WebConfig implements WebMvcConfigurer {
 
     private final AuthInterceptor authInterceptor;
+    private final IdempotencyInterceptor idempotencyInterceptor;
 
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
         registry.addInterceptor(authInterceptor)
                 .addPathPatterns("/api/**");
+        // après AuthInterceptor : les clés sont propres à chaque utilisateur
+        registry.addInterceptor(idempotencyInterceptor)
+                .addPathPatterns("/api/sales-orders/**", "/api/sales-orders", "/api/inventories/**");
     }
 }
\ No newline at end of file
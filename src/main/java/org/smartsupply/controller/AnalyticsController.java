@@ -0,0 +1,54 @@
+package org.smartsupply.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.smartsupply.annotation.RequireRole;
+import org.smartsupply.dto.response.SalesAnalyticsRowDto;
+import org.smartsupply.exception.BusinessException;
+import org.smartsupply.model.enums.Role;
+import org.smartsupply.service.SalesAnalyticsService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/analytics")
+@RequiredArgsConstructor
+public class AnalyticsController {
+
+    static final int MAX_REBUILD_DAYS = 366;
+
+    private final SalesAnalyticsService analyticsService;
+
+    // agrégats lus dans sales_daily_rollup, bornes incluses ; groupBy parmi DAY, WAREHOUSE, PRODUCT, STATUS
+    @GetMapping("/sales")
+    @RequireRole({Role.ADMIN, Role.WAREHOUSE_MANAGER})
+    public ResponseEntity<List<SalesAnalyticsRowDto>> sales(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long warehouseId,
+            @RequestParam(required = false) Long productId,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "DAY") List<String> groupBy) {
+        return ResponseEntity.ok(analyticsService.aggregate(from, to, warehouseId, productId, status, groupBy));
+    }
+
+
+    @PostMapping("/sales/rebuild")
+    @RequireRole({Role.ADMIN})
+    public ResponseEntity<Map<String, Integer>> rebuild(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (from.isAfter(to) || from.plusDays(MAX_REBUILD_DAYS).isBefore(to)) {
+            throw new BusinessException("Période invalide (au plus " + MAX_REBUILD_DAYS + " jours)");
+        }
+        int rows = 0;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            rows += analyticsService.rebuild(day);
+        }
+        return ResponseEntity.ok(Map.of("rows", rows));
+    }
+}
@@ -4,17 +4,42 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.smartsupply.annotation.RequireAuth;
 import org.smartsupply.annotation.RequireRole;
+import org.smartsupply.dto.request.AvailabilityCheckRequestDto;
+import org.smartsupply.dto.request.InventoryMovementFilterDto;
 import org.smartsupply.dto.request.InventoryRequestDto;
+import org.smartsupply.dto.request.TransferBatchRequestDto;
+import org.smartsupply.dto.request.TransferLineRequestDto;
+import org.smartsupply.dto.response.AvailabilityCacheStatsDto;
+import org.smartsupply.dto.response.AvailabilityCheckResultDto;
+import org.smartsupply.dto.response.AvailableToPromiseDto;
+import org.smartsupply.dto.response.InventoryAsOfDto;
+import org.smartsupply.dto.response.InventoryMovementDto;
 import org.smartsupply.dto.response.InventorySummaryDto;
+import org.smartsupply.dto.response.KeysetPageDto;
+import org.smartsupply.dto.response.LockStatsDto;
+import org.smartsupply.dto.response.ReconciliationReportDto;
 import org.smartsupply.mapper.InventoryMapper;
 import org.smartsupply.model.entity.Inventory;
 import org.smartsupply.model.enums.Role;
 import org.smartsupply.repository.InventoryRepository;
+import org.smartsupply.service.InventoryMovementService;
 import org.smartsupply.service.InventoryService;
+import org.smartsupply.service.InventoryShardingService;
+import org.smartsupply.service.InventorySnapshotService;
+import org.smartsupply.service.ProductAvailabilityService;
+import org.smartsupply.service.ReconciliationService;
+import org.smartsupply.service.implementation.AvailabilityCache;
+import org.smartsupply.service.implementation.InventoryStripedLock;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/inventories")
@@ -23,6 +48,13 @@ import java.util.List;
 public class InventoryController {
 
     private final InventoryService inventoryService;
+    private final InventoryMovementService movementService;
+    private final InventorySnapshotService snapshotService;
+    private final ReconciliationService reconciliationService;
+    private final InventoryStripedLock stripedLock;
+    private final AvailabilityCache availabilityCache;
+    private final InventoryShardingService shardingService;
+    private final ProductAvailabilityService availabilityService;
     private final InventoryRepository inventoryRepository;
     private final InventoryMapper inventoryMapper;
 
@@ -69,6 +101,23 @@ public class InventoryController {
 
 
 
+    @PostMapping("/reservations/{reservationId}/confirm")
+    @RequireRole({Role.ADMIN, Role.WAREHOUSE_MANAGER})
+    public ResponseEntity<Void> confirmReservation(@PathVariable String reservationId) {
+        inventoryService.confirmReservation(reservationId);
+        return ResponseEntity.ok().build();
+    }
+
+
+    @PostMapping("/reservations/{reservationId}/release")
+    @RequireRole({Role.ADMIN, Role.WAREHOUSE_MANAGER})
+    public ResponseEntity<Void> releaseReservation(@PathVariable String reservationId) {
+        inventoryService.releaseReservation(reservationId);
+        return ResponseEntity.ok().build();
+    }
+
+
+
     @PostMapping("/transfer")
     @RequireRole({Role.ADMIN, Role.WAREHOUSE_MANAGER})
     public ResponseEntity<java.util.Map<String, String>> transfer(
@@ -82,11 +131,38 @@ public class InventoryController {
     }
 
 
+    @PostMapping("/transfers/batch")
+    @RequireRole({Role.ADMIN, Role.WAREHOUSE_MANAGER})
+    public ResponseEntity<Map<String, Object>> transferBatch(@Valid @RequestBody TransferBatchRequestDto req) {
+        Map<Long, Integer> qtyByProduct = new LinkedHashMap<>();
+        for (TransferLineRequestDto line : req.getLines()) {
+            qtyByProduct.merge(line.getProductId(), line.getQty(), Integer::sum);
+        }
+        int products = inventoryService.transferAll(req.getSourceWarehouseId(), req.getTargetWarehouseId(), qtyByProduct, req.getReference());
+        return ResponseEntity.ok(Map.of("message", "Batch transfer executed", "products", products));
+    }
+
+
     @GetMapping("/product/{productId}")
     @RequireAuth
     public ResponseEntity<List<InventorySummaryDto>> getByProduct(@PathVariable Long productId) {
-        List<Inventory> invs = inventoryRepository.findByProductId(productId);
-        return ResponseEntity.ok(inventoryMapper.toSummaryDtoList(invs));
+        return ResponseEntity.ok(availabilityCache.get("summaries", productId, null,
+                () -> inventoryMapper.toSummaryDtoList(inventoryRepository.findByProductId(productId))));
+    }
+
+
+    @PostMapping("/availability")
+    @RequireAuth
+    public ResponseEntity<List<AvailabilityCheckResultDto>> checkAvailability(@Valid @RequestBody AvailabilityCheckRequestDto req) {
+        return ResponseEntity.ok(inventoryService.checkAvailability(req.getLines()));
+    }
+
+
+    @GetMapping("/product/{productId}/atp")
+    @RequireAuth
+    public ResponseEntity<AvailableToPromiseDto> availableToPromise(@PathVariable Long productId,
+                                                                    @RequestParam(defaultValue = "1") int qty) {
+        return ResponseEntity.ok(availabilityService.availableToPromise(productId, qty));
     }
 
 
@@ -96,4 +172,99 @@ public class InventoryController {
         List<Inventory> invs = inventoryRepository.findByWarehouseId(warehouseId);
         return ResponseEntity.ok(inventoryMapper.toSummaryDtoList(invs));
     }
-}
\ No newline at end of file
+
+
+    @GetMapping("/{inventoryId}/movements")
+    @RequireRole({Role.ADMIN, Role.WAREHOUSE_MANAGER})
+    public ResponseEntity<KeysetPageDto<InventoryMovementDto>> getMovements(
+            @PathVariable Long inventoryId,
+            @ModelAttribute InventoryMovementFilterDto filter,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterOccurredAt,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "50") int size) {
+        filter.setInventoryId(inventoryId);
+        return ResponseEntity.ok(movementService.list(filter, afterOccurredAt, afterId, size));
+    }
+
+
+    @GetMapping("/movements")
+    @RequireRole({Role.ADMIN, Role.WAREHOUSE_MANAGER})
+    public ResponseEntity<KeysetPageDto<InventoryMovementDto>> searchMovements(
+            @ModelAttribute InventoryMovementFilterDto filter,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterOccurredAt,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(movementService.list(filter, afterOccurredAt, afterId, size));
+    }
+
+
+    @GetMapping(value = "/movements/export", produces = "application/x-ndjson")
+    @RequireRole({Role.ADMIN, Role.WAREHOUSE_MANAGER})
+    public ResponseEntity<StreamingResponseBody> exportMovements(@ModelAttribute InventoryMovementFilterDto filter) {
+        StreamingResponseBody body = out -> movementService.export(filter, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+
+    @GetMapping("/warehouse/{warehouseId}/as-of")
+    @RequireRole({Role.ADMIN, Role.WAREHOUSE_MANAGER})
+    public ResponseEntity<List<InventoryAsOfDto>> getStockAsOf(
+            @PathVariable Long warehouseId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at,
+            @RequestParam(required = false) Long productId) {
+        return ResponseEntity.ok(snapshotService.stockAsOf(warehouseId, productId, at));
+    }
+
+
+    @PostMapping("/snapshots")
+    @RequireRole({Role.ADMIN})
+    public ResponseEntity<java.util.Map<String, Integer>> takeSnapshot() {
+        return ResponseEntity.ok(java.util.Map.of("snapshotted", snapshotService.takeSnapshot()));
+    }
+
+
+    @PostMapping("/reconciliation")
+    @RequireRole({Role.ADMIN})
+    public ResponseEntity<ReconciliationReportDto> reconcile(@RequestParam(defaultValue = "false") boolean apply) {
+        return ResponseEntity.ok(reconciliationService.reconcile(apply));
+    }
+
+
+    @GetMapping("/lock-stats")
+    @RequireRole({Role.ADMIN})
+    public ResponseEntity<LockStatsDto> lockStats() {
+        return ResponseEntity.ok(stripedLock.stats());
+    }
+
+
+    @GetMapping("/cache-stats")
+    @RequireRole({Role.ADMIN})
+    public ResponseEntity<AvailabilityCacheStatsDto> cacheStats() {
+        return ResponseEntity.ok(availabilityCache.stats());
+    }
+
+
+    @PostMapping("/{inventoryId}/shards")
+    @RequireRole({Role.ADMIN})
+    public ResponseEntity<Map<String, Integer>> shard(@PathVariable Long inventoryId,
+                                                      @RequestParam(defaultValue = "16") int buckets) {
+        return ResponseEntity.ok(Map.of("escrowed", shardingService.shard(inventoryId, buckets)));
+    }
+
+
+    @DeleteMapping("/{inventoryId}/shards")
+    @RequireRole({Role.ADMIN})
+    public ResponseEntity<Void> unshard(@PathVariable Long inventoryId) {
+        shardingService.unshard(inventoryId);
+        return ResponseEntity.noContent().build();
+    }
+
+
+    @PostMapping("/availability/rebuild")
+    @RequireRole({Role.ADMIN})
+    public ResponseEntity<Map<String, Integer>> rebuildAvailability() {
+        return ResponseEntity.ok(Map.of("products", availabilityService.rebuildAll()));
+    }
+}
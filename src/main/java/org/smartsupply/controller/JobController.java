@@ -0,0 +1,22 @@
+package org.smartsupply.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.smartsupply.annotation.RequireAuth;
+import org.smartsupply.dto.response.ReservationJobDto;
+import org.smartsupply.service.ReservationJobService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/jobs")
+@RequiredArgsConstructor
+public class JobController {
+
+    private final ReservationJobService reservationJobService;
+
+    @GetMapping("/{id}")
+    @RequireAuth
+    public ResponseEntity<ReservationJobDto> get(@PathVariable String id) {
+        return ResponseEntity.ok(reservationJobService.get(id));
+    }
+}
@@ -2,10 +2,26 @@ package org.smartsupply.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.smartsupply.annotation.RequireRole;
+import org.smartsupply.dto.request.SalesOrderBatchRequestDto;
+import org.smartsupply.dto.request.SalesOrderFilterDto;
 import org.smartsupply.dto.request.SalesOrderLineRequestDto;
 import org.smartsupply.dto.request.SalesOrderRequestDto;
+import org.smartsupply.dto.request.ShipBatchRequestDto;
+import org.smartsupply.dto.response.KeysetPageDto;
+import org.smartsupply.dto.response.ReservationJobDto;
+import org.smartsupply.dto.response.SalesOrderBatchResultDto;
 import org.smartsupply.dto.response.SalesOrderResponseDto;
+import org.smartsupply.dto.response.SalesOrderSummaryDto;
+import org.smartsupply.dto.response.ShipOrderResultDto;
+import org.smartsupply.dto.response.WaveReportDto;
+import org.smartsupply.exception.BusinessException;
+import org.smartsupply.model.enums.OrderStatus;
+import org.smartsupply.model.enums.Role;
+import org.smartsupply.model.enums.WavePriority;
+import org.smartsupply.service.ReservationJobService;
 import org.smartsupply.service.SalesOrderService;
+import org.smartsupply.service.WaveAllocationService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -15,7 +31,10 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import java.math.BigDecimal;
+import java.net.URI;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/sales-orders")
@@ -25,15 +44,24 @@ import java.time.LocalDateTime;
 public class SalesOrderController {
 
     private final SalesOrderService salesOrderService;
+    private final WaveAllocationService waveAllocationService;
+    private final ReservationJobService reservationJobService;
 
 
     @PostMapping
-    public ResponseEntity<SalesOrderResponseDto> create(@Valid @RequestBody SalesOrderRequestDto request) {
-        SalesOrderResponseDto created = salesOrderService.create(request);
+    public ResponseEntity<SalesOrderResponseDto> create(@Valid @RequestBody SalesOrderRequestDto request,
+                                                        @RequestParam(defaultValue = "false") boolean reserve) {
+        SalesOrderResponseDto created = salesOrderService.create(request, reserve);
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<SalesOrderBatchResultDto>> createBatch(@Valid @RequestBody SalesOrderBatchRequestDto request) {
+        return ResponseEntity.ok(salesOrderService.createBatch(request.getOrders()));
+    }
+
+
     @GetMapping("/{id}")
     public ResponseEntity<SalesOrderResponseDto> getById(@PathVariable Long id) {
         SalesOrderResponseDto dto = salesOrderService.getById(id);
@@ -47,13 +75,43 @@ public class SalesOrderController {
             @RequestParam(required = false) Long clientId,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount,
+            Pageable pageable) {
+
+        Page<SalesOrderResponseDto> page = salesOrderService.listAll(status, clientId, startDate, endDate, minAmount, maxAmount, pageable);
+        return ResponseEntity.ok(page);
+    }
+
+
+    // même filtre que la liste, sans les lignes : seulement leurs totaux
+    @GetMapping("/summaries")
+    public ResponseEntity<Page<SalesOrderSummaryDto>> listSummaries(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Long clientId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount,
             Pageable pageable) {
 
-        Page<SalesOrderResponseDto> page = salesOrderService.listAll(status, clientId, startDate, endDate, pageable);
+        Page<SalesOrderSummaryDto> page = salesOrderService.listSummaries(status, clientId, startDate, endDate, minAmount, maxAmount, pageable);
         return ResponseEntity.ok(page);
     }
 
 
+    // pagination keyset sur (createdAt, id) : coût constant quelle que soit la profondeur, COUNT sur demande
+    @GetMapping("/search")
+    public ResponseEntity<KeysetPageDto<SalesOrderSummaryDto>> search(
+            @ModelAttribute SalesOrderFilterDto filter,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterCreatedAt,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = "false") boolean withCount) {
+        return ResponseEntity.ok(salesOrderService.search(filter, afterCreatedAt, afterId, size, withCount));
+    }
+
+
     @PostMapping("/{id}/lines")
     public ResponseEntity<SalesOrderResponseDto> addLine(
             @PathVariable("id") Long orderId,
@@ -64,11 +122,20 @@ public class SalesOrderController {
     }
 
 
+    // async=true (RESERVED uniquement) : 202 + job à suivre sur /api/jobs/{jobId}
     @PutMapping("/{id}/status")
-    public ResponseEntity<SalesOrderResponseDto> updateStatus(
+    public ResponseEntity<?> updateStatus(
             @PathVariable("id") Long orderId,
-            @RequestParam("status") String status) {
-
+            @RequestParam("status") String status,
+            @RequestParam(defaultValue = "false") boolean async) {
+
+        if (async) {
+            if (!OrderStatus.RESERVED.name().equals(status)) {
+                throw new BusinessException("Le mode asynchrone ne concerne que le statut RESERVED");
+            }
+            ReservationJobDto job = reservationJobService.submit(orderId);
+            return ResponseEntity.accepted().location(URI.create("/api/jobs/" + job.getJobId())).body(job);
+        }
         SalesOrderResponseDto dto = salesOrderService.updateStatus(orderId, status);
         return ResponseEntity.ok(dto);
     }
@@ -81,6 +148,31 @@ public class SalesOrderController {
     }
 
 
+    @PutMapping("/ship/batch")
+    @RequireRole({Role.WAREHOUSE_MANAGER, Role.ADMIN})
+    public ResponseEntity<List<ShipOrderResultDto>> shipBatch(@Valid @RequestBody ShipBatchRequestDto request) {
+        return ResponseEntity.ok(salesOrderService.shipBatch(request.getOrders()));
+    }
+
+
+    @PostMapping("/waves")
+    @RequireRole({Role.ADMIN, Role.WAREHOUSE_MANAGER})
+    public ResponseEntity<WaveReportDto> runWave(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "AGE") WavePriority priority,
+            @RequestParam(required = false) Long warehouseId) {
+        return ResponseEntity.ok(waveAllocationService.runWave(from, to, priority, warehouseId));
+    }
+
+
+    @GetMapping("/waves")
+    @RequireRole({Role.ADMIN, Role.WAREHOUSE_MANAGER})
+    public ResponseEntity<List<WaveReportDto>> recentWaves() {
+        return ResponseEntity.ok(waveAllocationService.recentWaves());
+    }
+
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable Long id) {
         salesOrderService.delete(id);
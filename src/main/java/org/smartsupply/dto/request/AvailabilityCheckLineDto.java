@@ -0,0 +1,20 @@
+package org.smartsupply.dto.request;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AvailabilityCheckLineDto {
+    @NotNull
+    private Long productId;
+    @NotNull
+    @Min(value = 1, message = "La quantité doit être >= 1")
+    private Integer qty;
+    // optionnel : sans entrepôt, la ligne est évaluée sur tous les entrepôts
+    private Long warehouseId;
+}
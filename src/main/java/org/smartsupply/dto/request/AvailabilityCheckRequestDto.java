@@ -0,0 +1,18 @@
+package org.smartsupply.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AvailabilityCheckRequestDto {
+    @NotEmpty
+    @Valid
+    private List<AvailabilityCheckLineDto> lines;
+}
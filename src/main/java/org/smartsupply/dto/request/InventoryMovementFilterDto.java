@@ -0,0 +1,24 @@
+package org.smartsupply.dto.request;
+
+import lombok.*;
+import org.smartsupply.model.enums.MovementType;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class InventoryMovementFilterDto {
+    private Long inventoryId;
+    private Long warehouseId;
+    private Long productId;
+    private MovementType type;
+    private String referencePrefix;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to;
+}
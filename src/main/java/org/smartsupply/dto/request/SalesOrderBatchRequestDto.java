@@ -0,0 +1,19 @@
+package org.smartsupply.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+// pas de @Valid sur les commandes : une commande invalide est rejetée seule, dans son résultat
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesOrderBatchRequestDto {
+    @NotEmpty
+    @Size(max = 1000, message = "1000 commandes maximum par lot")
+    private List<SalesOrderRequestDto> orders;
+}
@@ -0,0 +1,29 @@
+package org.smartsupply.dto.request;
+
+import lombok.*;
+import org.smartsupply.model.enums.OrderStatus;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesOrderFilterDto {
+    private OrderStatus status;
+    private Long clientId;
+    private Long warehouseId;
+    private Long productId;
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to;
+    // borne haute incluse, comme le endDate historique de GET /api/sales-orders
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime until;
+}
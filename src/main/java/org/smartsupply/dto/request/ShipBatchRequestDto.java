@@ -0,0 +1,20 @@
+package org.smartsupply.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ShipBatchRequestDto {
+    @NotEmpty
+    @Size(max = 1000, message = "1000 commandes maximum par lot")
+    @Valid
+    private List<ShipOrderRequestDto> orders;
+}
@@ -0,0 +1,18 @@
+package org.smartsupply.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ShipOrderRequestDto {
+    @NotNull
+    private Long orderId;
+
+    @Size(max = 100)
+    private String trackingNumber;
+}
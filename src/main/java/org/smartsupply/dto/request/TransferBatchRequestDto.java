@@ -0,0 +1,27 @@
+package org.smartsupply.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransferBatchRequestDto {
+    @NotNull
+    private Long sourceWarehouseId;
+
+    @NotNull
+    private Long targetWarehouseId;
+
+    private String reference;
+
+    @NotEmpty
+    @Valid
+    private List<TransferLineRequestDto> lines;
+}
@@ -0,0 +1,19 @@
+package org.smartsupply.dto.response;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AvailabilityCheckResultDto {
+    private Long productId;
+    private Long warehouseId;
+    private Integer qty;
+    private Integer available;
+    private List<WarehouseAvailabilityDto> warehouses;
+    private boolean fulfillable;
+}
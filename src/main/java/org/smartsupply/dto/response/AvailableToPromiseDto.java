@@ -0,0 +1,17 @@
+package org.smartsupply.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AvailableToPromiseDto {
+    private Long productId;
+    private Integer qtyOnHand;
+    private Integer qtyReserved;
+    private Integer available;
+    private Integer requested;
+    private boolean promisable;
+}
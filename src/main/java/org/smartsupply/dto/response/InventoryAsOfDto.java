@@ -0,0 +1,21 @@
+package org.smartsupply.dto.response;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class InventoryAsOfDto {
+    private Long inventoryId;
+    private Long productId;
+    private Long warehouseId;
+    private LocalDateTime at;
+    private Integer qtyOnHand;
+    // instantané de départ (null si aucun : rejeu complet du journal)
+    private LocalDateTime snapshotTakenAt;
+    private Integer snapshotQtyReserved;
+}
@@ -0,0 +1,19 @@
+package org.smartsupply.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class InventoryDeltaDto {
+    private Long inventoryId;
+    private Long productId;
+    private Long delta;
+
+    public InventoryDeltaDto(Long inventoryId, Long delta) {
+        this.inventoryId = inventoryId;
+        this.delta = delta;
+    }
+}
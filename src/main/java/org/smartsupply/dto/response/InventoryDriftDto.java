@@ -0,0 +1,27 @@
+package org.smartsupply.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class InventoryDriftDto {
+    private Long inventoryId;
+    private Long productId;
+    private Long warehouseId;
+    private Integer qtyOnHand;
+    // qtyOnHand recalculée depuis le journal des mouvements
+    private Integer ledgerQtyOnHand;
+    // qtyOnHand - ledgerQtyOnHand
+    private Integer drift;
+    private boolean corrected;
+
+    public InventoryDriftDto(Long inventoryId, Long productId, Long warehouseId, Integer qtyOnHand) {
+        this.inventoryId = inventoryId;
+        this.productId = productId;
+        this.warehouseId = warehouseId;
+        this.qtyOnHand = qtyOnHand;
+    }
+}
@@ -0,0 +1,15 @@
+package org.smartsupply.dto.response;
+
+import lombok.*;
+
+// ligne d'inventaire identifiée par son couple (produit, entrepôt)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class InventoryKeyDto {
+    private Long inventoryId;
+    private Long productId;
+    private Long warehouseId;
+}
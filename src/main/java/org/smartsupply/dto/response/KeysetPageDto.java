@@ -0,0 +1,22 @@
+package org.smartsupply.dto.response;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// page "keyset" : le client renvoie nextAfter / nextAfterId pour obtenir la page suivante
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class KeysetPageDto<T> {
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    private LocalDateTime nextAfter;
+    private Long nextAfterId;
+    // null sauf si le total a été demandé explicitement (COUNT coûteux sur les grosses tables)
+    private Long totalElements;
+}
@@ -0,0 +1,18 @@
+package org.smartsupply.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LockStatsDto {
+    private boolean enabled;
+    private int stripes;
+    private long acquisitions;
+    private long contended;
+    private long timeouts;
+    private double avgWaitMs;
+    private double maxWaitMs;
+}
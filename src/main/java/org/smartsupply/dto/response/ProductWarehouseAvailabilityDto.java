@@ -0,0 +1,14 @@
+package org.smartsupply.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductWarehouseAvailabilityDto {
+    private Long productId;
+    private Long warehouseId;
+    private Integer available;
+}
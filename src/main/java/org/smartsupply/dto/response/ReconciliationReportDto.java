@@ -0,0 +1,21 @@
+package org.smartsupply.dto.response;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReconciliationReportDto {
+    private LocalDateTime startedAt;
+    private long durationMs;
+    private int ranges;
+    private long inventoriesScanned;
+    private int driftCount;
+    private int correctedCount;
+    private List<InventoryDriftDto> drifts;
+}
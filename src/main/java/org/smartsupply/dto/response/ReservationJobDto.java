@@ -0,0 +1,29 @@
+package org.smartsupply.dto.response;
+
+import lombok.*;
+import org.smartsupply.model.enums.JobState;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReservationJobDto {
+    private String jobId;
+    private Long orderId;
+    private Long warehouseId;
+    private JobState state;
+    // position dans la file de l'entrepôt (0 = prochain à partir), null une fois démarré
+    private Integer queuePosition;
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private int linesTotal;
+    private int linesReserved;
+    private String orderStatus;
+    private List<String> warnings;
+    private String error;
+}
@@ -0,0 +1,24 @@
+package org.smartsupply.dto.response;
+
+import lombok.*;
+import org.smartsupply.model.enums.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// une ligne d'agrégat : les axes non demandés dans groupBy restent null
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesAnalyticsRowDto {
+    private LocalDate day;
+    private Long warehouseId;
+    private Long productId;
+    private OrderStatus status;
+
+    private long orderCount;
+    private long qtyOrdered;
+    private BigDecimal amount;
+}
@@ -0,0 +1,16 @@
+package org.smartsupply.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesOrderBatchResultDto {
+    // position de la commande dans le lot reçu
+    private int index;
+    private boolean created;
+    private Long orderId;
+    private String error;
+}
@@ -17,4 +17,7 @@ public class SalesOrderLineResponseDto {
     private int qtyOrdered;
     private int qtyReserved;
     private BigDecimal price;
+
+    // RESERVED ou BACKORDERED, renseigné seulement quand la requête a tenté une réservation
+    private String reservation;
 }
\ No newline at end of file
@@ -21,6 +21,9 @@ public class SalesOrderResponseDto {
     private Long warehouseId;
     private String warehouseName;
 
+    private String trackingNumber;
+    private LocalDateTime shippedAt;
+
     private List<SalesOrderLineResponseDto> lines;
 
     private List<String> warnings;
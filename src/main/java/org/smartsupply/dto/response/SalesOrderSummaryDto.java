@@ -0,0 +1,28 @@
+package org.smartsupply.dto.response;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// vue liste d'une commande : pas de lignes, seulement leurs totaux
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesOrderSummaryDto {
+    private Long id;
+    private String status;
+    private LocalDateTime createdAt;
+
+    private Long clientId;
+    private String clientName;
+
+    private Long warehouseId;
+    private String warehouseName;
+
+    private long lineCount;
+    private long totalQty;
+    private BigDecimal totalAmount;
+}
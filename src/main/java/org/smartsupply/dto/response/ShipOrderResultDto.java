@@ -0,0 +1,18 @@
+package org.smartsupply.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ShipOrderResultDto {
+    private Long orderId;
+    private boolean shipped;
+    private String trackingNumber;
+    private int linesShipped;
+    private int unitsShipped;
+    // renseigné quand la commande n'a pas été expédiée
+    private String error;
+}
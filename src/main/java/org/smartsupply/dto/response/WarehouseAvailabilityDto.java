@@ -0,0 +1,13 @@
+package org.smartsupply.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WarehouseAvailabilityDto {
+    private Long warehouseId;
+    private Integer available;
+}
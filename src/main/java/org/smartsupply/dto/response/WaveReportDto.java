@@ -0,0 +1,29 @@
+package org.smartsupply.dto.response;
+
+import lombok.*;
+import org.smartsupply.model.enums.WavePriority;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WaveReportDto {
+    private String waveId;
+    private WavePriority priority;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private Long warehouseId;
+    private LocalDateTime startedAt;
+    private int ordersConsidered;
+    private int ordersReserved;
+    private int ordersSkipped;
+    private int linesReserved;
+    private long unitsReserved;
+    private int inventoryRowsLocked;
+    private long durationMs;
+    private double ordersPerSecond;
+    private double linesPerSecond;
+}
@@ -0,0 +1,14 @@
+package org.smartsupply.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Set;
+
+// publié par les entrées de stock, traité après commit par l'allocation des backorders
+@Getter
+@AllArgsConstructor
+public class StockReceivedEvent {
+    private final Long warehouseId;
+    private final Set<Long> productIds;
+}
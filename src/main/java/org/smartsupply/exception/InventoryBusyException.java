@@ -0,0 +1,8 @@
+package org.smartsupply.exception;
+
+public class InventoryBusyException extends RuntimeException {
+
+    public InventoryBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,94 @@
+package org.smartsupply.interceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.smartsupply.exception.BusinessException;
+import org.smartsupply.model.entity.User;
+import org.smartsupply.service.implementation.IdempotencyStore;
+import org.smartsupply.service.implementation.UserContext;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Header Idempotency-Key sur les mutations : la première réponse 2xx est mémorisée et rejouée telle quelle
+ * pour les requêtes suivantes portant la même clé (par utilisateur), sans réexécuter le traitement.
+ * La clé réutilisée pour une autre requête (méthode, URI ou corps différents) est refusée en 409.
+ */
+@Component
+@RequiredArgsConstructor
+public class IdempotencyInterceptor implements HandlerInterceptor {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    static final String KEY_ATTRIBUTE = IdempotencyInterceptor.class.getName() + ".key";
+    static final String FINGERPRINT_ATTRIBUTE = IdempotencyInterceptor.class.getName() + ".fingerprint";
+    static final String BODY_ATTRIBUTE = IdempotencyInterceptor.class.getName() + ".body";
+    static final String CONTENT_TYPE_ATTRIBUTE = IdempotencyInterceptor.class.getName() + ".contentType";
+    static final String UNREPLAYABLE_ATTRIBUTE = IdempotencyInterceptor.class.getName() + ".unreplayable";
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyStore store;
+    private final UserContext userContext;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        String idempotencyKey = request.getHeader(HEADER);
+        if (idempotencyKey == null || "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod())) {
+            return true;
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new BusinessException(HEADER + " doit contenir entre 1 et " + MAX_KEY_LENGTH + " caractères");
+        }
+
+        User user = userContext.getCurrentUser();
+        String key = (user != null ? user.getId() : "anonymous") + ":" + idempotencyKey;
+        // le corps compte aussi : la même clé avec un autre produit ou une autre quantité n'est pas un rejeu
+        Object bodyHash = request.getAttribute(IdempotencyBodyFilter.BODY_HASH_ATTRIBUTE);
+        String fingerprint = request.getMethod() + " " + request.getRequestURI()
+                + (request.getQueryString() != null ? "?" + request.getQueryString() : "")
+                + (bodyHash != null ? " sha256=" + bodyHash : "");
+
+        Optional<IdempotencyStore.StoredResponse> stored = store.acquire(key, fingerprint);
+        if (stored.isPresent()) {
+            replay(stored.get(), response);
+            return false;
+        }
+        request.setAttribute(KEY_ATTRIBUTE, key);
+        request.setAttribute(FINGERPRINT_ATTRIBUTE, fingerprint);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        String key = (String) request.getAttribute(KEY_ATTRIBUTE);
+        if (key == null) {
+            return;
+        }
+        int status = response.getStatus();
+        if (ex == null && status >= 200 && status < 300 && request.getAttribute(UNREPLAYABLE_ATTRIBUTE) == null) {
+            store.complete(key, (String) request.getAttribute(FINGERPRINT_ATTRIBUTE), status,
+                    (String) request.getAttribute(CONTENT_TYPE_ATTRIBUTE), (String) request.getAttribute(BODY_ATTRIBUTE));
+        } else {
+            store.release(key);
+        }
+    }
+
+    private void replay(IdempotencyStore.StoredResponse stored, HttpServletResponse response) throws Exception {
+        response.setStatus(stored.status());
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (stored.body() != null) {
+            if (stored.contentType() != null) {
+                response.setContentType(stored.contentType());
+            }
+            byte[] body = stored.body().getBytes(StandardCharsets.UTF_8);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.setContentLength(body.length);
+            response.getOutputStream().write(body);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.smartsupply.interceptor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+// copie le corps sérialisé des requêtes suivies par IdempotencyInterceptor, pour le rejouer plus tard
+@ControllerAdvice
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (body == null || !(request instanceof ServletServerHttpRequest servletRequest)
+                || !(response instanceof ServletServerHttpResponse servletResponse)) {
+            return body;
+        }
+        HttpServletRequest httpRequest = servletRequest.getServletRequest();
+        int status = servletResponse.getServletResponse().getStatus();
+        // seules les réponses 2xx sont rejouées, inutile de sérialiser les erreurs
+        if (httpRequest.getAttribute(IdempotencyInterceptor.KEY_ATTRIBUTE) == null || status < 200 || status >= 300) {
+            return body;
+        }
+        try {
+            String serialized = body instanceof String text ? text : objectMapper.writeValueAsString(body);
+            httpRequest.setAttribute(IdempotencyInterceptor.BODY_ATTRIBUTE, serialized);
+            httpRequest.setAttribute(IdempotencyInterceptor.CONTENT_TYPE_ATTRIBUTE, selectedContentType.toString());
+        } catch (Exception e) {
+            // réponse non rejouable : la clé sera libérée plutôt que de mémoriser un corps vide
+            log.warn("Réponse non sérialisable pour l'Idempotency-Key {}", httpRequest.getAttribute(IdempotencyInterceptor.KEY_ATTRIBUTE), e);
+            httpRequest.setAttribute(IdempotencyInterceptor.UNREPLAYABLE_ATTRIBUTE, Boolean.TRUE);
+        }
+        return body;
+    }
+}
@@ -15,12 +15,18 @@ public interface InventoryMapper {
     @Mapping(target = "productId", source = "product.id")
     @Mapping(target = "productSku", source = "product.sku")
     @Mapping(target = "qtyOnHand", source = "qtyOnHand")
-    @Mapping(target = "qtyReserved", source = "qtyReserved")
-    @Mapping(target = "available", expression = "java(inv.getQtyOnHand() - inv.getQtyReserved())")
+    @Mapping(target = "qtyReserved", expression = "java(inv.getQtyReserved() - escrowFree(inv))")
+    @Mapping(target = "available", expression = "java(inv.getQtyOnHand() - inv.getQtyReserved() + escrowFree(inv))")
     @Mapping(target = "warehouseId", source = "warehouse.id")
     @Mapping(target = "warehouseName", source = "warehouse.name")
     InventorySummaryDto toSummaryDto(Inventory inv);
 
+    // stock libre des buckets d'un inventaire shardé : compté dans qtyReserved du parent, mais disponible
+    default int escrowFree(Inventory inv) {
+        if (inv.getBuckets() == null) return 0;
+        return inv.getBuckets().stream().mapToInt(b -> b.getQtyAllotted() - b.getQtyReserved()).sum();
+    }
+
     default List<InventorySummaryDto> toSummaryDtoList(List<Inventory> inventories) {
         if (inventories == null) return null;
         return inventories.stream().map(this::toSummaryDto).toList();
@@ -11,5 +11,6 @@ public interface SalesOrderLineMapper {
     @Mapping(target = "productId", source = "product.id")
     @Mapping(target = "productSku", expression = "java(line.getProduct()!=null? line.getProduct().getSku() : null)")
     @Mapping(target = "productName", expression = "java(line.getProduct()!=null? line.getProduct().getName() : null)")
+    @Mapping(target = "reservation", ignore = true)
     SalesOrderLineResponseDto toResponse(SalesOrderLine line);
 }
\ No newline at end of file
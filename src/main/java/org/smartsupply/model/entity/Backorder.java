@@ -0,0 +1,53 @@
+package org.smartsupply.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.smartsupply.model.enums.BackorderStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ligne de commande en attente de stock. La file d'un (produit, entrepôt) est l'ensemble des lignes
+ * WAITING triées par createdAt, id ; la quantité restante se lit sur la ligne de commande.
+ */
+@Entity
+@Table(name = "backorders", indexes = {
+        @Index(name = "idx_backorders_queue", columnList = "warehouse_id, product_id, status, created_at, id"),
+        @Index(name = "idx_backorders_line", columnList = "sales_order_line_id"),
+        @Index(name = "idx_backorders_status", columnList = "status, warehouse_id, product_id") })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Backorder {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "backorders_seq")
+    @SequenceGenerator(name = "backorders_seq", sequenceName = "backorders_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "sales_order_line_id", nullable = false)
+    private SalesOrderLine salesOrderLine;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "warehouse_id", nullable = false)
+    private Warehouse warehouse;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    @Builder.Default
+    private BackorderStatus status = BackorderStatus.WAITING;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    @Builder.Default
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "closed_at")
+    private LocalDateTime closedAt;
+}
@@ -0,0 +1,40 @@
+package org.smartsupply.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// réponse mémorisée pour une Idempotency-Key, rejouée tant qu'elle n'a pas expiré
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+        @Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at") })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyRecord {
+    @Id
+    @Column(name = "idempotency_key", length = 200)
+    private String key;
+
+    // méthode + URI + empreinte SHA-256 du corps de la requête d'origine
+    @Column(nullable = false, length = 500)
+    private String fingerprint;
+
+    @Column(name = "response_status", nullable = false)
+    private int status;
+
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    @Column(name = "response_body", columnDefinition = "text")
+    private String body;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
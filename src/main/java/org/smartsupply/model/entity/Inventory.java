@@ -18,7 +18,8 @@ import java.util.List;
 @Builder
 public class Inventory {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "inventories_seq")
+    @SequenceGenerator(name = "inventories_seq", sequenceName = "inventories_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -41,4 +42,8 @@ public class Inventory {
     @Builder.Default
     private List<InventoryMovement> movements = new ArrayList<>();
 
+    @OneToMany(mappedBy = "inventory")
+    @Builder.Default
+    private List<InventoryBucket> buckets = new ArrayList<>();
+
 }
@@ -0,0 +1,41 @@
+package org.smartsupply.model.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.Min;
+import lombok.*;
+
+/**
+ * Part "escrow" d'un inventaire shardé : qtyAllotted unités sont prélevées sur le stock libre
+ * de l'inventaire (et comptées dans son qtyReserved), puis réservées ligne par ligne dans le bucket
+ * sans verrouiller la ligne parente. Libre dans le bucket = qtyAllotted - qtyReserved.
+ */
+@Entity
+@Table(name = "inventory_buckets", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"inventory_id", "bucket_index"}) })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class InventoryBucket {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "inventory_buckets_seq")
+    @SequenceGenerator(name = "inventory_buckets_seq", sequenceName = "inventory_buckets_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "inventory_id", nullable = false)
+    private Inventory inventory;
+
+    @Column(name = "bucket_index", nullable = false)
+    private int bucketIndex;
+
+    @Min(0)
+    @Column(nullable = false)
+    private int qtyAllotted;
+
+    @Min(0)
+    @Column(nullable = false)
+    private int qtyReserved;
+}
@@ -9,7 +9,9 @@ import org.smartsupply.model.enums.MovementType;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name="inventory_movements")
+@Table(name="inventory_movements", indexes = {
+        @Index(name = "idx_movements_inventory_occurred_at_id", columnList = "inventory_id, occurred_at, id"),
+        @Index(name = "idx_movements_occurred_at_id", columnList = "occurred_at, id") })
 @Getter
 @Setter
 @NoArgsConstructor
@@ -18,7 +20,8 @@ import java.time.LocalDateTime;
 public class InventoryMovement {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "inventory_movements_seq")
+    @SequenceGenerator(name = "inventory_movements_seq", sequenceName = "inventory_movements_seq", allocationSize = 50)
     private Long id;
 
     @Enumerated(EnumType.STRING)
@@ -0,0 +1,37 @@
+package org.smartsupply.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "inventory_snapshots", indexes = {
+        @Index(name = "idx_inventory_snapshots_taken_at", columnList = "taken_at"),
+        @Index(name = "idx_inventory_snapshots_inventory_taken_at", columnList = "inventory_id, taken_at") })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class InventorySnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "inventory_snapshots_seq")
+    @SequenceGenerator(name = "inventory_snapshots_seq", sequenceName = "inventory_snapshots_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "inventory_id", nullable = false)
+    private Inventory inventory;
+
+    @Column(nullable = false)
+    private int qtyOnHand;
+
+    @Column(nullable = false)
+    private int qtyReserved;
+
+    // tous les instantanés d'un même passage partagent la même date
+    @Column(name = "taken_at", nullable = false)
+    private LocalDateTime takenAt;
+}
@@ -0,0 +1,36 @@
+package org.smartsupply.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Totaux tous entrepôts confondus d'un produit, tenus à jour dans la transaction de chaque mouvement
+ * de stock. qtyReserved ne compte que les réservations réelles (pas le stock placé dans les buckets).
+ */
+@Entity
+@Table(name = "product_availability")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductAvailability {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(nullable = false)
+    private int qtyOnHand;
+
+    @Column(nullable = false)
+    private int qtyReserved;
+
+    @Column(nullable = false)
+    private int available;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,52 @@
+package org.smartsupply.model.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.Min;
+import lombok.*;
+import org.smartsupply.model.enums.ReservationStatus;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "reservations", indexes = {
+        @Index(name = "idx_reservations_expires_at", columnList = "expires_at") })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Reservation {
+
+    // token renvoyé au client par POST /api/inventories/reserve
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "inventory_id", nullable = false)
+    private Inventory inventory;
+
+    // renseigné quand la réservation a été prise dans un bucket d'un inventaire shardé
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "bucket_id")
+    private InventoryBucket bucket;
+
+    @Min(1)
+    @Column(nullable = false)
+    private int qty;
+
+    @Column(length = 200)
+    private String reference;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    @Builder.Default
+    private ReservationStatus status = ReservationStatus.ACTIVE;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    @Builder.Default
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,36 @@
+package org.smartsupply.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Ventes agrégées au grain commande, par (jour de création, entrepôt, statut courant) : chaque commande y compte
+ * une seule fois, quel que soit son nombre de produits. Sert les agrégats qui ne regroupent ni ne filtrent par produit.
+ */
+@Entity
+@Table(name = "sales_daily_order_rollup")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesDailyOrderRollup {
+
+    @EmbeddedId
+    private SalesDailyOrderRollupId id;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    @Column(name = "qty_ordered", nullable = false)
+    private long qtyOrdered;
+
+    @Column(nullable = false, precision = 16, scale = 2)
+    private BigDecimal amount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,38 @@
+package org.smartsupply.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Ventes agrégées par (jour de création, entrepôt, produit, statut courant de la commande). Une commande compte
+ * une fois par produit (voir SalesDailyOrderRollup pour le grain commande) ; quand elle change de statut, sa
+ * contribution passe d'une ligne à l'autre.
+ */
+@Entity
+@Table(name = "sales_daily_rollup", indexes = {
+        @Index(name = "idx_sales_daily_rollup_day_warehouse", columnList = "sales_day, warehouse_id") })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesDailyRollup {
+
+    @EmbeddedId
+    private SalesDailyRollupId id;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    @Column(name = "qty_ordered", nullable = false)
+    private long qtyOrdered;
+
+    @Column(nullable = false, precision = 16, scale = 2)
+    private BigDecimal amount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -3,13 +3,20 @@ package org.smartsupply.model.entity;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 import org.smartsupply.model.enums.OrderStatus;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 @Entity
-@Table(name="sale_orders")
+@Table(name="sale_orders", indexes = {
+        @Index(name = "idx_sale_orders_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_sale_orders_status_created_at_id", columnList = "status, created_at, id"),
+        @Index(name = "idx_sale_orders_client_created_at_id", columnList = "client_id, created_at, id"),
+        @Index(name = "idx_sale_orders_warehouse_created_at_id", columnList = "warehouse_id, created_at, id"),
+        @Index(name = "idx_sale_orders_total_amount_id", columnList = "total_amount, id") })
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
@@ -17,7 +24,8 @@ import java.util.List;
 @Builder
 public class SalesOrder {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sale_orders_seq")
+    @SequenceGenerator(name = "sale_orders_seq", sequenceName = "sale_orders_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
@@ -42,6 +50,48 @@ public class SalesOrder {
     @Builder.Default
     private List<SalesOrderLine> lines = new ArrayList<>();
 
+    // totaux dénormalisés des lignes, tenus à jour par recalculateTotals() à chaque modification des lignes
+    @Column(name = "total_amount", nullable = false, precision = 14, scale = 2)
+    @ColumnDefault("0")
+    @Builder.Default
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+
+    @Column(name = "line_count", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private int lineCount = 0;
+
+    @Column(name = "total_qty", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private int totalQty = 0;
+
+    @Column(name = "tracking_number", length = 100)
+    private String trackingNumber;
+
+    @Column(name = "shipped_at")
+    private LocalDateTime shippedAt;
+
     @OneToOne(mappedBy = "salesOrder", cascade = CascadeType.ALL, orphanRemoval = true)
     private Shipment shipment;
+
+    // le statut est aussi écrit en arrière-plan (vagues, backorders, expéditions groupées) : une mise à jour
+    // faite sur une version périmée échoue au lieu d'écraser, par exemple, un RESERVED par un CANCELED
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
+    @PrePersist
+    public void recalculateTotals() {
+        BigDecimal amount = BigDecimal.ZERO;
+        int qty = 0;
+        for (SalesOrderLine line : lines) {
+            amount = amount.add(line.getPrice());
+            qty += line.getQtyOrdered();
+        }
+        totalAmount = amount;
+        totalQty = qty;
+        lineCount = lines.size();
+    }
 }
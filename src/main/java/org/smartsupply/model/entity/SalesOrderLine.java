@@ -5,11 +5,14 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Min;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
 
 @Entity
-@Table(name="sales_order_lines")
+@Table(name="sales_order_lines", indexes = {
+        @Index(name = "idx_sales_order_lines_order", columnList = "sales_order_id"),
+        @Index(name = "idx_sales_order_lines_product_order", columnList = "product_id, sales_order_id") })
 @Getter
 @Setter
 @NoArgsConstructor
@@ -17,7 +20,8 @@ import java.math.BigDecimal;
 @Builder
 public class SalesOrderLine {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sales_order_lines_seq")
+    @SequenceGenerator(name = "sales_order_lines_seq", sequenceName = "sales_order_lines_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
@@ -40,4 +44,11 @@ public class SalesOrderLine {
     @DecimalMin("0.0")
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal price;
+
+    // qtyReserved est écrit par updateStatus, l'allocation des backorders et les vagues :
+    // la dernière écriture concurrente échoue au lieu d'écraser la précédente
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
 }
@@ -0,0 +1,7 @@
+package org.smartsupply.model.enums;
+
+public enum BackorderStatus {
+    WAITING,
+    ALLOCATED,
+    CANCELED
+}
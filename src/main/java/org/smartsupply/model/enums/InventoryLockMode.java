@@ -0,0 +1,8 @@
+package org.smartsupply.model.enums;
+
+public enum InventoryLockMode {
+    // SELECT ... FOR UPDATE, puis modification de l'entité
+    PESSIMISTIC,
+    // UPDATE conditionnel unique, le nombre de lignes modifiées décide du succès
+    CONDITIONAL
+}
@@ -0,0 +1,9 @@
+package org.smartsupply.model.enums;
+
+public enum JobState {
+    // en file : en attente d'un worker ou d'une place sur son entrepôt
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+}
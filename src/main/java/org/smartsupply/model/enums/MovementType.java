@@ -3,5 +3,7 @@ package org.smartsupply.model.enums;
 public enum MovementType {
     INBOUND,
     OUTBOUND,
-    ADJUSTMENT
+    ADJUSTMENT,
+    // mouvement de réservation : modifie qtyReserved, pas qtyOnHand
+    RESERVATION
 }
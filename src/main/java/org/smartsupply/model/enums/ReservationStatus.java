@@ -0,0 +1,8 @@
+package org.smartsupply.model.enums;
+
+public enum ReservationStatus {
+    ACTIVE,
+    CONFIRMED,
+    RELEASED,
+    EXPIRED
+}
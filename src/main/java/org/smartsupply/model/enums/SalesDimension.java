@@ -0,0 +1,9 @@
+package org.smartsupply.model.enums;
+
+// axes de regroupement de /api/analytics/sales
+public enum SalesDimension {
+    DAY,
+    WAREHOUSE,
+    PRODUCT,
+    STATUS
+}
@@ -0,0 +1,10 @@
+package org.smartsupply.model.enums;
+
+public enum WavePriority {
+    // plus anciennes commandes d'abord
+    AGE,
+    // tour de rôle entre clients, chacun dans l'ordre de ses commandes
+    CLIENT,
+    // commandes de plus forte valeur d'abord
+    VALUE
+}
@@ -0,0 +1,34 @@
+package org.smartsupply.repository;
+
+import jakarta.persistence.LockModeType;
+import org.smartsupply.model.entity.Backorder;
+import org.smartsupply.model.enums.BackorderStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface BackorderRepository extends JpaRepository<Backorder, Long> {
+
+    boolean existsBySalesOrderLineIdAndStatus(Long salesOrderLineId, BackorderStatus status);
+
+    // files d'attente des produits reçus, FIFO par produit
+    @Query("select distinct b.warehouse.id from Backorder b where b.status = :status")
+    List<Long> findWarehouseIdsByStatus(@Param("status") BackorderStatus status);
+
+    @Query("select distinct b.product.id from Backorder b where b.warehouse.id = :warehouseId and b.status = :status")
+    List<Long> findProductIdsByWarehouseIdAndStatus(@Param("warehouseId") Long warehouseId, @Param("status") BackorderStatus status);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from Backorder b join fetch b.salesOrderLine l join fetch l.salesOrder " +
+            "where b.warehouse.id = :warehouseId and b.product.id in :productIds and b.status = :status " +
+            "order by b.product.id, b.createdAt, b.id")
+    List<Backorder> findQueueWithLock(@Param("warehouseId") Long warehouseId,
+                                      @Param("productIds") Collection<Long> productIds,
+                                      @Param("status") BackorderStatus status);
+}
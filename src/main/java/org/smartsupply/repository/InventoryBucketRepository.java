@@ -0,0 +1,46 @@
+package org.smartsupply.repository;
+
+import jakarta.persistence.LockModeType;
+import org.smartsupply.model.entity.InventoryBucket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface InventoryBucketRepository extends JpaRepository<InventoryBucket, Long> {
+
+    // lecture sans verrou : sert seulement à choisir les buckets à tenter
+    @Query("select b from InventoryBucket b where b.inventory.product.id = :productId " +
+            "and b.inventory.warehouse.id = :warehouseId order by b.bucketIndex")
+    List<InventoryBucket> findByProductIdAndWarehouseId(@Param("productId") Long productId, @Param("warehouseId") Long warehouseId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from InventoryBucket b where b.inventory.id = :inventoryId order by b.bucketIndex")
+    List<InventoryBucket> findAllWithLockByInventoryId(@Param("inventoryId") Long inventoryId);
+
+    boolean existsByInventoryId(Long inventoryId);
+
+    @Query("select distinct b.inventory.id from InventoryBucket b")
+    List<Long> findShardedInventoryIds();
+
+    @Modifying(flushAutomatically = true)
+    @Query("update InventoryBucket b set b.qtyReserved = b.qtyReserved + :qty " +
+            "where b.id = :id and b.qtyAllotted - b.qtyReserved >= :qty")
+    int reserveIfFree(@Param("id") Long id, @Param("qty") int qty);
+
+    // rend :qty unités libres du bucket à l'inventaire parent
+    @Modifying(flushAutomatically = true)
+    @Query("update InventoryBucket b set b.qtyAllotted = b.qtyAllotted - :qty " +
+            "where b.id = :id and b.qtyAllotted - b.qtyReserved >= :qty")
+    int shrinkIfFree(@Param("id") Long id, @Param("qty") int qty);
+
+    @Modifying(flushAutomatically = true)
+    @Query("update InventoryBucket b set b.qtyReserved = b.qtyReserved - :qty " +
+            "where b.id = :id and b.qtyReserved >= :qty")
+    int release(@Param("id") Long id, @Param("qty") int qty);
+}
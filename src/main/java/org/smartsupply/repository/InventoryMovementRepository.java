@@ -1,9 +1,57 @@
 package org.smartsupply.repository;
 
+import org.smartsupply.dto.response.InventoryDeltaDto;
 import org.smartsupply.model.entity.InventoryMovement;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
 @Repository
-public interface InventoryMovementRepository extends JpaRepository<InventoryMovement, Long> {
+public interface InventoryMovementRepository extends JpaRepository<InventoryMovement, Long>, JpaSpecificationExecutor<InventoryMovement> {
+
+    // effet des mouvements sur qtyOnHand, par inventaire, sur l'intervalle ]from, to]
+    @Query("select new org.smartsupply.dto.response.InventoryDeltaDto(i.id, i.product.id, " +
+            "sum(case when m.type = org.smartsupply.model.enums.MovementType.OUTBOUND then -m.qty " +
+            "when m.type = org.smartsupply.model.enums.MovementType.RESERVATION then 0 else m.qty end)) " +
+            "from InventoryMovement m join m.inventory i " +
+            "where i.warehouse.id = :warehouseId and (:productId is null or i.product.id = :productId) " +
+            "and m.occurredAt > :from and m.occurredAt <= :to " +
+            "group by i.id, i.product.id")
+    List<InventoryDeltaDto> sumOnHandDeltaBetween(@Param("warehouseId") Long warehouseId,
+                                                  @Param("productId") Long productId,
+                                                  @Param("from") LocalDateTime from,
+                                                  @Param("to") LocalDateTime to);
+
+    // rejeu complet, utilisé tant qu'aucun instantané n'existe avant la date demandée
+    @Query("select new org.smartsupply.dto.response.InventoryDeltaDto(i.id, i.product.id, " +
+            "sum(case when m.type = org.smartsupply.model.enums.MovementType.OUTBOUND then -m.qty " +
+            "when m.type = org.smartsupply.model.enums.MovementType.RESERVATION then 0 else m.qty end)) " +
+            "from InventoryMovement m join m.inventory i " +
+            "where i.warehouse.id = :warehouseId and (:productId is null or i.product.id = :productId) " +
+            "and m.occurredAt <= :to " +
+            "group by i.id, i.product.id")
+    List<InventoryDeltaDto> sumOnHandDeltaUntil(@Param("warehouseId") Long warehouseId,
+                                                @Param("productId") Long productId,
+                                                @Param("to") LocalDateTime to);
+
+    // solde du journal par inventaire, pour la réconciliation par plage d'ids
+    @Query("select new org.smartsupply.dto.response.InventoryDeltaDto(m.inventory.id, " +
+            "sum(case when m.type = org.smartsupply.model.enums.MovementType.OUTBOUND then -m.qty " +
+            "when m.type = org.smartsupply.model.enums.MovementType.RESERVATION then 0 else m.qty end)) " +
+            "from InventoryMovement m where m.inventory.id between :fromId and :toId " +
+            "group by m.inventory.id")
+    List<InventoryDeltaDto> sumOnHandByInventoryIdBetween(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Query("select new org.smartsupply.dto.response.InventoryDeltaDto(m.inventory.id, " +
+            "sum(case when m.type = org.smartsupply.model.enums.MovementType.OUTBOUND then -m.qty " +
+            "when m.type = org.smartsupply.model.enums.MovementType.RESERVATION then 0 else m.qty end)) " +
+            "from InventoryMovement m where m.inventory.id in :ids " +
+            "group by m.inventory.id")
+    List<InventoryDeltaDto> sumOnHandByInventoryIdIn(@Param("ids") Collection<Long> ids);
 }
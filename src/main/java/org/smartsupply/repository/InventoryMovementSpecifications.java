@@ -0,0 +1,60 @@
+package org.smartsupply.repository;
+
+import jakarta.persistence.criteria.Predicate;
+import org.smartsupply.dto.request.InventoryMovementFilterDto;
+import org.smartsupply.model.entity.InventoryMovement;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class InventoryMovementSpecifications {
+
+    private InventoryMovementSpecifications() {
+    }
+
+    public static Specification<InventoryMovement> matching(InventoryMovementFilterDto filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (filter.getInventoryId() != null) {
+                predicates.add(cb.equal(root.get("inventory").get("id"), filter.getInventoryId()));
+            }
+            if (filter.getWarehouseId() != null) {
+                predicates.add(cb.equal(root.get("inventory").get("warehouse").get("id"), filter.getWarehouseId()));
+            }
+            if (filter.getProductId() != null) {
+                predicates.add(cb.equal(root.get("inventory").get("product").get("id"), filter.getProductId()));
+            }
+            if (filter.getType() != null) {
+                predicates.add(cb.equal(root.get("type"), filter.getType()));
+            }
+            if (filter.getReferencePrefix() != null && !filter.getReferencePrefix().isBlank()) {
+                predicates.add(cb.like(root.get("reference"), escapeLike(filter.getReferencePrefix()) + "%", '\\'));
+            }
+            if (filter.getFrom() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("occurredAt"), filter.getFrom()));
+            }
+            if (filter.getTo() != null) {
+                predicates.add(cb.lessThan(root.get("occurredAt"), filter.getTo()));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    // (occurredAt, id) > (afterOccurredAt, afterId)
+    public static Specification<InventoryMovement> after(LocalDateTime afterOccurredAt, Long afterId) {
+        return (root, query, cb) -> {
+            if (afterOccurredAt == null || afterId == null) {
+                return cb.conjunction();
+            }
+            return cb.or(
+                    cb.greaterThan(root.get("occurredAt"), afterOccurredAt),
+                    cb.and(cb.equal(root.get("occurredAt"), afterOccurredAt), cb.greaterThan(root.get("id"), afterId)));
+        };
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
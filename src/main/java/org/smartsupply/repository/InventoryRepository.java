@@ -1,19 +1,31 @@
 package org.smartsupply.repository;
 
+import org.smartsupply.dto.response.InventoryDriftDto;
+import org.smartsupply.dto.response.InventoryKeyDto;
+import org.smartsupply.dto.response.ProductWarehouseAvailabilityDto;
+import org.smartsupply.dto.response.WarehouseAvailabilityDto;
 import org.smartsupply.model.entity.Inventory;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import jakarta.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface InventoryRepository extends JpaRepository<Inventory, Long> {
 
+    // disponible d'une ligne d'inventaire : son stock libre plus le stock libre de ses buckets (escrow),
+    // compté dans qtyReserved du parent. Seule définition utilisée par les lectures ; avant de prélever
+    // sur la ligne, les écritures y rapatrient l'escrow nécessaire (InventoryShardingService.reclaim)
+    String AVAILABLE = "(i.qtyOnHand - i.qtyReserved + coalesce((select sum(b.qtyAllotted - b.qtyReserved) " +
+            "from InventoryBucket b where b.inventory = i), 0))";
+
     Optional<Inventory> findByProductIdAndWarehouseId(Long productId, Long warehouseId);
 
     @Lock(LockModeType.PESSIMISTIC_WRITE)
@@ -25,6 +37,32 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
     Optional<Inventory> findByWarehouseIdAndProductIdForUpdate(@Param("warehouseId") Long warehouseId,
                                                                @Param("productId") Long productId);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select i from Inventory i where i.product.id in :productIds and i.warehouse.id in :warehouseIds order by i.product.id, i.warehouse.id")
+    List<Inventory> findAllWithLockByProductIdInAndWarehouseIdIn(@Param("productIds") Collection<Long> productIds,
+                                                                 @Param("warehouseIds") Collection<Long> warehouseIds);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select i from Inventory i where i.id in :ids order by i.product.id, i.warehouse.id")
+    List<Inventory> findAllWithLockByIdIn(@Param("ids") Collection<Long> ids);
+
+    // lignes d'inventaire des seuls couples (produit, entrepôt de la commande) portés par les lignes, sans verrou
+    @Query("select distinct new org.smartsupply.dto.response.InventoryKeyDto(i.id, i.product.id, i.warehouse.id) " +
+            "from SalesOrderLine l join l.salesOrder o, Inventory i " +
+            "where o.id in :orderIds and i.product.id = l.product.id and i.warehouse.id = o.warehouse.id " +
+            "order by i.product.id, i.warehouse.id")
+    List<InventoryKeyDto> findKeysUsedByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+
+    @Query("select min(i.id) from Inventory i")
+    Optional<Long> findMinId();
+
+    @Query("select max(i.id) from Inventory i")
+    Optional<Long> findMaxId();
+
+    @Query("select new org.smartsupply.dto.response.InventoryDriftDto(i.id, i.product.id, i.warehouse.id, i.qtyOnHand) " +
+            "from Inventory i where i.id between :fromId and :toId")
+    List<InventoryDriftDto> findBalancesByIdBetween(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
     List<Inventory> findByProductId(Long productId);
 
     List<Inventory>findByProduct_Sku(String sku);
@@ -35,9 +73,37 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
     boolean existsByProductIdAndWarehouseId(Long productId, Long warehouseId);
 
 
-    @Query("SELECT i.warehouse.id FROM Inventory i WHERE i.product.id = :productId AND (i.qtyOnHand - i.qtyReserved) > 0 ORDER BY (i.qtyOnHand - i.qtyReserved) DESC")
+    @Query("SELECT i.warehouse.id FROM Inventory i WHERE i.product.id = :productId AND " + AVAILABLE + " > 0 ORDER BY " + AVAILABLE + " DESC")
     List<Long> findWarehouseIdsWithAvailable(@Param("productId") Long productId);
 
-    @Query("SELECT (i.qtyOnHand - i.qtyReserved) FROM Inventory i WHERE i.product.id = :productId AND i.warehouse.id = :warehouseId")
+    @Query("SELECT new org.smartsupply.dto.response.WarehouseAvailabilityDto(i.warehouse.id, cast(" + AVAILABLE + " as Integer)) FROM Inventory i " +
+            "WHERE i.product.id = :productId AND " + AVAILABLE + " > 0 ORDER BY " + AVAILABLE + " DESC, i.warehouse.id")
+    List<WarehouseAvailabilityDto> findAvailabilityByProductId(@Param("productId") Long productId);
+
+    @Query("SELECT " + AVAILABLE + " FROM Inventory i WHERE i.product.id = :productId AND i.warehouse.id = :warehouseId")
     Integer findAvailableByProductIdAndWarehouseId(@Param("productId") Long productId, @Param("warehouseId") Long warehouseId);
-}
\ No newline at end of file
+
+    // même calcul pour plusieurs produits, tous entrepôts confondus, en une requête
+    @Query("SELECT new org.smartsupply.dto.response.ProductWarehouseAvailabilityDto(i.product.id, i.warehouse.id, cast(" + AVAILABLE + " as Integer)) " +
+            "FROM Inventory i WHERE i.product.id IN :productIds ORDER BY i.product.id, i.warehouse.id")
+    List<ProductWarehouseAvailabilityDto> findAvailableByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    // stock libre de la seule ligne d'inventaire, hors escrow
+    @Query("SELECT i.qtyOnHand - i.qtyReserved FROM Inventory i WHERE i.id = :id")
+    Integer findRowFreeById(@Param("id") Long id);
+
+    @Query("SELECT i.id FROM Inventory i WHERE i.product.id = :productId AND i.warehouse.id = :warehouseId")
+    Optional<Long> findIdByProductIdAndWarehouseId(@Param("productId") Long productId, @Param("warehouseId") Long warehouseId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Inventory i SET i.qtyReserved = i.qtyReserved + :qty WHERE i.id = :id AND i.qtyOnHand - i.qtyReserved >= :qty")
+    int reserveIfAvailable(@Param("id") Long id, @Param("qty") int qty);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Inventory i SET i.qtyOnHand = i.qtyOnHand - :qty WHERE i.id = :id AND i.qtyOnHand - i.qtyReserved >= :qty")
+    int removeOnHandIfAvailable(@Param("id") Long id, @Param("qty") int qty);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Inventory i SET i.qtyOnHand = i.qtyOnHand + :qty WHERE i.id = :id AND i.qtyOnHand + :qty >= i.qtyReserved")
+    int addOnHandIfNotBelowReserved(@Param("id") Long id, @Param("qty") int qty);
+}
@@ -0,0 +1,36 @@
+package org.smartsupply.repository;
+
+import org.smartsupply.model.entity.InventorySnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface InventorySnapshotRepository extends JpaRepository<InventorySnapshot, Long> {
+
+    // un seul INSERT ... SELECT pour toutes les lignes d'inventaire, horodaté par la base
+    // dans la même instruction que la lecture des quantités
+    @Modifying
+    @Query("insert into InventorySnapshot (inventory, qtyOnHand, qtyReserved, takenAt) " +
+            "select i, i.qtyOnHand, i.qtyReserved, local datetime from Inventory i")
+    int snapshotAll();
+
+    @Query("select max(s.takenAt) from InventorySnapshot s")
+    Optional<LocalDateTime> findLatestTakenAt();
+
+    @Query("select max(s.takenAt) from InventorySnapshot s where s.takenAt <= :at")
+    Optional<LocalDateTime> findLatestTakenAtNotAfter(@Param("at") LocalDateTime at);
+
+    @Query("select s from InventorySnapshot s join fetch s.inventory i " +
+            "where s.takenAt = :takenAt and i.warehouse.id = :warehouseId " +
+            "and (:productId is null or i.product.id = :productId)")
+    List<InventorySnapshot> findByTakenAtAndWarehouse(@Param("takenAt") LocalDateTime takenAt,
+                                                      @Param("warehouseId") Long warehouseId,
+                                                      @Param("productId") Long productId);
+}
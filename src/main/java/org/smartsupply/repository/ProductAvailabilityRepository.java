@@ -0,0 +1,51 @@
+package org.smartsupply.repository;
+
+import org.smartsupply.model.entity.ProductAvailability;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ProductAvailabilityRepository extends JpaRepository<ProductAvailability, Long> {
+
+    @Modifying(flushAutomatically = true)
+    @Query("update ProductAvailability p set p.qtyOnHand = p.qtyOnHand + :onHandDelta, " +
+            "p.qtyReserved = p.qtyReserved + :reservedDelta, " +
+            "p.available = p.available + :onHandDelta - :reservedDelta, p.updatedAt = :now " +
+            "where p.productId = :productId")
+    int applyDelta(@Param("productId") Long productId,
+                   @Param("onHandDelta") int onHandDelta,
+                   @Param("reservedDelta") int reservedDelta,
+                   @Param("now") LocalDateTime now);
+
+    // première ligne du produit ; ne fait rien si une transaction concurrente l'a déjà créée
+    @Modifying(flushAutomatically = true)
+    @Query("insert into ProductAvailability (productId, qtyOnHand, qtyReserved, available, updatedAt) " +
+            "values (:productId, :qtyOnHand, :qtyReserved, :qtyOnHand - :qtyReserved, :now) on conflict do nothing")
+    int insertIfAbsent(@Param("productId") Long productId,
+                       @Param("qtyOnHand") int qtyOnHand,
+                       @Param("qtyReserved") int qtyReserved,
+                       @Param("now") LocalDateTime now);
+
+    // recalcul depuis les inventaires, quand la ligne n'existe pas encore
+    @Query("select coalesce(sum(i.qtyOnHand), 0) from Inventory i where i.product.id = :productId")
+    long sumOnHandByProductId(@Param("productId") Long productId);
+
+    // le stock libre des buckets est compté dans qtyReserved des inventaires mais n'est pas réservé
+    @Query("select coalesce(sum(i.qtyReserved), 0) - coalesce((select sum(b.qtyAllotted - b.qtyReserved) " +
+            "from InventoryBucket b where b.inventory.product.id = :productId), 0) " +
+            "from Inventory i where i.product.id = :productId")
+    long sumReservedByProductId(@Param("productId") Long productId);
+
+    @Modifying
+    @Query("delete from ProductAvailability p")
+    int deleteAllRows();
+
+    @Query("select distinct i.product.id from Inventory i")
+    List<Long> findProductIdsWithInventory();
+}
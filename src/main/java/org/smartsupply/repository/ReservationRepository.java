@@ -0,0 +1,39 @@
+package org.smartsupply.repository;
+
+import jakarta.persistence.LockModeType;
+import org.smartsupply.model.entity.Reservation;
+import org.smartsupply.model.enums.ReservationStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReservationRepository extends JpaRepository<Reservation, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from Reservation r where r.id = :id")
+    Optional<Reservation> findWithLockById(@Param("id") String id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from Reservation r where r.id in :ids and r.status = :status and r.expiresAt <= :now order by r.id")
+    List<Reservation> findAllWithLockExpired(@Param("ids") Collection<String> ids,
+                                             @Param("status") ReservationStatus status,
+                                             @Param("now") LocalDateTime now);
+
+    List<Reservation> findByStatus(ReservationStatus status);
+
+    List<Reservation> findByIdInAndStatus(Collection<String> ids, ReservationStatus status);
+
+    // avant suppression des buckets : les réservations restantes portent alors sur l'inventaire parent
+    @Modifying(flushAutomatically = true)
+    @Query("update Reservation r set r.bucket = null where r.bucket.id in :bucketIds")
+    int detachBuckets(@Param("bucketIds") Collection<Long> bucketIds);
+}
@@ -0,0 +1,45 @@
+package org.smartsupply.repository;
+
+import org.smartsupply.dto.response.SalesAnalyticsRowDto;
+import org.smartsupply.model.entity.SalesDailyOrderRollup;
+import org.smartsupply.model.entity.SalesDailyOrderRollupId;
+import org.smartsupply.model.enums.OrderStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SalesDailyOrderRollupRepository extends JpaRepository<SalesDailyOrderRollup, SalesDailyOrderRollupId> {
+
+    @Modifying(flushAutomatically = true)
+    @Query("insert into SalesDailyOrderRollup (id.day, id.warehouseId, id.status, orderCount, qtyOrdered, amount, updatedAt) " +
+            "values (:day, :warehouseId, :status, :orders, :qty, :amount, :now) " +
+            "on conflict (id) do update set orderCount = orderCount + excluded.orderCount, " +
+            "qtyOrdered = qtyOrdered + excluded.qtyOrdered, amount = amount + excluded.amount, updatedAt = excluded.updatedAt")
+    int upsertDelta(@Param("day") LocalDate day,
+                    @Param("warehouseId") Long warehouseId,
+                    @Param("status") OrderStatus status,
+                    @Param("orders") long orders,
+                    @Param("qty") long qty,
+                    @Param("amount") BigDecimal amount,
+                    @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("delete from SalesDailyOrderRollup r where r.id.day = :day")
+    int deleteByDay(@Param("day") LocalDate day);
+
+    // recalcul depuis les commandes et leurs lignes, pour une plage [start, end) ; productId reste null
+    @Query("select new org.smartsupply.dto.response.SalesAnalyticsRowDto(cast(o.createdAt as LocalDate), o.warehouse.id, " +
+            "cast(null as Long), o.status, count(distinct o.id), coalesce(sum(l.qtyOrdered), 0), coalesce(sum(l.price), 0)) " +
+            "from SalesOrderLine l join l.salesOrder o " +
+            "where o.createdAt >= :start and o.createdAt < :end " +
+            "group by cast(o.createdAt as LocalDate), o.warehouse.id, o.status")
+    List<SalesAnalyticsRowDto> aggregateOrders(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+}
@@ -1,32 +1,67 @@
 package org.smartsupply.repository;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.smartsupply.model.entity.SalesOrder;
 import org.smartsupply.model.enums.OrderStatus;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface SalesOrderRepository extends JpaRepository<SalesOrder, Long> {
+public interface SalesOrderRepository extends JpaRepository<SalesOrder, Long>, JpaSpecificationExecutor<SalesOrder> {
 
     List<SalesOrder> findByClientId(Long clientId);
 
+    // détail : commande, client, entrepôt, lignes et produits en une seule requête. L'expédition (OneToOne
+    // côté inverse) est toujours chargée par Hibernate : on la joint plutôt qu'une requête par commande
+    @EntityGraph(attributePaths = {"client", "warehouse", "shipment", "lines", "lines.product"})
+    Optional<SalesOrder> findWithDetailsById(Long id);
 
-    Page<SalesOrder> findByStatus(OrderStatus status, Pageable pageable);
+    // listes paginées : seules les associations ToOne sont jointes, la pagination reste en SQL
+    @Override
+    @EntityGraph(attributePaths = {"client", "warehouse", "shipment"})
+    Page<SalesOrder> findAll(Specification<SalesOrder> spec, Pageable pageable);
 
+    // reprise des commandes antérieures aux colonnes de totaux (line_count resté à 0 alors que des lignes existent)
+    @Modifying
+    @Query("update SalesOrder o set " +
+            "o.lineCount = (select count(l) from SalesOrderLine l where l.salesOrder = o), " +
+            "o.totalQty = (select coalesce(sum(l.qtyOrdered), 0) from SalesOrderLine l where l.salesOrder = o), " +
+            "o.totalAmount = (select coalesce(sum(l.price), 0) from SalesOrderLine l where l.salesOrder = o) " +
+            "where o.lineCount = 0 and exists (select l.id from SalesOrderLine l where l.salesOrder = o)")
+    int backfillTotals();
 
-    Page<SalesOrder> findByClientId(Long clientId, Pageable pageable);
 
+    boolean existsByIdAndStatus(Long id, OrderStatus status);
 
-    Page<SalesOrder> findByCreatedAtBetween(LocalDateTime start, LocalDateTime end, Pageable pageable);
-
+    // vague d'allocation : candidats, puis clés (produit, entrepôt) à verrouiller avant les commandes
+    @Query("select o.id from SalesOrder o where o.status = :status and o.createdAt >= :from and o.createdAt < :to " +
+            "and (:warehouseId is null or o.warehouse.id = :warehouseId) order by o.createdAt, o.id")
+    List<Long> findIdsForWave(@Param("status") OrderStatus status,
+                              @Param("from") LocalDateTime from,
+                              @Param("to") LocalDateTime to,
+                              @Param("warehouseId") Long warehouseId,
+                              Limit limit);
 
-    Page<SalesOrder> findByStatusAndClientId(OrderStatus status, Long clientId, Pageable pageable);
-    Page<SalesOrder> findByClientIdAndCreatedAtBetween(Long clientId, LocalDateTime start, LocalDateTime end, Pageable pageable);
-    Page<SalesOrder> findByStatusAndCreatedAtBetween(OrderStatus status, LocalDateTime start, LocalDateTime end, Pageable pageable);
-    Page<SalesOrder> findByStatusAndClientIdAndCreatedAtBetween(OrderStatus status, Long clientId, LocalDateTime start, LocalDateTime end, Pageable pageable);
+    // lignes et produits d'une page de commandes déjà chargée, en une requête : la pagination reste sur la requête de page
+    @EntityGraph(attributePaths = {"lines", "lines.product"})
+    @Query("select o from SalesOrder o where o.id in :ids")
+    List<SalesOrder> findWithLinesByIdIn(@Param("ids") Collection<Long> ids);
 
-    boolean existsByIdAndStatus(Long id, OrderStatus status);
-}
\ No newline at end of file
+    // pas de DISTINCT : Postgres le refuse avec FOR UPDATE, Hibernate dédoublonne les commandes
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from SalesOrder o join fetch o.lines where o.id in :ids order by o.id")
+    List<SalesOrder> findAllWithLinesAndLockByIdIn(@Param("ids") Collection<Long> ids);
+}
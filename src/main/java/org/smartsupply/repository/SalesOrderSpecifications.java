@@ -0,0 +1,70 @@
+package org.smartsupply.repository;
+
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Subquery;
+import org.smartsupply.dto.request.SalesOrderFilterDto;
+import org.smartsupply.model.entity.SalesOrder;
+import org.smartsupply.model.entity.SalesOrderLine;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class SalesOrderSpecifications {
+
+    private SalesOrderSpecifications() {
+    }
+
+    public static Specification<SalesOrder> matching(SalesOrderFilterDto filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (filter.getStatus() != null) {
+                predicates.add(cb.equal(root.get("status"), filter.getStatus()));
+            }
+            if (filter.getClientId() != null) {
+                predicates.add(cb.equal(root.get("client").get("id"), filter.getClientId()));
+            }
+            if (filter.getWarehouseId() != null) {
+                predicates.add(cb.equal(root.get("warehouse").get("id"), filter.getWarehouseId()));
+            }
+            // EXISTS plutôt qu'une jointure : pas de doublons, donc ni DISTINCT ni COUNT(DISTINCT)
+            if (filter.getProductId() != null) {
+                Subquery<Long> line = query.subquery(Long.class);
+                var l = line.from(SalesOrderLine.class);
+                line.select(l.get("id")).where(
+                        cb.equal(l.get("salesOrder"), root),
+                        cb.equal(l.get("product").get("id"), filter.getProductId()));
+                predicates.add(cb.exists(line));
+            }
+            if (filter.getMinAmount() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("totalAmount"), filter.getMinAmount()));
+            }
+            if (filter.getMaxAmount() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("totalAmount"), filter.getMaxAmount()));
+            }
+            if (filter.getFrom() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("createdAt"), filter.getFrom()));
+            }
+            if (filter.getTo() != null) {
+                predicates.add(cb.lessThan(root.get("createdAt"), filter.getTo()));
+            }
+            if (filter.getUntil() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("createdAt"), filter.getUntil()));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    // (createdAt, id) > (afterCreatedAt, afterId)
+    public static Specification<SalesOrder> after(LocalDateTime afterCreatedAt, Long afterId) {
+        return (root, query, cb) -> {
+            if (afterCreatedAt == null || afterId == null) {
+                return cb.conjunction();
+            }
+            return cb.or(
+                    cb.greaterThan(root.get("createdAt"), afterCreatedAt),
+                    cb.and(cb.equal(root.get("createdAt"), afterCreatedAt), cb.greaterThan(root.get("id"), afterId)));
+        };
+    }
+}
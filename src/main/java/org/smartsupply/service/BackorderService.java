@@ -0,0 +1,14 @@
+package org.smartsupply.service;
+
+import org.smartsupply.model.entity.SalesOrderLine;
+
+import java.util.Collection;
+
+public interface BackorderService {
+
+    // met la ligne en file d'attente de son (produit, entrepôt), sans doublon
+    void enqueue(SalesOrderLine line);
+
+    // répartit le stock libre des produits reçus entre les lignes en attente, plus ancienne d'abord
+    int allocate(Long warehouseId, Collection<Long> productIds);
+}
@@ -0,0 +1,17 @@
+package org.smartsupply.service;
+
+import org.smartsupply.dto.request.InventoryMovementFilterDto;
+import org.smartsupply.dto.response.InventoryMovementDto;
+import org.smartsupply.dto.response.KeysetPageDto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+public interface InventoryMovementService {
+
+    KeysetPageDto<InventoryMovementDto> list(InventoryMovementFilterDto filter, LocalDateTime afterOccurredAt, Long afterId, int size);
+
+    // writes every matching movement as one JSON object per line (NDJSON)
+    void export(InventoryMovementFilterDto filter, OutputStream out) throws IOException;
+}
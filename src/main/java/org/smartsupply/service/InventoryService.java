@@ -1,6 +1,12 @@
 package org.smartsupply.service;
 
+import org.smartsupply.dto.request.AvailabilityCheckLineDto;
+import org.smartsupply.dto.request.InventoryRequestDto;
+import org.smartsupply.dto.response.AvailabilityCheckResultDto;
+
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface InventoryService {
 
@@ -8,6 +14,9 @@ public interface InventoryService {
 
     void inbound(Long productId, Long warehouseId, Integer qty, String reference);
 
+    // inbound of several products into one warehouse: one locked read, movements saved as one batch
+    void inboundAll(Long warehouseId, List<InventoryRequestDto> lines);
+
     void outbound(Long productId, Long warehouseId, Integer qty, String reference);
 
     void adjustment(Long productId, Long warehouseId, Integer qty, String reference);
@@ -15,11 +24,27 @@ public interface InventoryService {
     // returns reservation id string
    String reserve(Long productId, Long warehouseId, Integer qty, String sourceRef, long ttlSeconds);
 
+    void confirmReservation(String reservationId);
+
+    void releaseReservation(String reservationId);
+
+    // releases the given reservations that are still active and past their expiry, returns the ids released
+    List<String> releaseExpired(Collection<String> reservationIds);
+
+    // reserves every product in one locked pass, returns the product ids that could not be covered
+    List<Long> reserveAll(Long warehouseId, Map<Long, Integer> qtyByProduct, String reference);
+
 
 
     void transfer(Long productId, Long sourceWarehouseId, Long targetWarehouseId, Integer qty, String reference);
 
+    // transfère plusieurs produits entre deux entrepôts en une transaction, tout ou rien
+    int transferAll(Long sourceWarehouseId, Long targetWarehouseId, Map<Long, Integer> qtyByProduct, String reference);
+
     List<Long> findWarehousesWithAvailable(Long productId);
 
     Integer getAvailable(Long productId, Long warehouseId);
-}
\ No newline at end of file
+
+    // disponibilité de plusieurs lignes en une seule requête ; chaque ligne est évaluée indépendamment
+    List<AvailabilityCheckResultDto> checkAvailability(List<AvailabilityCheckLineDto> lines);
+}
@@ -0,0 +1,36 @@
+package org.smartsupply.service;
+
+import org.smartsupply.model.entity.InventoryBucket;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface InventoryShardingService {
+
+    // découpe l'inventaire en K buckets et y place une partie du stock libre ; renvoie les unités en escrow
+    int shard(Long inventoryId, int bucketCount);
+
+    // rend le stock libre des buckets à l'inventaire et supprime les buckets
+    void unshard(Long inventoryId);
+
+    // répartit à nouveau le stock libre entre l'inventaire et ses buckets ; renvoie les unités en escrow
+    int rebalance(Long inventoryId);
+
+    List<Long> findShardedInventoryIds();
+
+    boolean isEnabled();
+
+    boolean isSharded(Long productId, Long warehouseId);
+
+    // recharge depuis la base la liste en mémoire des couples (produit, entrepôt) shardés
+    void refreshShardedKeys();
+
+    // réserve dans un bucket tiré au hasard, puis dans les autres ; vide si aucun bucket n'a assez de stock
+    Optional<InventoryBucket> reserve(Long productId, Long warehouseId, int qty);
+
+    void release(Long bucketId, int qty);
+
+    // avant un prélèvement de qty sur la ligne d'inventaire : y rapatrie le stock libre des buckets qui
+    // manque à la ligne ; sans effet pour un inventaire non shardé. Renvoie les unités rapatriées
+    int reclaim(Long productId, Long warehouseId, int qty);
+}
@@ -0,0 +1,13 @@
+package org.smartsupply.service;
+
+import org.smartsupply.dto.response.InventoryAsOfDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface InventorySnapshotService {
+
+    int takeSnapshot();
+
+    List<InventoryAsOfDto> stockAsOf(Long warehouseId, Long productId, LocalDateTime at);
+}
@@ -0,0 +1,13 @@
+package org.smartsupply.service;
+
+import org.smartsupply.dto.response.AvailableToPromiseDto;
+
+public interface ProductAvailabilityService {
+
+    // enregistre la variation du produit ; appliquée au rollup juste avant le commit de la transaction courante
+    void record(Long productId, int onHandDelta, int reservedDelta);
+
+    AvailableToPromiseDto availableToPromise(Long productId, int qty);
+
+    int rebuildAll();
+}
@@ -0,0 +1,9 @@
+package org.smartsupply.service;
+
+import org.smartsupply.dto.response.ReconciliationReportDto;
+
+public interface ReconciliationService {
+
+    // compare qtyOnHand au journal des mouvements ; applyCorrections écrit les mouvements correctifs
+    ReconciliationReportDto reconcile(boolean applyCorrections);
+}
@@ -0,0 +1,8 @@
+package org.smartsupply.service;
+
+import org.smartsupply.dto.response.ReservationJobDto;
+
+public interface ReservationJobService {
+    ReservationJobDto submit(Long orderId);
+    ReservationJobDto get(String jobId);
+}
@@ -0,0 +1,23 @@
+package org.smartsupply.service;
+
+import org.smartsupply.dto.response.SalesAnalyticsRowDto;
+import org.smartsupply.model.entity.SalesOrder;
+import org.smartsupply.model.enums.OrderStatus;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+public interface SalesAnalyticsService {
+
+    // ajoute (sign = 1) ou retire (sign = -1) la contribution de la commande sous ce statut ; appliqué après le commit
+    void record(SalesOrder order, OrderStatus status, int sign);
+
+    int rebuild(LocalDate day);
+
+    // jours dont une mise à jour incrémentale a échoué et qui attendent une reconstruction
+    Set<LocalDate> staleDays();
+
+    List<SalesAnalyticsRowDto> aggregate(LocalDate from, LocalDate to, Long warehouseId, Long productId,
+                                         String status, List<String> groupBy);
+}
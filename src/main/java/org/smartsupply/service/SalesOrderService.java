@@ -1,20 +1,36 @@
 package org.smartsupply.service;
 
+import org.smartsupply.dto.request.SalesOrderFilterDto;
 import org.smartsupply.dto.request.SalesOrderRequestDto;
 import org.smartsupply.dto.request.SalesOrderLineRequestDto;
+import org.smartsupply.dto.request.ShipOrderRequestDto;
+import org.smartsupply.dto.response.KeysetPageDto;
+import org.smartsupply.dto.response.SalesOrderBatchResultDto;
 import org.smartsupply.dto.response.SalesOrderResponseDto;
+import org.smartsupply.dto.response.SalesOrderSummaryDto;
+import org.smartsupply.dto.response.ShipOrderResultDto;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 
 public interface SalesOrderService {
     SalesOrderResponseDto create(SalesOrderRequestDto request);
+    SalesOrderResponseDto create(SalesOrderRequestDto request, boolean reserve);
+    List<SalesOrderBatchResultDto> createBatch(List<SalesOrderRequestDto> requests);
     SalesOrderResponseDto getById(Long id);
-    Page<SalesOrderResponseDto> listAll(String status, Long clientId, LocalDateTime startDate, LocalDateTime endDate, Pageable pageable);
+    Page<SalesOrderResponseDto> listAll(String status, Long clientId, LocalDateTime startDate, LocalDateTime endDate,
+                                        BigDecimal minAmount, BigDecimal maxAmount, Pageable pageable);
+    Page<SalesOrderSummaryDto> listSummaries(String status, Long clientId, LocalDateTime startDate, LocalDateTime endDate,
+                                             BigDecimal minAmount, BigDecimal maxAmount, Pageable pageable);
+    KeysetPageDto<SalesOrderSummaryDto> search(SalesOrderFilterDto filter, LocalDateTime afterCreatedAt, Long afterId, int size, boolean withCount);
     SalesOrderResponseDto addLine(Long orderId, SalesOrderLineRequestDto lineRequest);
     SalesOrderResponseDto updateStatus(Long orderId, String newStatus);
     void delete(Long id);
 
     void shipOrder(Long orderId, String trackingNumber);
+
+    List<ShipOrderResultDto> shipBatch(List<ShipOrderRequestDto> orders);
 }
\ No newline at end of file
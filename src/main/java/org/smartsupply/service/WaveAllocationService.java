@@ -0,0 +1,15 @@
+package org.smartsupply.service;
+
+import org.smartsupply.dto.response.WaveReportDto;
+import org.smartsupply.model.enums.WavePriority;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface WaveAllocationService {
+
+    // réserve en une passe les commandes CREATED créées dans [from, to), warehouseId optionnel
+    WaveReportDto runWave(LocalDateTime from, LocalDateTime to, WavePriority priority, Long warehouseId);
+
+    List<WaveReportDto> recentWaves();
+}
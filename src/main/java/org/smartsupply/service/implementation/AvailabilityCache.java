@@ -0,0 +1,199 @@
+package org.smartsupply.service.implementation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.smartsupply.dto.response.AvailabilityCacheStatsDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cache borné (LRU + TTL court) des lectures de disponibilité, clé (vue, productId, warehouseId).
+ * Les entrées d'un produit vivent dans le même segment : une mutation invalide, après commit,
+ * la clé (productId, warehouseId) et les vues produit (warehouseId null) en une seule opération.
+ * Un chargement concurrent d'une invalidation n'est pas mis en cache, sa valeur peut être périmée ;
+ * un chargement fait dans une transaction d'écriture non plus, sa valeur n'est peut-être jamais validée.
+ */
+@Component
+@Slf4j
+public class AvailabilityCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final boolean enabled;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final Set<String> views = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    @Autowired
+    public AvailabilityCache(@Value("${smartsupply.inventory.cache.enabled:true}") boolean enabled,
+                             @Value("${smartsupply.inventory.cache.max-size:10000}") int maxSize,
+                             @Value("${smartsupply.inventory.cache.ttl-ms:2000}") long ttlMillis) {
+        if (maxSize < SEGMENTS) {
+            throw new IllegalArgumentException("La taille du cache doit être >= " + SEGMENTS);
+        }
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(maxSize / SEGMENTS);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String view, Long productId, Long warehouseId, Supplier<T> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        views.add(view);
+        Key key = new Key(view, productId, warehouseId);
+        Segment segment = segmentFor(productId);
+        long stamp;
+        synchronized (segment) {
+            Entry entry = segment.get(key);
+            if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+                hits.increment();
+                return (T) entry.value;
+            }
+            stamp = segment.generation;
+        }
+        misses.increment();
+        T value = loader.get();
+        // lu dans une transaction d'écriture : la valeur peut inclure ses modifications, perdues si elle est annulée
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return value;
+        }
+        synchronized (segment) {
+            if (segment.generation == stamp) {
+                segment.put(key, new Entry(value, System.nanoTime() + ttlNanos));
+            }
+        }
+        return value;
+    }
+
+    // dans une transaction, l'invalidation attend le commit : avant, les autres lecteurs voient encore l'ancien état
+    public void invalidate(Long productId, Long warehouseId) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(productId, warehouseId);
+            return;
+        }
+        InvalidationSynchronization sync = TransactionSynchronizationManager.getSynchronizations().stream()
+                .filter(InvalidationSynchronization.class::isInstance)
+                .map(InvalidationSynchronization.class::cast)
+                .findFirst()
+                .orElseGet(() -> {
+                    InvalidationSynchronization created = new InvalidationSynchronization();
+                    TransactionSynchronizationManager.registerSynchronization(created);
+                    return created;
+                });
+        sync.keys.add(new Key(null, productId, warehouseId));
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+                segment.generation++;
+            }
+        }
+    }
+
+    public AvailabilityCacheStatsDto stats() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        long h = hits.sum();
+        long m = misses.sum();
+        return AvailabilityCacheStatsDto.builder()
+                .enabled(enabled)
+                .size(size)
+                .maxSize(maxSize)
+                .hits(h)
+                .misses(m)
+                .evictions(evictions.sum())
+                .invalidations(invalidations.sum())
+                .hitRate(h + m == 0 ? 0 : (double) h / (h + m))
+                .build();
+    }
+
+    private void evict(Long productId, Long warehouseId) {
+        Segment segment = segmentFor(productId);
+        synchronized (segment) {
+            for (String view : views) {
+                segment.remove(new Key(view, productId, warehouseId));
+                segment.remove(new Key(view, productId, null));
+            }
+            segment.generation++;
+        }
+        invalidations.increment();
+    }
+
+    private Segment segmentFor(Long productId) {
+        int h = Long.hashCode(productId);
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private record Key(String view, Long productId, Long warehouseId) {
+    }
+
+    private record Entry(Object value, long expiresAt) {
+    }
+
+    // LinkedHashMap en ordre d'accès : l'entrée la moins récemment lue est évincée au-delà de la capacité
+    private class Segment extends LinkedHashMap<Key, Entry> {
+
+        private final int capacity;
+        private long generation;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private class InvalidationSynchronization implements TransactionSynchronization {
+
+        private final Set<Key> keys = new LinkedHashSet<>();
+
+        @Override
+        public void afterCommit() {
+            keys.forEach(k -> evict(k.productId(), k.warehouseId()));
+        }
+    }
+}
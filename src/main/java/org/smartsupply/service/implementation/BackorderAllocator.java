@@ -0,0 +1,68 @@
+package org.smartsupply.service.implementation;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.smartsupply.event.StockReceivedEvent;
+import org.smartsupply.model.enums.BackorderStatus;
+import org.smartsupply.repository.BackorderRepository;
+import org.smartsupply.service.BackorderService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Déclenche l'allocation des backorders après le commit d'une entrée de stock. L'allocation tourne
+ * sur un thread dédié, dans sa propre transaction : la réception n'attend pas, et deux allocations
+ * ne se disputent jamais les mêmes files. Une allocation perdue (arrêt, échec, conflit de version sur
+ * une ligne) est rattrapée par le balayage périodique des files ouvertes.
+ */
+@Component
+@Slf4j
+public class BackorderAllocator {
+
+    private final BackorderService backorderService;
+    private final BackorderRepository backorderRepository;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "backorder-allocator");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public BackorderAllocator(BackorderService backorderService, BackorderRepository backorderRepository) {
+        this.backorderService = backorderService;
+        this.backorderRepository = backorderRepository;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onStockReceived(StockReceivedEvent event) {
+        submit(event.getWarehouseId(), event.getProductIds());
+    }
+
+    // même thread que les allocations déclenchées par les réceptions : pas de file servie deux fois en parallèle
+    @Scheduled(fixedDelayString = "${smartsupply.backorders.sweep-ms:60000}")
+    public void sweepWaiting() {
+        for (Long warehouseId : backorderRepository.findWarehouseIdsByStatus(BackorderStatus.WAITING)) {
+            submit(warehouseId, backorderRepository.findProductIdsByWarehouseIdAndStatus(warehouseId, BackorderStatus.WAITING));
+        }
+    }
+
+    private void submit(Long warehouseId, Collection<Long> productIds) {
+        executor.execute(() -> {
+            try {
+                backorderService.allocate(warehouseId, productIds);
+            } catch (Exception e) {
+                log.error("Échec de l'allocation des backorders warehouse={} products={}", warehouseId, productIds, e);
+            }
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,136 @@
+package org.smartsupply.service.implementation;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.smartsupply.model.entity.*;
+import org.smartsupply.model.enums.BackorderStatus;
+import org.smartsupply.model.enums.MovementType;
+import org.smartsupply.model.enums.OrderStatus;
+import org.smartsupply.repository.BackorderRepository;
+import org.smartsupply.repository.InventoryMovementRepository;
+import org.smartsupply.repository.InventoryRepository;
+import org.smartsupply.repository.SalesOrderRepository;
+import org.smartsupply.service.BackorderService;
+import org.smartsupply.service.InventoryShardingService;
+import org.smartsupply.service.ProductAvailabilityService;
+import org.smartsupply.service.SalesAnalyticsService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BackorderServiceImp implements BackorderService {
+
+    private final BackorderRepository backorderRepository;
+    private final InventoryRepository inventoryRepository;
+    private final InventoryMovementRepository movementRepository;
+    private final SalesOrderRepository salesOrderRepository;
+    private final ProductAvailabilityService availabilityService;
+    private final AvailabilityCache availabilityCache;
+    private final SalesAnalyticsService salesAnalyticsService;
+    private final InventoryShardingService shardingService;
+
+    @Override
+    @Transactional
+    public void enqueue(SalesOrderLine line) {
+        if (line.getId() != null && backorderRepository.existsBySalesOrderLineIdAndStatus(line.getId(), BackorderStatus.WAITING)) {
+            return;
+        }
+        backorderRepository.save(Backorder.builder()
+                .salesOrderLine(line)
+                .product(line.getProduct())
+                .warehouse(line.getSalesOrder().getWarehouse())
+                .build());
+        log.info("Backorder créé pour order={} product={}", line.getSalesOrder().getId(), line.getProduct().getId());
+    }
+
+    @Override
+    @Transactional
+    public int allocate(Long warehouseId, Collection<Long> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return 0;
+        }
+        // file servie jusqu'à épuisement : tout l'escrow libre revient d'abord sur les lignes d'inventaire
+        new TreeSet<>(productIds).forEach(productId -> shardingService.reclaim(productId, warehouseId, Integer.MAX_VALUE));
+        // inventaires verrouillés avant les files, dans l'ordre des autres chemins de réservation
+        Map<Long, Inventory> inventories = inventoryRepository
+                .findAllWithLockByProductIdInAndWarehouseIdIn(productIds, List.of(warehouseId))
+                .stream()
+                .collect(Collectors.toMap(i -> i.getProduct().getId(), Function.identity()));
+        List<Backorder> queue = backorderRepository.findQueueWithLock(warehouseId, productIds, BackorderStatus.WAITING);
+        if (queue.isEmpty()) {
+            return 0;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<InventoryMovement> movements = new ArrayList<>();
+        Set<SalesOrder> touched = new LinkedHashSet<>();
+        int allocated = 0;
+
+        for (Backorder backorder : queue) {
+            SalesOrderLine line = backorder.getSalesOrderLine();
+            SalesOrder order = line.getSalesOrder();
+            int missing = line.getQtyOrdered() - line.getQtyReserved();
+            // commande annulée ou ligne déjà couverte par une réservation manuelle : on sort de la file
+            if (order.getStatus() != OrderStatus.CREATED || missing <= 0) {
+                close(backorder, order.getStatus() == OrderStatus.CANCELED ? BackorderStatus.CANCELED : BackorderStatus.ALLOCATED, now);
+                continue;
+            }
+
+            Long productId = backorder.getProduct().getId();
+            Inventory inv = inventories.get(productId);
+            int free = inv == null ? 0 : inv.getQtyOnHand() - inv.getQtyReserved();
+            if (free <= 0) {
+                continue;
+            }
+
+            // FIFO strict : la ligne la plus ancienne prend ce qui est disponible, même partiellement
+            int qty = Math.min(free, missing);
+            inv.setQtyReserved(inv.getQtyReserved() + qty);
+            line.setQtyReserved(line.getQtyReserved() + qty);
+            movements.add(InventoryMovement.builder()
+                    .inventory(inv)
+                    .type(MovementType.RESERVATION)
+                    .qty(qty)
+                    .occurredAt(now)
+                    .reference("SO" + order.getId())
+                    .build());
+            availabilityService.record(productId, 0, qty);
+            availabilityCache.invalidate(productId, warehouseId);
+            allocated += qty;
+            touched.add(order);
+
+            if (line.getQtyReserved() == line.getQtyOrdered()) {
+                close(backorder, BackorderStatus.ALLOCATED, now);
+            }
+        }
+
+        for (SalesOrder order : touched) {
+            if (order.getStatus() != OrderStatus.RESERVED
+                    && order.getLines().stream().allMatch(l -> l.getQtyReserved() == l.getQtyOrdered())) {
+                salesAnalyticsService.record(order, order.getStatus(), -1);
+                order.setStatus(OrderStatus.RESERVED);
+                salesAnalyticsService.record(order, OrderStatus.RESERVED, 1);
+                log.info("Commande {} entièrement réservée par allocation de backorders", order.getId());
+            }
+        }
+
+        inventoryRepository.saveAll(inventories.values());
+        movementRepository.saveAll(movements);
+        backorderRepository.saveAll(queue);
+        salesOrderRepository.saveAll(touched);
+        log.info("Allocation backorders warehouse={} : {} unité(s) sur {} ligne(s) en attente", warehouseId, allocated, queue.size());
+        return allocated;
+    }
+
+    private void close(Backorder backorder, BackorderStatus status, LocalDateTime now) {
+        backorder.setStatus(status);
+        backorder.setClosedAt(now);
+    }
+}
@@ -0,0 +1,157 @@
+package org.smartsupply.service.implementation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.smartsupply.exception.BusinessException;
+import org.smartsupply.exception.DuplicateResourceException;
+import org.smartsupply.model.entity.IdempotencyRecord;
+import org.smartsupply.repository.IdempotencyRecordRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Réponses des requêtes portant une Idempotency-Key : LRU borné en mémoire devant la table idempotency_keys
+ * (TTL, purge planifiée). Une seule exécution par clé à la fois dans l'instance : les doublons concurrents
+ * attendent le résultat de la première et le rejouent ; si elle échoue, l'un d'eux reprend la main.
+ */
+@Component
+@Slf4j
+public class IdempotencyStore {
+
+    public record StoredResponse(String fingerprint, int status, String contentType, String body,
+                                 LocalDateTime expiresAt) {
+    }
+
+    private final IdempotencyRecordRepository repository;
+    private final Duration ttl;
+    private final long waitMillis;
+    private final Map<String, StoredResponse> recent;
+    private final ConcurrentMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    @Autowired
+    public IdempotencyStore(IdempotencyRecordRepository repository,
+                            @Value("${smartsupply.idempotency.ttl-hours:24}") long ttlHours,
+                            @Value("${smartsupply.idempotency.cache-size:10000}") int cacheSize,
+                            @Value("${smartsupply.idempotency.wait-ms:30000}") long waitMillis) {
+        this.repository = repository;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.waitMillis = waitMillis;
+        this.recent = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Réponse à rejouer pour cette clé, ou vide si l'appelant doit exécuter la requête. Dans ce cas il
+     * devient propriétaire de la clé et doit appeler {@link #complete} ou {@link #release}.
+     */
+    public Optional<StoredResponse> acquire(String key, String fingerprint) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        while (true) {
+            StoredResponse cached = recent.get(key);
+            if (cached != null && cached.expiresAt().isAfter(LocalDateTime.now())) {
+                return Optional.of(matching(cached, fingerprint));
+            }
+
+            CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+            CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(key, mine);
+            if (running == null) {
+                // propriétaire : la réponse peut encore être en base (sortie du LRU, redémarrage, autre instance)
+                StoredResponse stored;
+                try {
+                    stored = repository.findById(key)
+                            .filter(r -> r.getExpiresAt().isAfter(LocalDateTime.now()))
+                            .map(r -> new StoredResponse(r.getFingerprint(), r.getStatus(), r.getContentType(), r.getBody(), r.getExpiresAt()))
+                            .orElse(null);
+                } catch (RuntimeException e) {
+                    release(key);
+                    throw e;
+                }
+                if (stored == null) {
+                    return Optional.empty();
+                }
+                recent.put(key, stored);
+                inFlight.remove(key, mine);
+                mine.complete(stored);
+                return Optional.of(matching(stored, fingerprint));
+            }
+
+            try {
+                StoredResponse result = running.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (result != null) {
+                    return Optional.of(matching(result, fingerprint));
+                }
+                // la première exécution a échoué : on retente comme propriétaire
+            } catch (TimeoutException e) {
+                throw new DuplicateResourceException("Requête déjà en cours pour cette Idempotency-Key: " + key);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BusinessException("Attente interrompue pour l'Idempotency-Key: " + key);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    public void complete(String key, String fingerprint, int status, String contentType, String body) {
+        LocalDateTime now = LocalDateTime.now();
+        StoredResponse response = new StoredResponse(fingerprint, status, contentType, body, now.plus(ttl));
+        try {
+            repository.save(IdempotencyRecord.builder()
+                    .key(key)
+                    .fingerprint(fingerprint)
+                    .status(status)
+                    .contentType(contentType)
+                    .body(body)
+                    .createdAt(now)
+                    .expiresAt(response.expiresAt())
+                    .build());
+        } catch (RuntimeException e) {
+            // la mutation est déjà validée : on garde au moins la réponse en mémoire
+            log.warn("Impossible d'enregistrer la réponse de l'Idempotency-Key {}", key, e);
+        }
+        recent.put(key, response);
+        CompletableFuture<StoredResponse> running = inFlight.remove(key);
+        if (running != null) {
+            running.complete(response);
+        }
+    }
+
+    // échec de la requête : rien n'est mémorisé, une nouvelle tentative s'exécutera
+    public void release(String key) {
+        CompletableFuture<StoredResponse> running = inFlight.remove(key);
+        if (running != null) {
+            running.complete(null);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${smartsupply.idempotency.cleanup-ms:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int deleted = repository.deleteExpired(now);
+        synchronized (recent) {
+            recent.values().removeIf(r -> !r.expiresAt().isAfter(now));
+        }
+        if (deleted > 0) {
+            log.info("{} Idempotency-Key(s) expirée(s) supprimée(s)", deleted);
+        }
+    }
+
+    private static StoredResponse matching(StoredResponse stored, String fingerprint) {
+        if (!stored.fingerprint().equals(fingerprint)) {
+            throw new DuplicateResourceException("Idempotency-Key déjà utilisée pour une autre requête");
+        }
+        return stored;
+    }
+}
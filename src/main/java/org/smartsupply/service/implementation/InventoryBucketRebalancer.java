@@ -0,0 +1,40 @@
+package org.smartsupply.service.implementation;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.smartsupply.service.InventoryShardingService;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryBucketRebalancer {
+
+    private final InventoryShardingService shardingService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadShardedKeys() {
+        if (shardingService.isEnabled()) {
+            shardingService.refreshShardedKeys();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${smartsupply.inventory.sharding.rebalance-ms:5000}")
+    public void rebalance() {
+        if (!shardingService.isEnabled()) {
+            return;
+        }
+        // la liste est relue à chaque passage : les autres instances voient aussi les nouveaux shards
+        shardingService.refreshShardedKeys();
+        for (Long inventoryId : shardingService.findShardedInventoryIds()) {
+            try {
+                shardingService.rebalance(inventoryId);
+            } catch (Exception e) {
+                log.error("Échec du rééquilibrage des buckets de l'inventaire {}", inventoryId, e);
+            }
+        }
+    }
+}
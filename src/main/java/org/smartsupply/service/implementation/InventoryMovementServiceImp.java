@@ -0,0 +1,84 @@
+package org.smartsupply.service.implementation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.smartsupply.dto.request.InventoryMovementFilterDto;
+import org.smartsupply.dto.response.InventoryMovementDto;
+import org.smartsupply.dto.response.KeysetPageDto;
+import org.smartsupply.exception.BusinessException;
+import org.smartsupply.mapper.InventoryMovementMapper;
+import org.smartsupply.model.entity.InventoryMovement;
+import org.smartsupply.repository.InventoryMovementRepository;
+import org.smartsupply.repository.InventoryMovementSpecifications;
+import org.smartsupply.service.InventoryMovementService;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional(readOnly = true)
+public class InventoryMovementServiceImp implements InventoryMovementService {
+
+    static final int MAX_PAGE_SIZE = 500;
+    private static final Sort KEYSET_ORDER = Sort.by("occurredAt", "id");
+
+    private final InventoryMovementRepository movementRepository;
+    private final InventoryMovementMapper movementMapper;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+
+    @Override
+    public KeysetPageDto<InventoryMovementDto> list(InventoryMovementFilterDto filter, LocalDateTime afterOccurredAt, Long afterId, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BusinessException("size doit être compris entre 1 et " + MAX_PAGE_SIZE);
+        }
+
+        // une ligne de plus que demandé pour savoir s'il existe une page suivante, sans COUNT
+        List<InventoryMovement> rows = movementRepository.findBy(
+                InventoryMovementSpecifications.matching(filter).and(InventoryMovementSpecifications.after(afterOccurredAt, afterId)),
+                q -> q.sortBy(KEYSET_ORDER).limit(size + 1).all());
+
+        boolean hasNext = rows.size() > size;
+        List<InventoryMovement> page = hasNext ? rows.subList(0, size) : rows;
+        InventoryMovement last = page.isEmpty() ? null : page.get(page.size() - 1);
+
+        return KeysetPageDto.<InventoryMovementDto>builder()
+                .content(page.stream().map(movementMapper::toDto).toList())
+                .size(page.size())
+                .hasNext(hasNext)
+                .nextAfter(hasNext ? last.getOccurredAt() : null)
+                .nextAfterId(hasNext ? last.getId() : null)
+                .build();
+    }
+
+    @Override
+    public void export(InventoryMovementFilterDto filter, OutputStream out) throws IOException {
+        long count = 0;
+        try (Stream<InventoryMovement> rows = movementRepository.findBy(
+                InventoryMovementSpecifications.matching(filter), q -> q.sortBy(KEYSET_ORDER).stream())) {
+            for (InventoryMovement m : (Iterable<InventoryMovement>) rows::iterator) {
+                out.write(objectMapper.writeValueAsString(movementMapper.toDto(m)).getBytes(StandardCharsets.UTF_8));
+                out.write('\n');
+                // on ne garde pas les lignes déjà écrites dans le contexte de persistance
+                entityManager.detach(m);
+                count++;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+        log.info("Export NDJSON : {} mouvement(s) écrit(s)", count);
+    }
+}
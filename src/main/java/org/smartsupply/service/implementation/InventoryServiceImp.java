@@ -2,21 +2,36 @@ package org.smartsupply.service.implementation;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.smartsupply.annotation.InventoryKeyLock;
+import org.smartsupply.dto.request.AvailabilityCheckLineDto;
+import org.smartsupply.dto.request.InventoryRequestDto;
+import org.smartsupply.dto.response.AvailabilityCheckResultDto;
+import org.smartsupply.dto.response.ProductWarehouseAvailabilityDto;
+import org.smartsupply.dto.response.WarehouseAvailabilityDto;
+import org.smartsupply.event.StockReceivedEvent;
 import org.smartsupply.exception.BusinessException;
 import org.smartsupply.exception.ResourceNotFoundException;
 import org.smartsupply.exception.StockUnavailableException;
 import org.smartsupply.model.entity.*;
+import org.smartsupply.model.enums.InventoryLockMode;
 import org.smartsupply.model.enums.MovementType;
 import org.smartsupply.model.enums.POStatus;
+import org.smartsupply.model.enums.ReservationStatus;
 import org.smartsupply.repository.*;
 import org.smartsupply.service.InventoryService;
+import org.smartsupply.service.InventoryShardingService;
+import org.smartsupply.service.ProductAvailabilityService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.UUID;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -29,6 +44,15 @@ public class InventoryServiceImp implements InventoryService {
     private final InventoryMovementRepository movementRepository;
     private final PurchaseOrderRepository purchaseOrderRepository;
     private final SupplierRepository supplierRepository;
+    private final ReservationRepository reservationRepository;
+    private final ReservationExpiryWheel expiryWheel;
+    private final InventoryShardingService shardingService;
+    private final ProductAvailabilityService availabilityService;
+    private final AvailabilityCache availabilityCache;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${smartsupply.inventory.lock-mode:PESSIMISTIC}")
+    private InventoryLockMode lockMode = InventoryLockMode.PESSIMISTIC;
 
 
 
@@ -51,16 +75,32 @@ public class InventoryServiceImp implements InventoryService {
                     .qtyReserved(0)
                     .build();
             inventoryRepository.save(inv);
+            availabilityCache.invalidate(productId, warehouseId);
         }
     }
 
     @Override
+    @InventoryKeyLock
     @Transactional
     public void inbound(Long productId, Long warehouseId, Integer qty, String reference) {
+        if (lockMode == InventoryLockMode.CONDITIONAL) {
+            Long inventoryId = findInventoryId(productId, warehouseId);
+            if (inventoryRepository.addOnHandIfNotBelowReserved(inventoryId, qty) == 0) {
+                throw new BusinessException("Entrée de stock invalide: qtyOnHand < qtyReserved");
+            }
+            saveMovement(inventoryId, MovementType.INBOUND, qty, reference);
+            availabilityService.record(productId, qty, 0);
+            availabilityCache.invalidate(productId, warehouseId);
+            eventPublisher.publishEvent(new StockReceivedEvent(warehouseId, Set.of(productId)));
+            return;
+        }
         Inventory inv = inventoryRepository.findWithLockByProductIdAndWarehouseId(productId, warehouseId)
                 .orElseThrow(() -> new ResourceNotFoundException("Inventory not found for productId=" + productId + " warehouseId=" + warehouseId));
         inv.setQtyOnHand(inv.getQtyOnHand() + qty);
         inventoryRepository.save(inv);
+        availabilityService.record(productId, qty, 0);
+        availabilityCache.invalidate(productId, warehouseId);
+        eventPublisher.publishEvent(new StockReceivedEvent(warehouseId, Set.of(productId)));
 
         movementRepository.save(InventoryMovement.builder()
                 .inventory(inv)
@@ -72,8 +112,57 @@ public class InventoryServiceImp implements InventoryService {
     }
 
     @Override
+    @InventoryKeyLock(product = 1, warehouses = {0})
+    @Transactional
+    public void inboundAll(Long warehouseId, List<InventoryRequestDto> lines) {
+        if (lines == null || lines.isEmpty()) {
+            return;
+        }
+        Set<Long> productIds = lines.stream().map(InventoryRequestDto::getProductId).collect(Collectors.toSet());
+        if (lockMode == InventoryLockMode.CONDITIONAL) {
+            inboundAllConditional(warehouseId, lines);
+            eventPublisher.publishEvent(new StockReceivedEvent(warehouseId, productIds));
+            return;
+        }
+        Map<Long, Inventory> lockedByProduct = inventoryRepository
+                .findAllWithLockByProductIdInAndWarehouseIdIn(productIds, List.of(warehouseId))
+                .stream()
+                .collect(Collectors.toMap(i -> i.getProduct().getId(), Function.identity()));
+
+        List<InventoryMovement> movements = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (InventoryRequestDto line : lines) {
+            Inventory inv = lockedByProduct.get(line.getProductId());
+            if (inv == null) {
+                throw new ResourceNotFoundException("Inventory not found for productId=" + line.getProductId() + " warehouseId=" + warehouseId);
+            }
+            inv.setQtyOnHand(inv.getQtyOnHand() + line.getQty());
+            movements.add(movement(inv, MovementType.INBOUND, line.getQty(), line.getReference(), now));
+            availabilityService.record(line.getProductId(), line.getQty(), 0);
+            availabilityCache.invalidate(line.getProductId(), warehouseId);
+        }
+
+        inventoryRepository.saveAll(lockedByProduct.values());
+        movementRepository.saveAll(movements);
+        // une réception de commande fournisseur passe ici : un seul événement pour toutes ses lignes
+        eventPublisher.publishEvent(new StockReceivedEvent(warehouseId, productIds));
+    }
+
+    @Override
+    @InventoryKeyLock
     @Transactional
     public void outbound(Long productId, Long warehouseId, Integer qty, String reference) {
+        shardingService.reclaim(productId, warehouseId, qty);
+        if (lockMode == InventoryLockMode.CONDITIONAL) {
+            Long inventoryId = findInventoryId(productId, warehouseId);
+            if (inventoryRepository.removeOnHandIfAvailable(inventoryId, qty) == 0) {
+                throw new StockUnavailableException("Stock insuffisant. Disponible: " + getAvailable(productId, warehouseId) + ", demandé: " + qty);
+            }
+            saveMovement(inventoryId, MovementType.OUTBOUND, qty, reference);
+            availabilityService.record(productId, -qty, 0);
+            availabilityCache.invalidate(productId, warehouseId);
+            return;
+        }
         Inventory inv = inventoryRepository.findWithLockByProductIdAndWarehouseId(productId, warehouseId)
                 .orElseThrow(() -> new ResourceNotFoundException("Inventory not found for productId=" + productId + " warehouseId=" + warehouseId));
 
@@ -84,6 +173,8 @@ public class InventoryServiceImp implements InventoryService {
 
         inv.setQtyOnHand(inv.getQtyOnHand() - qty);
         inventoryRepository.save(inv);
+        availabilityService.record(productId, -qty, 0);
+        availabilityCache.invalidate(productId, warehouseId);
 
         movementRepository.save(InventoryMovement.builder()
                 .inventory(inv)
@@ -95,8 +186,19 @@ public class InventoryServiceImp implements InventoryService {
     }
 
     @Override
+    @InventoryKeyLock
     @Transactional
     public void adjustment(Long productId, Long warehouseId, Integer qty, String reference) {
+        if (lockMode == InventoryLockMode.CONDITIONAL) {
+            Long inventoryId = findInventoryId(productId, warehouseId);
+            if (inventoryRepository.addOnHandIfNotBelowReserved(inventoryId, qty) == 0) {
+                throw new BusinessException("Ajustement invalide: qtyOnHand < qtyReserved");
+            }
+            saveMovement(inventoryId, MovementType.ADJUSTMENT, qty, reference);
+            availabilityService.record(productId, qty, 0);
+            availabilityCache.invalidate(productId, warehouseId);
+            return;
+        }
         Inventory inv = inventoryRepository.findWithLockByProductIdAndWarehouseId(productId, warehouseId)
                 .orElseThrow(() -> new ResourceNotFoundException("Inventory not found for productId=" + productId + " warehouseId=" + warehouseId));
 
@@ -106,6 +208,8 @@ public class InventoryServiceImp implements InventoryService {
         }
         inv.setQtyOnHand(newQtyOnHand);
         inventoryRepository.save(inv);
+        availabilityService.record(productId, qty, 0);
+        availabilityCache.invalidate(productId, warehouseId);
 
         movementRepository.save(InventoryMovement.builder()
                 .inventory(inv)
@@ -116,38 +220,16 @@ public class InventoryServiceImp implements InventoryService {
                 .build());
     }
     @Override
-    @Transactional
+    @Transactional(noRollbackFor = StockUnavailableException.class)
     public void smartReserve(Long productId , Long mainWarehouseId,Integer qty,String reference){
-        int availableMain = getAvailable(productId,mainWarehouseId);
-
-        if(availableMain >= qty){
-            reserve(productId,mainWarehouseId,qty,reference,3600);
-            log.info("Réservé entièrement dans le warehouse principal {}" , mainWarehouseId);
-            return;
-        }
-
-        if(availableMain > 0){
-            reserve(productId,mainWarehouseId,availableMain,reference,3600);
-            qty-=availableMain;
-            log.info("Réservé partiellement {} dans warehouse principal {}", availableMain, mainWarehouseId);
-        }
-
-        List<Long> otherWarehouses = warehouseRepository.findAllIdsExcept(mainWarehouseId);
-
-        for(Long wId : otherWarehouses){
-            int available = getAvailable(productId,wId);
-            if (available<=0) continue;
-
-            int toReserve = Math.min(qty,available);
-
-            log.info("Transfert de {} unités de warehouse {} vers {}", toReserve, wId, mainWarehouseId);
-            transfer(productId, wId, mainWarehouseId, toReserve, reference);
-
-            reserve(productId,mainWarehouseId,toReserve,reference,3600);
-            qty -= toReserve;
-            log.info("Réservé {} après transfert depuis warehouse {}", toReserve, wId);
-
-            if (qty <= 0) break;
+        // une seule requête classée (warehouseId, disponible), le plan de transfert est calculé en mémoire
+        SourcingPlanner.Plan plan = SourcingPlanner.plan(mainWarehouseId, qty, inventoryRepository.findAvailabilityByProductId(productId));
+
+        if (!plan.isCovered()) {
+            // pas assez de stock tous entrepôts confondus : aucun transfert, on commande le manque
+            qty = plan.getShortfall();
+        } else {
+            qty = executeSourcingPlan(productId, mainWarehouseId, qty, plan, reference);
         }
 
         if (qty > 0) {
@@ -182,8 +264,127 @@ public class InventoryServiceImp implements InventoryService {
     }
 
     @Override
+    @InventoryKeyLock(skipWhenSharded = true)
     @Transactional
     public String reserve(Long productId, Long warehouseId, Integer qty, String sourceRef, long ttlSeconds) {
+        if (ttlSeconds <= 0) {
+            throw new BusinessException("ttlSeconds doit être > 0");
+        }
+        InventoryBucket bucket = shardingService.isSharded(productId, warehouseId)
+                ? shardingService.reserve(productId, warehouseId, qty).orElse(null)
+                : null;
+        // inventaire non shardé ou buckets épuisés : réservation sur la ligne d'inventaire
+        Inventory inv = bucket != null
+                ? saveMovement(bucket.getInventory().getId(), MovementType.RESERVATION, qty, sourceRef).getInventory()
+                : reserveStock(productId, warehouseId, qty, sourceRef);
+        availabilityService.record(productId, 0, qty);
+        availabilityCache.invalidate(productId, warehouseId);
+
+        LocalDateTime expiresAt = LocalDateTime.now().plusSeconds(ttlSeconds);
+        Reservation reservation = reservationRepository.save(Reservation.builder()
+                .id(UUID.randomUUID().toString())
+                .inventory(inv)
+                .bucket(bucket)
+                .qty(qty)
+                .reference(sourceRef)
+                .expiresAt(expiresAt)
+                .build());
+        expiryWheel.schedule(reservation.getId(), expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+
+        return reservation.getId();
+    }
+
+    @Override
+    @Transactional
+    public void confirmReservation(String reservationId) {
+        Reservation reservation = findActiveReservation(reservationId);
+        reservation.setStatus(ReservationStatus.CONFIRMED);
+        reservationRepository.save(reservation);
+        expiryWheel.cancel(reservationId);
+        log.info("Réservation {} confirmée", reservationId);
+    }
+
+    @Override
+    @Transactional
+    public void releaseReservation(String reservationId) {
+        Reservation reservation = findActiveReservation(reservationId);
+        if (reservation.getBucket() != null) {
+            shardingService.release(reservation.getBucket().getId(), reservation.getQty());
+            availabilityService.record(reservation.getInventory().getProduct().getId(), 0, -reservation.getQty());
+            availabilityCache.invalidate(reservation.getInventory().getProduct().getId(), reservation.getInventory().getWarehouse().getId());
+        } else {
+            Inventory inv = inventoryRepository.findAllWithLockByIdIn(List.of(reservation.getInventory().getId()))
+                    .stream().findFirst()
+                    .orElseThrow(() -> new ResourceNotFoundException("Inventory not found id=" + reservation.getInventory().getId()));
+
+            int released = Math.min(inv.getQtyReserved(), reservation.getQty());
+            inv.setQtyReserved(inv.getQtyReserved() - released);
+            inventoryRepository.save(inv);
+            availabilityService.record(inv.getProduct().getId(), 0, -released);
+            availabilityCache.invalidate(inv.getProduct().getId(), inv.getWarehouse().getId());
+        }
+        reservation.setStatus(ReservationStatus.RELEASED);
+        reservationRepository.save(reservation);
+        expiryWheel.cancel(reservationId);
+        log.info("Réservation {} libérée ({} unités)", reservationId, reservation.getQty());
+    }
+
+    @Override
+    @Transactional
+    public List<String> releaseExpired(Collection<String> reservationIds) {
+        if (reservationIds == null || reservationIds.isEmpty()) {
+            return List.of();
+        }
+        List<Reservation> expired = reservationRepository.findAllWithLockExpired(reservationIds, ReservationStatus.ACTIVE, LocalDateTime.now());
+        if (expired.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Integer> qtyByInventory = new HashMap<>();
+        // buckets libérés avant de verrouiller les inventaires, même ordre que le rééquilibrage
+        for (Reservation r : expired) {
+            if (r.getBucket() != null) {
+                shardingService.release(r.getBucket().getId(), r.getQty());
+                availabilityService.record(r.getInventory().getProduct().getId(), 0, -r.getQty());
+                availabilityCache.invalidate(r.getInventory().getProduct().getId(), r.getInventory().getWarehouse().getId());
+            } else {
+                qtyByInventory.merge(r.getInventory().getId(), r.getQty(), Integer::sum);
+            }
+            r.setStatus(ReservationStatus.EXPIRED);
+        }
+
+        if (!qtyByInventory.isEmpty()) {
+            List<Inventory> inventories = inventoryRepository.findAllWithLockByIdIn(qtyByInventory.keySet());
+            for (Inventory inv : inventories) {
+                int released = Math.min(inv.getQtyReserved(), qtyByInventory.get(inv.getId()));
+                inv.setQtyReserved(inv.getQtyReserved() - released);
+                availabilityService.record(inv.getProduct().getId(), 0, -released);
+                availabilityCache.invalidate(inv.getProduct().getId(), inv.getWarehouse().getId());
+            }
+            inventoryRepository.saveAll(inventories);
+        }
+        reservationRepository.saveAll(expired);
+        return expired.stream().map(Reservation::getId).toList();
+    }
+
+    private Reservation findActiveReservation(String reservationId) {
+        Reservation reservation = reservationRepository.findWithLockById(reservationId)
+                .orElseThrow(() -> new ResourceNotFoundException("Reservation not found id=" + reservationId));
+        if (reservation.getStatus() != ReservationStatus.ACTIVE) {
+            throw new BusinessException("Réservation " + reservationId + " déjà " + reservation.getStatus());
+        }
+        return reservation;
+    }
+
+    private Inventory reserveStock(Long productId, Long warehouseId, Integer qty, String sourceRef) {
+        shardingService.reclaim(productId, warehouseId, qty);
+        if (lockMode == InventoryLockMode.CONDITIONAL) {
+            Long inventoryId = findInventoryId(productId, warehouseId);
+            if (inventoryRepository.reserveIfAvailable(inventoryId, qty) == 0) {
+                throw new StockUnavailableException("Stock insuffisant pour réservation. Disponible: " + getAvailable(productId, warehouseId));
+            }
+            return saveMovement(inventoryId, MovementType.RESERVATION, qty, sourceRef).getInventory();
+        }
         Inventory inv = inventoryRepository.findWithLockByProductIdAndWarehouseId(productId, warehouseId)
                 .orElseThrow(() -> new ResourceNotFoundException("Inventory not found for productId=" + productId + " warehouseId=" + warehouseId));
 
@@ -198,75 +399,335 @@ public class InventoryServiceImp implements InventoryService {
 
         movementRepository.save(InventoryMovement.builder()
                 .inventory(inv)
-                .type(MovementType.ADJUSTMENT)
+                .type(MovementType.RESERVATION)
                 .qty(qty)
                 .occurredAt(LocalDateTime.now())
                 .reference(sourceRef)
                 .build());
+        return inv;
+    }
+
+    @Override
+    @Transactional
+    public List<Long> reserveAll(Long warehouseId, Map<Long, Integer> qtyByProduct, String reference) {
+        if (qtyByProduct == null || qtyByProduct.isEmpty()) {
+            return List.of();
+        }
 
+        // escrow rapatrié avant le verrou des lignes, dans l'ordre des product ids
+        new TreeMap<>(qtyByProduct).forEach((productId, qty) -> shardingService.reclaim(productId, warehouseId, qty));
+        // un seul SELECT ... FOR UPDATE, lignes verrouillées dans l'ordre (product_id, warehouse_id)
+        Map<Long, Inventory> lockedByProduct = inventoryRepository
+                .findAllWithLockByProductIdInAndWarehouseIdIn(qtyByProduct.keySet(), List.of(warehouseId))
+                .stream()
+                .collect(Collectors.toMap(i -> i.getProduct().getId(), Function.identity()));
+
+        List<Long> shortfalls = new ArrayList<>();
+        List<Inventory> reserved = new ArrayList<>();
+        List<InventoryMovement> movements = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        for (Map.Entry<Long, Integer> entry : new TreeMap<>(qtyByProduct).entrySet()) {
+            Long productId = entry.getKey();
+            int qty = entry.getValue();
+            Inventory inv = lockedByProduct.get(productId);
+
+            if (inv == null || inv.getQtyOnHand() - inv.getQtyReserved() < qty) {
+                shortfalls.add(productId);
+                continue;
+            }
+
+            inv.setQtyReserved(inv.getQtyReserved() + qty);
+            reserved.add(inv);
+            availabilityService.record(productId, 0, qty);
+            availabilityCache.invalidate(productId, warehouseId);
+            movements.add(movement(inv, MovementType.RESERVATION, qty, reference, now));
+        }
 
-        return UUID.randomUUID().toString();
+        inventoryRepository.saveAll(reserved);
+        movementRepository.saveAll(movements);
+        log.info("Réservation groupée warehouse={} : {} produit(s) réservé(s), {} en rupture", warehouseId, reserved.size(), shortfalls.size());
+        return shortfalls;
     }
 
     @Override
+    @InventoryKeyLock(warehouses = {1, 2})
     @Transactional
     public void transfer(Long productId, Long sourceWarehouseId, Long targetWarehouseId, Integer qty, String reference) {
         if (sourceWarehouseId.equals(targetWarehouseId)) {
             throw new BusinessException("Source and target warehouses must differ");
         }
+        shardingService.reclaim(productId, sourceWarehouseId, qty);
+        if (lockMode == InventoryLockMode.CONDITIONAL) {
+            transferConditional(productId, sourceWarehouseId, targetWarehouseId, qty, reference);
+            return;
+        }
 
-        Inventory sourceInv = inventoryRepository.findWithLockByProductIdAndWarehouseId(productId, sourceWarehouseId)
-                .orElseThrow(() -> new ResourceNotFoundException("Source inventory not found for productId=" + productId + " warehouseId=" + sourceWarehouseId));
+        transferLocked(sourceWarehouseId, targetWarehouseId, Map.of(productId, qty), reference);
+    }
 
-        int available = sourceInv.getQtyOnHand() - sourceInv.getQtyReserved();
-        if (available < qty) {
-            throw new BusinessException("Stock insuffisant dans l'entrepôt source. Disponible: " + available);
+    @Override
+    @Transactional
+    public int transferAll(Long sourceWarehouseId, Long targetWarehouseId, Map<Long, Integer> qtyByProduct, String reference) {
+        if (sourceWarehouseId.equals(targetWarehouseId)) {
+            throw new BusinessException("Source and target warehouses must differ");
+        }
+        if (qtyByProduct == null || qtyByProduct.isEmpty()) {
+            return 0;
         }
+        new TreeMap<>(qtyByProduct).forEach((productId, qty) -> shardingService.reclaim(productId, sourceWarehouseId, qty));
+        return transferLocked(sourceWarehouseId, targetWarehouseId, qtyByProduct, reference);
+    }
 
-        sourceInv.setQtyOnHand(sourceInv.getQtyOnHand() - qty);
-        inventoryRepository.save(sourceInv);
-        movementRepository.save(InventoryMovement.builder()
-                .inventory(sourceInv)
-                .type(MovementType.OUTBOUND)
-                .qty(qty)
-                .occurredAt(LocalDateTime.now())
-                .reference(reference)
-                .build());
+    private int transferLocked(Long sourceWarehouseId, Long targetWarehouseId, Map<Long, Integer> qtyByProduct, String reference) {
+        // source et cible verrouillées en une requête, dans l'ordre (product_id, warehouse_id) :
+        // deux transferts en sens inverse prennent leurs verrous dans le même ordre et ne s'interbloquent pas
+        Map<Long, Inventory> sources = new HashMap<>();
+        Map<Long, Inventory> targets = new HashMap<>();
+        for (Inventory inv : inventoryRepository.findAllWithLockByProductIdInAndWarehouseIdIn(
+                qtyByProduct.keySet(), List.of(sourceWarehouseId, targetWarehouseId))) {
+            (inv.getWarehouse().getId().equals(sourceWarehouseId) ? sources : targets).put(inv.getProduct().getId(), inv);
+        }
 
-        Inventory targetInv = inventoryRepository.findWithLockByProductIdAndWarehouseId(productId, targetWarehouseId)
-                .orElseGet(() -> {
-                    Inventory inv = Inventory.builder()
-                            .product(sourceInv.getProduct())
-                            .warehouse(warehouseRepository.getReferenceById(targetWarehouseId))
-                            .qtyOnHand(0)
-                            .qtyReserved(0)
-                            .build();
-                    return inventoryRepository.save(inv);
-                });
-
-        targetInv.setQtyOnHand(targetInv.getQtyOnHand() + qty);
-        inventoryRepository.save(targetInv);
-        movementRepository.save(InventoryMovement.builder()
-                .inventory(targetInv)
-                .type(MovementType.INBOUND)
-                .qty(qty)
-                .occurredAt(LocalDateTime.now())
-                .reference(reference)
-                .build());
+        Map<Long, Integer> insufficient = new TreeMap<>();
+        for (Map.Entry<Long, Integer> e : qtyByProduct.entrySet()) {
+            Inventory source = sources.get(e.getKey());
+            if (source == null) {
+                throw new ResourceNotFoundException("Source inventory not found for productId=" + e.getKey() + " warehouseId=" + sourceWarehouseId);
+            }
+            int available = source.getQtyOnHand() - source.getQtyReserved();
+            if (available < e.getValue()) {
+                insufficient.put(e.getKey(), available);
+            }
+        }
+        if (!insufficient.isEmpty()) {
+            throw new BusinessException("Stock insuffisant dans l'entrepôt source. Disponible: "
+                    + (qtyByProduct.size() == 1 ? insufficient.values().iterator().next() : insufficient));
+        }
+
+        List<Inventory> created = new ArrayList<>();
+        List<InventoryMovement> movements = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<Long, Integer> e : qtyByProduct.entrySet()) {
+            Inventory source = sources.get(e.getKey());
+            Inventory target = targets.computeIfAbsent(e.getKey(), productId -> {
+                Inventory inv = Inventory.builder()
+                        .product(source.getProduct())
+                        .warehouse(warehouseRepository.getReferenceById(targetWarehouseId))
+                        .qtyOnHand(0)
+                        .qtyReserved(0)
+                        .build();
+                created.add(inv);
+                return inv;
+            });
+            int qty = e.getValue();
+            source.setQtyOnHand(source.getQtyOnHand() - qty);
+            target.setQtyOnHand(target.getQtyOnHand() + qty);
+            movements.add(movement(source, MovementType.OUTBOUND, qty, reference, now));
+            movements.add(movement(target, MovementType.INBOUND, qty, reference, now));
+        }
+
+        inventoryRepository.saveAll(created);
+        inventoryRepository.saveAll(sources.values());
+        inventoryRepository.saveAll(targets.values());
+        movementRepository.saveAll(movements);
+        for (Long productId : qtyByProduct.keySet()) {
+            availabilityCache.invalidate(productId, sourceWarehouseId);
+            availabilityCache.invalidate(productId, targetWarehouseId);
+        }
+        return qtyByProduct.size();
     }
 
     @Override
     public List<Long> findWarehousesWithAvailable(Long productId) {
-        return inventoryRepository.findWarehouseIdsWithAvailable(productId);
+        return availabilityCache.get("warehouses", productId, null,
+                () -> inventoryRepository.findWarehouseIdsWithAvailable(productId));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<AvailabilityCheckResultDto> checkAvailability(List<AvailabilityCheckLineDto> lines) {
+        Set<Long> productIds = lines.stream().map(AvailabilityCheckLineDto::getProductId).collect(Collectors.toSet());
+        Map<Long, List<ProductWarehouseAvailabilityDto>> byProduct = inventoryRepository.findAvailableByProductIdIn(productIds)
+                .stream()
+                .collect(Collectors.groupingBy(ProductWarehouseAvailabilityDto::getProductId));
+
+        List<AvailabilityCheckResultDto> results = new ArrayList<>();
+        for (AvailabilityCheckLineDto line : lines) {
+            List<WarehouseAvailabilityDto> warehouses = byProduct.getOrDefault(line.getProductId(), List.of()).stream()
+                    .filter(a -> line.getWarehouseId() == null || line.getWarehouseId().equals(a.getWarehouseId()))
+                    .map(a -> new WarehouseAvailabilityDto(a.getWarehouseId(), a.getAvailable()))
+                    .toList();
+            int available = warehouses.stream().mapToInt(w -> Math.max(0, w.getAvailable())).sum();
+            results.add(AvailabilityCheckResultDto.builder()
+                    .productId(line.getProductId())
+                    .warehouseId(line.getWarehouseId())
+                    .qty(line.getQty())
+                    .available(available)
+                    .warehouses(warehouses)
+                    .fulfillable(available >= line.getQty())
+                    .build());
+        }
+        return results;
     }
 
     @Override
     public Integer getAvailable(Long productId, Long warehouseId) {
-        Integer v = inventoryRepository.findAvailableByProductIdAndWarehouseId(productId, warehouseId);
-        return v == null ? 0 : v;
+        return availabilityCache.get("available", productId, warehouseId, () -> {
+            Integer v = inventoryRepository.findAvailableByProductIdAndWarehouseId(productId, warehouseId);
+            return v == null ? 0 : v;
+        });
     }
 
 
+    // verrouille en une requête l'entrepôt principal et les seules sources retenues, renvoie la quantité non couverte
+    private int executeSourcingPlan(Long productId, Long mainWarehouseId, int qty, SourcingPlanner.Plan plan, String reference) {
+        List<Long> warehouseIds = new ArrayList<>();
+        warehouseIds.add(mainWarehouseId);
+        plan.getTransfers().forEach(t -> warehouseIds.add(t.getSourceWarehouseId()));
+
+        // le plan compte l'escrow des inventaires shardés : on le rapatrie avant de verrouiller, par warehouse id
+        Map<Long, Integer> toReclaim = new TreeMap<>();
+        toReclaim.put(mainWarehouseId, plan.getFromMain());
+        plan.getTransfers().forEach(t -> toReclaim.merge(t.getSourceWarehouseId(), t.getQty(), Integer::sum));
+        toReclaim.forEach((warehouseId, needed) -> shardingService.reclaim(productId, warehouseId, needed));
+
+        if (!plan.getTransfers().isEmpty() && !inventoryRepository.existsByProductIdAndWarehouseId(productId, mainWarehouseId)) {
+            inventoryRepository.save(Inventory.builder()
+                    .product(productRepository.getReferenceById(productId))
+                    .warehouse(warehouseRepository.getReferenceById(mainWarehouseId))
+                    .qtyOnHand(0)
+                    .qtyReserved(0)
+                    .build());
+        }
+
+        Map<Long, Inventory> locked = inventoryRepository
+                .findAllWithLockByProductIdInAndWarehouseIdIn(List.of(productId), warehouseIds)
+                .stream()
+                .collect(Collectors.toMap(i -> i.getWarehouse().getId(), Function.identity()));
+        Inventory main = locked.get(mainWarehouseId);
+        if (main == null) {
+            throw new ResourceNotFoundException("Inventory not found for productId=" + productId + " warehouseId=" + mainWarehouseId);
+        }
+
+        // le plan vient d'une lecture sans verrou : on revalide une fois les lignes verrouillées
+        Map<SourcingPlanner.Transfer, Integer> toMoveByTransfer = new LinkedHashMap<>();
+        int lockedAvailable = Math.max(0, main.getQtyOnHand() - main.getQtyReserved());
+        for (SourcingPlanner.Transfer t : plan.getTransfers()) {
+            Inventory source = locked.get(t.getSourceWarehouseId());
+            int toMove = source == null ? 0 : Math.min(t.getQty(), source.getQtyOnHand() - source.getQtyReserved());
+            if (toMove <= 0) continue;
+            toMoveByTransfer.put(t, toMove);
+            lockedAvailable += toMove;
+        }
+        if (lockedAvailable < qty) {
+            log.info("Plan de sourcing non couvert après verrouillage pour productId={} ({} / {}), aucun transfert", productId, lockedAvailable, qty);
+            return qty - lockedAvailable;
+        }
+
+        List<InventoryMovement> movements = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<SourcingPlanner.Transfer, Integer> e : toMoveByTransfer.entrySet()) {
+            SourcingPlanner.Transfer t = e.getKey();
+            Inventory source = locked.get(t.getSourceWarehouseId());
+            int toMove = e.getValue();
+
+            source.setQtyOnHand(source.getQtyOnHand() - toMove);
+            main.setQtyOnHand(main.getQtyOnHand() + toMove);
+            movements.add(movement(source, MovementType.OUTBOUND, toMove, reference, now));
+            movements.add(movement(main, MovementType.INBOUND, toMove, reference, now));
+            log.info("Transfert de {} unités de warehouse {} vers {}", toMove, t.getSourceWarehouseId(), mainWarehouseId);
+        }
+
+        main.setQtyReserved(main.getQtyReserved() + qty);
+        movements.add(movement(main, MovementType.RESERVATION, qty, reference, now));
+        availabilityService.record(productId, 0, qty);
+        log.info("Réservé {} dans le warehouse principal {} ({} source(s) de transfert)", qty, mainWarehouseId, toMoveByTransfer.size());
+
+        inventoryRepository.saveAll(locked.values());
+        movementRepository.saveAll(movements);
+        locked.keySet().forEach(warehouseId -> availabilityCache.invalidate(productId, warehouseId));
+        return 0;
+    }
+
+    private InventoryMovement movement(Inventory inv, MovementType type, int qty, String reference, LocalDateTime occurredAt) {
+        return InventoryMovement.builder()
+                .inventory(inv)
+                .type(type)
+                .qty(qty)
+                .occurredAt(occurredAt)
+                .reference(reference)
+                .build();
+    }
+
+    private void inboundAllConditional(Long warehouseId, List<InventoryRequestDto> lines) {
+        // mêmes UPDATE conditionnels que inbound, enchaînés dans l'ordre des product ids
+        List<InventoryRequestDto> ordered = lines.stream()
+                .sorted(Comparator.comparing(InventoryRequestDto::getProductId))
+                .toList();
+        for (InventoryRequestDto line : ordered) {
+            Long inventoryId = findInventoryId(line.getProductId(), warehouseId);
+            if (inventoryRepository.addOnHandIfNotBelowReserved(inventoryId, line.getQty()) == 0) {
+                throw new BusinessException("Entrée de stock invalide pour productId=" + line.getProductId() + ": qtyOnHand < qtyReserved");
+            }
+            saveMovement(inventoryId, MovementType.INBOUND, line.getQty(), line.getReference());
+            availabilityService.record(line.getProductId(), line.getQty(), 0);
+            availabilityCache.invalidate(line.getProductId(), warehouseId);
+        }
+    }
+
+    private void transferConditional(Long productId, Long sourceWarehouseId, Long targetWarehouseId, Integer qty, String reference) {
+        Long sourceId = inventoryRepository.findIdByProductIdAndWarehouseId(productId, sourceWarehouseId)
+                .orElseThrow(() -> new ResourceNotFoundException("Source inventory not found for productId=" + productId + " warehouseId=" + sourceWarehouseId));
+        Long targetId = inventoryRepository.findIdByProductIdAndWarehouseId(productId, targetWarehouseId)
+                .orElseGet(() -> inventoryRepository.save(Inventory.builder()
+                        .product(productRepository.getReferenceById(productId))
+                        .warehouse(warehouseRepository.getReferenceById(targetWarehouseId))
+                        .qtyOnHand(0)
+                        .qtyReserved(0)
+                        .build()).getId());
+
+        // chaque UPDATE verrouille sa ligne : on les enchaîne dans l'ordre des warehouse ids
+        if (sourceWarehouseId < targetWarehouseId) {
+            removeForTransfer(productId, sourceWarehouseId, sourceId, qty);
+            addForTransfer(targetId, qty);
+        } else {
+            addForTransfer(targetId, qty);
+            removeForTransfer(productId, sourceWarehouseId, sourceId, qty);
+        }
+        saveMovement(sourceId, MovementType.OUTBOUND, qty, reference);
+        saveMovement(targetId, MovementType.INBOUND, qty, reference);
+        availabilityCache.invalidate(productId, sourceWarehouseId);
+        availabilityCache.invalidate(productId, targetWarehouseId);
+    }
+
+    private void removeForTransfer(Long productId, Long sourceWarehouseId, Long sourceId, Integer qty) {
+        if (inventoryRepository.removeOnHandIfAvailable(sourceId, qty) == 0) {
+            throw new BusinessException("Stock insuffisant dans l'entrepôt source. Disponible: " + getAvailable(productId, sourceWarehouseId));
+        }
+    }
+
+    private void addForTransfer(Long targetId, Integer qty) {
+        if (inventoryRepository.addOnHandIfNotBelowReserved(targetId, qty) == 0) {
+            throw new BusinessException("Transfert invalide: inventaire cible introuvable ou qtyOnHand < qtyReserved");
+        }
+    }
+
+    private Long findInventoryId(Long productId, Long warehouseId) {
+        return inventoryRepository.findIdByProductIdAndWarehouseId(productId, warehouseId)
+                .orElseThrow(() -> new ResourceNotFoundException("Inventory not found for productId=" + productId + " warehouseId=" + warehouseId));
+    }
+
+    private InventoryMovement saveMovement(Long inventoryId, MovementType type, int qty, String reference) {
+        return movementRepository.save(InventoryMovement.builder()
+                .inventory(inventoryRepository.getReferenceById(inventoryId))
+                .type(type)
+                .qty(qty)
+                .occurredAt(LocalDateTime.now())
+                .reference(reference)
+                .build());
+    }
+
     private Supplier getOrCreateDefaultSupplier() {
         return supplierRepository.findAll().stream().findFirst().orElseGet(() -> {
             Supplier s = Supplier.builder()
@@ -0,0 +1,215 @@
+package org.smartsupply.service.implementation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.smartsupply.exception.BusinessException;
+import org.smartsupply.exception.ResourceNotFoundException;
+import org.smartsupply.model.entity.Inventory;
+import org.smartsupply.model.entity.InventoryBucket;
+import org.smartsupply.repository.InventoryBucketRepository;
+import org.smartsupply.repository.InventoryRepository;
+import org.smartsupply.repository.ReservationRepository;
+import org.smartsupply.service.InventoryShardingService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Inventaires shardés (escrow) : les réservations d'un SKU très demandé se répartissent sur K lignes
+ * de bucket au lieu de toutes verrouiller la même ligne d'inventaire. Verrous toujours pris dans l'ordre
+ * buckets puis inventaire parent : une réservation verrouille son bucket, puis la clé étrangère de son
+ * mouvement prend un verrou partagé sur le parent.
+ */
+@Service
+@Slf4j
+public class InventoryShardingServiceImp implements InventoryShardingService {
+
+    private final InventoryRepository inventoryRepository;
+    private final InventoryBucketRepository bucketRepository;
+    private final ReservationRepository reservationRepository;
+    private final boolean enabled;
+    private final double escrowRatio;
+    private final Set<String> shardedKeys = ConcurrentHashMap.newKeySet();
+
+    public InventoryShardingServiceImp(InventoryRepository inventoryRepository,
+                                       InventoryBucketRepository bucketRepository,
+                                       ReservationRepository reservationRepository,
+                                       @Value("${smartsupply.inventory.sharding.enabled:false}") boolean enabled,
+                                       @Value("${smartsupply.inventory.sharding.escrow-ratio:0.5}") double escrowRatio) {
+        if (escrowRatio < 0 || escrowRatio > 1) {
+            throw new IllegalArgumentException("escrow-ratio doit être compris entre 0 et 1");
+        }
+        this.inventoryRepository = inventoryRepository;
+        this.bucketRepository = bucketRepository;
+        this.reservationRepository = reservationRepository;
+        this.enabled = enabled;
+        this.escrowRatio = escrowRatio;
+    }
+
+    @Override
+    @Transactional
+    public int shard(Long inventoryId, int bucketCount) {
+        if (bucketCount < 1) {
+            throw new BusinessException("Le nombre de buckets doit être >= 1");
+        }
+        Inventory inv = lockInventory(inventoryId);
+        if (bucketRepository.existsByInventoryId(inventoryId)) {
+            throw new BusinessException("Inventaire " + inventoryId + " déjà shardé");
+        }
+
+        List<InventoryBucket> buckets = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            buckets.add(InventoryBucket.builder().inventory(inv).bucketIndex(i).qtyAllotted(0).qtyReserved(0).build());
+        }
+        int escrow = redistribute(inv, buckets);
+        shardedKeys.add(key(inv.getProduct().getId(), inv.getWarehouse().getId()));
+        log.info("Inventaire {} shardé en {} buckets, {} unités en escrow", inventoryId, bucketCount, escrow);
+        return escrow;
+    }
+
+    @Override
+    @Transactional
+    public void unshard(Long inventoryId) {
+        List<InventoryBucket> buckets = bucketRepository.findAllWithLockByInventoryId(inventoryId);
+        Inventory inv = lockInventory(inventoryId);
+        if (buckets.isEmpty()) {
+            throw new BusinessException("Inventaire " + inventoryId + " non shardé");
+        }
+
+        // seul le stock libre revient : les unités réservées dans les buckets restent dans qtyReserved
+        int free = buckets.stream().mapToInt(b -> b.getQtyAllotted() - b.getQtyReserved()).sum();
+        inv.setQtyReserved(inv.getQtyReserved() - free);
+        inventoryRepository.save(inv);
+        reservationRepository.detachBuckets(buckets.stream().map(InventoryBucket::getId).toList());
+        bucketRepository.deleteAll(buckets);
+        shardedKeys.remove(key(inv.getProduct().getId(), inv.getWarehouse().getId()));
+        log.info("Inventaire {} dé-shardé, {} unités rendues", inventoryId, free);
+    }
+
+    @Override
+    @Transactional
+    public int rebalance(Long inventoryId) {
+        List<InventoryBucket> buckets = bucketRepository.findAllWithLockByInventoryId(inventoryId);
+        Inventory inv = lockInventory(inventoryId);
+        if (buckets.isEmpty()) {
+            return 0;
+        }
+        return redistribute(inv, buckets);
+    }
+
+    // escrow = escrowRatio du stock libre total, réparti à parts égales entre les buckets
+    private int redistribute(Inventory inv, List<InventoryBucket> buckets) {
+        int parentFree = inv.getQtyOnHand() - inv.getQtyReserved();
+        int bucketFree = buckets.stream().mapToInt(b -> b.getQtyAllotted() - b.getQtyReserved()).sum();
+        int escrow = (int) Math.floor((parentFree + bucketFree) * escrowRatio);
+
+        int share = escrow / buckets.size();
+        int extra = escrow % buckets.size();
+        for (int i = 0; i < buckets.size(); i++) {
+            InventoryBucket b = buckets.get(i);
+            b.setQtyAllotted(b.getQtyReserved() + share + (i < extra ? 1 : 0));
+        }
+        inv.setQtyReserved(inv.getQtyReserved() + escrow - bucketFree);
+
+        inventoryRepository.save(inv);
+        bucketRepository.saveAll(buckets);
+        return escrow;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Long> findShardedInventoryIds() {
+        return bucketRepository.findShardedInventoryIds();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public boolean isSharded(Long productId, Long warehouseId) {
+        return enabled && shardedKeys.contains(key(productId, warehouseId));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void refreshShardedKeys() {
+        Set<String> keys = new HashSet<>();
+        for (Inventory inv : inventoryRepository.findAllById(bucketRepository.findShardedInventoryIds())) {
+            keys.add(key(inv.getProduct().getId(), inv.getWarehouse().getId()));
+        }
+        shardedKeys.retainAll(keys);
+        shardedKeys.addAll(keys);
+    }
+
+    @Override
+    @Transactional
+    public Optional<InventoryBucket> reserve(Long productId, Long warehouseId, int qty) {
+        List<InventoryBucket> buckets = bucketRepository.findByProductIdAndWarehouseId(productId, warehouseId);
+        if (buckets.isEmpty()) {
+            return Optional.empty();
+        }
+        // départ aléatoire pour étaler la charge, puis on balaie les autres buckets
+        int start = ThreadLocalRandom.current().nextInt(buckets.size());
+        for (int i = 0; i < buckets.size(); i++) {
+            InventoryBucket b = buckets.get((start + i) % buckets.size());
+            // valeurs lues sans verrou : c'est l'UPDATE conditionnel qui tranche
+            if (b.getQtyAllotted() - b.getQtyReserved() >= qty && bucketRepository.reserveIfFree(b.getId(), qty) == 1) {
+                return Optional.of(b);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    @Transactional
+    public void release(Long bucketId, int qty) {
+        if (bucketRepository.release(bucketId, qty) == 0) {
+            log.warn("Libération de {} unités impossible dans le bucket {}", qty, bucketId);
+        }
+    }
+
+    @Override
+    @Transactional
+    public int reclaim(Long productId, Long warehouseId, int qty) {
+        if (!isSharded(productId, warehouseId)) {
+            return 0;
+        }
+        List<InventoryBucket> buckets = bucketRepository.findByProductIdAndWarehouseId(productId, warehouseId);
+        if (buckets.isEmpty()) {
+            return 0;
+        }
+        Long inventoryId = buckets.get(0).getInventory().getId();
+        Integer rowFree = inventoryRepository.findRowFreeById(inventoryId);
+        long missing = (long) qty - (rowFree == null ? 0 : rowFree);
+        int reclaimed = 0;
+        // buckets d'abord, parent ensuite : même ordre de verrouillage que les réservations et le rééquilibrage
+        for (InventoryBucket b : buckets) {
+            if (reclaimed >= missing) break;
+            int take = (int) Math.min(missing - reclaimed, b.getQtyAllotted() - b.getQtyReserved());
+            if (take > 0 && bucketRepository.shrinkIfFree(b.getId(), take) == 1) {
+                reclaimed += take;
+            }
+        }
+        if (reclaimed > 0) {
+            Inventory inv = lockInventory(inventoryId);
+            inv.setQtyReserved(inv.getQtyReserved() - reclaimed);
+            inventoryRepository.save(inv);
+            log.info("{} unités d'escrow rapatriées sur l'inventaire {}", reclaimed, inventoryId);
+        }
+        return reclaimed;
+    }
+
+    private Inventory lockInventory(Long inventoryId) {
+        return inventoryRepository.findAllWithLockByIdIn(List.of(inventoryId)).stream().findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException("Inventory not found id=" + inventoryId));
+    }
+
+    private static String key(Long productId, Long warehouseId) {
+        return productId + ":" + warehouseId;
+    }
+}
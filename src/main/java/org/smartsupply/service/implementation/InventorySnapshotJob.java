@@ -0,0 +1,24 @@
+package org.smartsupply.service.implementation;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.smartsupply.service.InventorySnapshotService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InventorySnapshotJob {
+
+    private final InventorySnapshotService snapshotService;
+
+    @Scheduled(cron = "${smartsupply.inventory.snapshot-cron:0 0 0 * * *}")
+    public void snapshot() {
+        try {
+            snapshotService.takeSnapshot();
+        } catch (Exception e) {
+            log.error("Échec de l'instantané d'inventaire planifié", e);
+        }
+    }
+}
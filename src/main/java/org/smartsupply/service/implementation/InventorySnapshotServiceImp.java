@@ -0,0 +1,78 @@
+package org.smartsupply.service.implementation;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.smartsupply.dto.response.InventoryAsOfDto;
+import org.smartsupply.dto.response.InventoryDeltaDto;
+import org.smartsupply.exception.BusinessException;
+import org.smartsupply.model.entity.InventorySnapshot;
+import org.smartsupply.repository.InventoryMovementRepository;
+import org.smartsupply.repository.InventorySnapshotRepository;
+import org.smartsupply.service.InventorySnapshotService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InventorySnapshotServiceImp implements InventorySnapshotService {
+
+    private final InventorySnapshotRepository snapshotRepository;
+    private final InventoryMovementRepository movementRepository;
+
+    @Override
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public int takeSnapshot() {
+        // takenAt vient de l'horloge de la base, dans la transaction qui lit les quantités :
+        // pas d'écart entre l'heure enregistrée et l'état réellement capturé
+        int count = snapshotRepository.snapshotAll();
+        log.info("Instantané d'inventaire pris à {} : {} ligne(s)", snapshotRepository.findLatestTakenAt().orElse(null), count);
+        return count;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<InventoryAsOfDto> stockAsOf(Long warehouseId, Long productId, LocalDateTime at) {
+        if (at == null) {
+            throw new BusinessException("La date 'at' est obligatoire");
+        }
+
+        // instantané le plus proche avant la date, puis rejeu du seul delta de mouvements depuis cet instantané
+        Optional<LocalDateTime> takenAt = snapshotRepository.findLatestTakenAtNotAfter(at);
+        List<InventorySnapshot> snapshots = takenAt
+                .map(t -> snapshotRepository.findByTakenAtAndWarehouse(t, warehouseId, productId))
+                .orElse(List.of());
+        List<InventoryDeltaDto> deltas = takenAt
+                .map(t -> movementRepository.sumOnHandDeltaBetween(warehouseId, productId, t, at))
+                .orElseGet(() -> movementRepository.sumOnHandDeltaUntil(warehouseId, productId, at));
+
+        Map<Long, InventoryAsOfDto> byInventory = new TreeMap<>();
+        for (InventorySnapshot s : snapshots) {
+            byInventory.put(s.getInventory().getId(), InventoryAsOfDto.builder()
+                    .inventoryId(s.getInventory().getId())
+                    .productId(s.getInventory().getProduct().getId())
+                    .warehouseId(warehouseId)
+                    .at(at)
+                    .qtyOnHand(s.getQtyOnHand())
+                    .snapshotTakenAt(s.getTakenAt())
+                    .snapshotQtyReserved(s.getQtyReserved())
+                    .build());
+        }
+        for (InventoryDeltaDto d : deltas) {
+            // inventaire créé après l'instantané : il part de zéro
+            InventoryAsOfDto row = byInventory.computeIfAbsent(d.getInventoryId(), id -> InventoryAsOfDto.builder()
+                    .inventoryId(id)
+                    .productId(d.getProductId())
+                    .warehouseId(warehouseId)
+                    .at(at)
+                    .qtyOnHand(0)
+                    .build());
+            row.setQtyOnHand(row.getQtyOnHand() + d.getDelta().intValue());
+        }
+        return new ArrayList<>(byInventory.values());
+    }
+}
@@ -0,0 +1,139 @@
+package org.smartsupply.service.implementation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.smartsupply.dto.response.LockStatsDto;
+import org.smartsupply.exception.InventoryBusyException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Verrous répartis par hachage de (productId, warehouseId) : les mutations d'une même ligne
+ * attendent ici, sans connexion JDBC, au lieu de faire la queue sur le verrou de ligne Postgres.
+ * Plusieurs stripes sont toujours prises dans l'ordre de leur index pour éviter les interblocages.
+ */
+@Component
+@Slf4j
+public class InventoryStripedLock {
+
+    private final boolean enabled;
+    private final ReentrantLock[] stripes;
+    private final long timeoutMillis;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+    @Autowired
+    public InventoryStripedLock(@Value("${smartsupply.inventory.striped-lock.enabled:true}") boolean enabled,
+                                @Value("${smartsupply.inventory.striped-lock.stripes:1024}") int stripeCount,
+                                @Value("${smartsupply.inventory.striped-lock.timeout-ms:5000}") long timeoutMillis) {
+        if (stripeCount < 1 || Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException("Le nombre de stripes doit être une puissance de 2");
+        }
+        this.enabled = enabled;
+        this.timeoutMillis = timeoutMillis;
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    int stripeFor(Long productId, Long warehouseId) {
+        int h = Objects.hash(productId, warehouseId);
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+
+    boolean isLocked(Long productId, Long warehouseId) {
+        return stripes[stripeFor(productId, warehouseId)].isLocked();
+    }
+
+    // retourne les stripes prises, à rendre avec unlock
+    public int[] lock(Long productId, Long... warehouseIds) {
+        int[] indexes = Arrays.stream(warehouseIds)
+                .mapToInt(w -> stripeFor(productId, w))
+                .distinct()
+                .sorted()
+                .toArray();
+        return acquire(indexes, "productId=" + productId);
+    }
+
+    // réception groupée : une stripe par produit dans le même entrepôt, toujours prises dans l'ordre
+    public int[] lockAll(Collection<Long> productIds, Long warehouseId) {
+        int[] indexes = productIds.stream()
+                .mapToInt(p -> stripeFor(p, warehouseId))
+                .distinct()
+                .sorted()
+                .toArray();
+        return acquire(indexes, "warehouseId=" + warehouseId);
+    }
+
+    private int[] acquire(int[] indexes, String key) {
+        long start = System.nanoTime();
+        boolean waited = false;
+        int taken = 0;
+        try {
+            for (int index : indexes) {
+                ReentrantLock stripe = stripes[index];
+                if (!stripe.tryLock()) {
+                    waited = true;
+                    long remaining = timeoutMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    if (remaining <= 0 || !stripe.tryLock(remaining, TimeUnit.MILLISECONDS)) {
+                        timeouts.increment();
+                        throw new InventoryBusyException("Inventaire occupé pour " + key + ", réessayez plus tard");
+                    }
+                }
+                taken++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InventoryBusyException("Attente du verrou d'inventaire interrompue");
+        } finally {
+            if (taken < indexes.length) {
+                unlock(Arrays.copyOf(indexes, taken));
+            }
+        }
+
+        long waitNanos = System.nanoTime() - start;
+        acquisitions.increment();
+        if (waited) {
+            contended.increment();
+        }
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulate(waitNanos);
+        return indexes;
+    }
+
+    public void unlock(int[] indexes) {
+        for (int i = indexes.length - 1; i >= 0; i--) {
+            stripes[indexes[i]].unlock();
+        }
+    }
+
+    public LockStatsDto stats() {
+        long count = acquisitions.sum();
+        return LockStatsDto.builder()
+                .enabled(enabled)
+                .stripes(stripes.length)
+                .acquisitions(count)
+                .contended(contended.sum())
+                .timeouts(timeouts.sum())
+                .avgWaitMs(count == 0 ? 0 : totalWaitNanos.sum() / 1_000_000.0 / count)
+                .maxWaitMs(maxWaitNanos.get() / 1_000_000.0)
+                .build();
+    }
+}
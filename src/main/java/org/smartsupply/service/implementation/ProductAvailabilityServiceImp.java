@@ -0,0 +1,125 @@
+package org.smartsupply.service.implementation;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.smartsupply.dto.response.AvailableToPromiseDto;
+import org.smartsupply.exception.BusinessException;
+import org.smartsupply.model.entity.ProductAvailability;
+import org.smartsupply.repository.ProductAvailabilityRepository;
+import org.smartsupply.service.ProductAvailabilityService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Rollup product_availability. Les variations d'une transaction sont cumulées par produit et appliquées
+ * dans beforeCommit, en ordre de productId : la ligne du produit n'est verrouillée que le temps du commit
+ * et deux transactions touchant plusieurs produits ne s'interbloquent pas.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductAvailabilityServiceImp implements ProductAvailabilityService {
+
+    private final ProductAvailabilityRepository availabilityRepository;
+
+    @Override
+    public void record(Long productId, int onHandDelta, int reservedDelta) {
+        if (onHandDelta == 0 && reservedDelta == 0) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(productId, new int[]{onHandDelta, reservedDelta});
+            return;
+        }
+
+        RollupSynchronization sync = TransactionSynchronizationManager.getSynchronizations().stream()
+                .filter(RollupSynchronization.class::isInstance)
+                .map(RollupSynchronization.class::cast)
+                .findFirst()
+                .orElseGet(() -> {
+                    RollupSynchronization created = new RollupSynchronization();
+                    TransactionSynchronizationManager.registerSynchronization(created);
+                    return created;
+                });
+        int[] delta = sync.deltas.computeIfAbsent(productId, id -> new int[2]);
+        delta[0] += onHandDelta;
+        delta[1] += reservedDelta;
+    }
+
+    private void apply(Long productId, int[] delta) {
+        if (delta[0] == 0 && delta[1] == 0) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (availabilityRepository.applyDelta(productId, delta[0], delta[1], now) > 0) {
+            return;
+        }
+        // première variation du produit : la ligne est calculée depuis les inventaires, déjà à jour
+        ProductAvailability row = compute(productId, now);
+        if (availabilityRepository.insertIfAbsent(productId, row.getQtyOnHand(), row.getQtyReserved(), now) == 0) {
+            // créée entre-temps par une autre transaction, dont le calcul n'inclut pas nos mouvements
+            availabilityRepository.applyDelta(productId, delta[0], delta[1], now);
+        }
+    }
+
+    private ProductAvailability compute(Long productId, LocalDateTime now) {
+        int onHand = (int) availabilityRepository.sumOnHandByProductId(productId);
+        int reserved = (int) availabilityRepository.sumReservedByProductId(productId);
+        return ProductAvailability.builder()
+                .productId(productId)
+                .qtyOnHand(onHand)
+                .qtyReserved(reserved)
+                .available(onHand - reserved)
+                .updatedAt(now)
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public AvailableToPromiseDto availableToPromise(Long productId, int qty) {
+        if (qty < 1) {
+            throw new BusinessException("La quantité doit être >= 1");
+        }
+        // produit sans mouvement depuis le dernier rebuild : calcul direct depuis les inventaires
+        ProductAvailability row = availabilityRepository.findById(productId)
+                .orElseGet(() -> compute(productId, LocalDateTime.now()));
+        return AvailableToPromiseDto.builder()
+                .productId(productId)
+                .qtyOnHand(row.getQtyOnHand())
+                .qtyReserved(row.getQtyReserved())
+                .available(row.getAvailable())
+                .requested(qty)
+                .promisable(row.getAvailable() >= qty)
+                .build();
+    }
+
+    @Override
+    @Transactional
+    public int rebuildAll() {
+        availabilityRepository.deleteAllRows();
+        LocalDateTime now = LocalDateTime.now();
+        List<ProductAvailability> rows = availabilityRepository.findProductIdsWithInventory().stream()
+                .map(productId -> compute(productId, now))
+                .toList();
+        availabilityRepository.saveAll(rows);
+        log.info("Rollup product_availability reconstruit : {} produit(s)", rows.size());
+        return rows.size();
+    }
+
+    private class RollupSynchronization implements TransactionSynchronization {
+
+        private final Map<Long, int[]> deltas = new TreeMap<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            deltas.forEach(ProductAvailabilityServiceImp.this::apply);
+        }
+    }
+}
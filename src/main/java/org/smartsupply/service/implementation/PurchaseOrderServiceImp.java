@@ -2,6 +2,7 @@ package org.smartsupply.service.implementation;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.smartsupply.dto.request.InventoryRequestDto;
 import org.smartsupply.dto.request.POLineRequestDto;
 import org.smartsupply.dto.request.PurchaseOrderRequestDto;
 import org.smartsupply.dto.response.PurchaseOrderResponseDto;
@@ -19,6 +20,7 @@ import org.smartsupply.service.PurchaseOrderService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -143,6 +145,7 @@ public class PurchaseOrderServiceImp implements PurchaseOrderService {
         }
 
 
+        List<InventoryRequestDto> inbounds = new ArrayList<>();
         for (POLine line : po.getLines()) {
             Long productId = line.getProduct().getId();
             Integer qty = line.getQty();
@@ -152,10 +155,15 @@ public class PurchaseOrderServiceImp implements PurchaseOrderService {
 
 
             String reference = "PO:" + purchaseOrderId + ":LINE:" + line.getId();
-            inventoryService.inbound(productId, warehouseId, qty, reference);
-
-            log.info("Inbound applied for PO {}: product={} qty={} warehouse={} line={}", purchaseOrderId, productId, qty, warehouseId, line.getId());
+            inbounds.add(InventoryRequestDto.builder()
+                    .productId(productId)
+                    .warehouseId(warehouseId)
+                    .qty(qty)
+                    .reference(reference)
+                    .build());
         }
+        inventoryService.inboundAll(warehouseId, inbounds);
+        log.info("Inbound applied for PO {}: {} line(s) into warehouse={}", purchaseOrderId, inbounds.size(), warehouseId);
 
 
         po.setStatus(POStatus.RECEIVED);
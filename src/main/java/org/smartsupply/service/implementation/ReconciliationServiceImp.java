@@ -0,0 +1,194 @@
+package org.smartsupply.service.implementation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.smartsupply.dto.response.InventoryDeltaDto;
+import org.smartsupply.dto.response.InventoryDriftDto;
+import org.smartsupply.dto.response.ReconciliationReportDto;
+import org.smartsupply.model.entity.Inventory;
+import org.smartsupply.model.entity.InventoryMovement;
+import org.smartsupply.model.enums.MovementType;
+import org.smartsupply.repository.InventoryMovementRepository;
+import org.smartsupply.repository.InventoryRepository;
+import org.smartsupply.service.ReconciliationService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class ReconciliationServiceImp implements ReconciliationService {
+
+    static final String CORRECTION_REFERENCE = "RECONCILIATION";
+    private static final int CORRECTION_CHUNK = 500;
+
+    private final InventoryRepository inventoryRepository;
+    private final InventoryMovementRepository movementRepository;
+    private final TransactionTemplate readTemplate;
+    private final TransactionTemplate writeTemplate;
+    private final int parallelism;
+    private final long rangeSize;
+
+    public ReconciliationServiceImp(InventoryRepository inventoryRepository,
+                                    InventoryMovementRepository movementRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${smartsupply.reconciliation.parallelism:4}") int parallelism,
+                                    @Value("${smartsupply.reconciliation.range-size:5000}") long rangeSize) {
+        if (parallelism < 1 || rangeSize < 1) {
+            throw new IllegalArgumentException("parallelism et range-size doivent être > 0");
+        }
+        this.inventoryRepository = inventoryRepository;
+        this.movementRepository = movementRepository;
+        this.parallelism = parallelism;
+        this.rangeSize = rangeSize;
+        // solde et journal d'une plage lus dans le même instantané, sinon une écriture concurrente passe pour un écart
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate.setReadOnly(true);
+        this.readTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.writeTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public ReconciliationReportDto reconcile(boolean applyCorrections) {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.nanoTime();
+
+        Optional<Long> minId = inventoryRepository.findMinId();
+        Optional<Long> maxId = inventoryRepository.findMaxId();
+        RangeResult result = new RangeResult(0, 0, List.of());
+        if (minId.isPresent() && maxId.isPresent()) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                result = pool.invoke(new RangeTask(minId.get(), maxId.get()));
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        List<InventoryDriftDto> drifts = new ArrayList<>(result.drifts);
+        drifts.sort(Comparator.comparing(InventoryDriftDto::getInventoryId));
+        int corrected = applyCorrections ? applyCorrections(drifts) : 0;
+
+        long durationMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("Réconciliation : {} inventaire(s) sur {} plage(s), {} écart(s), {} corrigé(s) en {} ms",
+                result.scanned, result.ranges, drifts.size(), corrected, durationMs);
+
+        return ReconciliationReportDto.builder()
+                .startedAt(startedAt)
+                .durationMs(durationMs)
+                .ranges(result.ranges)
+                .inventoriesScanned(result.scanned)
+                .driftCount(drifts.size())
+                .correctedCount(corrected)
+                .drifts(drifts)
+                .build();
+    }
+
+    RangeResult scanRange(long fromId, long toId) {
+        return readTemplate.execute(status -> {
+            List<InventoryDriftDto> balances = inventoryRepository.findBalancesByIdBetween(fromId, toId);
+            if (balances.isEmpty()) {
+                return new RangeResult(1, 0, List.of());
+            }
+            Map<Long, Long> ledger = toMap(movementRepository.sumOnHandByInventoryIdBetween(fromId, toId));
+
+            List<InventoryDriftDto> drifts = new ArrayList<>();
+            for (InventoryDriftDto balance : balances) {
+                int ledgerQty = ledger.getOrDefault(balance.getInventoryId(), 0L).intValue();
+                if (balance.getQtyOnHand() != ledgerQty) {
+                    balance.setLedgerQtyOnHand(ledgerQty);
+                    balance.setDrift(balance.getQtyOnHand() - ledgerQty);
+                    drifts.add(balance);
+                }
+            }
+            return new RangeResult(1, balances.size(), drifts);
+        });
+    }
+
+    private int applyCorrections(List<InventoryDriftDto> drifts) {
+        int corrected = 0;
+        for (int i = 0; i < drifts.size(); i += CORRECTION_CHUNK) {
+            List<InventoryDriftDto> chunk = drifts.subList(i, Math.min(i + CORRECTION_CHUNK, drifts.size()));
+            corrected += Objects.requireNonNull(writeTemplate.execute(status -> correctChunk(chunk)));
+        }
+        return corrected;
+    }
+
+    private int correctChunk(List<InventoryDriftDto> chunk) {
+        Map<Long, InventoryDriftDto> byId = chunk.stream()
+                .collect(Collectors.toMap(InventoryDriftDto::getInventoryId, d -> d));
+
+        // le stock a pu bouger depuis l'analyse : on verrouille et on recalcule l'écart avant de corriger
+        List<Inventory> locked = inventoryRepository.findAllWithLockByIdIn(byId.keySet());
+        Map<Long, Long> ledger = toMap(movementRepository.sumOnHandByInventoryIdIn(byId.keySet()));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<InventoryMovement> corrections = new ArrayList<>();
+        for (Inventory inv : locked) {
+            int drift = inv.getQtyOnHand() - ledger.getOrDefault(inv.getId(), 0L).intValue();
+            if (drift == 0) {
+                continue;
+            }
+            // les mouvements sont toujours positifs : un excédent du journal est soldé par une sortie
+            corrections.add(InventoryMovement.builder()
+                    .inventory(inv)
+                    .type(drift > 0 ? MovementType.ADJUSTMENT : MovementType.OUTBOUND)
+                    .qty(Math.abs(drift))
+                    .occurredAt(now)
+                    .reference(CORRECTION_REFERENCE)
+                    .build());
+            byId.get(inv.getId()).setCorrected(true);
+        }
+        movementRepository.saveAll(corrections);
+        return corrections.size();
+    }
+
+    private static Map<Long, Long> toMap(List<InventoryDeltaDto> deltas) {
+        Map<Long, Long> byInventory = new HashMap<>();
+        for (InventoryDeltaDto d : deltas) {
+            byInventory.put(d.getInventoryId(), d.getDelta());
+        }
+        return byInventory;
+    }
+
+    record RangeResult(int ranges, long scanned, List<InventoryDriftDto> drifts) {
+
+        RangeResult merge(RangeResult other) {
+            List<InventoryDriftDto> all = new ArrayList<>(drifts.size() + other.drifts.size());
+            all.addAll(drifts);
+            all.addAll(other.drifts);
+            return new RangeResult(ranges + other.ranges, scanned + other.scanned, all);
+        }
+    }
+
+    // découpe [fromId, toId] en plages de rangeSize ids, analysées en parallèle
+    private class RangeTask extends RecursiveTask<RangeResult> {
+
+        private final long fromId;
+        private final long toId;
+
+        RangeTask(long fromId, long toId) {
+            this.fromId = fromId;
+            this.toId = toId;
+        }
+
+        @Override
+        protected RangeResult compute() {
+            if (toId - fromId < rangeSize) {
+                return scanRange(fromId, toId);
+            }
+            long mid = fromId + (toId - fromId) / 2;
+            RangeTask left = new RangeTask(fromId, mid);
+            left.fork();
+            RangeResult right = new RangeTask(mid + 1, toId).compute();
+            return left.join().merge(right);
+        }
+    }
+}
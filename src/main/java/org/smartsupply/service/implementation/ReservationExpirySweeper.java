@@ -0,0 +1,65 @@
+package org.smartsupply.service.implementation;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.smartsupply.model.entity.Reservation;
+import org.smartsupply.model.enums.ReservationStatus;
+import org.smartsupply.repository.ReservationRepository;
+import org.smartsupply.service.InventoryService;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReservationExpirySweeper {
+
+    private final ReservationExpiryWheel wheel;
+    private final ReservationRepository reservationRepository;
+    private final InventoryService inventoryService;
+
+    // la roue est en mémoire : on la recharge depuis la base au démarrage
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadActiveReservations() {
+        List<Reservation> active = reservationRepository.findByStatus(ReservationStatus.ACTIVE);
+        for (Reservation r : active) {
+            wheel.schedule(r.getId(), r.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+        log.info("{} réservation(s) active(s) replanifiée(s) dans la roue d'expiration", active.size());
+    }
+
+    @Scheduled(fixedRateString = "${smartsupply.reservations.wheel-tick-ms:1000}")
+    public void sweep() {
+        List<String> due = wheel.advance(System.currentTimeMillis());
+        if (due.isEmpty()) {
+            return;
+        }
+        try {
+            List<String> released = inventoryService.releaseExpired(due);
+            log.info("{} réservation(s) expirée(s) libérée(s) sur {} échue(s)", released.size(), due.size());
+            if (released.size() < due.size()) {
+                rescheduleStillActive(due, released);
+            }
+        } catch (Exception e) {
+            log.error("Échec de la libération des réservations expirées, nouvelle tentative au prochain tick", e);
+            long retryAt = System.currentTimeMillis();
+            due.forEach(token -> wheel.schedule(token, retryAt));
+        }
+    }
+
+    // un token sorti sans être libéré (échéance prolongée, horloges décalées) reste suivi tant que la réservation est active
+    private void rescheduleStillActive(List<String> due, List<String> released) {
+        Set<String> pending = new HashSet<>(due);
+        released.forEach(pending::remove);
+        for (Reservation r : reservationRepository.findByIdInAndStatus(pending, ReservationStatus.ACTIVE)) {
+            wheel.schedule(r.getId(), r.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.smartsupply.service.implementation;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Roue temporelle (hashed timing wheel) des réservations : chaque token est rangé dans le slot
+ * de son tick d'expiration, planifier ou annuler coûte O(1) et un tick ne parcourt qu'un slot.
+ * Un token dont l'échéance dépasse un tour de roue reste dans son slot jusqu'au bon tour.
+ */
+@Component
+public class ReservationExpiryWheel {
+
+    private final long tickMillis;
+    private final List<Map<String, Long>> slots;
+    private final Map<String, Integer> slotByToken = new ConcurrentHashMap<>();
+    private volatile long lastTick;
+
+    @Autowired
+    public ReservationExpiryWheel(@Value("${smartsupply.reservations.wheel-tick-ms:1000}") long tickMillis,
+                                  @Value("${smartsupply.reservations.wheel-size:512}") int wheelSize) {
+        this(tickMillis, wheelSize, System.currentTimeMillis());
+    }
+
+    ReservationExpiryWheel(long tickMillis, int wheelSize, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.slots = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            slots.add(new ConcurrentHashMap<>());
+        }
+        this.lastTick = startMillis / tickMillis;
+    }
+
+    public void schedule(String token, long expiresAtMillis) {
+        cancel(token);
+        // arrondi au tick supérieur : un token ne sort jamais avant son échéance ; une échéance passée part au prochain tick
+        long deadlineTick = Math.max((expiresAtMillis + tickMillis - 1) / tickMillis, lastTick + 1);
+        int slot = (int) (deadlineTick % slots.size());
+        slots.get(slot).put(token, deadlineTick);
+        slotByToken.put(token, slot);
+    }
+
+    public void cancel(String token) {
+        Integer slot = slotByToken.remove(token);
+        if (slot != null) {
+            slots.get(slot).remove(token);
+        }
+    }
+
+    public synchronized List<String> advance(long nowMillis) {
+        long nowTick = nowMillis / tickMillis;
+        List<String> due = new ArrayList<>();
+        if (nowTick <= lastTick) {
+            return due;
+        }
+
+        // au-delà d'un tour complet, chaque slot n'a besoin d'être visité qu'une fois
+        long steps = Math.min(nowTick - lastTick, slots.size());
+        for (long tick = nowTick - steps + 1; tick <= nowTick; tick++) {
+            Map<String, Long> slot = slots.get((int) (tick % slots.size()));
+            slot.entrySet().removeIf(entry -> {
+                if (entry.getValue() > nowTick) {
+                    return false;
+                }
+                due.add(entry.getKey());
+                slotByToken.remove(entry.getKey());
+                return true;
+            });
+        }
+        lastTick = nowTick;
+        return due;
+    }
+
+    public int size() {
+        return slotByToken.size();
+    }
+}
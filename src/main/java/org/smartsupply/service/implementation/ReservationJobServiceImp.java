@@ -0,0 +1,244 @@
+package org.smartsupply.service.implementation;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.smartsupply.dto.response.ReservationJobDto;
+import org.smartsupply.dto.response.SalesOrderResponseDto;
+import org.smartsupply.exception.BusinessException;
+import org.smartsupply.exception.ResourceNotFoundException;
+import org.smartsupply.model.entity.SalesOrder;
+import org.smartsupply.model.enums.JobState;
+import org.smartsupply.model.enums.OrderStatus;
+import org.smartsupply.repository.SalesOrderRepository;
+import org.smartsupply.service.ReservationJobService;
+import org.smartsupply.service.SalesOrderService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Réservations asynchrones (PUT /status?status=RESERVED&async=true) : la requête est mise en file et le
+ * client suit le job via /api/jobs/{id}. Un pool borné de workers exécute updateStatus ; au plus
+ * per-warehouse jobs tournent en même temps sur un entrepôt, les suivants attendent dans la file de cet
+ * entrepôt sans occuper de worker. Les jobs terminés sont conservés retention-minutes.
+ */
+@Service
+@Slf4j
+public class ReservationJobServiceImp implements ReservationJobService {
+
+    private final SalesOrderRepository salesOrderRepository;
+    private final SalesOrderService salesOrderService;
+    private final int perWarehouse;
+    private final int maxQueued;
+    private final long retentionMinutes;
+    private final ExecutorService workers;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<Long, Job> activeByOrder = new ConcurrentHashMap<>();
+    // file et nombre de jobs en cours par entrepôt, protégés par le verrou de l'instance
+    private final Map<Long, Deque<Job>> pendingByWarehouse = new HashMap<>();
+    private final Map<Long, Integer> runningByWarehouse = new HashMap<>();
+    private int queued;
+
+    @Autowired
+    public ReservationJobServiceImp(SalesOrderRepository salesOrderRepository,
+                                    SalesOrderService salesOrderService,
+                                    @Value("${smartsupply.reservation-jobs.workers:8}") int workers,
+                                    @Value("${smartsupply.reservation-jobs.per-warehouse:2}") int perWarehouse,
+                                    @Value("${smartsupply.reservation-jobs.max-queued:1000}") int maxQueued,
+                                    @Value("${smartsupply.reservation-jobs.retention-minutes:60}") long retentionMinutes) {
+        if (workers < 1 || perWarehouse < 1 || maxQueued < 1) {
+            throw new IllegalArgumentException("workers, per-warehouse et max-queued doivent être > 0");
+        }
+        this.salesOrderRepository = salesOrderRepository;
+        this.salesOrderService = salesOrderService;
+        this.perWarehouse = perWarehouse;
+        this.maxQueued = maxQueued;
+        this.retentionMinutes = retentionMinutes;
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "reservation-job-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ReservationJobDto submit(Long orderId) {
+        SalesOrder order = salesOrderRepository.findById(orderId)
+                .orElseThrow(() -> new ResourceNotFoundException("SalesOrder non trouvée: " + orderId));
+        // une seule réservation en cours par commande : une resoumission renvoie le job existant
+        Job active = activeByOrder.get(orderId);
+        if (active != null) {
+            return toDto(active);
+        }
+        if (order.getStatus() != OrderStatus.CREATED) {
+            throw new BusinessException("Seule une commande CREATED peut être réservée, statut actuel: " + order.getStatus());
+        }
+
+        Job job = new Job(UUID.randomUUID().toString(), orderId, order.getWarehouse().getId(), order.getLines().size());
+        synchronized (this) {
+            if (queued >= maxQueued) {
+                throw new BusinessException("File de réservation pleine, réessayez plus tard");
+            }
+            if (activeByOrder.putIfAbsent(orderId, job) != null) {
+                return toDto(activeByOrder.get(orderId));
+            }
+            jobs.put(job.id, job);
+            queued++;
+            pendingByWarehouse.computeIfAbsent(job.warehouseId, id -> new ArrayDeque<>()).add(job);
+            dispatch(job.warehouseId);
+        }
+        log.info("Job de réservation {} en file pour la commande {} (warehouse={})", job.id, orderId, job.warehouseId);
+        return toDto(job);
+    }
+
+    @Override
+    public ReservationJobDto get(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Job non trouvé: " + jobId);
+        }
+        return toDto(job);
+    }
+
+    // appelé sous le verrou de l'instance
+    private void dispatch(Long warehouseId) {
+        Deque<Job> pending = pendingByWarehouse.get(warehouseId);
+        int running = runningByWarehouse.getOrDefault(warehouseId, 0);
+        while (pending != null && !pending.isEmpty() && running < perWarehouse) {
+            Job job = pending.poll();
+            queued--;
+            running++;
+            try {
+                workers.execute(() -> run(job));
+            } catch (RejectedExecutionException e) {
+                running--;
+                finish(job, null, "Service de réservation arrêté");
+            }
+        }
+        runningByWarehouse.put(warehouseId, running);
+        if (pending != null && pending.isEmpty()) {
+            pendingByWarehouse.remove(warehouseId);
+        }
+    }
+
+    private void run(Job job) {
+        synchronized (job) {
+            job.state = JobState.RUNNING;
+            job.startedAt = LocalDateTime.now();
+        }
+        SalesOrderResponseDto result = null;
+        String error = null;
+        try {
+            result = salesOrderService.updateStatus(job.orderId, OrderStatus.RESERVED.name());
+        } catch (Exception e) {
+            log.error("Échec du job de réservation {} (commande {})", job.id, job.orderId, e);
+            error = e.getMessage();
+        } finally {
+            finish(job, result, error);
+            synchronized (this) {
+                runningByWarehouse.merge(job.warehouseId, -1, Integer::sum);
+                dispatch(job.warehouseId);
+            }
+        }
+    }
+
+    private void finish(Job job, SalesOrderResponseDto result, String error) {
+        synchronized (job) {
+            job.finishedAt = LocalDateTime.now();
+            job.state = error == null ? JobState.SUCCEEDED : JobState.FAILED;
+            job.error = error;
+            if (result != null) {
+                job.orderStatus = result.getStatus();
+                job.warnings = result.getWarnings() != null ? List.copyOf(result.getWarnings()) : List.of();
+                if (result.getLines() != null) {
+                    job.linesTotal = result.getLines().size();
+                    job.linesReserved = (int) result.getLines().stream()
+                            .filter(l -> l.getQtyReserved() >= l.getQtyOrdered())
+                            .count();
+                }
+            }
+        }
+        activeByOrder.remove(job.orderId, job);
+    }
+
+    @Scheduled(fixedDelayString = "${smartsupply.reservation-jobs.cleanup-ms:60000}")
+    public void purgeFinished() {
+        LocalDateTime limit = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> {
+            synchronized (job) {
+                return job.finishedAt != null && job.finishedAt.isBefore(limit);
+            }
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdown();
+    }
+
+    private ReservationJobDto toDto(Job job) {
+        Integer position = null;
+        synchronized (this) {
+            Deque<Job> pending = pendingByWarehouse.get(job.warehouseId);
+            if (pending != null) {
+                int i = 0;
+                for (Job p : pending) {
+                    if (p == job) {
+                        position = i;
+                        break;
+                    }
+                    i++;
+                }
+            }
+        }
+        synchronized (job) {
+            return ReservationJobDto.builder()
+                    .jobId(job.id)
+                    .orderId(job.orderId)
+                    .warehouseId(job.warehouseId)
+                    .state(job.state)
+                    .queuePosition(job.state == JobState.QUEUED ? position : null)
+                    .submittedAt(job.submittedAt)
+                    .startedAt(job.startedAt)
+                    .finishedAt(job.finishedAt)
+                    .linesTotal(job.linesTotal)
+                    .linesReserved(job.linesReserved)
+                    .orderStatus(job.orderStatus)
+                    .warnings(job.warnings)
+                    .error(job.error)
+                    .build();
+        }
+    }
+
+    private static final class Job {
+        final String id;
+        final Long orderId;
+        final Long warehouseId;
+        final LocalDateTime submittedAt = LocalDateTime.now();
+        JobState state = JobState.QUEUED;
+        LocalDateTime startedAt;
+        LocalDateTime finishedAt;
+        int linesTotal;
+        int linesReserved;
+        String orderStatus;
+        List<String> warnings = List.of();
+        String error;
+
+        Job(String id, Long orderId, Long warehouseId, int linesTotal) {
+            this.id = id;
+            this.orderId = orderId;
+            this.warehouseId = warehouseId;
+            this.linesTotal = linesTotal;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package org.smartsupply.service.implementation;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.*;
+import lombok.extern.slf4j.Slf4j;
+import org.smartsupply.dto.response.SalesAnalyticsRowDto;
+import org.smartsupply.exception.BusinessException;
+import org.smartsupply.model.entity.SalesDailyOrderRollup;
+import org.smartsupply.model.entity.SalesDailyOrderRollupId;
+import org.smartsupply.model.entity.SalesDailyRollup;
+import org.smartsupply.model.entity.SalesDailyRollupId;
+import org.smartsupply.model.entity.SalesOrder;
+import org.smartsupply.model.entity.SalesOrderLine;
+import org.smartsupply.model.enums.OrderStatus;
+import org.smartsupply.model.enums.SalesDimension;
+import org.smartsupply.repository.SalesDailyOrderRollupRepository;
+import org.smartsupply.repository.SalesDailyRollupRepository;
+import org.smartsupply.service.SalesAnalyticsService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rollups sales_daily_rollup (grain produit) et sales_daily_order_rollup (grain commande). Les contributions d'une transaction sont cumulées par clé et appliquées après son
+ * commit, dans une transaction séparée : un échec du rollup n'annule jamais la vente, le jour concerné est
+ * reconstruit par le prochain passage de SalesRollupJob.
+ */
+@Service
+@Slf4j
+public class SalesAnalyticsServiceImp implements SalesAnalyticsService {
+
+    private static final Comparator<SalesDailyRollupId> KEY_ORDER = Comparator.comparing(SalesDailyRollupId::getDay)
+            .thenComparing(SalesDailyRollupId::getWarehouseId)
+            .thenComparing(SalesDailyRollupId::getProductId)
+            .thenComparing(SalesDailyRollupId::getStatus);
+    private static final Comparator<SalesDailyOrderRollupId> ORDER_KEY_ORDER = Comparator.comparing(SalesDailyOrderRollupId::getDay)
+            .thenComparing(SalesDailyOrderRollupId::getWarehouseId)
+            .thenComparing(SalesDailyOrderRollupId::getStatus);
+
+    private final SalesDailyRollupRepository rollupRepository;
+    private final SalesDailyOrderRollupRepository orderRollupRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate writeTemplate;
+    // jours dont une mise à jour incrémentale a échoué, quel que soit leur âge
+    private final Set<LocalDate> staleDays = ConcurrentHashMap.newKeySet();
+
+    public SalesAnalyticsServiceImp(SalesDailyRollupRepository rollupRepository,
+                                    SalesDailyOrderRollupRepository orderRollupRepository,
+                                    EntityManager entityManager,
+                                    PlatformTransactionManager transactionManager) {
+        this.rollupRepository = rollupRepository;
+        this.orderRollupRepository = orderRollupRepository;
+        this.entityManager = entityManager;
+        this.writeTemplate = new TransactionTemplate(transactionManager);
+        this.writeTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public void record(SalesOrder order, OrderStatus status, int sign) {
+        if (sign == 0 || order.getLines() == null || order.getLines().isEmpty()) {
+            return;
+        }
+        boolean deferred = TransactionSynchronizationManager.isSynchronizationActive();
+        Contributions contributions = deferred ? synchronization().contributions : new Contributions();
+        Map<SalesDailyRollupId, Delta> deltas = contributions.byProduct;
+
+        // calculé tout de suite : la commande peut encore changer (statut, lignes) avant le commit
+        LocalDate day = order.getCreatedAt().toLocalDate();
+        Delta orderDelta = contributions.byOrder.computeIfAbsent(
+                new SalesDailyOrderRollupId(day, order.getWarehouse().getId(), status), k -> new Delta());
+        orderDelta.orders += sign;
+        Set<Long> counted = new HashSet<>();
+        for (SalesOrderLine line : order.getLines()) {
+            Long productId = line.getProduct().getId();
+            Delta delta = deltas.computeIfAbsent(new SalesDailyRollupId(day, order.getWarehouse().getId(), productId, status),
+                    k -> new Delta());
+            if (counted.add(productId)) {
+                delta.orders += sign;
+            }
+            delta.qty += (long) sign * line.getQtyOrdered();
+            delta.amount = sign > 0 ? delta.amount.add(line.getPrice()) : delta.amount.subtract(line.getPrice());
+            orderDelta.qty += (long) sign * line.getQtyOrdered();
+            orderDelta.amount = sign > 0 ? orderDelta.amount.add(line.getPrice()) : orderDelta.amount.subtract(line.getPrice());
+        }
+
+        if (!deferred) {
+            applyAll(contributions);
+        }
+    }
+
+    private RollupSynchronization synchronization() {
+        return TransactionSynchronizationManager.getSynchronizations().stream()
+                .filter(RollupSynchronization.class::isInstance)
+                .map(RollupSynchronization.class::cast)
+                .findFirst()
+                .orElseGet(() -> {
+                    RollupSynchronization created = new RollupSynchronization();
+                    TransactionSynchronizationManager.registerSynchronization(created);
+                    return created;
+                });
+    }
+
+    private void applyAll(Contributions contributions) {
+        contributions.byOrder.values().removeIf(Delta::isZero);
+        contributions.byProduct.values().removeIf(Delta::isZero);
+        if (contributions.byOrder.isEmpty() && contributions.byProduct.isEmpty()) {
+            return;
+        }
+        try {
+            writeTemplate.executeWithoutResult(s -> {
+                LocalDateTime now = LocalDateTime.now();
+                contributions.byOrder.forEach((key, delta) -> orderRollupRepository.upsertDelta(key.getDay(),
+                        key.getWarehouseId(), key.getStatus(), delta.orders, delta.qty, delta.amount, now));
+                contributions.byProduct.forEach((key, delta) -> rollupRepository.upsertDelta(key.getDay(),
+                        key.getWarehouseId(), key.getProductId(), key.getStatus(), delta.orders, delta.qty, delta.amount, now));
+            });
+        } catch (RuntimeException e) {
+            // transaction annulée en bloc : aucune contribution appliquée, les jours concernés seront reconstruits
+            contributions.byOrder.keySet().forEach(key -> staleDays.add(key.getDay()));
+            log.warn("Rollup des ventes non mis à jour pour {} clé(s), jour(s) à reconstruire : {}",
+                    contributions.byOrder.size() + contributions.byProduct.size(), staleDays, e);
+        }
+    }
+
+    @Override
+    public Set<LocalDate> staleDays() {
+        return new TreeSet<>(staleDays);
+    }
+
+    @Override
+    @Transactional
+    public int rebuild(LocalDate day) {
+        // retiré avant le recalcul (un échec incrémental concurrent le remet), remis si la reconstruction échoue
+        if (staleDays.remove(day)) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        staleDays.add(day);
+                    }
+                }
+            });
+        }
+        int deleted = rollupRepository.deleteByDay(day);
+        orderRollupRepository.deleteByDay(day);
+        LocalDateTime start = day.atStartOfDay();
+        LocalDateTime now = LocalDateTime.now();
+        List<SalesAnalyticsRowDto> rows = rollupRepository.aggregateOrders(start, start.plusDays(1));
+        // clés assignées et lignes du jour supprimées juste avant : persist direct, sans le SELECT d'un merge
+        rows.forEach(row -> entityManager.persist(toEntity(row, now)));
+        orderRollupRepository.aggregateOrders(start, start.plusDays(1))
+                .forEach(row -> entityManager.persist(toOrderEntity(row, now)));
+        log.info("Rollup sales_daily_rollup du {} reconstruit : {} ligne(s) (avant : {})", day, rows.size(), deleted);
+        return rows.size();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<SalesAnalyticsRowDto> aggregate(LocalDate from, LocalDate to, Long warehouseId, Long productId,
+                                                String statusStr, List<String> groupBy) {
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new BusinessException("Période invalide : from doit précéder ou égaler to");
+        }
+        OrderStatus status = null;
+        if (statusStr != null && !statusStr.isBlank()) {
+            try {
+                status = OrderStatus.valueOf(statusStr);
+            } catch (Exception ex) {
+                throw new BusinessException("Status invalide: " + statusStr);
+            }
+        }
+        Set<SalesDimension> dimensions = dimensions(groupBy);
+
+        // sans axe ni filtre produit, le grain commande : une commande à plusieurs produits n'y compte qu'une fois
+        boolean byProduct = productId != null || dimensions.contains(SalesDimension.PRODUCT);
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<SalesAnalyticsRowDto> query = cb.createQuery(SalesAnalyticsRowDto.class);
+        Root<?> r = byProduct ? query.from(SalesDailyRollup.class) : query.from(SalesDailyOrderRollup.class);
+        Path<Object> id = r.get("id");
+        Path<LocalDate> day = id.get("day");
+        Path<Long> warehouse = id.get("warehouseId");
+        Path<Long> product = byProduct ? id.get("productId") : null;
+        Path<OrderStatus> orderStatus = id.get("status");
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.between(day, from, to));
+        if (warehouseId != null) {
+            predicates.add(cb.equal(warehouse, warehouseId));
+        }
+        if (productId != null) {
+            predicates.add(cb.equal(product, productId));
+        }
+        if (status != null) {
+            predicates.add(cb.equal(orderStatus, status));
+        }
+
+        Map<SalesDimension, Expression<?>> axes = new EnumMap<>(SalesDimension.class);
+        axes.put(SalesDimension.DAY, day);
+        axes.put(SalesDimension.WAREHOUSE, warehouse);
+        if (byProduct) {
+            axes.put(SalesDimension.PRODUCT, product);
+        }
+        axes.put(SalesDimension.STATUS, orderStatus);
+        List<Expression<?>> grouping = new ArrayList<>();
+        dimensions.forEach(d -> grouping.add(axes.get(d)));
+
+        query.select(cb.construct(SalesAnalyticsRowDto.class,
+                        dimensions.contains(SalesDimension.DAY) ? day : cb.nullLiteral(LocalDate.class),
+                        dimensions.contains(SalesDimension.WAREHOUSE) ? warehouse : cb.nullLiteral(Long.class),
+                        dimensions.contains(SalesDimension.PRODUCT) ? product : cb.nullLiteral(Long.class),
+                        dimensions.contains(SalesDimension.STATUS) ? orderStatus : cb.nullLiteral(OrderStatus.class),
+                        cb.sum(r.<Long>get("orderCount")),
+                        cb.sum(r.<Long>get("qtyOrdered")),
+                        cb.sum(r.<BigDecimal>get("amount"))))
+                .where(predicates.toArray(new Predicate[0]))
+                .groupBy(grouping)
+                .orderBy(grouping.stream().map(cb::asc).toList());
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    private static Set<SalesDimension> dimensions(List<String> groupBy) {
+        Set<SalesDimension> dimensions = EnumSet.noneOf(SalesDimension.class);
+        if (groupBy != null) {
+            for (String axis : groupBy) {
+                try {
+                    dimensions.add(SalesDimension.valueOf(axis.trim().toUpperCase()));
+                } catch (Exception ex) {
+                    throw new BusinessException("Axe de regroupement invalide: " + axis);
+                }
+            }
+        }
+        if (dimensions.isEmpty()) {
+            dimensions.add(SalesDimension.DAY);
+        }
+        return dimensions;
+    }
+
+    private static SalesDailyRollup toEntity(SalesAnalyticsRowDto row, LocalDateTime now) {
+        return SalesDailyRollup.builder()
+                .id(new SalesDailyRollupId(row.getDay(), row.getWarehouseId(), row.getProductId(), row.getStatus()))
+                .orderCount(row.getOrderCount())
+                .qtyOrdered(row.getQtyOrdered())
+                .amount(row.getAmount())
+                .updatedAt(now)
+                .build();
+    }
+
+    private static SalesDailyOrderRollup toOrderEntity(SalesAnalyticsRowDto row, LocalDateTime now) {
+        return SalesDailyOrderRollup.builder()
+                .id(new SalesDailyOrderRollupId(row.getDay(), row.getWarehouseId(), row.getStatus()))
+                .orderCount(row.getOrderCount())
+                .qtyOrdered(row.getQtyOrdered())
+                .amount(row.getAmount())
+                .updatedAt(now)
+                .build();
+    }
+
+    // contributions d'une transaction aux deux grains, triées pour verrouiller les lignes toujours dans le même ordre
+    private static final class Contributions {
+        private final Map<SalesDailyOrderRollupId, Delta> byOrder = new TreeMap<>(ORDER_KEY_ORDER);
+        private final Map<SalesDailyRollupId, Delta> byProduct = new TreeMap<>(KEY_ORDER);
+    }
+
+    private static final class Delta {
+        private long orders;
+        private long qty;
+        private BigDecimal amount = BigDecimal.ZERO;
+
+        private boolean isZero() {
+            return orders == 0 && qty == 0 && amount.signum() == 0;
+        }
+    }
+
+    private class RollupSynchronization implements TransactionSynchronization {
+
+        private final Contributions contributions = new Contributions();
+
+        @Override
+        public void afterCommit() {
+            applyAll(contributions);
+        }
+    }
+}
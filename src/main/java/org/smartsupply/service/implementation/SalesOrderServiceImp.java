@@ -3,8 +3,15 @@ package org.smartsupply.service.implementation;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.smartsupply.dto.request.SalesOrderLineRequestDto;
+import org.smartsupply.dto.request.SalesOrderFilterDto;
 import org.smartsupply.dto.request.SalesOrderRequestDto;
+import org.smartsupply.dto.request.ShipOrderRequestDto;
+import org.smartsupply.dto.response.InventoryKeyDto;
+import org.smartsupply.dto.response.KeysetPageDto;
+import org.smartsupply.dto.response.SalesOrderBatchResultDto;
 import org.smartsupply.dto.response.SalesOrderResponseDto;
+import org.smartsupply.dto.response.SalesOrderSummaryDto;
+import org.smartsupply.dto.response.ShipOrderResultDto;
 import org.smartsupply.exception.BusinessException;
 import org.smartsupply.exception.ResourceNotFoundException;
 import org.smartsupply.exception.StockUnavailableException;
@@ -13,18 +20,22 @@ import org.smartsupply.model.entity.*;
 import org.smartsupply.model.enums.MovementType;
 import org.smartsupply.model.enums.OrderStatus;
 import org.smartsupply.repository.*;
+import org.smartsupply.service.BackorderService;
 import org.smartsupply.service.InventoryService;
+import org.smartsupply.service.ProductAvailabilityService;
+import org.smartsupply.service.SalesAnalyticsService;
 import org.smartsupply.service.SalesOrderService;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.function.Function;
 
 @Service
 @Transactional
@@ -32,6 +43,11 @@ import java.util.List;
 @Slf4j
 public class SalesOrderServiceImp implements SalesOrderService {
 
+    static final int MAX_PAGE_SIZE = 500;
+    private static final Sort KEYSET_ORDER = Sort.by("createdAt", "id");
+    static final String LINE_RESERVED = "RESERVED";
+    static final String LINE_BACKORDERED = "BACKORDERED";
+
     private final SalesOrderRepository salesOrderRepository;
     private final SalesOrderMapper salesOrderMapper;
     private final UserRepository userRepository;
@@ -40,9 +56,22 @@ public class SalesOrderServiceImp implements SalesOrderService {
     private final InventoryRepository inventoryRepository;
     private final InventoryService inventoryService;
     private final InventoryMovementRepository inventoryMovementRepository;
+    private final ProductAvailabilityService availabilityService;
+    private final AvailabilityCache availabilityCache;
+    private final BackorderService backorderService;
+    private final SalesAnalyticsService salesAnalyticsService;
 
     @Override
     public SalesOrderResponseDto create(SalesOrderRequestDto request) {
+        return create(request, false);
+    }
+
+    /**
+     * Avec reserve=true, la commande est créée et réservée dans la même transaction, avec les produits déjà
+     * chargés pour la création. Si une ligne ne peut pas être couverte, la commande reste CREATED (backorder).
+     */
+    @Override
+    public SalesOrderResponseDto create(SalesOrderRequestDto request, boolean reserve) {
 
         User client = userRepository.findById(request.getClientId())
                 .orElseThrow(() -> new ResourceNotFoundException("Client non trouvé: " + request.getClientId()));
@@ -88,13 +117,141 @@ public class SalesOrderServiceImp implements SalesOrderService {
 
         SalesOrder saved = salesOrderRepository.save(order);
         log.info("SalesOrder créée id={} clientId={}", saved.getId(), client.getId());
-        return salesOrderMapper.toResponse(saved);
+        if (!reserve) {
+            salesAnalyticsService.record(saved, saved.getStatus(), 1);
+            return salesOrderMapper.toResponse(saved);
+        }
+
+        // id attribué par séquence : l'INSERT n'est émis qu'au flush, avec les quantités réservées et le statut final
+        List<String> warnings = new ArrayList<>();
+        Map<SalesOrderLine, String> outcomes = reserveLines(saved, warnings);
+        if (!outcomes.containsValue(LINE_BACKORDERED)) {
+            saved.setStatus(OrderStatus.RESERVED);
+        } else {
+            log.info("Au moins une ligne n'a pas pu être réservée -> garder le statut CREATED pour la commande {}", saved.getId());
+        }
+        salesAnalyticsService.record(saved, saved.getStatus(), 1);
+        SalesOrderResponseDto dto = salesOrderMapper.toResponse(saved);
+        dto.setWarnings(warnings);
+        applyOutcomes(dto, saved, outcomes);
+        return dto;
+    }
+
+    /**
+     * Création en lot (EDI) : clients, entrepôts et produits sont chargés en une requête chacun, les commandes
+     * valides sont insérées ensemble (ids par séquence, donc inserts batchés). Une commande invalide est
+     * signalée dans son résultat sans bloquer les autres.
+     */
+    @Override
+    public List<SalesOrderBatchResultDto> createBatch(List<SalesOrderRequestDto> requests) {
+        Map<Long, User> clients = byId(userRepository.findAllById(collectIds(requests, SalesOrderRequestDto::getClientId)), User::getId);
+        Map<Long, Warehouse> warehouses = byId(warehouseRepository.findAllById(collectIds(requests, SalesOrderRequestDto::getWarehouseId)), Warehouse::getId);
+        Set<Long> productIds = new HashSet<>();
+        for (SalesOrderRequestDto request : requests) {
+            if (request != null && request.getLines() != null) {
+                request.getLines().stream()
+                        .filter(l -> l != null && l.getProductId() != null)
+                        .forEach(l -> productIds.add(l.getProductId()));
+            }
+        }
+        Map<Long, Product> products = byId(productRepository.findAllById(productIds), Product::getId);
+
+        List<SalesOrderBatchResultDto> results = new ArrayList<>(requests.size());
+        List<SalesOrder> orders = new ArrayList<>();
+        List<SalesOrderBatchResultDto> createdResults = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            SalesOrderBatchResultDto result = SalesOrderBatchResultDto.builder().index(i).build();
+            results.add(result);
+            try {
+                orders.add(buildOrder(requests.get(i), clients, warehouses, products));
+                createdResults.add(result);
+            } catch (BusinessException | ResourceNotFoundException e) {
+                result.setError(e.getMessage());
+            }
+        }
+
+        List<SalesOrder> saved = salesOrderRepository.saveAll(orders);
+        for (int i = 0; i < saved.size(); i++) {
+            createdResults.get(i).setCreated(true);
+            createdResults.get(i).setOrderId(saved.get(i).getId());
+            salesAnalyticsService.record(saved.get(i), saved.get(i).getStatus(), 1);
+        }
+        log.info("Lot de commandes: {}/{} créée(s)", saved.size(), requests.size());
+        return results;
+    }
+
+    private SalesOrder buildOrder(SalesOrderRequestDto request, Map<Long, User> clients,
+                                  Map<Long, Warehouse> warehouses, Map<Long, Product> products) {
+        if (request == null || request.getClientId() == null || request.getWarehouseId() == null) {
+            throw new BusinessException("clientId et warehouseId sont obligatoires");
+        }
+        User client = clients.get(request.getClientId());
+        if (client == null) {
+            throw new ResourceNotFoundException("Client non trouvé: " + request.getClientId());
+        }
+        if (!client.getIsActive()) {
+            throw new BusinessException("Client inactif: " + request.getClientId());
+        }
+        Warehouse warehouse = warehouses.get(request.getWarehouseId());
+        if (warehouse == null) {
+            throw new ResourceNotFoundException("Warehouse non trouvé: " + request.getWarehouseId());
+        }
+        if (!warehouse.getActive()) {
+            throw new BusinessException("Warehouse inactif: " + request.getWarehouseId());
+        }
+
+        SalesOrder order = SalesOrder.builder()
+                .client(client)
+                .warehouse(warehouse)
+                .status(OrderStatus.CREATED)
+                .build();
+        if (request.getLines() != null) {
+            for (SalesOrderLineRequestDto lineRequestDto : request.getLines()) {
+                if (lineRequestDto == null || lineRequestDto.getProductId() == null || lineRequestDto.getQtyOrdered() < 1) {
+                    throw new BusinessException("Ligne invalide: productId obligatoire et qtyOrdered >= 1");
+                }
+                Product product = products.get(lineRequestDto.getProductId());
+                if (product == null) {
+                    throw new ResourceNotFoundException("Produit non trouvé: " + lineRequestDto.getProductId());
+                }
+                if (!Boolean.TRUE.equals(product.getActive())) {
+                    throw new BusinessException("Produit inactif: " + lineRequestDto.getProductId());
+                }
+                BigDecimal unitPrice = product.getOriginalPrice().add(product.getProfite());
+                order.getLines().add(SalesOrderLine.builder()
+                        .product(product)
+                        .qtyOrdered(lineRequestDto.getQtyOrdered())
+                        .qtyReserved(0)
+                        .price(unitPrice.multiply(BigDecimal.valueOf(lineRequestDto.getQtyOrdered())))
+                        .salesOrder(order)
+                        .build());
+            }
+        }
+        return order;
+    }
+
+    private static Set<Long> collectIds(List<SalesOrderRequestDto> requests, Function<SalesOrderRequestDto, Long> id) {
+        Set<Long> ids = new HashSet<>();
+        for (SalesOrderRequestDto request : requests) {
+            if (request != null && id.apply(request) != null) {
+                ids.add(id.apply(request));
+            }
+        }
+        return ids;
+    }
+
+    private static <T> Map<Long, T> byId(List<T> entities, Function<T, Long> id) {
+        Map<Long, T> map = new HashMap<>();
+        for (T entity : entities) {
+            map.put(id.apply(entity), entity);
+        }
+        return map;
     }
 
     @Override
     @Transactional(readOnly = true)
     public SalesOrderResponseDto getById(Long id) {
-        SalesOrder order = salesOrderRepository.findById(id)
+        SalesOrder order = salesOrderRepository.findWithDetailsById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("SalesOrder non trouvée: " + id));
         return salesOrderMapper.toResponse(order);
     }
@@ -102,7 +259,25 @@ public class SalesOrderServiceImp implements SalesOrderService {
 
     @Override
     @Transactional(readOnly = true)
-    public Page<SalesOrderResponseDto> listAll(String statusStr, Long clientId, LocalDateTime startDate, LocalDateTime endDate, Pageable pageable) {
+    public Page<SalesOrderResponseDto> listAll(String statusStr, Long clientId, LocalDateTime startDate, LocalDateTime endDate,
+                                               BigDecimal minAmount, BigDecimal maxAmount, Pageable pageable) {
+        Page<SalesOrder> page = findPage(statusStr, clientId, startDate, endDate, minAmount, maxAmount, pageable);
+        // lignes et produits de toute la page en une requête, sur les commandes déjà chargées
+        if (page.hasContent()) {
+            salesOrderRepository.findWithLinesByIdIn(page.getContent().stream().map(SalesOrder::getId).toList());
+        }
+        return page.map(salesOrderMapper::toResponse);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<SalesOrderSummaryDto> listSummaries(String statusStr, Long clientId, LocalDateTime startDate, LocalDateTime endDate,
+                                                    BigDecimal minAmount, BigDecimal maxAmount, Pageable pageable) {
+        return findPage(statusStr, clientId, startDate, endDate, minAmount, maxAmount, pageable).map(salesOrderMapper::toSummary);
+    }
+
+    private Page<SalesOrder> findPage(String statusStr, Long clientId, LocalDateTime startDate, LocalDateTime endDate,
+                                      BigDecimal minAmount, BigDecimal maxAmount, Pageable pageable) {
         OrderStatus status = null;
         if (statusStr != null && !statusStr.isBlank()) {
             try {
@@ -112,31 +287,45 @@ public class SalesOrderServiceImp implements SalesOrderService {
             }
         }
 
-        Page<SalesOrder> page;
-
-        boolean hasStatus = status != null;
-        boolean hasClient = clientId != null;
-        boolean hasStartEnd = (startDate != null && endDate != null);
-
-        if (hasStatus && hasClient && hasStartEnd) {
-            page = salesOrderRepository.findByStatusAndClientIdAndCreatedAtBetween(status, clientId, startDate, endDate, pageable);
-        } else if (hasStatus && hasClient) {
-            page = salesOrderRepository.findByStatusAndClientId(status, clientId, pageable);
-        } else if (hasStatus && hasStartEnd) {
-            page = salesOrderRepository.findByStatusAndCreatedAtBetween(status, startDate, endDate, pageable);
-        } else if (hasClient && hasStartEnd) {
-            page = salesOrderRepository.findByClientIdAndCreatedAtBetween(clientId, startDate, endDate, pageable);
-        } else if (hasStatus) {
-            page = salesOrderRepository.findByStatus(status, pageable);
-        } else if (hasClient) {
-            page = salesOrderRepository.findByClientId(clientId, pageable);
-        } else if (hasStartEnd) {
-            page = salesOrderRepository.findByCreatedAtBetween(startDate, endDate, pageable);
-        } else {
-            page = salesOrderRepository.findAll(pageable);
+        SalesOrderFilterDto filter = SalesOrderFilterDto.builder()
+                .status(status)
+                .clientId(clientId)
+                .from(startDate)
+                .until(endDate)
+                .minAmount(minAmount)
+                .maxAmount(maxAmount)
+                .build();
+        return salesOrderRepository.findAll(SalesOrderSpecifications.matching(filter), pageable);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetPageDto<SalesOrderSummaryDto> search(SalesOrderFilterDto filter, LocalDateTime afterCreatedAt, Long afterId, int size, boolean withCount) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BusinessException("size doit être compris entre 1 et " + MAX_PAGE_SIZE);
         }
 
-        return page.map(salesOrderMapper::toResponse);
+        // une ligne de plus que demandé pour savoir s'il existe une page suivante, sans COUNT
+        List<SalesOrder> rows = salesOrderRepository.findBy(
+                SalesOrderSpecifications.matching(filter).and(SalesOrderSpecifications.after(afterCreatedAt, afterId)),
+                q -> q.project("client", "warehouse", "shipment").sortBy(KEYSET_ORDER).limit(size + 1).all());
+
+        boolean hasNext = rows.size() > size;
+        List<SalesOrder> page = hasNext ? rows.subList(0, size) : rows;
+        SalesOrder last = page.isEmpty() ? null : page.get(page.size() - 1);
+
+        return KeysetPageDto.<SalesOrderSummaryDto>builder()
+                .content(toSummaries(page))
+                .size(page.size())
+                .hasNext(hasNext)
+                .nextAfter(hasNext ? last.getCreatedAt() : null)
+                .nextAfterId(hasNext ? last.getId() : null)
+                .totalElements(withCount ? salesOrderRepository.count(SalesOrderSpecifications.matching(filter)) : null)
+                .build();
+    }
+
+    private List<SalesOrderSummaryDto> toSummaries(List<SalesOrder> orders) {
+        return orders.stream().map(salesOrderMapper::toSummary).toList();
     }
 
     @Override
@@ -158,7 +347,10 @@ public class SalesOrderServiceImp implements SalesOrderService {
                 .price(finalPrice)
                 .salesOrder(order)
                 .build();
+        salesAnalyticsService.record(order, order.getStatus(), -1);
         order.getLines().add(line);
+        order.recalculateTotals();
+        salesAnalyticsService.record(order, order.getStatus(), 1);
         SalesOrder saved = salesOrderRepository.save(order);
         log.info("Ligne ajoutée orderId={} productId={}", orderId, product.getId());
         return salesOrderMapper.toResponse(saved);
@@ -168,6 +360,7 @@ public class SalesOrderServiceImp implements SalesOrderService {
      public SalesOrderResponseDto updateStatus(Long orderId, String newStatus) {
         SalesOrder order = salesOrderRepository.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("SalesOrder non trouvée: " + orderId));
+        OrderStatus previous = order.getStatus();
 
         OrderStatus target;
         try {
@@ -178,30 +371,17 @@ public class SalesOrderServiceImp implements SalesOrderService {
 
         List<String> warnings =new ArrayList<>();
         boolean allLinesReserved = true;
+        Map<SalesOrderLine, String> outcomes = Map.of();
 
         if (target == OrderStatus.RESERVED && order.getStatus() == OrderStatus.CREATED) {
             log.info("Tentative de réservation pour la commande {} ...", orderId);
-            for (SalesOrderLine line : order.getLines()) {
-                Long warehouseId = order.getWarehouse().getId();
-                Long productId = line.getProduct().getId();
-                String productName = line.getProduct().getName();
-                int qtyOrdered = line.getQtyOrdered();
-                try{
-                    inventoryService.smartReserve(productId,warehouseId,qtyOrdered,"SO"+orderId);
-                    line.setQtyReserved(qtyOrdered);
-                    log.info(" Produit '{}' réservé avec succès (qty={})", productName, qtyOrdered);
-                }catch(StockUnavailableException e){
-                   allLinesReserved = false ;
-                    String msg = String.format(" Stock insuffisant pour le produit '%s' (id=%d). Commande fournisseur prévue."  ,productName, productId);
-                    warnings.add(msg);
-                    log.warn(msg);
-                }
-
-            }
-
+            outcomes = reserveLines(order, warnings);
+            allLinesReserved = !outcomes.containsValue(LINE_BACKORDERED);
         }
 
-        if((order.getStatus()== OrderStatus.RESERVED )&& (target==OrderStatus.CANCELED||target==OrderStatus.CREATED)){
+        // une commande CREATED peut porter des réservations partielles (backorders), libérées à l'annulation
+        if((order.getStatus()== OrderStatus.RESERVED )&& (target==OrderStatus.CANCELED||target==OrderStatus.CREATED)
+                || order.getStatus() == OrderStatus.CREATED && target == OrderStatus.CANCELED){
             log.info("Libération des quantités réservées pour la commande {} ...", orderId);
 
             for(SalesOrderLine line : order.getLines()){
@@ -214,9 +394,11 @@ public class SalesOrderServiceImp implements SalesOrderService {
                 try{
                     Inventory inventory = inventoryRepository.findWithLockByProductIdAndWarehouseId(productId, warehouseId)
                             .orElseThrow(() -> new ResourceNotFoundException("Inventory not found for productId=" + productId + " warehouseId=" + warehouseId));
-                    inventory.setQtyReserved(inventory.getQtyReserved()-qtyToRelease);
-                    if(inventory.getQtyReserved()<0) inventory.setQtyReserved(0);
+                    int released = Math.min(inventory.getQtyReserved(), qtyToRelease);
+                    inventory.setQtyReserved(inventory.getQtyReserved()-released);
                     inventoryRepository.save(inventory);
+                    availabilityService.record(productId, 0, -released);
+                    availabilityCache.invalidate(productId, warehouseId);
                     log.info("Libéré {} unités pour le produit '{}' dans warehouse {}", qtyToRelease, line.getProduct().getName(), warehouseId);
                     line.setQtyReserved(0);
                 }catch (Exception e){
@@ -236,13 +418,76 @@ public class SalesOrderServiceImp implements SalesOrderService {
             order.setStatus(target);
         }
         SalesOrder saved = salesOrderRepository.save(order);
+        recordStatusChange(saved, previous);
 
         SalesOrderResponseDto dto = salesOrderMapper.toResponse(saved);
         dto.setWarnings(warnings);
+        applyOutcomes(dto, saved, outcomes);
         log.info("SalesOrder id={} nouveau status={}", orderId, target);
         return dto;
     }
 
+    /**
+     * Réserve le reste à couvrir de chaque ligne : un passage verrouillé pour toute la commande, puis smartReserve
+     * (autres entrepôts) pour les produits en manque. Les lignes encore non couvertes partent en backorder.
+     */
+    private Map<SalesOrderLine, String> reserveLines(SalesOrder order, List<String> warnings) {
+        Long orderId = order.getId();
+        Long warehouseId = order.getWarehouse().getId();
+        Map<SalesOrderLine, String> outcomes = new IdentityHashMap<>();
+
+        // seul le reste à réserver est demandé : une nouvelle tentative ne réserve pas deux fois
+        // ce qu'une tentative précédente ou l'allocation des backorders a déjà couvert
+        Map<Long, Integer> qtyByProduct = new LinkedHashMap<>();
+        for (SalesOrderLine line : order.getLines()) {
+            int missing = line.getQtyOrdered() - line.getQtyReserved();
+            if (missing > 0) {
+                qtyByProduct.merge(line.getProduct().getId(), missing, Integer::sum);
+            }
+        }
+        List<Long> shortfalls = inventoryService.reserveAll(warehouseId, qtyByProduct, "SO" + orderId);
+
+        for (SalesOrderLine line : order.getLines()) {
+            Long productId = line.getProduct().getId();
+            String productName = line.getProduct().getName();
+            int qtyOrdered = line.getQtyOrdered();
+            int missing = qtyOrdered - line.getQtyReserved();
+            if (missing <= 0) {
+                outcomes.put(line, LINE_RESERVED);
+                continue;
+            }
+            if (!shortfalls.contains(productId)) {
+                line.setQtyReserved(qtyOrdered);
+                outcomes.put(line, LINE_RESERVED);
+                log.info(" Produit '{}' réservé avec succès (qty={})", productName, qtyOrdered);
+                continue;
+            }
+            try{
+                inventoryService.smartReserve(productId,warehouseId,missing,"SO"+orderId);
+                line.setQtyReserved(qtyOrdered);
+                outcomes.put(line, LINE_RESERVED);
+                log.info(" Produit '{}' réservé avec succès (qty={})", productName, qtyOrdered);
+            }catch(StockUnavailableException e){
+                backorderService.enqueue(line);
+                outcomes.put(line, LINE_BACKORDERED);
+                String msg = String.format(" Stock insuffisant pour le produit '%s' (id=%d). Commande fournisseur prévue."  ,productName, productId);
+                warnings.add(msg);
+                log.warn(msg);
+            }
+        }
+        return outcomes;
+    }
+
+    // le mapper conserve l'ordre des lignes : le résultat de chaque ligne est reporté par position
+    private static void applyOutcomes(SalesOrderResponseDto dto, SalesOrder order, Map<SalesOrderLine, String> outcomes) {
+        if (outcomes.isEmpty() || dto.getLines() == null || dto.getLines().size() != order.getLines().size()) {
+            return;
+        }
+        for (int i = 0; i < order.getLines().size(); i++) {
+            dto.getLines().get(i).setReservation(outcomes.get(order.getLines().get(i)));
+        }
+    }
+
 //    @Transactional
 //    public SalesOrderResponseDto updateStatus(Long orderId, String newStatus) {
 //        SalesOrder order = salesOrderRepository.findById(orderId)
@@ -327,10 +572,10 @@ public class SalesOrderServiceImp implements SalesOrderService {
 
     @Override
     public void delete(Long id) {
-        if (!salesOrderRepository.existsById(id)) {
-            throw new ResourceNotFoundException("SalesOrder non trouvée: " + id);
-        }
-        salesOrderRepository.deleteById(id);
+        SalesOrder order = salesOrderRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("SalesOrder non trouvée: " + id));
+        salesAnalyticsService.record(order, order.getStatus(), -1);
+        salesOrderRepository.delete(order);
         log.info("SalesOrder supprimée id={}", id);
     }
 
@@ -345,6 +590,20 @@ public class SalesOrderServiceImp implements SalesOrderService {
 
         Long warehouseId = order.getWarehouse().getId();
 
+        Set<Long> productIds = new HashSet<>();
+        for (SalesOrderLine line : order.getLines()) {
+            if (line.getQtyReserved() > 0) productIds.add(line.getProduct().getId());
+        }
+        // toutes les lignes d'inventaire verrouillées en une requête, mouvements insérés en un seul batch
+        Map<Long, Inventory> lockedByProduct = new HashMap<>();
+        if (!productIds.isEmpty()) {
+            for (Inventory inv : inventoryRepository.findAllWithLockByProductIdInAndWarehouseIdIn(productIds, List.of(warehouseId))) {
+                lockedByProduct.put(inv.getProduct().getId(), inv);
+            }
+        }
+
+        List<InventoryMovement> movements = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
         for (SalesOrderLine line : order.getLines()) {
             Long productId = line.getProduct().getId();
             int qtyToShip = line.getQtyReserved();
@@ -354,9 +613,11 @@ public class SalesOrderServiceImp implements SalesOrderService {
                 continue;
             }
 
-            Inventory inv = inventoryRepository.findWithLockByProductIdAndWarehouseId(productId, warehouseId)
-                    .orElseThrow(() -> new ResourceNotFoundException(
-                            "Inventory introuvable productId=" + productId + " warehouseId=" + warehouseId));
+            Inventory inv = lockedByProduct.get(productId);
+            if (inv == null) {
+                throw new ResourceNotFoundException(
+                        "Inventory introuvable productId=" + productId + " warehouseId=" + warehouseId);
+            }
 
             if (inv.getQtyOnHand() < qtyToShip) {
                 log.warn("Stock onHand insuffisant mais réservé présent: onHand={}, reserved={}",
@@ -367,26 +628,162 @@ public class SalesOrderServiceImp implements SalesOrderService {
             // Déduire du stock et de la réservation
             inv.setQtyOnHand(inv.getQtyOnHand() - qtyToShip);
             inv.setQtyReserved(inv.getQtyReserved() - qtyToShip);
-            inventoryRepository.save(inv);
 
             line.setQtyReserved(line.getQtyReserved() - qtyToShip);
+            availabilityService.record(productId, -qtyToShip, -qtyToShip);
+            availabilityCache.invalidate(productId, warehouseId);
 
             log.info("Expédié {} unités pour order={} product={} warehouse={}", qtyToShip, orderId, productId, warehouseId);
 
             // --- Enregistrement du mouvement OUTBOUND ---
-            inventoryMovementRepository.save(InventoryMovement.builder()
+            movements.add(InventoryMovement.builder()
                     .inventory(inv)
                     .type(MovementType.OUTBOUND)
                     .qty(qtyToShip)
-                    .occurredAt(LocalDateTime.now())
+                    .occurredAt(now)
                     .reference("SO:" + orderId)
                     .build());
         }
+        inventoryRepository.saveAll(lockedByProduct.values());
+        inventoryMovementRepository.saveAll(movements);
 
+        OrderStatus previous = order.getStatus();
         order.setStatus(OrderStatus.SHIPPED);
+        order.setTrackingNumber(trackingNumber);
+        order.setShippedAt(now);
         salesOrderRepository.save(order);
+        recordStatusChange(order, previous);
 
         log.info("SalesOrder id={} marked as SHIPPED", orderId);
     }
 
-}
\ No newline at end of file
+    /**
+     * Expédition d'un lot de commandes en une transaction. Les lignes d'inventaire sont verrouillées une seule
+     * fois pour tout le lot (avant les commandes, comme les vagues d'allocation) et chaque ligne touchée n'est
+     * mise à jour qu'une fois. Une commande non expédiable est signalée dans son résultat sans annuler les autres.
+     */
+    @Override
+    public List<ShipOrderResultDto> shipBatch(List<ShipOrderRequestDto> requests) {
+        Map<Long, String> trackingByOrder = new LinkedHashMap<>();
+        for (ShipOrderRequestDto request : requests) {
+            trackingByOrder.putIfAbsent(request.getOrderId(), request.getTrackingNumber());
+        }
+        List<Long> orderIds = new ArrayList<>(trackingByOrder.keySet());
+
+        // seuls les couples (produit, entrepôt de la commande) des lignes du lot sont verrouillés
+        Map<String, Inventory> locked = new HashMap<>();
+        List<Long> inventoryIds = inventoryRepository.findKeysUsedByOrderIdIn(orderIds).stream()
+                .map(InventoryKeyDto::getInventoryId)
+                .toList();
+        if (!inventoryIds.isEmpty()) {
+            for (Inventory inv : inventoryRepository.findAllWithLockByIdIn(inventoryIds)) {
+                locked.put(inventoryKey(inv.getProduct().getId(), inv.getWarehouse().getId()), inv);
+            }
+        }
+        Map<Long, SalesOrder> orders = new HashMap<>();
+        for (SalesOrder order : salesOrderRepository.findAllWithLinesAndLockByIdIn(orderIds)) {
+            orders.put(order.getId(), order);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<ShipOrderResultDto> results = new ArrayList<>();
+        List<InventoryMovement> movements = new ArrayList<>();
+        List<SalesOrder> shipped = new ArrayList<>();
+        Set<Inventory> touched = new LinkedHashSet<>();
+        Map<Long, Integer> shippedByProduct = new HashMap<>();
+
+        for (Long orderId : orderIds) {
+            String trackingNumber = trackingByOrder.get(orderId);
+            ShipOrderResultDto result = ShipOrderResultDto.builder().orderId(orderId).trackingNumber(trackingNumber).build();
+            results.add(result);
+
+            SalesOrder order = orders.get(orderId);
+            String error = checkShippable(order, locked);
+            if (error != null) {
+                result.setError(error);
+                continue;
+            }
+
+            Long warehouseId = order.getWarehouse().getId();
+            for (SalesOrderLine line : order.getLines()) {
+                int qtyToShip = line.getQtyReserved();
+                if (qtyToShip <= 0) {
+                    continue;
+                }
+                Long productId = line.getProduct().getId();
+                Inventory inv = locked.get(inventoryKey(productId, warehouseId));
+                if (inv.getQtyOnHand() < qtyToShip) {
+                    log.warn("Stock onHand insuffisant mais réservé présent: onHand={}, reserved={}",
+                            inv.getQtyOnHand(), inv.getQtyReserved());
+                    qtyToShip = Math.min(qtyToShip, inv.getQtyOnHand());
+                }
+
+                inv.setQtyOnHand(inv.getQtyOnHand() - qtyToShip);
+                inv.setQtyReserved(inv.getQtyReserved() - qtyToShip);
+                line.setQtyReserved(line.getQtyReserved() - qtyToShip);
+                touched.add(inv);
+                shippedByProduct.merge(productId, qtyToShip, Integer::sum);
+
+                movements.add(InventoryMovement.builder()
+                        .inventory(inv)
+                        .type(MovementType.OUTBOUND)
+                        .qty(qtyToShip)
+                        .occurredAt(now)
+                        .reference("SO:" + orderId)
+                        .build());
+                result.setLinesShipped(result.getLinesShipped() + 1);
+                result.setUnitsShipped(result.getUnitsShipped() + qtyToShip);
+            }
+
+            OrderStatus previous = order.getStatus();
+            order.setStatus(OrderStatus.SHIPPED);
+            order.setTrackingNumber(trackingNumber);
+            order.setShippedAt(now);
+            recordStatusChange(order, previous);
+            shipped.add(order);
+            result.setShipped(true);
+        }
+
+        inventoryRepository.saveAll(touched);
+        inventoryMovementRepository.saveAll(movements);
+        salesOrderRepository.saveAll(shipped);
+        shippedByProduct.forEach((productId, qty) -> availabilityService.record(productId, -qty, -qty));
+        touched.forEach(inv -> availabilityCache.invalidate(inv.getProduct().getId(), inv.getWarehouse().getId()));
+
+        log.info("Lot d'expédition: {}/{} commande(s) expédiée(s), {} ligne(s) d'inventaire mises à jour",
+                shipped.size(), orderIds.size(), touched.size());
+        return results;
+    }
+
+    // la contribution de la commande au rollup des ventes passe de l'ancien statut au nouveau
+    private void recordStatusChange(SalesOrder order, OrderStatus previous) {
+        if (previous != order.getStatus()) {
+            salesAnalyticsService.record(order, previous, -1);
+            salesAnalyticsService.record(order, order.getStatus(), 1);
+        }
+    }
+
+    private String checkShippable(SalesOrder order, Map<String, Inventory> locked) {
+        if (order == null) {
+            return "SalesOrder non trouvée ou sans ligne";
+        }
+        if (order.getStatus() == OrderStatus.CANCELED) {
+            return "Impossible d'expédier une commande annulée";
+        }
+        if (order.getStatus() == OrderStatus.SHIPPED || order.getStatus() == OrderStatus.DELIVERED) {
+            return "Commande déjà expédiée";
+        }
+        Long warehouseId = order.getWarehouse().getId();
+        for (SalesOrderLine line : order.getLines()) {
+            Long productId = line.getProduct().getId();
+            if (line.getQtyReserved() > 0 && !locked.containsKey(inventoryKey(productId, warehouseId))) {
+                return "Inventory introuvable productId=" + productId + " warehouseId=" + warehouseId;
+            }
+        }
+        return null;
+    }
+
+    private static String inventoryKey(Long productId, Long warehouseId) {
+        return productId + ":" + warehouseId;
+    }
+}
@@ -0,0 +1,38 @@
+package org.smartsupply.service.implementation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.smartsupply.repository.SalesOrderRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+// les colonnes de totaux sont ajoutées à 0 sur une base existante : migration ponctuelle, activée
+// uniquement pour le démarrage qui suit l'ajout des colonnes (scan de sale_orders sinon à chaque démarrage)
+@Component
+@Slf4j
+public class SalesOrderTotalsBackfill {
+
+    private final SalesOrderRepository salesOrderRepository;
+    private final boolean enabled;
+
+    public SalesOrderTotalsBackfill(SalesOrderRepository salesOrderRepository,
+                                    @Value("${smartsupply.sales-orders.totals-backfill.enabled:false}") boolean enabled) {
+        this.salesOrderRepository = salesOrderRepository;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfill() {
+        if (!enabled) {
+            return;
+        }
+        int updated = salesOrderRepository.backfillTotals();
+        if (updated > 0) {
+            log.info("Totaux recalculés pour {} commandes existantes", updated);
+        }
+        log.info("Reprise des totaux terminée : smartsupply.sales-orders.totals-backfill.enabled peut être désactivé");
+    }
+}
@@ -0,0 +1,43 @@
+package org.smartsupply.service.implementation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.smartsupply.service.SalesAnalyticsService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.TreeSet;
+
+@Component
+@Slf4j
+public class SalesRollupJob {
+
+    private final SalesAnalyticsService analyticsService;
+    private final int rebuildDays;
+
+    public SalesRollupJob(SalesAnalyticsService analyticsService,
+                          @Value("${smartsupply.analytics.rebuild-days:7}") int rebuildDays) {
+        this.analyticsService = analyticsService;
+        this.rebuildDays = rebuildDays;
+    }
+
+    // les jours récents, plus tout jour plus ancien dont une mise à jour incrémentale a échoué (changement de
+    // statut d'une vieille commande), sont recalculés depuis les commandes
+    @Scheduled(cron = "${smartsupply.analytics.rollup-cron:0 30 0 * * *}")
+    public void rebuildRecentDays() {
+        LocalDate today = LocalDate.now();
+        Set<LocalDate> days = new TreeSet<>(analyticsService.staleDays());
+        for (int d = 1; d <= rebuildDays; d++) {
+            days.add(today.minusDays(d));
+        }
+        for (LocalDate day : days) {
+            try {
+                analyticsService.rebuild(day);
+            } catch (Exception e) {
+                log.error("Échec de la reconstruction du rollup des ventes du {}", day, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.smartsupply.service.implementation;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.smartsupply.dto.response.WarehouseAvailabilityDto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Calcule en mémoire, à partir des disponibilités classées par entrepôt, d'où prendre
+ * une quantité : d'abord l'entrepôt principal, puis les autres par disponibilité décroissante.
+ */
+public final class SourcingPlanner {
+
+    private SourcingPlanner() {
+    }
+
+    public static Plan plan(Long mainWarehouseId, int qty, List<WarehouseAvailabilityDto> ranked) {
+        int fromMain = 0;
+        for (WarehouseAvailabilityDto wa : ranked) {
+            if (wa.getWarehouseId().equals(mainWarehouseId)) {
+                fromMain = Math.min(qty, Math.max(0, wa.getAvailable()));
+                break;
+            }
+        }
+
+        int remaining = qty - fromMain;
+        List<Transfer> transfers = new ArrayList<>();
+        for (WarehouseAvailabilityDto wa : ranked) {
+            if (remaining <= 0) break;
+            if (wa.getWarehouseId().equals(mainWarehouseId) || wa.getAvailable() <= 0) continue;
+
+            int take = Math.min(remaining, wa.getAvailable());
+            transfers.add(new Transfer(wa.getWarehouseId(), take));
+            remaining -= take;
+        }
+        return new Plan(fromMain, Collections.unmodifiableList(transfers), remaining);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Plan {
+        private final int fromMain;
+        private final List<Transfer> transfers;
+        private final int shortfall;
+
+        public boolean isCovered() {
+            return shortfall == 0;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Transfer {
+        private final Long sourceWarehouseId;
+        private final int qty;
+    }
+}
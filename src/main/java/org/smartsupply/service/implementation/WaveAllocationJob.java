@@ -0,0 +1,43 @@
+package org.smartsupply.service.implementation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.smartsupply.model.enums.WavePriority;
+import org.smartsupply.service.WaveAllocationService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+@Component
+@Slf4j
+public class WaveAllocationJob {
+
+    private final WaveAllocationService waveAllocationService;
+    private final boolean enabled;
+    private final long lookbackHours;
+    private final WavePriority priority;
+
+    public WaveAllocationJob(WaveAllocationService waveAllocationService,
+                             @Value("${smartsupply.wave.enabled:false}") boolean enabled,
+                             @Value("${smartsupply.wave.lookback-hours:72}") long lookbackHours,
+                             @Value("${smartsupply.wave.priority:AGE}") WavePriority priority) {
+        this.waveAllocationService = waveAllocationService;
+        this.enabled = enabled;
+        this.lookbackHours = lookbackHours;
+        this.priority = priority;
+    }
+
+    @Scheduled(fixedDelayString = "${smartsupply.wave.interval-ms:60000}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            waveAllocationService.runWave(now.minusHours(lookbackHours), now, priority, null);
+        } catch (Exception e) {
+            log.error("Échec de la vague d'allocation planifiée", e);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package org.smartsupply.service.implementation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.smartsupply.dto.response.InventoryKeyDto;
+import org.smartsupply.dto.response.WaveReportDto;
+import org.smartsupply.exception.BusinessException;
+import org.smartsupply.model.entity.*;
+import org.smartsupply.model.enums.MovementType;
+import org.smartsupply.model.enums.OrderStatus;
+import org.smartsupply.model.enums.WavePriority;
+import org.smartsupply.repository.InventoryMovementRepository;
+import org.smartsupply.repository.InventoryRepository;
+import org.smartsupply.repository.SalesOrderRepository;
+import org.smartsupply.service.InventoryShardingService;
+import org.smartsupply.service.ProductAvailabilityService;
+import org.smartsupply.service.SalesAnalyticsService;
+import org.smartsupply.service.WaveAllocationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Allocation par vagues : les commandes CREATED d'une fenêtre sont réservées en une transaction.
+ * Chaque ligne d'inventaire concernée est verrouillée une seule fois (avant les commandes, comme
+ * l'allocation des backorders), puis les commandes sont servies dans l'ordre de la priorité choisie.
+ * Une commande n'est réservée que si toutes ses lignes sont couvertes : le stock d'une commande
+ * incomplète reste disponible pour les suivantes.
+ */
+@Service
+@Slf4j
+public class WaveAllocationServiceImp implements WaveAllocationService {
+
+    private static final int RECENT_WAVES = 20;
+
+    private final SalesOrderRepository salesOrderRepository;
+    private final InventoryRepository inventoryRepository;
+    private final InventoryMovementRepository movementRepository;
+    private final ProductAvailabilityService availabilityService;
+    private final AvailabilityCache availabilityCache;
+    private final SalesAnalyticsService salesAnalyticsService;
+    private final InventoryShardingService shardingService;
+    private final int maxOrders;
+    private final Deque<WaveReportDto> recent = new ArrayDeque<>();
+
+    @Autowired
+    public WaveAllocationServiceImp(SalesOrderRepository salesOrderRepository,
+                                    InventoryRepository inventoryRepository,
+                                    InventoryMovementRepository movementRepository,
+                                    ProductAvailabilityService availabilityService,
+                                    AvailabilityCache availabilityCache,
+                                    SalesAnalyticsService salesAnalyticsService,
+                                    InventoryShardingService shardingService,
+                                    @Value("${smartsupply.wave.max-orders:2000}") int maxOrders) {
+        this.salesOrderRepository = salesOrderRepository;
+        this.inventoryRepository = inventoryRepository;
+        this.movementRepository = movementRepository;
+        this.availabilityService = availabilityService;
+        this.availabilityCache = availabilityCache;
+        this.salesAnalyticsService = salesAnalyticsService;
+        this.shardingService = shardingService;
+        this.maxOrders = maxOrders;
+    }
+
+    @Override
+    @Transactional
+    public WaveReportDto runWave(LocalDateTime from, LocalDateTime to, WavePriority priority, Long warehouseId) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new BusinessException("Fenêtre de vague invalide: from doit précéder to");
+        }
+        long started = System.nanoTime();
+        WaveReportDto report = WaveReportDto.builder()
+                .waveId(UUID.randomUUID().toString())
+                .priority(priority)
+                .from(from)
+                .to(to)
+                .warehouseId(warehouseId)
+                .startedAt(LocalDateTime.now())
+                .build();
+
+        List<Long> orderIds = salesOrderRepository.findIdsForWave(OrderStatus.CREATED, from, to, warehouseId, Limit.of(maxOrders));
+        if (!orderIds.isEmpty()) {
+            allocate(orderIds, priority, report);
+        }
+
+        long elapsedNanos = System.nanoTime() - started;
+        double seconds = Math.max(elapsedNanos, 1) / 1_000_000_000.0;
+        report.setDurationMs(elapsedNanos / 1_000_000);
+        report.setOrdersPerSecond(report.getOrdersReserved() / seconds);
+        report.setLinesPerSecond(report.getLinesReserved() / seconds);
+        log.info("Vague {} ({}) : {}/{} commande(s) réservée(s), {} ligne(s), {} ligne(s) d'inventaire verrouillée(s), {} ms",
+                report.getWaveId(), priority, report.getOrdersReserved(), report.getOrdersConsidered(),
+                report.getLinesReserved(), report.getInventoryRowsLocked(), report.getDurationMs());
+
+        // le rapport n'est conservé que si la vague est validée
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remember(report);
+                }
+            });
+        } else {
+            remember(report);
+        }
+        return report;
+    }
+
+    private void allocate(List<Long> orderIds, WavePriority priority, WaveReportDto report) {
+        // seuls les couples (produit, entrepôt) des lignes de la vague, pas le produit cartésien des deux listes
+        List<InventoryKeyDto> keys = inventoryRepository.findKeysUsedByOrderIdIn(orderIds);
+        // l'escrow libre des inventaires shardés revient sur leurs lignes avant le verrou, dans l'ordre des clés
+        for (InventoryKeyDto k : keys) {
+            shardingService.reclaim(k.getProductId(), k.getWarehouseId(), Integer.MAX_VALUE);
+        }
+        Map<String, Inventory> inventories = new HashMap<>();
+        if (!keys.isEmpty()) {
+            for (Inventory inv : inventoryRepository.findAllWithLockByIdIn(keys.stream().map(InventoryKeyDto::getInventoryId).toList())) {
+                inventories.put(key(inv.getProduct().getId(), inv.getWarehouse().getId()), inv);
+            }
+        }
+        report.setInventoryRowsLocked(inventories.size());
+
+        // statut relu sous verrou : une commande réservée entre-temps par updateStatus est ignorée
+        List<SalesOrder> orders = salesOrderRepository.findAllWithLinesAndLockByIdIn(orderIds).stream()
+                .filter(o -> o.getStatus() == OrderStatus.CREATED)
+                .toList();
+        report.setOrdersConsidered(orders.size());
+
+        LocalDateTime now = LocalDateTime.now();
+        Set<Inventory> touched = new LinkedHashSet<>();
+        List<SalesOrder> reserved = new ArrayList<>();
+        List<InventoryMovement> movements = new ArrayList<>();
+
+        for (SalesOrder order : WavePriorityOrdering.sort(orders, priority)) {
+            Long warehouseId = order.getWarehouse().getId();
+            Map<Long, Integer> missingByProduct = new LinkedHashMap<>();
+            for (SalesOrderLine line : order.getLines()) {
+                int missing = line.getQtyOrdered() - line.getQtyReserved();
+                if (missing > 0) {
+                    missingByProduct.merge(line.getProduct().getId(), missing, Integer::sum);
+                }
+            }
+
+            boolean covered = missingByProduct.entrySet().stream().allMatch(e -> {
+                Inventory inv = inventories.get(key(e.getKey(), warehouseId));
+                return inv != null && inv.getQtyOnHand() - inv.getQtyReserved() >= e.getValue();
+            });
+            if (!covered) {
+                continue;
+            }
+
+            for (Map.Entry<Long, Integer> e : missingByProduct.entrySet()) {
+                Inventory inv = inventories.get(key(e.getKey(), warehouseId));
+                inv.setQtyReserved(inv.getQtyReserved() + e.getValue());
+                touched.add(inv);
+                movements.add(InventoryMovement.builder()
+                        .inventory(inv)
+                        .type(MovementType.RESERVATION)
+                        .qty(e.getValue())
+                        .occurredAt(now)
+                        .reference("SO" + order.getId())
+                        .build());
+                availabilityService.record(e.getKey(), 0, e.getValue());
+                availabilityCache.invalidate(e.getKey(), warehouseId);
+                report.setUnitsReserved(report.getUnitsReserved() + e.getValue());
+            }
+            for (SalesOrderLine line : order.getLines()) {
+                if (line.getQtyReserved() < line.getQtyOrdered()) {
+                    line.setQtyReserved(line.getQtyOrdered());
+                    report.setLinesReserved(report.getLinesReserved() + 1);
+                }
+            }
+            salesAnalyticsService.record(order, order.getStatus(), -1);
+            order.setStatus(OrderStatus.RESERVED);
+            salesAnalyticsService.record(order, OrderStatus.RESERVED, 1);
+            reserved.add(order);
+        }
+
+        report.setOrdersReserved(reserved.size());
+        report.setOrdersSkipped(orders.size() - reserved.size());
+        inventoryRepository.saveAll(touched);
+        movementRepository.saveAll(movements);
+        salesOrderRepository.saveAll(reserved);
+    }
+
+    @Override
+    public List<WaveReportDto> recentWaves() {
+        synchronized (recent) {
+            return new ArrayList<>(recent);
+        }
+    }
+
+    private void remember(WaveReportDto report) {
+        synchronized (recent) {
+            recent.addFirst(report);
+            while (recent.size() > RECENT_WAVES) {
+                recent.removeLast();
+            }
+        }
+    }
+
+    private static String key(Long productId, Long warehouseId) {
+        return productId + ":" + warehouseId;
+    }
+}
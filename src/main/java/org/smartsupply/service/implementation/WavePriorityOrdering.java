@@ -0,0 +1,59 @@
+package org.smartsupply.service.implementation;
+
+import org.smartsupply.model.entity.SalesOrder;
+import org.smartsupply.model.entity.SalesOrderLine;
+import org.smartsupply.model.enums.WavePriority;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Ordre de service des commandes d'une vague. Chaque priorité départage les égalités par ancienneté,
+ * l'ordre obtenu est donc stable d'une vague à l'autre.
+ */
+public final class WavePriorityOrdering {
+
+    private static final Comparator<SalesOrder> BY_AGE =
+            Comparator.comparing(SalesOrder::getCreatedAt).thenComparing(SalesOrder::getId);
+
+    private WavePriorityOrdering() {
+    }
+
+    public static List<SalesOrder> sort(List<SalesOrder> orders, WavePriority priority) {
+        List<SalesOrder> sorted = new ArrayList<>(orders);
+        switch (priority) {
+            case AGE -> sorted.sort(BY_AGE);
+            case VALUE -> sorted.sort(Comparator.comparing(WavePriorityOrdering::value).reversed().thenComparing(BY_AGE));
+            case CLIENT -> sorted = roundRobinByClient(sorted);
+        }
+        return sorted;
+    }
+
+    static BigDecimal value(SalesOrder order) {
+        return order.getLines().stream()
+                .map(SalesOrderLine::getPrice)
+                .filter(Objects::nonNull)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    // les clients passent dans l'ordre de leur plus ancienne commande, une commande par tour
+    private static List<SalesOrder> roundRobinByClient(List<SalesOrder> orders) {
+        orders.sort(BY_AGE);
+        Map<Long, Deque<SalesOrder>> byClient = new LinkedHashMap<>();
+        for (SalesOrder order : orders) {
+            byClient.computeIfAbsent(order.getClient().getId(), id -> new ArrayDeque<>()).add(order);
+        }
+        List<SalesOrder> result = new ArrayList<>(orders.size());
+        while (!byClient.isEmpty()) {
+            Iterator<Deque<SalesOrder>> it = byClient.values().iterator();
+            while (it.hasNext()) {
+                Deque<SalesOrder> queue = it.next();
+                result.add(queue.poll());
+                if (queue.isEmpty()) {
+                    it.remove();
+                }
+            }
+        }
+        return result;
+    }
+}
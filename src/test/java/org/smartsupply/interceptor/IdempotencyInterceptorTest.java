@@ -0,0 +1,126 @@
+package org.smartsupply.interceptor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.smartsupply.exception.GlobalExceptionHandler;
+import org.smartsupply.repository.IdempotencyRecordRepository;
+import org.smartsupply.service.implementation.IdempotencyStore;
+import org.smartsupply.service.implementation.UserContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class IdempotencyInterceptorTest {
+
+    private MockMvc mockMvc;
+    private CountingController controller;
+
+    @BeforeEach
+    void setup() {
+        IdempotencyRecordRepository repository = mock(IdempotencyRecordRepository.class);
+        when(repository.findById(any())).thenReturn(Optional.empty());
+        IdempotencyStore store = new IdempotencyStore(repository, 24, 100, 1000);
+        controller = new CountingController();
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .addFilters(new IdempotencyBodyFilter())
+                .addInterceptors(new IdempotencyInterceptor(store, new UserContext()))
+                .setControllerAdvice(new IdempotencyResponseAdvice(new ObjectMapper().findAndRegisterModules()), new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void retryWithSameKey_replaysFirstResponseWithoutRunningAgain() throws Exception {
+        mockMvc.perform(post("/orders").header(IdempotencyInterceptor.HEADER, "abc"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(1));
+
+        mockMvc.perform(post("/orders").header(IdempotencyInterceptor.HEADER, "abc"))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(IdempotencyInterceptor.REPLAYED_HEADER, "true"))
+                .andExpect(jsonPath("$.id").value(1));
+
+        assertEquals(1, controller.calls.get());
+    }
+
+    @Test
+    void withoutKey_everyRequestRuns() throws Exception {
+        mockMvc.perform(post("/orders")).andExpect(jsonPath("$.id").value(1));
+        mockMvc.perform(post("/orders")).andExpect(jsonPath("$.id").value(2));
+    }
+
+    @Test
+    void failedRequest_isNotRemembered() throws Exception {
+        mockMvc.perform(post("/orders").param("fail", "true").header(IdempotencyInterceptor.HEADER, "abc"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/orders").param("fail", "false").header(IdempotencyInterceptor.HEADER, "abc"))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyInterceptor.REPLAYED_HEADER));
+        assertEquals(2, controller.calls.get());
+    }
+
+    @Test
+    void sameKeyWithAnotherBody_isRejectedWithoutRunning() throws Exception {
+        mockMvc.perform(post("/moves").header(IdempotencyInterceptor.HEADER, "abc")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"productId\":1,\"qty\":5}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.qty").value(5));
+
+        mockMvc.perform(post("/moves").header(IdempotencyInterceptor.HEADER, "abc")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"productId\":2,\"qty\":9}"))
+                .andExpect(status().isConflict())
+                .andExpect(header().doesNotExist(IdempotencyInterceptor.REPLAYED_HEADER));
+
+        // même corps : rejeu, et le contrôleur a bien relu le corps mis en cache par le filtre
+        mockMvc.perform(post("/moves").header(IdempotencyInterceptor.HEADER, "abc")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"productId\":1,\"qty\":5}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(IdempotencyInterceptor.REPLAYED_HEADER, "true"));
+        assertEquals(1, controller.calls.get());
+    }
+
+    @Test
+    void tooLongKey_isRejected() throws Exception {
+        mockMvc.perform(post("/orders").header(IdempotencyInterceptor.HEADER, "x".repeat(101)))
+                .andExpect(status().isBadRequest());
+        assertEquals(0, controller.calls.get());
+    }
+
+    @RestController
+    static class CountingController {
+        final AtomicInteger calls = new AtomicInteger();
+
+        @PostMapping("/orders")
+        ResponseEntity<Map<String, Integer>> create(@RequestParam(defaultValue = "false") boolean fail) {
+            int n = calls.incrementAndGet();
+            if (fail) {
+                throw new org.smartsupply.exception.BusinessException("échec");
+            }
+            return ResponseEntity.status(HttpStatus.CREATED).body(Map.of("id", n));
+        }
+
+        @PostMapping("/moves")
+        ResponseEntity<Map<String, Object>> move(@RequestBody Map<String, Object> body) {
+            calls.incrementAndGet();
+            return ResponseEntity.ok(body);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.smartsupply.service.implementation;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvailabilityCacheTest {
+
+    @Test
+    void get_secondReadIsServedFromCache() {
+        AvailabilityCache cache = new AvailabilityCache(true, 1024, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals(5, cache.get("available", 1L, 10L, () -> loads.incrementAndGet() + 4));
+        assertEquals(5, cache.get("available", 1L, 10L, () -> loads.incrementAndGet() + 4));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.stats().getHits());
+        assertEquals(1, cache.stats().getMisses());
+        assertEquals(0.5, cache.stats().getHitRate());
+    }
+
+    @Test
+    void invalidate_dropsWarehouseKeyAndProductWideViews() {
+        AvailabilityCache cache = new AvailabilityCache(true, 1024, 60_000);
+        cache.get("available", 1L, 10L, () -> 5);
+        cache.get("available", 1L, 20L, () -> 7);
+        cache.get("warehouses", 1L, null, () -> 2);
+        cache.get("available", 2L, 10L, () -> 9);
+
+        cache.invalidate(1L, 10L);
+
+        assertEquals(50, cache.get("available", 1L, 10L, () -> 50));
+        assertEquals(7, cache.get("available", 1L, 20L, () -> 70));
+        assertEquals(20, cache.get("warehouses", 1L, null, () -> 20));
+        assertEquals(9, cache.get("available", 2L, 10L, () -> 90));
+        assertEquals(1, cache.stats().getInvalidations());
+    }
+
+    @Test
+    void invalidate_insideTransaction_waitsForCommit() {
+        AvailabilityCache cache = new AvailabilityCache(true, 1024, 60_000);
+        cache.get("available", 1L, 10L, () -> 5);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.invalidate(1L, 10L);
+            assertEquals(5, cache.get("available", 1L, 10L, () -> 50));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(50, cache.get("available", 1L, 10L, () -> 50));
+    }
+
+    @Test
+    void get_insideReadWriteTransaction_isNotCached() {
+        AvailabilityCache cache = new AvailabilityCache(true, 1024, 60_000);
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            // valeur non validée, annulée ensuite : elle ne doit pas survivre à la transaction
+            assertEquals(0, cache.get("available", 1L, 10L, () -> 0));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+
+        assertEquals(5, cache.get("available", 1L, 10L, () -> 5));
+    }
+
+    @Test
+    void get_insideReadOnlyTransaction_isCached() {
+        AvailabilityCache cache = new AvailabilityCache(true, 1024, 60_000);
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try {
+            cache.get("available", 1L, 10L, () -> 5);
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+
+        assertEquals(5, cache.get("available", 1L, 10L, () -> 50));
+    }
+
+    @Test
+    void get_loadRacingAnInvalidation_isNotCached() {
+        AvailabilityCache cache = new AvailabilityCache(true, 1024, 60_000);
+
+        // la valeur lue avant l'invalidation est renvoyée mais pas conservée
+        int stale = cache.get("available", 1L, 10L, () -> {
+            cache.invalidate(1L, 10L);
+            return 5;
+        });
+
+        assertEquals(5, stale);
+        assertEquals(8, cache.get("available", 1L, 10L, () -> 8));
+    }
+
+    @Test
+    void get_expiredEntryIsReloaded() throws Exception {
+        AvailabilityCache cache = new AvailabilityCache(true, 1024, 1);
+        cache.get("available", 1L, 10L, () -> 5);
+        Thread.sleep(5);
+
+        assertEquals(6, cache.get("available", 1L, 10L, () -> 6));
+    }
+
+    @Test
+    void boundedSize_evictsLeastRecentlyRead() {
+        AvailabilityCache cache = new AvailabilityCache(true, 16, 60_000);
+        for (long p = 0; p < 100; p++) {
+            cache.get("available", p, 10L, () -> 1);
+        }
+
+        assertTrue(cache.stats().getSize() <= 16);
+        assertTrue(cache.stats().getEvictions() >= 84);
+    }
+
+    @Test
+    void disabled_alwaysLoads() {
+        AvailabilityCache cache = new AvailabilityCache(false, 1024, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("available", 1L, 10L, loads::incrementAndGet);
+        cache.get("available", 1L, 10L, loads::incrementAndGet);
+
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.stats().getSize());
+    }
+}
@@ -0,0 +1,69 @@
+package org.smartsupply.service.implementation;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.smartsupply.event.StockReceivedEvent;
+import org.smartsupply.model.enums.BackorderStatus;
+import org.smartsupply.repository.BackorderRepository;
+import org.smartsupply.service.BackorderService;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BackorderAllocatorTest {
+
+    @Mock
+    private BackorderService backorderService;
+    @Mock
+    private BackorderRepository backorderRepository;
+
+    private BackorderAllocator allocator;
+
+    @BeforeEach
+    void setup() {
+        allocator = new BackorderAllocator(backorderService, backorderRepository);
+    }
+
+    @AfterEach
+    void shutdown() {
+        allocator.shutdown();
+    }
+
+    @Test
+    void onStockReceived_allocatesReceivedProducts() {
+        allocator.onStockReceived(new StockReceivedEvent(10L, Set.of(1L, 2L)));
+
+        verify(backorderService, timeout(2000)).allocate(10L, Set.of(1L, 2L));
+    }
+
+    @Test
+    void sweepWaiting_allocatesEveryOpenQueue() {
+        when(backorderRepository.findWarehouseIdsByStatus(BackorderStatus.WAITING)).thenReturn(List.of(10L, 20L));
+        when(backorderRepository.findProductIdsByWarehouseIdAndStatus(10L, BackorderStatus.WAITING)).thenReturn(List.of(1L));
+        when(backorderRepository.findProductIdsByWarehouseIdAndStatus(20L, BackorderStatus.WAITING)).thenReturn(List.of(2L, 3L));
+
+        allocator.sweepWaiting();
+
+        verify(backorderService, timeout(2000)).allocate(10L, List.of(1L));
+        verify(backorderService, timeout(2000)).allocate(20L, List.of(2L, 3L));
+    }
+
+    @Test
+    void failedAllocation_doesNotStopLaterOnes() {
+        when(backorderService.allocate(10L, List.of(1L))).thenThrow(new IllegalStateException("boom"));
+        when(backorderRepository.findWarehouseIdsByStatus(BackorderStatus.WAITING)).thenReturn(List.of(10L, 20L));
+        when(backorderRepository.findProductIdsByWarehouseIdAndStatus(10L, BackorderStatus.WAITING)).thenReturn(List.of(1L));
+        when(backorderRepository.findProductIdsByWarehouseIdAndStatus(20L, BackorderStatus.WAITING)).thenReturn(List.of(2L));
+
+        allocator.sweepWaiting();
+
+        verify(backorderService, timeout(2000)).allocate(20L, List.of(2L));
+    }
+}
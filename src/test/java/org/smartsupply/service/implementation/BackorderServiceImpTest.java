@@ -0,0 +1,176 @@
+package org.smartsupply.service.implementation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.smartsupply.model.entity.*;
+import org.smartsupply.model.enums.BackorderStatus;
+import org.smartsupply.model.enums.MovementType;
+import org.smartsupply.model.enums.OrderStatus;
+import org.smartsupply.repository.BackorderRepository;
+import org.smartsupply.repository.InventoryMovementRepository;
+import org.smartsupply.repository.InventoryRepository;
+import org.smartsupply.repository.SalesOrderRepository;
+import org.smartsupply.service.InventoryShardingService;
+import org.smartsupply.service.ProductAvailabilityService;
+import org.smartsupply.service.SalesAnalyticsService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BackorderServiceImpTest {
+
+    @Mock
+    private BackorderRepository backorderRepository;
+    @Mock
+    private InventoryRepository inventoryRepository;
+    @Mock
+    private InventoryMovementRepository movementRepository;
+    @Mock
+    private SalesOrderRepository salesOrderRepository;
+    @Mock
+    private ProductAvailabilityService availabilityService;
+    @Mock
+    private SalesAnalyticsService salesAnalyticsService;
+    @Mock
+    private InventoryShardingService shardingService;
+    @Spy
+    private AvailabilityCache availabilityCache = new AvailabilityCache(false, 1024, 2000);
+
+    @InjectMocks
+    private BackorderServiceImp service;
+
+    private Warehouse warehouse;
+    private Product product;
+    private Inventory inventory;
+    private LocalDateTime start;
+
+    @BeforeEach
+    void setup() {
+        warehouse = Warehouse.builder().id(10L).build();
+        product = Product.builder().id(1L).build();
+        inventory = Inventory.builder().id(5L).product(product).warehouse(warehouse).qtyOnHand(0).qtyReserved(0).build();
+        start = LocalDateTime.now().minusHours(1);
+    }
+
+    @Test
+    void allocate_servesOldestLineFirstAndPartially() {
+        inventory.setQtyOnHand(7);
+        Backorder oldest = backorder(100L, 5, 0, 0);
+        Backorder second = backorder(101L, 4, 0, 1);
+        Backorder third = backorder(102L, 2, 0, 2);
+        stubQueue(oldest, second, third);
+
+        int allocated = service.allocate(10L, Set.of(1L));
+
+        assertEquals(7, allocated);
+        assertEquals(5, oldest.getSalesOrderLine().getQtyReserved());
+        assertEquals(2, second.getSalesOrderLine().getQtyReserved());
+        assertEquals(0, third.getSalesOrderLine().getQtyReserved());
+        assertEquals(7, inventory.getQtyReserved());
+        assertEquals(BackorderStatus.ALLOCATED, oldest.getStatus());
+        assertEquals(BackorderStatus.WAITING, second.getStatus());
+        assertEquals(BackorderStatus.WAITING, third.getStatus());
+        assertEquals(OrderStatus.RESERVED, oldest.getSalesOrderLine().getSalesOrder().getStatus());
+        assertEquals(OrderStatus.CREATED, second.getSalesOrderLine().getSalesOrder().getStatus());
+
+        ArgumentCaptor<List<InventoryMovement>> movements = ArgumentCaptor.forClass(List.class);
+        verify(movementRepository).saveAll(movements.capture());
+        assertEquals(List.of(5, 2), movements.getValue().stream().map(InventoryMovement::getQty).toList());
+        assertTrue(movements.getValue().stream().allMatch(m -> m.getType() == MovementType.RESERVATION));
+        verify(availabilityService).record(1L, 0, 5);
+        verify(availabilityService).record(1L, 0, 2);
+    }
+
+    @Test
+    void allocate_closesCanceledOrAlreadyCoveredLinesWithoutReserving() {
+        inventory.setQtyOnHand(10);
+        Backorder canceled = backorder(100L, 5, 0, 0);
+        canceled.getSalesOrderLine().getSalesOrder().setStatus(OrderStatus.CANCELED);
+        Backorder covered = backorder(101L, 3, 3, 1);
+        stubQueue(canceled, covered);
+
+        int allocated = service.allocate(10L, Set.of(1L));
+
+        assertEquals(0, allocated);
+        assertEquals(0, inventory.getQtyReserved());
+        assertEquals(BackorderStatus.CANCELED, canceled.getStatus());
+        assertEquals(BackorderStatus.ALLOCATED, covered.getStatus());
+        assertNotNull(covered.getClosedAt());
+    }
+
+    @Test
+    void allocate_orderStaysCreatedUntilEveryLineIsCovered() {
+        inventory.setQtyOnHand(5);
+        Backorder backorder = backorder(100L, 5, 0, 0);
+        SalesOrder order = backorder.getSalesOrderLine().getSalesOrder();
+        Product other = Product.builder().id(2L).build();
+        order.getLines().add(SalesOrderLine.builder().salesOrder(order).product(other).qtyOrdered(1).qtyReserved(0).build());
+        stubQueue(backorder);
+
+        service.allocate(10L, Set.of(1L));
+
+        assertEquals(BackorderStatus.ALLOCATED, backorder.getStatus());
+        assertEquals(OrderStatus.CREATED, order.getStatus());
+    }
+
+    @Test
+    void allocate_emptyQueue_touchesNothing() {
+        when(inventoryRepository.findAllWithLockByProductIdInAndWarehouseIdIn(Set.of(1L), List.of(10L))).thenReturn(List.of(inventory));
+        when(backorderRepository.findQueueWithLock(10L, Set.of(1L), BackorderStatus.WAITING)).thenReturn(List.of());
+
+        assertEquals(0, service.allocate(10L, Set.of(1L)));
+        verify(movementRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void enqueue_skipsLineAlreadyWaiting() {
+        Backorder existing = backorder(100L, 5, 0, 0);
+        when(backorderRepository.existsBySalesOrderLineIdAndStatus(existing.getSalesOrderLine().getId(), BackorderStatus.WAITING))
+                .thenReturn(true);
+
+        service.enqueue(existing.getSalesOrderLine());
+
+        verify(backorderRepository, never()).save(any());
+    }
+
+    @Test
+    void enqueue_queuesLineOnItsOrderWarehouse() {
+        SalesOrderLine line = backorder(100L, 5, 0, 0).getSalesOrderLine();
+
+        service.enqueue(line);
+
+        ArgumentCaptor<Backorder> saved = ArgumentCaptor.forClass(Backorder.class);
+        verify(backorderRepository).save(saved.capture());
+        assertSame(warehouse, saved.getValue().getWarehouse());
+        assertSame(product, saved.getValue().getProduct());
+        assertEquals(BackorderStatus.WAITING, saved.getValue().getStatus());
+    }
+
+    private void stubQueue(Backorder... queue) {
+        when(inventoryRepository.findAllWithLockByProductIdInAndWarehouseIdIn(Set.of(1L), List.of(10L))).thenReturn(List.of(inventory));
+        when(backorderRepository.findQueueWithLock(eq(10L), eq(Set.of(1L)), eq(BackorderStatus.WAITING))).thenReturn(List.of(queue));
+    }
+
+    private Backorder backorder(Long orderId, int qtyOrdered, int qtyReserved, int minutes) {
+        SalesOrder order = SalesOrder.builder().id(orderId).warehouse(warehouse).status(OrderStatus.CREATED).lines(new ArrayList<>()).build();
+        SalesOrderLine line = SalesOrderLine.builder().id(orderId * 10).salesOrder(order).product(product)
+                .qtyOrdered(qtyOrdered).qtyReserved(qtyReserved).build();
+        order.getLines().add(line);
+        return Backorder.builder().id(orderId).salesOrderLine(line).product(product).warehouse(warehouse)
+                .createdAt(start.plusMinutes(minutes)).build();
+    }
+}
@@ -0,0 +1,131 @@
+package org.smartsupply.service.implementation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.smartsupply.exception.DuplicateResourceException;
+import org.smartsupply.model.entity.IdempotencyRecord;
+import org.smartsupply.repository.IdempotencyRecordRepository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyStoreTest {
+
+    private static final String FP = "POST /api/inventories/outbound";
+
+    @Mock
+    private IdempotencyRecordRepository repository;
+
+    private IdempotencyStore store;
+
+    @BeforeEach
+    void setup() {
+        store = new IdempotencyStore(repository, 24, 2, 2000);
+    }
+
+    @Test
+    void acquire_firstCallOwnsKey_thenCompletedResponseIsReplayedFromMemory() {
+        when(repository.findById("1:k")).thenReturn(Optional.empty());
+
+        assertTrue(store.acquire("1:k", FP).isEmpty());
+        store.complete("1:k", FP, 201, "application/json", "{\"id\":7}");
+
+        IdempotencyStore.StoredResponse replay = store.acquire("1:k", FP).orElseThrow();
+        assertEquals(201, replay.status());
+        assertEquals("{\"id\":7}", replay.body());
+        verify(repository, times(1)).findById("1:k");
+        verify(repository).save(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    void acquire_concurrentDuplicate_waitsForFirstResult() throws Exception {
+        when(repository.findById("1:k")).thenReturn(Optional.empty());
+        assertTrue(store.acquire("1:k", FP).isEmpty());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Optional<IdempotencyStore.StoredResponse>> duplicate = executor.submit(() -> store.acquire("1:k", FP));
+            Thread.sleep(50);
+            assertFalse(duplicate.isDone());
+
+            store.complete("1:k", FP, 200, null, null);
+
+            assertEquals(200, duplicate.get(1, TimeUnit.SECONDS).orElseThrow().status());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void acquire_afterFailedFirstRun_duplicateTakesOver() throws Exception {
+        when(repository.findById("1:k")).thenReturn(Optional.empty());
+        assertTrue(store.acquire("1:k", FP).isEmpty());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Optional<IdempotencyStore.StoredResponse>> duplicate = executor.submit(() -> store.acquire("1:k", FP));
+            Thread.sleep(50);
+            store.release("1:k");
+
+            assertTrue(duplicate.get(1, TimeUnit.SECONDS).isEmpty());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void acquire_duplicateStillRunningAfterWait_isRejected() {
+        store = new IdempotencyStore(repository, 24, 2, 20);
+        when(repository.findById("1:k")).thenReturn(Optional.empty());
+        store.acquire("1:k", FP);
+
+        assertThrows(DuplicateResourceException.class, () -> store.acquire("1:k", FP));
+    }
+
+    @Test
+    void acquire_evictedFromMemory_isReplayedFromTable() {
+        when(repository.findById("1:k")).thenReturn(Optional.of(IdempotencyRecord.builder()
+                .key("1:k").fingerprint(FP).status(200).body("{}")
+                .createdAt(LocalDateTime.now()).expiresAt(LocalDateTime.now().plusHours(1)).build()));
+
+        assertEquals("{}", store.acquire("1:k", FP).orElseThrow().body());
+    }
+
+    @Test
+    void acquire_expiredRecord_runsAgain() {
+        when(repository.findById("1:k")).thenReturn(Optional.of(IdempotencyRecord.builder()
+                .key("1:k").fingerprint(FP).status(200)
+                .createdAt(LocalDateTime.now().minusDays(2)).expiresAt(LocalDateTime.now().minusDays(1)).build()));
+
+        assertTrue(store.acquire("1:k", FP).isEmpty());
+    }
+
+    @Test
+    void acquire_sameKeyOnAnotherEndpoint_isRejected() {
+        when(repository.findById("1:k")).thenReturn(Optional.empty());
+        store.acquire("1:k", FP);
+        store.complete("1:k", FP, 200, null, null);
+
+        assertThrows(DuplicateResourceException.class, () -> store.acquire("1:k", "POST /api/inventories/reserve"));
+    }
+
+    @Test
+    void complete_databaseFailure_stillReplaysFromMemory() {
+        when(repository.findById("1:k")).thenReturn(Optional.empty());
+        when(repository.save(any())).thenThrow(new RuntimeException("db down"));
+        store.acquire("1:k", FP);
+
+        store.complete("1:k", FP, 200, null, null);
+
+        assertTrue(store.acquire("1:k", FP).isPresent());
+    }
+}
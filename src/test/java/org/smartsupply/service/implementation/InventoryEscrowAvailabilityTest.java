@@ -0,0 +1,108 @@
+package org.smartsupply.service.implementation;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.smartsupply.dto.response.WarehouseAvailabilityDto;
+import org.smartsupply.model.entity.Inventory;
+import org.smartsupply.model.entity.Product;
+import org.smartsupply.model.entity.Warehouse;
+import org.smartsupply.model.enums.InventoryLockMode;
+import org.smartsupply.repository.InventoryRepository;
+import org.smartsupply.service.ProductAvailabilityService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Inventaire shardé : ce que les lectures annoncent comme disponible (stock libre de la ligne
+ * plus escrow libre des buckets) peut être prélevé en entier par chaque chemin d'écriture.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "smartsupply.inventory.sharding.enabled=true",
+        "smartsupply.inventory.cache.enabled=false"
+})
+@Import({InventoryServiceImp.class, InventoryShardingServiceImp.class, AvailabilityCache.class, ReservationExpiryWheel.class})
+class InventoryEscrowAvailabilityTest {
+
+    @Autowired
+    private InventoryServiceImp inventoryService;
+    @Autowired
+    private InventoryShardingServiceImp shardingService;
+    @Autowired
+    private InventoryRepository inventoryRepository;
+    @Autowired
+    private EntityManager em;
+
+    @MockitoBean
+    private ProductAvailabilityService availabilityService;
+
+    private Product product;
+    private Warehouse warehouse;
+
+    @BeforeEach
+    void setup() {
+        warehouse = Warehouse.builder().code("WH1").name("Warehouse 1").active(true).build();
+        em.persist(warehouse);
+        product = Product.builder().sku("SKU-1").name("SKU-1").active(true)
+                .originalPrice(BigDecimal.ONE).profite(BigDecimal.ONE).build();
+        em.persist(product);
+        Inventory inventory = Inventory.builder().product(product).warehouse(warehouse).qtyOnHand(100).qtyReserved(0).build();
+        em.persist(inventory);
+        em.flush();
+
+        // moitié du stock libre en escrow, répartie sur 4 buckets de 12 ou 13 unités
+        assertEquals(50, shardingService.shard(inventory.getId(), 4));
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void allReadsReportTheEscrowFreeStock() {
+        assertEquals(100, inventoryService.getAvailable(product.getId(), warehouse.getId()));
+        List<WarehouseAvailabilityDto> ranked = inventoryRepository.findAvailabilityByProductId(product.getId());
+        assertEquals(1, ranked.size());
+        assertEquals(100, ranked.get(0).getAvailable());
+        assertEquals(List.of(warehouse.getId()), inventoryRepository.findWarehouseIdsWithAvailable(product.getId()));
+    }
+
+    @Test
+    void reserve_exactlyWhatGetAvailableReports_succeeds() {
+        int available = inventoryService.getAvailable(product.getId(), warehouse.getId());
+
+        assertNotNull(inventoryService.reserve(product.getId(), warehouse.getId(), available, "TOKEN", 600));
+
+        assertEquals(0, inventoryService.getAvailable(product.getId(), warehouse.getId()));
+    }
+
+    @Test
+    void reserveAll_exactlyWhatGetAvailableReports_hasNoShortfall() {
+        int available = inventoryService.getAvailable(product.getId(), warehouse.getId());
+
+        List<Long> shortfalls = inventoryService.reserveAll(warehouse.getId(), Map.of(product.getId(), available), "SO1");
+
+        assertTrue(shortfalls.isEmpty());
+        assertEquals(0, inventoryService.getAvailable(product.getId(), warehouse.getId()));
+    }
+
+    @Test
+    void conditionalOutbound_exactlyWhatGetAvailableReports_succeeds() {
+        ReflectionTestUtils.setField(inventoryService, "lockMode", InventoryLockMode.CONDITIONAL);
+        int available = inventoryService.getAvailable(product.getId(), warehouse.getId());
+
+        inventoryService.outbound(product.getId(), warehouse.getId(), available, "OUT");
+
+        Inventory inv = inventoryRepository.findByProductIdAndWarehouseId(product.getId(), warehouse.getId()).orElseThrow();
+        assertEquals(0, inv.getQtyOnHand());
+        assertEquals(0, inventoryService.getAvailable(product.getId(), warehouse.getId()));
+    }
+}
@@ -0,0 +1,86 @@
+package org.smartsupply.service.implementation;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.smartsupply.dto.response.InventoryKeyDto;
+import org.smartsupply.model.entity.*;
+import org.smartsupply.model.enums.OrderStatus;
+import org.smartsupply.model.enums.Role;
+import org.smartsupply.repository.InventoryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Vagues et expéditions groupées ne verrouillent que les couples (produit, entrepôt) de leurs lignes,
+ * pas le produit cartésien des produits et des entrepôts du lot.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class InventoryKeysForOrdersTest {
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+    @Autowired
+    private EntityManager em;
+
+    @Test
+    void findKeysUsedByOrderIdIn_returnsOnlyThePairsOfTheLines() {
+        User client = User.builder().firstName("Client").lastName("Test").email("client@example.com")
+                .password("password123").role(Role.CLIENT).isActive(true).build();
+        em.persist(client);
+        Warehouse north = warehouse("WH-N");
+        Warehouse south = warehouse("WH-S");
+        Product apple = product("APPLE");
+        Product pear = product("PEAR");
+        Inventory northApple = inventory(apple, north);
+        inventory(pear, north);
+        inventory(apple, south);
+        Inventory southPear = inventory(pear, south);
+
+        SalesOrder first = order(client, north, apple, apple);
+        SalesOrder second = order(client, south, pear);
+        order(client, south, apple);
+        em.flush();
+        em.clear();
+
+        List<InventoryKeyDto> keys = inventoryRepository.findKeysUsedByOrderIdIn(List.of(first.getId(), second.getId()));
+
+        assertEquals(List.of(northApple.getId(), southPear.getId()),
+                keys.stream().map(InventoryKeyDto::getInventoryId).toList());
+        assertEquals(north.getId(), keys.get(0).getWarehouseId());
+        assertEquals(pear.getId(), keys.get(1).getProductId());
+    }
+
+    private SalesOrder order(User client, Warehouse warehouse, Product... products) {
+        SalesOrder order = SalesOrder.builder().client(client).warehouse(warehouse).status(OrderStatus.CREATED).build();
+        for (Product product : products) {
+            order.getLines().add(SalesOrderLine.builder().salesOrder(order).product(product)
+                    .qtyOrdered(1).qtyReserved(0).price(BigDecimal.ONE).build());
+        }
+        em.persist(order);
+        return order;
+    }
+
+    private Inventory inventory(Product product, Warehouse warehouse) {
+        Inventory inventory = Inventory.builder().product(product).warehouse(warehouse).qtyOnHand(10).qtyReserved(0).build();
+        em.persist(inventory);
+        return inventory;
+    }
+
+    private Warehouse warehouse(String code) {
+        Warehouse warehouse = Warehouse.builder().code(code).name(code).active(true).build();
+        em.persist(warehouse);
+        return warehouse;
+    }
+
+    private Product product(String sku) {
+        Product product = Product.builder().sku(sku).name(sku).active(true)
+                .originalPrice(BigDecimal.ONE).profite(BigDecimal.ONE).build();
+        em.persist(product);
+        return product;
+    }
+}
@@ -0,0 +1,133 @@
+package org.smartsupply.service.implementation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.smartsupply.dto.request.InventoryMovementFilterDto;
+import org.smartsupply.dto.response.InventoryMovementDto;
+import org.smartsupply.dto.response.KeysetPageDto;
+import org.smartsupply.exception.BusinessException;
+import org.smartsupply.mapper.InventoryMovementMapperImpl;
+import org.smartsupply.model.entity.*;
+import org.smartsupply.model.enums.MovementType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({InventoryMovementServiceImp.class, InventoryMovementMapperImpl.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class InventoryMovementServiceImpTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 1, 1, 8, 0);
+
+    @Autowired
+    private InventoryMovementServiceImp service;
+    @Autowired
+    private EntityManager em;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Inventory first;
+    private Inventory second;
+
+    @BeforeEach
+    void setup() {
+        Warehouse warehouse = Warehouse.builder().code("WH1").name("Warehouse 1").active(true).build();
+        em.persist(warehouse);
+        first = inventory(warehouse, "SKU-1");
+        second = inventory(warehouse, "SKU-2");
+
+        // 5 mouvements dont 3 au même instant, pour exercer le départage sur l'id
+        movement(first, MovementType.INBOUND, T0, "PO:1");
+        movement(first, MovementType.OUTBOUND, T0.plusHours(1), "SO:1");
+        movement(first, MovementType.OUTBOUND, T0.plusHours(1), "SO:2");
+        movement(first, MovementType.ADJUSTMENT, T0.plusHours(1), "ADJ");
+        movement(first, MovementType.INBOUND, T0.plusHours(2), "PO:2");
+        movement(second, MovementType.INBOUND, T0, "PO:3");
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void list_walksAllPagesInOrderWithoutDuplicates() {
+        InventoryMovementFilterDto filter = InventoryMovementFilterDto.builder().inventoryId(first.getId()).build();
+
+        List<String> references = new ArrayList<>();
+        LocalDateTime after = null;
+        Long afterId = null;
+        int pages = 0;
+        KeysetPageDto<InventoryMovementDto> page;
+        do {
+            page = service.list(filter, after, afterId, 2);
+            page.getContent().forEach(m -> references.add(m.getReference()));
+            after = page.getNextAfter();
+            afterId = page.getNextAfterId();
+            pages++;
+        } while (page.isHasNext());
+
+        assertEquals(List.of("PO:1", "SO:1", "SO:2", "ADJ", "PO:2"), references);
+        assertEquals(3, pages);
+        assertNull(page.getNextAfterId());
+    }
+
+    @Test
+    void list_appliesFilters() {
+        InventoryMovementFilterDto filter = InventoryMovementFilterDto.builder()
+                .productId(first.getProduct().getId())
+                .type(MovementType.OUTBOUND)
+                .referencePrefix("SO:")
+                .from(T0.plusMinutes(30))
+                .to(T0.plusHours(2))
+                .build();
+
+        KeysetPageDto<InventoryMovementDto> page = service.list(filter, null, null, 50);
+
+        assertEquals(2, page.getSize());
+        assertFalse(page.isHasNext());
+        assertTrue(page.getContent().stream().allMatch(m -> m.getInventoryId().equals(first.getId())));
+    }
+
+    @Test
+    void list_rejectsOversizedPage() {
+        InventoryMovementFilterDto filter = new InventoryMovementFilterDto();
+        assertThrows(BusinessException.class, () -> service.list(filter, null, null, InventoryMovementServiceImp.MAX_PAGE_SIZE + 1));
+    }
+
+    @Test
+    void export_writesOneJsonObjectPerLine() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.export(InventoryMovementFilterDto.builder().warehouseId(first.getWarehouse().getId()).build(), out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(6, lines.length);
+        InventoryMovementDto firstLine = objectMapper.readValue(lines[0], InventoryMovementDto.class);
+        assertEquals(T0, firstLine.getOccurredAt());
+    }
+
+    private Inventory inventory(Warehouse warehouse, String sku) {
+        Product product = Product.builder().sku(sku).name(sku).active(true)
+                .originalPrice(BigDecimal.ONE).profite(BigDecimal.ONE).build();
+        em.persist(product);
+        Inventory inv = Inventory.builder().product(product).warehouse(warehouse).qtyOnHand(10).qtyReserved(0).build();
+        em.persist(inv);
+        return inv;
+    }
+
+    private void movement(Inventory inv, MovementType type, LocalDateTime at, String reference) {
+        em.persist(InventoryMovement.builder().inventory(inv).type(type).qty(1).occurredAt(at).reference(reference).build());
+    }
+}
@@ -4,25 +4,39 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.smartsupply.dto.request.AvailabilityCheckLineDto;
+import org.smartsupply.dto.request.InventoryRequestDto;
+import org.smartsupply.dto.response.AvailabilityCheckResultDto;
+import org.smartsupply.dto.response.ProductWarehouseAvailabilityDto;
+import org.smartsupply.dto.response.WarehouseAvailabilityDto;
+import org.smartsupply.event.StockReceivedEvent;
 import org.smartsupply.exception.BusinessException;
 import org.smartsupply.exception.ResourceNotFoundException;
 import org.smartsupply.exception.StockUnavailableException;
 import org.smartsupply.model.entity.*;
+import org.smartsupply.model.enums.InventoryLockMode;
 import org.smartsupply.model.enums.MovementType;
+import org.smartsupply.model.enums.ReservationStatus;
 import org.smartsupply.repository.*;
+import org.smartsupply.service.InventoryShardingService;
+import org.smartsupply.service.ProductAvailabilityService;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
-import java.util.Optional;
+import java.time.LocalDateTime;
+import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,6 +54,19 @@ public class InventoryServiceImpTest {
     private PurchaseOrderRepository purchaseOrderRepository;
     @Mock
     private SupplierRepository supplierRepository;
+    @Mock
+    private ReservationRepository reservationRepository;
+    @Mock
+    private ReservationExpiryWheel expiryWheel;
+    @Mock
+    private InventoryShardingService shardingService;
+    @Mock
+    private ProductAvailabilityService availabilityService;
+    // désactivé : les lectures vont au repository mocké, les invalidations restent vérifiables
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Spy
+    private AvailabilityCache availabilityCache = new AvailabilityCache(false, 1024, 2000);
 
     @InjectMocks
     private InventoryServiceImp service;
@@ -49,6 +76,7 @@ public class InventoryServiceImpTest {
 
         lenient().when(inventoryRepository.save(any())).thenAnswer(i -> i.getArgument(0));
         lenient().when(movementRepository.save(any())).thenAnswer(i -> i.getArgument(0));
+        lenient().when(reservationRepository.save(any())).thenAnswer(i -> i.getArgument(0));
         lenient().when(purchaseOrderRepository.save(any())).thenAnswer(i -> {
             PurchaseOrder po = i.getArgument(0);
             if (po != null && po.getId() == null) {
@@ -120,6 +148,12 @@ public class InventoryServiceImpTest {
 
         assertEquals(8, inv.getQtyOnHand());
         verify(inventoryRepository).save(inv);
+        verify(availabilityService).record(1L, 3, 0);
+        verify(availabilityCache).invalidate(1L, 10L);
+        ArgumentCaptor<StockReceivedEvent> event = ArgumentCaptor.forClass(StockReceivedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(10L, event.getValue().getWarehouseId());
+        assertEquals(Set.of(1L), event.getValue().getProductIds());
 
         ArgumentCaptor<InventoryMovement> mCaptor = ArgumentCaptor.forClass(InventoryMovement.class);
         verify(movementRepository).save(mCaptor.capture());
@@ -129,6 +163,34 @@ public class InventoryServiceImpTest {
         assertEquals("REF-IN", mv.getReference());
     }
 
+    @Test
+    void inboundAll_locksOnceAndBatchesMovements() {
+        Inventory inv1 = Inventory.builder().id(1L).product(Product.builder().id(1L).build()).qtyOnHand(5).qtyReserved(0).build();
+        Inventory inv2 = Inventory.builder().id(2L).product(Product.builder().id(2L).build()).qtyOnHand(0).qtyReserved(0).build();
+        when(inventoryRepository.findAllWithLockByProductIdInAndWarehouseIdIn(any(), eq(List.of(10L))))
+                .thenReturn(List.of(inv1, inv2));
+
+        service.inboundAll(10L, List.of(
+                InventoryRequestDto.builder().productId(1L).warehouseId(10L).qty(3).reference("PO:1:LINE:1").build(),
+                InventoryRequestDto.builder().productId(2L).warehouseId(10L).qty(4).reference("PO:1:LINE:2").build()));
+
+        assertEquals(8, inv1.getQtyOnHand());
+        assertEquals(4, inv2.getQtyOnHand());
+        verify(inventoryRepository, never()).findWithLockByProductIdAndWarehouseId(any(), any());
+        ArgumentCaptor<List<InventoryMovement>> mCaptor = ArgumentCaptor.forClass(List.class);
+        verify(movementRepository).saveAll(mCaptor.capture());
+        assertEquals(List.of("PO:1:LINE:1", "PO:1:LINE:2"),
+                mCaptor.getValue().stream().map(InventoryMovement::getReference).toList());
+    }
+
+    @Test
+    void inboundAll_missingInventory_throwsResourceNotFound() {
+        when(inventoryRepository.findAllWithLockByProductIdInAndWarehouseIdIn(any(), any())).thenReturn(Collections.emptyList());
+
+        assertThrows(ResourceNotFoundException.class, () -> service.inboundAll(10L, List.of(
+                InventoryRequestDto.builder().productId(1L).warehouseId(10L).qty(3).build())));
+    }
+
     // ================== outbound ==================
     @Test
     void outbound_whenNotEnoughStock_throwsStockUnavailable() {
@@ -204,7 +266,7 @@ public class InventoryServiceImpTest {
     }
 
     @Test
-    void reserve_success_incrementsReservedAndRecordsAdjustmentMovement() {
+    void reserve_success_incrementsReservedAndRecordsReservationMovement() {
         Inventory inv = Inventory.builder().id(1L).qtyOnHand(10).qtyReserved(2).build();
         when(inventoryRepository.findWithLockByProductIdAndWarehouseId(1L, 10L))
                 .thenReturn(Optional.of(inv));
@@ -217,11 +279,127 @@ public class InventoryServiceImpTest {
         ArgumentCaptor<InventoryMovement> mCaptor = ArgumentCaptor.forClass(InventoryMovement.class);
         verify(movementRepository).save(mCaptor.capture());
         InventoryMovement mv = mCaptor.getValue();
-        assertEquals(MovementType.ADJUSTMENT, mv.getType());
+        assertEquals(MovementType.RESERVATION, mv.getType());
         assertEquals(3, mv.getQty());
         assertEquals("SRC", mv.getReference());
     }
 
+    @Test
+    void reserve_persistsReservationWithExpiryAndSchedulesIt() {
+        Inventory inv = Inventory.builder().id(1L).qtyOnHand(10).qtyReserved(0).build();
+        when(inventoryRepository.findWithLockByProductIdAndWarehouseId(1L, 10L))
+                .thenReturn(Optional.of(inv));
+
+        String token = service.reserve(1L, 10L, 3, "SRC", 600);
+
+        ArgumentCaptor<Reservation> rCaptor = ArgumentCaptor.forClass(Reservation.class);
+        verify(reservationRepository).save(rCaptor.capture());
+        Reservation r = rCaptor.getValue();
+        assertEquals(token, r.getId());
+        assertEquals(inv, r.getInventory());
+        assertEquals(3, r.getQty());
+        assertEquals(ReservationStatus.ACTIVE, r.getStatus());
+        assertTrue(r.getExpiresAt().isAfter(LocalDateTime.now().plusSeconds(590)));
+        verify(expiryWheel).schedule(eq(token), anyLong());
+    }
+
+    @Test
+    void reserve_nonPositiveTtl_throwsBusinessException() {
+        assertThrows(BusinessException.class, () -> service.reserve(1L, 10L, 3, "SRC", 0));
+        verifyNoInteractions(inventoryRepository);
+    }
+
+    @Test
+    void confirmReservation_marksConfirmedAndCancelsExpiry() {
+        Reservation r = Reservation.builder().id("tok").qty(2).status(ReservationStatus.ACTIVE).build();
+        when(reservationRepository.findWithLockById("tok")).thenReturn(Optional.of(r));
+
+        service.confirmReservation("tok");
+
+        assertEquals(ReservationStatus.CONFIRMED, r.getStatus());
+        verify(expiryWheel).cancel("tok");
+        verifyNoInteractions(inventoryRepository);
+    }
+
+    @Test
+    void releaseReservation_alreadyConfirmed_throwsBusinessException() {
+        Reservation r = Reservation.builder().id("tok").qty(2).status(ReservationStatus.CONFIRMED).build();
+        when(reservationRepository.findWithLockById("tok")).thenReturn(Optional.of(r));
+
+        assertThrows(BusinessException.class, () -> service.releaseReservation("tok"));
+    }
+
+    @Test
+    void releaseReservation_decrementsReservedQty() {
+        Inventory inv = Inventory.builder().id(5L).product(Product.builder().id(1L).build()).warehouse(Warehouse.builder().id(10L).build()).qtyOnHand(10).qtyReserved(4).build();
+        Reservation r = Reservation.builder().id("tok").inventory(inv).qty(3).status(ReservationStatus.ACTIVE).build();
+        when(reservationRepository.findWithLockById("tok")).thenReturn(Optional.of(r));
+        when(inventoryRepository.findAllWithLockByIdIn(List.of(5L))).thenReturn(List.of(inv));
+
+        service.releaseReservation("tok");
+
+        assertEquals(1, inv.getQtyReserved());
+        assertEquals(ReservationStatus.RELEASED, r.getStatus());
+        verify(availabilityService).record(1L, 0, -3);
+        verify(expiryWheel).cancel("tok");
+    }
+
+    @Test
+    void releaseExpired_releasesInBulkPerInventory() {
+        Inventory inv = Inventory.builder().id(5L).product(Product.builder().id(1L).build()).warehouse(Warehouse.builder().id(10L).build()).qtyOnHand(10).qtyReserved(6).build();
+        Reservation r1 = Reservation.builder().id("a").inventory(inv).qty(2).status(ReservationStatus.ACTIVE).build();
+        Reservation r2 = Reservation.builder().id("b").inventory(inv).qty(3).status(ReservationStatus.ACTIVE).build();
+        when(reservationRepository.findAllWithLockExpired(eq(List.of("a", "b", "c")), eq(ReservationStatus.ACTIVE), any()))
+                .thenReturn(List.of(r1, r2));
+        when(inventoryRepository.findAllWithLockByIdIn(Set.of(5L))).thenReturn(List.of(inv));
+
+        List<String> released = service.releaseExpired(List.of("a", "b", "c"));
+
+        assertEquals(List.of("a", "b"), released);
+        assertEquals(1, inv.getQtyReserved());
+        assertEquals(ReservationStatus.EXPIRED, r1.getStatus());
+        assertEquals(ReservationStatus.EXPIRED, r2.getStatus());
+        verify(inventoryRepository, times(1)).findAllWithLockByIdIn(any());
+    }
+
+    // ================== reserveAll ==================
+    @Test
+    void reserveAll_locksOnceAndReservesEveryCoveredProduct() {
+        Product p1 = Product.builder().id(1L).build();
+        Product p2 = Product.builder().id(2L).build();
+        Inventory inv1 = Inventory.builder().id(11L).product(p1).qtyOnHand(10).qtyReserved(0).build();
+        Inventory inv2 = Inventory.builder().id(12L).product(p2).qtyOnHand(3).qtyReserved(1).build();
+        when(inventoryRepository.findAllWithLockByProductIdInAndWarehouseIdIn(any(), eq(List.of(10L))))
+                .thenReturn(List.of(inv1, inv2));
+
+        Map<Long, Integer> qtyByProduct = new LinkedHashMap<>();
+        qtyByProduct.put(2L, 5);
+        qtyByProduct.put(1L, 4);
+        List<Long> shortfalls = service.reserveAll(10L, qtyByProduct, "SO1");
+
+        assertEquals(List.of(2L), shortfalls);
+        assertEquals(4, inv1.getQtyReserved());
+        assertEquals(1, inv2.getQtyReserved());
+        verify(inventoryRepository, times(1)).findAllWithLockByProductIdInAndWarehouseIdIn(any(), any());
+        verify(inventoryRepository, never()).findWithLockByProductIdAndWarehouseId(any(), any());
+
+        ArgumentCaptor<List<InventoryMovement>> mCaptor = ArgumentCaptor.forClass(List.class);
+        verify(movementRepository).saveAll(mCaptor.capture());
+        assertEquals(1, mCaptor.getValue().size());
+        assertEquals(4, mCaptor.getValue().get(0).getQty());
+        assertEquals("SO1", mCaptor.getValue().get(0).getReference());
+    }
+
+    @Test
+    void reserveAll_missingInventory_isReportedAsShortfall() {
+        when(inventoryRepository.findAllWithLockByProductIdInAndWarehouseIdIn(any(), any()))
+                .thenReturn(Collections.emptyList());
+
+        List<Long> shortfalls = service.reserveAll(10L, Map.of(5L, 1), "SO2");
+
+        assertEquals(List.of(5L), shortfalls);
+    }
+
     // ================== transfer ==================
     @Test
     void transfer_sameSourceAndTarget_throwsBusinessException() {
@@ -232,12 +410,15 @@ public class InventoryServiceImpTest {
 
     @Test
     void transfer_insufficientSource_throwsBusinessException() {
-        Inventory source = Inventory.builder().id(1L).qtyOnHand(5).qtyReserved(3).product(Product.builder().id(1L).build()).build();
-        when(inventoryRepository.findWithLockByProductIdAndWarehouseId(1L, 10L)).thenReturn(Optional.of(source));
+        Inventory source = Inventory.builder().id(1L).qtyOnHand(5).qtyReserved(3)
+                .product(Product.builder().id(1L).build()).warehouse(Warehouse.builder().id(10L).build()).build();
+        when(inventoryRepository.findAllWithLockByProductIdInAndWarehouseIdIn(Set.of(1L), List.of(10L, 20L)))
+                .thenReturn(List.of(source));
 
         BusinessException ex = assertThrows(BusinessException.class,
                 () -> service.transfer(1L, 10L, 20L, 3, "TREF"));
         assertTrue(ex.getMessage().contains("Stock insuffisant"));
+        verify(movementRepository, never()).saveAll(any());
     }
 
     @Test
@@ -247,33 +428,277 @@ public class InventoryServiceImpTest {
         Warehouse targetW = Warehouse.builder().id(20L).build();
 
         Inventory source = Inventory.builder().id(1L).product(product).warehouse(sourceW).qtyOnHand(10).qtyReserved(0).build();
-        when(inventoryRepository.findWithLockByProductIdAndWarehouseId(1L, 10L)).thenReturn(Optional.of(source));
+        when(inventoryRepository.findAllWithLockByProductIdInAndWarehouseIdIn(Set.of(1L), List.of(10L, 20L)))
+                .thenReturn(List.of(source));
+        when(warehouseRepository.getReferenceById(20L)).thenReturn(targetW);
+
+        service.transfer(1L, 10L, 20L, 4, "TREFF");
+
+        assertEquals(6, source.getQtyOnHand());
 
-        when(inventoryRepository.findWithLockByProductIdAndWarehouseId(1L, 20L)).thenReturn(Optional.empty());
+        ArgumentCaptor<List<Inventory>> invCaptor = ArgumentCaptor.forClass(List.class);
+        verify(inventoryRepository, atLeastOnce()).saveAll(invCaptor.capture());
+        Inventory created = invCaptor.getAllValues().get(0).get(0);
+        assertEquals(20L, created.getWarehouse().getId());
+        assertEquals(4, created.getQtyOnHand());
+
+        ArgumentCaptor<List<InventoryMovement>> mCaptor = ArgumentCaptor.forClass(List.class);
+        verify(movementRepository).saveAll(mCaptor.capture());
+        assertEquals(List.of(MovementType.OUTBOUND, MovementType.INBOUND),
+                mCaptor.getValue().stream().map(InventoryMovement::getType).toList());
+        verify(inventoryRepository, never()).findWithLockByProductIdAndWarehouseId(any(), any());
+    }
+
+    @Test
+    void transfer_oppositeDirections_lockRowsWithSameQuery() {
+        Product product = Product.builder().id(1L).build();
+        Inventory a = Inventory.builder().id(1L).product(product).warehouse(Warehouse.builder().id(10L).build()).qtyOnHand(10).qtyReserved(0).build();
+        Inventory b = Inventory.builder().id(2L).product(product).warehouse(Warehouse.builder().id(20L).build()).qtyOnHand(10).qtyReserved(0).build();
+        when(inventoryRepository.findAllWithLockByProductIdInAndWarehouseIdIn(eq(Set.of(1L)), any()))
+                .thenReturn(List.of(a, b));
+
+        service.transfer(1L, 10L, 20L, 3, "AB");
+        service.transfer(1L, 20L, 10L, 1, "BA");
+
+        // l'ordre des verrous est fixé par la requête (product_id, warehouse_id), pas par le sens du transfert
+        verify(inventoryRepository, times(2)).findAllWithLockByProductIdInAndWarehouseIdIn(eq(Set.of(1L)), any());
+        assertEquals(8, a.getQtyOnHand());
+        assertEquals(12, b.getQtyOnHand());
+    }
+
+    @Test
+    void transferAll_movesEveryProductWithOneLockQueryAndOneMovementBatch() {
+        Warehouse sourceW = Warehouse.builder().id(10L).build();
+        Warehouse targetW = Warehouse.builder().id(20L).build();
+        Product p1 = Product.builder().id(1L).build();
+        Product p2 = Product.builder().id(2L).build();
+        Inventory s1 = Inventory.builder().id(1L).product(p1).warehouse(sourceW).qtyOnHand(10).qtyReserved(0).build();
+        Inventory s2 = Inventory.builder().id(2L).product(p2).warehouse(sourceW).qtyOnHand(5).qtyReserved(1).build();
+        Inventory t1 = Inventory.builder().id(3L).product(p1).warehouse(targetW).qtyOnHand(2).qtyReserved(0).build();
+        Map<Long, Integer> qtyByProduct = new LinkedHashMap<>();
+        qtyByProduct.put(1L, 4);
+        qtyByProduct.put(2L, 3);
+        when(inventoryRepository.findAllWithLockByProductIdInAndWarehouseIdIn(qtyByProduct.keySet(), List.of(10L, 20L)))
+                .thenReturn(List.of(s1, t1, s2));
         when(warehouseRepository.getReferenceById(20L)).thenReturn(targetW);
 
+        int moved = service.transferAll(10L, 20L, qtyByProduct, "REBAL");
+
+        assertEquals(2, moved);
+        assertEquals(6, s1.getQtyOnHand());
+        assertEquals(2, s2.getQtyOnHand());
+        assertEquals(6, t1.getQtyOnHand());
+        ArgumentCaptor<List<InventoryMovement>> mCaptor = ArgumentCaptor.forClass(List.class);
+        verify(movementRepository).saveAll(mCaptor.capture());
+        assertEquals(4, mCaptor.getValue().size());
+        verify(movementRepository, never()).save(any());
+    }
+
+    @Test
+    void transferAll_anyLineShort_movesNothing() {
+        Warehouse sourceW = Warehouse.builder().id(10L).build();
+        Inventory s1 = Inventory.builder().id(1L).product(Product.builder().id(1L).build()).warehouse(sourceW).qtyOnHand(10).qtyReserved(0).build();
+        Inventory s2 = Inventory.builder().id(2L).product(Product.builder().id(2L).build()).warehouse(sourceW).qtyOnHand(1).qtyReserved(0).build();
+        Map<Long, Integer> qtyByProduct = new LinkedHashMap<>();
+        qtyByProduct.put(1L, 4);
+        qtyByProduct.put(2L, 3);
+        when(inventoryRepository.findAllWithLockByProductIdInAndWarehouseIdIn(qtyByProduct.keySet(), List.of(10L, 20L)))
+                .thenReturn(List.of(s1, s2));
+
+        BusinessException ex = assertThrows(BusinessException.class, () -> service.transferAll(10L, 20L, qtyByProduct, "REBAL"));
+
+        assertTrue(ex.getMessage().contains("2=1"));
+        assertEquals(10, s1.getQtyOnHand());
+        verify(movementRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void transferAll_missingSourceRow_throwsNotFound() {
+        when(inventoryRepository.findAllWithLockByProductIdInAndWarehouseIdIn(Set.of(9L), List.of(10L, 20L)))
+                .thenReturn(List.of());
+
+        assertThrows(ResourceNotFoundException.class, () -> service.transferAll(10L, 20L, Map.of(9L, 1), "REBAL"));
+    }
+
+    // ================== bulk availability ==================
+    @Test
+    void checkAvailability_answersEveryLineFromOneQuery() {
+        when(inventoryRepository.findAvailableByProductIdIn(Set.of(1L, 2L, 3L))).thenReturn(List.of(
+                new ProductWarehouseAvailabilityDto(1L, 10L, 4),
+                new ProductWarehouseAvailabilityDto(1L, 20L, 3),
+                new ProductWarehouseAvailabilityDto(2L, 10L, 1)));
+
+        List<AvailabilityCheckResultDto> res = service.checkAvailability(List.of(
+                AvailabilityCheckLineDto.builder().productId(1L).qty(6).build(),
+                AvailabilityCheckLineDto.builder().productId(1L).qty(6).warehouseId(10L).build(),
+                AvailabilityCheckLineDto.builder().productId(2L).qty(1).warehouseId(10L).build(),
+                AvailabilityCheckLineDto.builder().productId(3L).qty(1).build()));
+
+        verify(inventoryRepository, times(1)).findAvailableByProductIdIn(any());
+        assertEquals(4, res.size());
+        assertEquals(7, res.get(0).getAvailable());
+        assertEquals(2, res.get(0).getWarehouses().size());
+        assertTrue(res.get(0).isFulfillable());
+        assertEquals(4, res.get(1).getAvailable());
+        assertFalse(res.get(1).isFulfillable());
+        assertTrue(res.get(2).isFulfillable());
+        assertEquals(0, res.get(3).getAvailable());
+        assertTrue(res.get(3).getWarehouses().isEmpty());
+        assertFalse(res.get(3).isFulfillable());
+    }
+
+    @Test
+    void checkAvailability_negativeWarehouseAvailabilityCountsAsZero() {
+        when(inventoryRepository.findAvailableByProductIdIn(Set.of(1L))).thenReturn(List.of(
+                new ProductWarehouseAvailabilityDto(1L, 10L, -2),
+                new ProductWarehouseAvailabilityDto(1L, 20L, 5)));
+
+        List<AvailabilityCheckResultDto> res = service.checkAvailability(List.of(
+                AvailabilityCheckLineDto.builder().productId(1L).qty(5).build()));
+
+        assertEquals(5, res.get(0).getAvailable());
+        assertTrue(res.get(0).isFulfillable());
+    }
+
+    // ================== sharded inventory ==================
+    @Test
+    void reserve_shardedInventory_reservesInBucketWithoutLockingInventoryRow() {
+        Inventory parent = Inventory.builder().id(5L).qtyOnHand(100).qtyReserved(50).build();
+        InventoryBucket bucket = InventoryBucket.builder().id(70L).inventory(parent).qtyAllotted(10).qtyReserved(0).build();
+        when(shardingService.isSharded(1L, 10L)).thenReturn(true);
+        when(shardingService.reserve(1L, 10L, 3)).thenReturn(Optional.of(bucket));
+        when(inventoryRepository.getReferenceById(5L)).thenReturn(parent);
+
+        service.reserve(1L, 10L, 3, "PROMO", 600);
+
+        verify(inventoryRepository, never()).findWithLockByProductIdAndWarehouseId(any(), any());
+        ArgumentCaptor<Reservation> captor = ArgumentCaptor.forClass(Reservation.class);
+        verify(reservationRepository).save(captor.capture());
+        assertSame(bucket, captor.getValue().getBucket());
+        assertEquals(50, parent.getQtyReserved());
+    }
+
+    @Test
+    void reserve_shardedInventoryWithEmptyBuckets_fallsBackToInventoryRow() {
+        Inventory inv = Inventory.builder().id(5L).qtyOnHand(10).qtyReserved(0).build();
+        when(shardingService.isSharded(1L, 10L)).thenReturn(true);
+        when(shardingService.reserve(1L, 10L, 3)).thenReturn(Optional.empty());
+        when(inventoryRepository.findWithLockByProductIdAndWarehouseId(1L, 10L)).thenReturn(Optional.of(inv));
+
+        service.reserve(1L, 10L, 3, "PROMO", 600);
+
+        assertEquals(3, inv.getQtyReserved());
+    }
+
+    @Test
+    void releaseReservation_inBucket_releasesBucketOnly() {
+        Inventory parent = Inventory.builder().id(5L).product(Product.builder().id(1L).build()).warehouse(Warehouse.builder().id(10L).build()).qtyOnHand(100).qtyReserved(50).build();
+        InventoryBucket bucket = InventoryBucket.builder().id(70L).inventory(parent).qtyAllotted(10).qtyReserved(3).build();
+        Reservation r = Reservation.builder().id("tok").inventory(parent).bucket(bucket).qty(3)
+                .status(ReservationStatus.ACTIVE).expiresAt(LocalDateTime.now().plusMinutes(5)).build();
+        when(reservationRepository.findWithLockById("tok")).thenReturn(Optional.of(r));
+
+        service.releaseReservation("tok");
+
+        verify(shardingService).release(70L, 3);
+        verify(inventoryRepository, never()).findAllWithLockByIdIn(any());
+        assertEquals(ReservationStatus.RELEASED, r.getStatus());
+    }
+
+    // ================== conditional lock mode ==================
+    @Test
+    void conditionalMode_reserve_usesSingleUpdateWithoutRowLock() {
+        ReflectionTestUtils.setField(service, "lockMode", InventoryLockMode.CONDITIONAL);
+        Inventory ref = Inventory.builder().id(7L).build();
+        when(inventoryRepository.findIdByProductIdAndWarehouseId(1L, 10L)).thenReturn(Optional.of(7L));
+        when(inventoryRepository.reserveIfAvailable(7L, 3)).thenReturn(1);
+        when(inventoryRepository.getReferenceById(7L)).thenReturn(ref);
+
+        String token = service.reserve(1L, 10L, 3, "SRC", 600);
+
+        assertNotNull(token);
+        verify(inventoryRepository, never()).findWithLockByProductIdAndWarehouseId(any(), any());
+        ArgumentCaptor<Reservation> rCaptor = ArgumentCaptor.forClass(Reservation.class);
+        verify(reservationRepository).save(rCaptor.capture());
+        assertEquals(ref, rCaptor.getValue().getInventory());
+    }
+
+    @Test
+    void conditionalMode_outbound_noRowUpdated_throwsStockUnavailable() {
+        ReflectionTestUtils.setField(service, "lockMode", InventoryLockMode.CONDITIONAL);
+        when(inventoryRepository.findIdByProductIdAndWarehouseId(1L, 10L)).thenReturn(Optional.of(7L));
+        when(inventoryRepository.removeOnHandIfAvailable(7L, 5)).thenReturn(0);
+        when(inventoryRepository.findAvailableByProductIdAndWarehouseId(1L, 10L)).thenReturn(2);
+
+        StockUnavailableException ex = assertThrows(StockUnavailableException.class,
+                () -> service.outbound(1L, 10L, 5, "REF-OUT"));
+        assertTrue(ex.getMessage().contains("Disponible: 2"));
+        verify(movementRepository, never()).save(any());
+    }
+
+    @Test
+    void conditionalMode_adjustment_belowReserved_throwsBusinessException() {
+        ReflectionTestUtils.setField(service, "lockMode", InventoryLockMode.CONDITIONAL);
+        when(inventoryRepository.findIdByProductIdAndWarehouseId(1L, 10L)).thenReturn(Optional.of(7L));
+        when(inventoryRepository.addOnHandIfNotBelowReserved(7L, -4)).thenReturn(0);
+
+        assertThrows(BusinessException.class, () -> service.adjustment(1L, 10L, -4, "ADJ"));
+    }
+
+    @Test
+    void conditionalMode_inbound_noRowUpdated_throwsWithoutMovement() {
+        ReflectionTestUtils.setField(service, "lockMode", InventoryLockMode.CONDITIONAL);
+        when(inventoryRepository.findIdByProductIdAndWarehouseId(1L, 10L)).thenReturn(Optional.of(7L));
+        when(inventoryRepository.addOnHandIfNotBelowReserved(7L, 5)).thenReturn(0);
+
+        assertThrows(BusinessException.class, () -> service.inbound(1L, 10L, 5, "REF-IN"));
+        verify(movementRepository, never()).save(any());
+        verify(availabilityService, never()).record(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void conditionalMode_inboundAll_usesConditionalUpdatesWithoutRowLock() {
+        ReflectionTestUtils.setField(service, "lockMode", InventoryLockMode.CONDITIONAL);
+        when(inventoryRepository.findIdByProductIdAndWarehouseId(1L, 10L)).thenReturn(Optional.of(7L));
+        when(inventoryRepository.findIdByProductIdAndWarehouseId(2L, 10L)).thenReturn(Optional.of(8L));
+        when(inventoryRepository.addOnHandIfNotBelowReserved(7L, 3)).thenReturn(1);
+        when(inventoryRepository.addOnHandIfNotBelowReserved(8L, 4)).thenReturn(1);
+
+        service.inboundAll(10L, List.of(
+                InventoryRequestDto.builder().productId(2L).warehouseId(10L).qty(4).reference("PO:1:LINE:2").build(),
+                InventoryRequestDto.builder().productId(1L).warehouseId(10L).qty(3).reference("PO:1:LINE:1").build()));
+
+        InOrder inOrder = inOrder(inventoryRepository);
+        inOrder.verify(inventoryRepository).addOnHandIfNotBelowReserved(7L, 3);
+        inOrder.verify(inventoryRepository).addOnHandIfNotBelowReserved(8L, 4);
+        verify(inventoryRepository, never()).findAllWithLockByProductIdInAndWarehouseIdIn(any(), any());
+        verify(movementRepository, times(2)).save(any(InventoryMovement.class));
+        verify(eventPublisher).publishEvent(any(StockReceivedEvent.class));
+    }
+
+    @Test
+    void conditionalMode_transfer_createsTargetAndRecordsBothMovements() {
+        ReflectionTestUtils.setField(service, "lockMode", InventoryLockMode.CONDITIONAL);
+        when(inventoryRepository.findIdByProductIdAndWarehouseId(1L, 10L)).thenReturn(Optional.of(7L));
+        when(inventoryRepository.findIdByProductIdAndWarehouseId(1L, 20L)).thenReturn(Optional.empty());
+        when(inventoryRepository.removeOnHandIfAvailable(7L, 4)).thenReturn(1);
+        when(inventoryRepository.addOnHandIfNotBelowReserved(8L, 4)).thenReturn(1);
         when(inventoryRepository.save(any(Inventory.class))).thenAnswer(i -> {
             Inventory inv = i.getArgument(0);
-            if (inv.getId() == null) ReflectionTestUtils.setField(inv, "id", 55L);
+            ReflectionTestUtils.setField(inv, "id", 8L);
             return inv;
         });
 
-        service.transfer(1L, 10L, 20L, 4, "TREFF");
-
-        assertEquals(6, source.getQtyOnHand());
-
-        ArgumentCaptor<Inventory> invCaptor = ArgumentCaptor.forClass(Inventory.class);
-        verify(inventoryRepository, atLeastOnce()).save(invCaptor.capture());
-        List<Inventory> saved = invCaptor.getAllValues();
-        assertTrue(saved.stream().anyMatch(i -> i.getWarehouse().getId().equals(20L)));
+        service.transfer(1L, 10L, 20L, 4, "TREF");
 
+        verify(inventoryRepository).addOnHandIfNotBelowReserved(8L, 4);
         verify(movementRepository, times(2)).save(any(InventoryMovement.class));
+        verify(inventoryRepository, never()).findWithLockByProductIdAndWarehouseId(any(), any());
     }
 
     @Test
     void smartReserve_createsPO_when_notEnoughAnywhere() {
-        when(inventoryRepository.findAvailableByProductIdAndWarehouseId(1L, 10L)).thenReturn(0);
-        when(warehouseRepository.findAllIdsExcept(10L)).thenReturn(Collections.emptyList());
+        when(inventoryRepository.findAvailabilityByProductId(1L)).thenReturn(Collections.emptyList());
 
         Product product = Product.builder().id(1L).originalPrice(new BigDecimal("5.5")).build();
         when(productRepository.findById(1L)).thenReturn(Optional.of(product));
@@ -292,6 +717,74 @@ public class InventoryServiceImpTest {
     }
 
 
+    @Test
+    void smartReserve_locksOnlyChosenSourcesOnceAndReservesInMain() {
+        Product product = Product.builder().id(1L).build();
+        Inventory main = Inventory.builder().id(1L).product(product).warehouse(Warehouse.builder().id(10L).build()).qtyOnHand(2).qtyReserved(0).build();
+        Inventory other = Inventory.builder().id(2L).product(product).warehouse(Warehouse.builder().id(20L).build()).qtyOnHand(9).qtyReserved(0).build();
+        when(inventoryRepository.findAvailabilityByProductId(1L)).thenReturn(List.of(
+                new WarehouseAvailabilityDto(20L, 9),
+                new WarehouseAvailabilityDto(30L, 4),
+                new WarehouseAvailabilityDto(10L, 2)));
+        when(inventoryRepository.existsByProductIdAndWarehouseId(1L, 10L)).thenReturn(true);
+        when(inventoryRepository.findAllWithLockByProductIdInAndWarehouseIdIn(List.of(1L), List.of(10L, 20L)))
+                .thenReturn(List.of(main, other));
+
+        service.smartReserve(1L, 10L, 7, "SO9");
+
+        assertEquals(7, main.getQtyOnHand());
+        assertEquals(7, main.getQtyReserved());
+        assertEquals(4, other.getQtyOnHand());
+        verify(inventoryRepository, never()).findWithLockByProductIdAndWarehouseId(any(), any());
+        verify(inventoryRepository, never()).findAvailableByProductIdAndWarehouseId(any(), any());
+        ArgumentCaptor<List<InventoryMovement>> mCaptor = ArgumentCaptor.forClass(List.class);
+        verify(movementRepository).saveAll(mCaptor.capture());
+        assertEquals(3, mCaptor.getValue().size());
+        verifyNoInteractions(purchaseOrderRepository);
+    }
+
+    @Test
+    void smartReserve_sourceDrainedSinceRanking_doesNotReserveAndCreatesPO() {
+        Product product = Product.builder().id(1L).originalPrice(BigDecimal.ONE).build();
+        Inventory main = Inventory.builder().id(1L).product(product).warehouse(Warehouse.builder().id(10L).build()).qtyOnHand(0).qtyReserved(0).build();
+        Inventory other = Inventory.builder().id(2L).product(product).warehouse(Warehouse.builder().id(20L).build()).qtyOnHand(5).qtyReserved(3).build();
+        when(inventoryRepository.findAvailabilityByProductId(1L)).thenReturn(List.of(new WarehouseAvailabilityDto(20L, 5)));
+        when(inventoryRepository.existsByProductIdAndWarehouseId(1L, 10L)).thenReturn(true);
+        when(inventoryRepository.findAllWithLockByProductIdInAndWarehouseIdIn(List.of(1L), List.of(10L, 20L)))
+                .thenReturn(List.of(main, other));
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(supplierRepository.findAll()).thenReturn(Collections.emptyList());
+
+        assertThrows(StockUnavailableException.class, () -> service.smartReserve(1L, 10L, 5, "SO10"));
+
+        assertEquals(0, main.getQtyOnHand());
+        assertEquals(0, main.getQtyReserved());
+        assertEquals(5, other.getQtyOnHand());
+        verify(movementRepository, never()).saveAll(any());
+        ArgumentCaptor<PurchaseOrder> poCaptor = ArgumentCaptor.forClass(PurchaseOrder.class);
+        verify(purchaseOrderRepository).save(poCaptor.capture());
+        assertEquals(3, poCaptor.getValue().getLines().get(0).getQty());
+    }
+
+    @Test
+    void smartReserve_planNotCovered_transfersNothingAndOrdersShortfall() {
+        Product product = Product.builder().id(1L).originalPrice(BigDecimal.ONE).build();
+        when(inventoryRepository.findAvailabilityByProductId(1L)).thenReturn(List.of(
+                new WarehouseAvailabilityDto(20L, 3),
+                new WarehouseAvailabilityDto(10L, 1)));
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(supplierRepository.findAll()).thenReturn(Collections.emptyList());
+
+        assertThrows(StockUnavailableException.class, () -> service.smartReserve(1L, 10L, 6, "SO11"));
+
+        verify(inventoryRepository, never()).findAllWithLockByProductIdInAndWarehouseIdIn(any(), any());
+        verify(inventoryRepository, never()).saveAll(any());
+        verifyNoInteractions(movementRepository);
+        ArgumentCaptor<PurchaseOrder> poCaptor = ArgumentCaptor.forClass(PurchaseOrder.class);
+        verify(purchaseOrderRepository).save(poCaptor.capture());
+        assertEquals(2, poCaptor.getValue().getLines().get(0).getQty());
+    }
+
     @Test
     void getAvailable_returnsZeroWhenNull() {
         when(inventoryRepository.findAvailableByProductIdAndWarehouseId(1L, 10L)).thenReturn(null);
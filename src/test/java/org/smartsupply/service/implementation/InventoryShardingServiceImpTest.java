@@ -0,0 +1,155 @@
+package org.smartsupply.service.implementation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.smartsupply.exception.BusinessException;
+import org.smartsupply.model.entity.Inventory;
+import org.smartsupply.model.entity.InventoryBucket;
+import org.smartsupply.model.entity.Product;
+import org.smartsupply.model.entity.Warehouse;
+import org.smartsupply.repository.InventoryBucketRepository;
+import org.smartsupply.repository.InventoryRepository;
+import org.smartsupply.repository.ReservationRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class InventoryShardingServiceImpTest {
+
+    @Mock
+    private InventoryRepository inventoryRepository;
+    @Mock
+    private InventoryBucketRepository bucketRepository;
+    @Mock
+    private ReservationRepository reservationRepository;
+
+    private InventoryShardingServiceImp service;
+    private Inventory inv;
+
+    @BeforeEach
+    void setup() {
+        service = new InventoryShardingServiceImp(inventoryRepository, bucketRepository, reservationRepository, true, 0.5);
+        inv = Inventory.builder().id(5L).product(Product.builder().id(1L).build()).warehouse(Warehouse.builder().id(10L).build())
+                .qtyOnHand(100).qtyReserved(20).build();
+        lenient().when(inventoryRepository.findAllWithLockByIdIn(List.of(5L))).thenReturn(List.of(inv));
+    }
+
+    @Test
+    void shard_escrowsHalfOfFreeStockEvenlyAcrossBuckets() {
+        int escrow = service.shard(5L, 3);
+
+        assertEquals(40, escrow);
+        assertEquals(60, inv.getQtyReserved());
+        ArgumentCaptor<List<InventoryBucket>> captor = ArgumentCaptor.forClass(List.class);
+        verify(bucketRepository).saveAll(captor.capture());
+        assertEquals(List.of(14, 13, 13), captor.getValue().stream().map(InventoryBucket::getQtyAllotted).toList());
+        assertTrue(service.isSharded(1L, 10L));
+    }
+
+    @Test
+    void shard_alreadySharded_throws() {
+        when(bucketRepository.existsByInventoryId(5L)).thenReturn(true);
+
+        assertThrows(BusinessException.class, () -> service.shard(5L, 4));
+    }
+
+    @Test
+    void rebalance_evensOutBucketsAndKeepsEscrowInvariant() {
+        // parent : 100 en stock, 20 réservés directs + 12 + 8 alloués aux buckets
+        inv.setQtyReserved(40);
+        InventoryBucket drained = InventoryBucket.builder().id(1L).bucketIndex(0).qtyAllotted(12).qtyReserved(12).build();
+        InventoryBucket full = InventoryBucket.builder().id(2L).bucketIndex(1).qtyAllotted(8).qtyReserved(0).build();
+        when(bucketRepository.findAllWithLockByInventoryId(5L)).thenReturn(new ArrayList<>(List.of(drained, full)));
+
+        int escrow = service.rebalance(5L);
+
+        // libre total = 60 (parent) + 8 (buckets) ; la moitié repart dans les buckets
+        assertEquals(34, escrow);
+        assertEquals(12 + 17, drained.getQtyAllotted());
+        assertEquals(17, full.getQtyAllotted());
+        int allotted = drained.getQtyAllotted() + full.getQtyAllotted();
+        assertEquals(20 + allotted, inv.getQtyReserved());
+    }
+
+    @Test
+    void reserve_scansOtherBucketsWhenFirstChoiceIsShort() {
+        InventoryBucket empty = InventoryBucket.builder().id(1L).bucketIndex(0).qtyAllotted(5).qtyReserved(5).build();
+        InventoryBucket stocked = InventoryBucket.builder().id(2L).bucketIndex(1).qtyAllotted(5).qtyReserved(0).build();
+        when(bucketRepository.findByProductIdAndWarehouseId(1L, 10L)).thenReturn(List.of(empty, stocked));
+        when(bucketRepository.reserveIfFree(2L, 3)).thenReturn(1);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(Optional.of(stocked), service.reserve(1L, 10L, 3));
+        }
+        verify(bucketRepository, never()).reserveIfFree(eq(1L), anyInt());
+    }
+
+    @Test
+    void reserve_lostRaceOnEveryBucket_returnsEmpty() {
+        InventoryBucket b = InventoryBucket.builder().id(1L).bucketIndex(0).qtyAllotted(5).qtyReserved(0).build();
+        when(bucketRepository.findByProductIdAndWarehouseId(1L, 10L)).thenReturn(List.of(b));
+        when(bucketRepository.reserveIfFree(1L, 3)).thenReturn(0);
+
+        assertTrue(service.reserve(1L, 10L, 3).isEmpty());
+    }
+
+    @Test
+    void unshard_returnsOnlyFreeEscrowAndDetachesReservations() {
+        inv.setQtyReserved(40);
+        InventoryBucket b1 = InventoryBucket.builder().id(1L).bucketIndex(0).qtyAllotted(12).qtyReserved(4).build();
+        InventoryBucket b2 = InventoryBucket.builder().id(2L).bucketIndex(1).qtyAllotted(8).qtyReserved(0).build();
+        when(bucketRepository.findAllWithLockByInventoryId(5L)).thenReturn(List.of(b1, b2));
+
+        service.unshard(5L);
+
+        assertEquals(24, inv.getQtyReserved());
+        verify(reservationRepository).detachBuckets(List.of(1L, 2L));
+        verify(bucketRepository).deleteAll(List.of(b1, b2));
+        assertFalse(service.isSharded(1L, 10L));
+    }
+
+    @Test
+    void reclaim_movesOnlyTheMissingFreeUnitsBackToTheRow() {
+        service.shard(5L, 2);
+        // parent : 100 en stock, 60 réservés dont 40 alloués aux buckets, donc 40 libres sur la ligne
+        InventoryBucket b1 = InventoryBucket.builder().id(1L).inventory(inv).bucketIndex(0).qtyAllotted(20).qtyReserved(15).build();
+        InventoryBucket b2 = InventoryBucket.builder().id(2L).inventory(inv).bucketIndex(1).qtyAllotted(20).qtyReserved(0).build();
+        when(bucketRepository.findByProductIdAndWarehouseId(1L, 10L)).thenReturn(List.of(b1, b2));
+        when(inventoryRepository.findRowFreeById(5L)).thenReturn(40);
+        when(bucketRepository.shrinkIfFree(1L, 5)).thenReturn(1);
+        when(bucketRepository.shrinkIfFree(2L, 3)).thenReturn(1);
+
+        assertEquals(8, service.reclaim(1L, 10L, 48));
+
+        assertEquals(52, inv.getQtyReserved());
+    }
+
+    @Test
+    void reclaim_notSharded_doesNothing() {
+        assertEquals(0, service.reclaim(1L, 10L, 5));
+
+        verifyNoInteractions(bucketRepository);
+    }
+
+    @Test
+    void disabled_isNeverSharded() {
+        InventoryShardingServiceImp disabled = new InventoryShardingServiceImp(inventoryRepository, bucketRepository, reservationRepository, false, 0.5);
+        disabled.shard(5L, 2);
+
+        assertFalse(disabled.isSharded(1L, 10L));
+        verify(bucketRepository, never()).findByProductIdAndWarehouseId(anyLong(), anyLong());
+    }
+}
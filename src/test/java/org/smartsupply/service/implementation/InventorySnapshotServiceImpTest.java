@@ -0,0 +1,111 @@
+package org.smartsupply.service.implementation;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.smartsupply.dto.response.InventoryAsOfDto;
+import org.smartsupply.model.entity.*;
+import org.smartsupply.model.enums.MovementType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import(InventorySnapshotServiceImp.class)
+class InventorySnapshotServiceImpTest {
+
+    @Autowired
+    private InventorySnapshotServiceImp service;
+    @Autowired
+    private EntityManager em;
+
+    private Warehouse warehouse;
+    private Inventory inventory;
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setup() {
+        now = LocalDateTime.now();
+        warehouse = Warehouse.builder().code("WH1").name("Warehouse 1").active(true).build();
+        em.persist(warehouse);
+        // état courant cohérent avec le journal ci-dessous : 10 - 3 + 2 = 9, 4 réservés
+        inventory = inventory("SKU-1", 9, 4);
+        movement(inventory, MovementType.INBOUND, 10, now.minusDays(3));
+        movement(inventory, MovementType.OUTBOUND, 3, now.minusDays(2));
+        movement(inventory, MovementType.RESERVATION, 4, now.minusDays(2));
+        movement(inventory, MovementType.ADJUSTMENT, 2, now.minusDays(1));
+        em.flush();
+    }
+
+    @Test
+    void stockAsOf_withoutSnapshot_replaysWholeLedger() {
+        List<InventoryAsOfDto> rows = service.stockAsOf(warehouse.getId(), null, now.minusDays(1).minusHours(1));
+
+        assertEquals(1, rows.size());
+        assertEquals(7, rows.get(0).getQtyOnHand());
+        assertNull(rows.get(0).getSnapshotTakenAt());
+    }
+
+    @Test
+    void stockAsOf_startsFromSnapshotAndReplaysOnlyLaterMovements() {
+        assertEquals(1, service.takeSnapshot());
+        movement(inventory, MovementType.OUTBOUND, 5, now.plusHours(1));
+        Inventory created = inventory("SKU-2", 6, 0);
+        movement(created, MovementType.INBOUND, 6, now.plusHours(2));
+        em.flush();
+
+        List<InventoryAsOfDto> rows = service.stockAsOf(warehouse.getId(), null, now.plusHours(3));
+
+        assertEquals(2, rows.size());
+        InventoryAsOfDto first = rows.get(0);
+        assertEquals(inventory.getId(), first.getInventoryId());
+        assertEquals(4, first.getQtyOnHand());
+        assertEquals(4, first.getSnapshotQtyReserved());
+        assertNotNull(first.getSnapshotTakenAt());
+        assertEquals(6, rows.get(1).getQtyOnHand());
+        assertNull(rows.get(1).getSnapshotTakenAt());
+    }
+
+    @Test
+    void takeSnapshot_allRowsShareOneDatabaseTimestamp() {
+        inventory("SKU-2", 3, 0);
+        em.flush();
+
+        assertEquals(2, service.takeSnapshot());
+
+        List<LocalDateTime> takenAts = em.createQuery("select distinct s.takenAt from InventorySnapshot s", LocalDateTime.class)
+                .getResultList();
+        assertEquals(1, takenAts.size());
+        assertFalse(takenAts.get(0).isBefore(now));
+    }
+
+    @Test
+    void stockAsOf_filtersOnProduct() {
+        inventory("SKU-2", 0, 0);
+        em.flush();
+
+        List<InventoryAsOfDto> rows = service.stockAsOf(warehouse.getId(), inventory.getProduct().getId(), now);
+
+        assertEquals(1, rows.size());
+        assertEquals(9, rows.get(0).getQtyOnHand());
+    }
+
+    private Inventory inventory(String sku, int onHand, int reserved) {
+        Product product = Product.builder().sku(sku).name(sku).active(true)
+                .originalPrice(BigDecimal.ONE).profite(BigDecimal.ONE).build();
+        em.persist(product);
+        Inventory inv = Inventory.builder().product(product).warehouse(warehouse).qtyOnHand(onHand).qtyReserved(reserved).build();
+        em.persist(inv);
+        return inv;
+    }
+
+    private void movement(Inventory inv, MovementType type, int qty, LocalDateTime at) {
+        em.persist(InventoryMovement.builder().inventory(inv).type(type).qty(qty).occurredAt(at).reference("REF").build());
+    }
+}
@@ -0,0 +1,169 @@
+package org.smartsupply.service.implementation;
+
+import org.junit.jupiter.api.Test;
+import org.smartsupply.annotation.InventoryKeyLock;
+import org.smartsupply.aspect.InventoryKeyLockAspect;
+import org.smartsupply.dto.request.InventoryRequestDto;
+import org.smartsupply.exception.InventoryBusyException;
+import org.smartsupply.service.InventoryShardingService;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class InventoryStripedLockTest {
+
+    @Test
+    void sameKey_secondCallerWaitsForFirst() throws Exception {
+        InventoryStripedLock lock = new InventoryStripedLock(true, 16, 5000);
+        int[] held = lock.lock(1L, 10L);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            Future<?> waiter = executor.submit(() -> {
+                started.countDown();
+                lock.unlock(lock.lock(1L, 10L));
+            });
+            started.await();
+            Thread.sleep(50);
+            assertFalse(waiter.isDone());
+
+            lock.unlock(held);
+            waiter.get(2, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(2, lock.stats().getAcquisitions());
+        assertEquals(1, lock.stats().getContended());
+        assertTrue(lock.stats().getMaxWaitMs() > 0);
+    }
+
+    @Test
+    void timeout_throwsInventoryBusyAndReleasesPartialStripes() throws Exception {
+        InventoryStripedLock lock = new InventoryStripedLock(true, 1024, 50);
+        int[] held = lock.lock(1L, 20L);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> attempt = executor.submit(() -> lock.lock(1L, 10L, 20L));
+            Exception ex = assertThrows(Exception.class, () -> attempt.get(2, TimeUnit.SECONDS));
+            assertInstanceOf(InventoryBusyException.class, ex.getCause());
+
+            lock.unlock(held);
+            // la stripe de (1, 10) prise avant l'échec a bien été rendue
+            executor.submit(() -> lock.unlock(lock.lock(1L, 10L))).get(2, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, lock.stats().getTimeouts());
+    }
+
+    @Test
+    void lock_sameStripeTwice_isTakenOnce() {
+        InventoryStripedLock lock = new InventoryStripedLock(true, 16, 5000);
+
+        int[] held = lock.lock(1L, 10L, 10L);
+
+        assertEquals(1, held.length);
+        lock.unlock(held);
+    }
+
+    @Test
+    void constructor_rejectsNonPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new InventoryStripedLock(true, 100, 5000));
+    }
+
+    @Test
+    void aspect_holdsStripesOfAllParameterKeysDuringCall() {
+        InventoryStripedLock lock = new InventoryStripedLock(true, 1024, 5000);
+        AspectJProxyFactory factory = new AspectJProxyFactory(new Target(lock));
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new InventoryKeyLockAspect(lock, mock(InventoryShardingService.class)));
+        Target proxy = factory.getProxy();
+
+        proxy.transfer(1L, 10L, 20L);
+
+        assertTrue(proxy.wasHeldDuringCall());
+        assertFalse(lock.isLocked(1L, 10L));
+        assertFalse(lock.isLocked(1L, 20L));
+        assertEquals(1, lock.stats().getAcquisitions());
+    }
+
+    @Test
+    void aspect_batchLines_holdsOneStripePerProduct() {
+        InventoryStripedLock lock = new InventoryStripedLock(true, 1024, 5000);
+        AspectJProxyFactory factory = new AspectJProxyFactory(new Target(lock));
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new InventoryKeyLockAspect(lock, mock(InventoryShardingService.class)));
+        Target proxy = factory.getProxy();
+
+        proxy.inboundAll(10L, List.of(
+                InventoryRequestDto.builder().productId(1L).qty(3).build(),
+                InventoryRequestDto.builder().productId(2L).qty(4).build()));
+
+        assertTrue(proxy.wasHeldDuringCall());
+        assertFalse(lock.isLocked(1L, 10L));
+        assertFalse(lock.isLocked(2L, 10L));
+    }
+
+    @Test
+    void aspect_insideOuterTransaction_releasesStripesWhenTheCallReturns() throws Exception {
+        InventoryStripedLock lock = new InventoryStripedLock(true, 1024, 5000);
+        AspectJProxyFactory factory = new AspectJProxyFactory(new Target(lock));
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new InventoryKeyLockAspect(lock, mock(InventoryShardingService.class)));
+        Target proxy = factory.getProxy();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            proxy.transfer(1L, 10L, 20L);
+
+            assertTrue(proxy.wasHeldDuringCall());
+            assertFalse(lock.isLocked(1L, 10L));
+            assertFalse(lock.isLocked(1L, 20L));
+            // un autre thread peut prendre les mêmes stripes avant la fin de la transaction englobante
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                int[] other = executor.submit(() -> lock.lock(1L, 20L, 10L)).get(1, TimeUnit.SECONDS);
+                executor.submit(() -> lock.unlock(other)).get(1, TimeUnit.SECONDS);
+            } finally {
+                executor.shutdownNow();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    static class Target {
+        private final InventoryStripedLock lock;
+        private boolean heldDuringCall;
+
+        Target(InventoryStripedLock lock) {
+            this.lock = lock;
+        }
+
+        @InventoryKeyLock(warehouses = {1, 2})
+        public void transfer(Long productId, Long sourceWarehouseId, Long targetWarehouseId) {
+            heldDuringCall = lock.isLocked(productId, sourceWarehouseId) && lock.isLocked(productId, targetWarehouseId);
+        }
+
+        @InventoryKeyLock(product = 1, warehouses = {0})
+        public void inboundAll(Long warehouseId, List<InventoryRequestDto> lines) {
+            heldDuringCall = lines.stream().allMatch(l -> lock.isLocked(l.getProductId(), warehouseId));
+        }
+
+        public boolean wasHeldDuringCall() {
+            return heldDuringCall;
+        }
+    }
+}
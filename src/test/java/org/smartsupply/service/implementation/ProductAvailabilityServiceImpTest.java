@@ -0,0 +1,167 @@
+package org.smartsupply.service.implementation;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.smartsupply.dto.response.AvailableToPromiseDto;
+import org.smartsupply.exception.BusinessException;
+import org.smartsupply.model.entity.*;
+import org.smartsupply.repository.ProductAvailabilityRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import(ProductAvailabilityServiceImp.class)
+class ProductAvailabilityServiceImpTest {
+
+    @Autowired
+    private ProductAvailabilityServiceImp service;
+    @Autowired
+    private ProductAvailabilityRepository availabilityRepository;
+    @Autowired
+    private EntityManager em;
+
+    private Warehouse north;
+    private Warehouse south;
+
+    @BeforeEach
+    void setup() {
+        north = Warehouse.builder().code("WH-N").name("North").active(true).build();
+        south = Warehouse.builder().code("WH-S").name("South").active(true).build();
+        em.persist(north);
+        em.persist(south);
+    }
+
+    @Test
+    void record_isDeferredUntilCommit_andCreatesRowFromInventories() {
+        Product product = product("SKU-1");
+        inventory(product, north, 10, 4);
+        inventory(product, south, 5, 0);
+        em.flush();
+
+        service.record(product.getId(), 5, 0);
+        assertNull(em.find(ProductAvailability.class, product.getId()));
+
+        beforeCommit();
+        ProductAvailability row = em.find(ProductAvailability.class, product.getId());
+        assertEquals(15, row.getQtyOnHand());
+        assertEquals(4, row.getQtyReserved());
+        assertEquals(11, row.getAvailable());
+    }
+
+    @Test
+    void record_accumulatesDeltasOnExistingRow() {
+        Product product = product("SKU-1");
+        em.persist(ProductAvailability.builder().productId(product.getId())
+                .qtyOnHand(10).qtyReserved(4).available(6).updatedAt(LocalDateTime.now()).build());
+        em.flush();
+
+        service.record(product.getId(), 5, 0);
+        service.record(product.getId(), 0, 2);
+        service.record(product.getId(), -1, -1);
+        beforeCommit();
+
+        em.clear();
+        ProductAvailability row = em.find(ProductAvailability.class, product.getId());
+        assertEquals(14, row.getQtyOnHand());
+        assertEquals(5, row.getQtyReserved());
+        assertEquals(9, row.getAvailable());
+    }
+
+    @Test
+    void rebuildAll_excludesFreeBucketStockFromReserved() {
+        Product product = product("SKU-1");
+        Inventory inv = inventory(product, north, 20, 12);
+        // 10 unités en escrow dont 3 réservées : seules 5 (hors buckets) + 3 sont réellement réservées
+        em.persist(InventoryBucket.builder().inventory(inv).bucketIndex(0).qtyAllotted(10).qtyReserved(3).build());
+        em.flush();
+
+        assertEquals(1, service.rebuildAll());
+
+        em.flush();
+        em.clear();
+        ProductAvailability row = em.find(ProductAvailability.class, product.getId());
+        assertEquals(20, row.getQtyOnHand());
+        assertEquals(5, row.getQtyReserved());
+        assertEquals(15, row.getAvailable());
+    }
+
+    @Test
+    void availableToPromise_readsRollupRow() {
+        Product product = product("SKU-1");
+        em.persist(ProductAvailability.builder().productId(product.getId())
+                .qtyOnHand(10).qtyReserved(4).available(6).updatedAt(LocalDateTime.now()).build());
+        em.flush();
+
+        AvailableToPromiseDto ok = service.availableToPromise(product.getId(), 6);
+        AvailableToPromiseDto ko = service.availableToPromise(product.getId(), 7);
+
+        assertTrue(ok.isPromisable());
+        assertFalse(ko.isPromisable());
+        assertEquals(6, ko.getAvailable());
+    }
+
+    @Test
+    void availableToPromise_missingRow_computesFromInventories() {
+        Product product = product("SKU-1");
+        inventory(product, north, 10, 4);
+        inventory(product, south, 5, 0);
+        em.flush();
+
+        AvailableToPromiseDto dto = service.availableToPromise(product.getId(), 11);
+
+        assertEquals(11, dto.getAvailable());
+        assertTrue(dto.isPromisable());
+    }
+
+    @Test
+    void insertIfAbsent_existingRow_leavesItUntouched() {
+        Product product = product("SKU-1");
+        em.persist(ProductAvailability.builder().productId(product.getId())
+                .qtyOnHand(10).qtyReserved(4).available(6).updatedAt(LocalDateTime.now()).build());
+        em.flush();
+
+        assertEquals(0, availabilityRepository.insertIfAbsent(product.getId(), 99, 0, LocalDateTime.now()));
+        em.clear();
+        assertEquals(6, em.find(ProductAvailability.class, product.getId()).getAvailable());
+    }
+
+    @Test
+    void availableToPromise_unknownProduct_isNotPromisable() {
+        AvailableToPromiseDto dto = service.availableToPromise(999L, 1);
+
+        assertEquals(0, dto.getAvailable());
+        assertFalse(dto.isPromisable());
+    }
+
+    @Test
+    void availableToPromise_invalidQty_throws() {
+        assertThrows(BusinessException.class, () -> service.availableToPromise(1L, 0));
+    }
+
+    // la transaction de test est annulée : on déclenche nous-mêmes la phase beforeCommit
+    private void beforeCommit() {
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.beforeCommit(false));
+    }
+
+    private Product product(String sku) {
+        Product product = Product.builder().sku(sku).name(sku).active(true)
+                .originalPrice(BigDecimal.ONE).profite(BigDecimal.ONE).build();
+        em.persist(product);
+        return product;
+    }
+
+    private Inventory inventory(Product product, Warehouse warehouse, int onHand, int reserved) {
+        Inventory inv = Inventory.builder().product(product).warehouse(warehouse).qtyOnHand(onHand).qtyReserved(reserved).build();
+        em.persist(inv);
+        return inv;
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.smartsupply.dto.request.InventoryRequestDto;
 import org.smartsupply.dto.request.PurchaseOrderRequestDto;
 import org.smartsupply.dto.response.PurchaseOrderResponseDto;
 import org.smartsupply.exception.BusinessException;
@@ -126,7 +127,7 @@ class PurchaseOrderServiceImpTest {
         service.markPurchaseOrderAsReceived(401L, 2L);
 
         verify(inventoryService, never()).ensureInventoryExists(anyLong(), anyLong());
-        verify(inventoryService, never()).inbound(anyLong(), anyLong(), anyInt(), anyString());
+        verify(inventoryService, never()).inboundAll(anyLong(), anyList());
         // status must remain RECEIVED
         assertEquals(POStatus.RECEIVED, po.getStatus());
     }
@@ -150,14 +151,18 @@ class PurchaseOrderServiceImpTest {
         // inventoryService methods should be called (we don't assert the exact reference string containing null,
         // but we ensure inbound() is called with expected values)
         doNothing().when(inventoryService).ensureInventoryExists(300L, 9L);
-        doNothing().when(inventoryService).inbound(eq(300L), eq(9L), eq(2), anyString());
 
         when(purchaseOrderRepository.save(any(PurchaseOrder.class))).thenAnswer(inv -> inv.getArgument(0));
 
         service.markPurchaseOrderAsReceived(420L, 9L);
 
         verify(inventoryService).ensureInventoryExists(300L, 9L);
-        verify(inventoryService).inbound(eq(300L), eq(9L), eq(2), anyString());
+        ArgumentCaptor<List<InventoryRequestDto>> captor = ArgumentCaptor.forClass(List.class);
+        verify(inventoryService).inboundAll(eq(9L), captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertEquals(300L, captor.getValue().get(0).getProductId());
+        assertEquals(2, captor.getValue().get(0).getQty());
+        assertEquals("PO:420:LINE:null", captor.getValue().get(0).getReference());
         assertEquals(POStatus.RECEIVED, po.getStatus());
     }
 
@@ -325,12 +330,13 @@ class PurchaseOrderServiceImpTest {
         when(purchaseOrderRepository.save(any())).thenReturn(po);
 
         doNothing().when(inventoryService).ensureInventoryExists(anyLong(), anyLong());
-        doNothing().when(inventoryService).inbound(anyLong(), anyLong(), anyInt(), anyString());
 
         service.markPurchaseOrderAsReceived(700L, 50L);
 
         verify(inventoryService, times(2)).ensureInventoryExists(anyLong(), eq(50L));
-        verify(inventoryService, times(2)).inbound(anyLong(), eq(50L), anyInt(), anyString());
+        ArgumentCaptor<List<InventoryRequestDto>> captor = ArgumentCaptor.forClass(List.class);
+        verify(inventoryService, times(1)).inboundAll(eq(50L), captor.capture());
+        assertEquals(2, captor.getValue().size());
 
         assertEquals(POStatus.RECEIVED, po.getStatus());
     }
@@ -0,0 +1,133 @@
+package org.smartsupply.service.implementation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.smartsupply.dto.response.InventoryDeltaDto;
+import org.smartsupply.dto.response.InventoryDriftDto;
+import org.smartsupply.dto.response.ReconciliationReportDto;
+import org.smartsupply.model.entity.Inventory;
+import org.smartsupply.model.entity.InventoryMovement;
+import org.smartsupply.model.enums.MovementType;
+import org.smartsupply.repository.InventoryMovementRepository;
+import org.smartsupply.repository.InventoryRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReconciliationServiceImpTest {
+
+    @Mock
+    private InventoryRepository inventoryRepository;
+    @Mock
+    private InventoryMovementRepository movementRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ReconciliationServiceImp service;
+
+    // inventoryId -> {qtyOnHand, solde du journal}
+    private final Map<Long, int[]> state = new TreeMap<>();
+
+    @BeforeEach
+    void setup() {
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        service = new ReconciliationServiceImp(inventoryRepository, movementRepository, transactionManager, 3, 10);
+
+        for (long id = 1; id <= 25; id++) {
+            state.put(id, new int[]{10, 10});
+        }
+        state.put(7L, new int[]{10, 13});
+        state.put(21L, new int[]{8, 5});
+
+        lenient().when(inventoryRepository.findMinId()).thenReturn(Optional.of(1L));
+        lenient().when(inventoryRepository.findMaxId()).thenReturn(Optional.of(25L));
+        lenient().when(inventoryRepository.findBalancesByIdBetween(anyLong(), anyLong())).thenAnswer(i -> {
+            long from = i.getArgument(0), to = i.getArgument(1);
+            List<InventoryDriftDto> rows = new ArrayList<>();
+            state.forEach((id, v) -> {
+                if (id >= from && id <= to) rows.add(new InventoryDriftDto(id, 100 + id, 1L, v[0]));
+            });
+            return rows;
+        });
+        lenient().when(movementRepository.sumOnHandByInventoryIdBetween(anyLong(), anyLong())).thenAnswer(i -> {
+            long from = i.getArgument(0), to = i.getArgument(1);
+            List<InventoryDeltaDto> rows = new ArrayList<>();
+            state.forEach((id, v) -> {
+                if (id >= from && id <= to) rows.add(new InventoryDeltaDto(id, (long) v[1]));
+            });
+            return rows;
+        });
+    }
+
+    @Test
+    void reconcile_scansAllRangesAndReportsDrift() {
+        ReconciliationReportDto report = service.reconcile(false);
+
+        assertEquals(4, report.getRanges());
+        assertEquals(25, report.getInventoriesScanned());
+        assertEquals(2, report.getDriftCount());
+        assertEquals(List.of(7L, 21L), report.getDrifts().stream().map(InventoryDriftDto::getInventoryId).toList());
+        assertEquals(-3, report.getDrifts().get(0).getDrift());
+        assertEquals(3, report.getDrifts().get(1).getDrift());
+        assertEquals(0, report.getCorrectedCount());
+        verify(movementRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void reconcile_withCorrections_writesSignedCorrectiveMovements() {
+        Inventory seven = Inventory.builder().id(7L).qtyOnHand(10).qtyReserved(0).build();
+        Inventory twentyOne = Inventory.builder().id(21L).qtyOnHand(8).qtyReserved(0).build();
+        when(inventoryRepository.findAllWithLockByIdIn(any())).thenReturn(List.of(seven, twentyOne));
+        when(movementRepository.sumOnHandByInventoryIdIn(any()))
+                .thenReturn(List.of(new InventoryDeltaDto(7L, 13L), new InventoryDeltaDto(21L, 5L)));
+
+        ReconciliationReportDto report = service.reconcile(true);
+
+        assertEquals(2, report.getCorrectedCount());
+        assertTrue(report.getDrifts().stream().allMatch(InventoryDriftDto::isCorrected));
+
+        ArgumentCaptor<List<InventoryMovement>> captor = ArgumentCaptor.forClass(List.class);
+        verify(movementRepository).saveAll(captor.capture());
+        List<InventoryMovement> corrections = captor.getValue();
+        assertEquals(MovementType.OUTBOUND, corrections.get(0).getType());
+        assertEquals(3, corrections.get(0).getQty());
+        assertEquals(MovementType.ADJUSTMENT, corrections.get(1).getType());
+        assertEquals(3, corrections.get(1).getQty());
+        assertEquals(ReconciliationServiceImp.CORRECTION_REFERENCE, corrections.get(1).getReference());
+    }
+
+    @Test
+    void reconcile_withCorrections_skipsDriftResolvedBeforeLock() {
+        Inventory seven = Inventory.builder().id(7L).qtyOnHand(13).qtyReserved(0).build();
+        Inventory twentyOne = Inventory.builder().id(21L).qtyOnHand(8).qtyReserved(0).build();
+        when(inventoryRepository.findAllWithLockByIdIn(any())).thenReturn(List.of(seven, twentyOne));
+        when(movementRepository.sumOnHandByInventoryIdIn(any()))
+                .thenReturn(List.of(new InventoryDeltaDto(7L, 13L), new InventoryDeltaDto(21L, 5L)));
+
+        ReconciliationReportDto report = service.reconcile(true);
+
+        assertEquals(1, report.getCorrectedCount());
+        assertFalse(report.getDrifts().get(0).isCorrected());
+    }
+
+    @Test
+    void reconcile_emptyTable_returnsEmptyReport() {
+        when(inventoryRepository.findMinId()).thenReturn(Optional.empty());
+
+        ReconciliationReportDto report = service.reconcile(true);
+
+        assertEquals(0, report.getRanges());
+        assertEquals(0, report.getDriftCount());
+        verify(inventoryRepository, never()).findBalancesByIdBetween(anyLong(), anyLong());
+    }
+}
@@ -0,0 +1,44 @@
+package org.smartsupply.service.implementation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.smartsupply.model.entity.Reservation;
+import org.smartsupply.model.enums.ReservationStatus;
+import org.smartsupply.repository.ReservationRepository;
+import org.smartsupply.service.InventoryService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationExpirySweeperTest {
+
+    @Mock
+    private ReservationRepository reservationRepository;
+    @Mock
+    private InventoryService inventoryService;
+
+    @Test
+    void sweep_reschedulesDueTokenThatWasNotReleased() {
+        ReservationExpiryWheel wheel = new ReservationExpiryWheel(1000, 8, System.currentTimeMillis() - 5_000);
+        wheel.schedule("released", System.currentTimeMillis() - 2_000);
+        wheel.schedule("extended", System.currentTimeMillis() - 2_000);
+        ReservationExpirySweeper sweeper = new ReservationExpirySweeper(wheel, reservationRepository, inventoryService);
+        when(inventoryService.releaseExpired(anyCollection())).thenReturn(List.of("released"));
+        // prolongée depuis sa planification : toujours active, échéance dans le futur
+        Reservation extended = Reservation.builder().id("extended").status(ReservationStatus.ACTIVE)
+                .expiresAt(LocalDateTime.now().plusMinutes(5)).build();
+        when(reservationRepository.findByIdInAndStatus(Set.of("extended"), ReservationStatus.ACTIVE)).thenReturn(List.of(extended));
+
+        sweeper.sweep();
+
+        assertEquals(1, wheel.size());
+        assertTrue(wheel.advance(System.currentTimeMillis()).isEmpty());
+    }
+}
@@ -0,0 +1,73 @@
+package org.smartsupply.service.implementation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReservationExpiryWheelTest {
+
+    @Test
+    void advance_returnsOnlyTokensPastTheirDeadline() {
+        ReservationExpiryWheel wheel = new ReservationExpiryWheel(1000, 8, 0);
+        wheel.schedule("a", 2_000);
+        wheel.schedule("b", 5_000);
+
+        assertTrue(wheel.advance(1_000).isEmpty());
+        assertEquals(List.of("a"), wheel.advance(2_500));
+        assertEquals(List.of("b"), wheel.advance(5_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void advance_deadlineMidTick_neverFiresBeforeExpiry() {
+        ReservationExpiryWheel wheel = new ReservationExpiryWheel(1000, 8, 0);
+        wheel.schedule("a", 2_500);
+
+        assertTrue(wheel.advance(2_000).isEmpty());
+        assertTrue(wheel.advance(2_999).isEmpty());
+        assertEquals(List.of("a"), wheel.advance(3_000));
+    }
+
+    @Test
+    void advance_keepsTokensScheduledForALaterRevolution() {
+        ReservationExpiryWheel wheel = new ReservationExpiryWheel(1000, 4, 0);
+        // tick 9 lands in slot 1, which is also visited at tick 1 and tick 5
+        wheel.schedule("late", 9_000);
+
+        assertTrue(wheel.advance(1_000).isEmpty());
+        assertTrue(wheel.advance(5_000).isEmpty());
+        assertEquals(List.of("late"), wheel.advance(9_000));
+    }
+
+    @Test
+    void advance_afterALongPause_visitsEverySlotOnce() {
+        ReservationExpiryWheel wheel = new ReservationExpiryWheel(1000, 4, 0);
+        wheel.schedule("a", 1_000);
+        wheel.schedule("b", 3_000);
+
+        List<String> due = wheel.advance(50_000);
+
+        assertEquals(2, due.size());
+        assertTrue(due.containsAll(List.of("a", "b")));
+    }
+
+    @Test
+    void cancel_removesTokenFromItsSlot() {
+        ReservationExpiryWheel wheel = new ReservationExpiryWheel(1000, 8, 0);
+        wheel.schedule("a", 2_000);
+        wheel.cancel("a");
+
+        assertTrue(wheel.advance(3_000).isEmpty());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void schedule_pastDeadline_firesOnNextTick() {
+        ReservationExpiryWheel wheel = new ReservationExpiryWheel(1000, 8, 10_000);
+        wheel.schedule("old", 1_000);
+
+        assertEquals(List.of("old"), wheel.advance(11_000));
+    }
+}
@@ -0,0 +1,166 @@
+package org.smartsupply.service.implementation;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.smartsupply.dto.response.ReservationJobDto;
+import org.smartsupply.dto.response.SalesOrderLineResponseDto;
+import org.smartsupply.dto.response.SalesOrderResponseDto;
+import org.smartsupply.exception.BusinessException;
+import org.smartsupply.exception.ResourceNotFoundException;
+import org.smartsupply.model.entity.SalesOrder;
+import org.smartsupply.model.entity.SalesOrderLine;
+import org.smartsupply.model.entity.Warehouse;
+import org.smartsupply.model.enums.JobState;
+import org.smartsupply.model.enums.OrderStatus;
+import org.smartsupply.repository.SalesOrderRepository;
+import org.smartsupply.service.SalesOrderService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationJobServiceImpTest {
+
+    @Mock
+    private SalesOrderRepository salesOrderRepository;
+    @Mock
+    private SalesOrderService salesOrderService;
+
+    private ReservationJobServiceImp service;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void submit_runsReservationInBackground_andReportsWarnings() throws Exception {
+        service = new ReservationJobServiceImp(salesOrderRepository, salesOrderService, 2, 1, 10, 60);
+        stubOrder(1L, 10L);
+        when(salesOrderService.updateStatus(1L, "RESERVED")).thenReturn(SalesOrderResponseDto.builder()
+                .status("CREATED")
+                .lines(List.of(line(5, 5), line(3, 0)))
+                .warnings(List.of("Stock insuffisant"))
+                .build());
+
+        ReservationJobDto submitted = service.submit(1L);
+        ReservationJobDto done = awaitFinished(submitted.getJobId());
+
+        assertEquals(JobState.SUCCEEDED, done.getState());
+        assertEquals(2, done.getLinesTotal());
+        assertEquals(1, done.getLinesReserved());
+        assertEquals("CREATED", done.getOrderStatus());
+        assertEquals(List.of("Stock insuffisant"), done.getWarnings());
+        assertNotNull(done.getStartedAt());
+    }
+
+    @Test
+    void jobsOfSameWarehouse_areBoundedWhileOtherWarehousesProceed() throws Exception {
+        service = new ReservationJobServiceImp(salesOrderRepository, salesOrderService, 4, 1, 10, 60);
+        stubOrder(1L, 10L);
+        stubOrder(2L, 10L);
+        stubOrder(3L, 20L);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        when(salesOrderService.updateStatus(eq(1L), eq("RESERVED"))).thenAnswer(inv -> {
+            firstStarted.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return SalesOrderResponseDto.builder().status("RESERVED").build();
+        });
+        when(salesOrderService.updateStatus(eq(2L), eq("RESERVED"))).thenReturn(SalesOrderResponseDto.builder().status("RESERVED").build());
+        when(salesOrderService.updateStatus(eq(3L), eq("RESERVED"))).thenReturn(SalesOrderResponseDto.builder().status("RESERVED").build());
+
+        String first = service.submit(1L).getJobId();
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+        ReservationJobDto second = service.submit(2L);
+        String other = service.submit(3L).getJobId();
+
+        assertEquals(JobState.QUEUED, second.getState());
+        assertEquals(0, second.getQueuePosition());
+        assertEquals(JobState.SUCCEEDED, awaitFinished(other).getState());
+        assertEquals(JobState.QUEUED, service.get(second.getJobId()).getState());
+
+        release.countDown();
+        assertEquals(JobState.SUCCEEDED, awaitFinished(first).getState());
+        assertEquals(JobState.SUCCEEDED, awaitFinished(second.getJobId()).getState());
+    }
+
+    @Test
+    void submit_twiceForSameOrder_returnsActiveJob() throws Exception {
+        service = new ReservationJobServiceImp(salesOrderRepository, salesOrderService, 1, 1, 10, 60);
+        stubOrder(1L, 10L);
+        CountDownLatch release = new CountDownLatch(1);
+        when(salesOrderService.updateStatus(1L, "RESERVED")).thenAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            return SalesOrderResponseDto.builder().status("RESERVED").build();
+        });
+
+        String first = service.submit(1L).getJobId();
+        assertEquals(first, service.submit(1L).getJobId());
+
+        release.countDown();
+        awaitFinished(first);
+        verify(salesOrderService, times(1)).updateStatus(1L, "RESERVED");
+    }
+
+    @Test
+    void failingReservation_isReportedAsFailed() throws Exception {
+        service = new ReservationJobServiceImp(salesOrderRepository, salesOrderService, 1, 1, 10, 60);
+        stubOrder(1L, 10L);
+        when(salesOrderService.updateStatus(1L, "RESERVED")).thenThrow(new BusinessException("boom"));
+
+        ReservationJobDto done = awaitFinished(service.submit(1L).getJobId());
+
+        assertEquals(JobState.FAILED, done.getState());
+        assertEquals("boom", done.getError());
+    }
+
+    @Test
+    void submit_orderNotCreated_throws() {
+        service = new ReservationJobServiceImp(salesOrderRepository, salesOrderService, 1, 1, 10, 60);
+        SalesOrder order = stubOrder(1L, 10L);
+        order.setStatus(OrderStatus.SHIPPED);
+
+        assertThrows(BusinessException.class, () -> service.submit(1L));
+    }
+
+    @Test
+    void get_unknownJob_throws() {
+        service = new ReservationJobServiceImp(salesOrderRepository, salesOrderService, 1, 1, 10, 60);
+
+        assertThrows(ResourceNotFoundException.class, () -> service.get("nope"));
+    }
+
+    private ReservationJobDto awaitFinished(String jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        ReservationJobDto job = service.get(jobId);
+        while (job.getFinishedAt() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            job = service.get(jobId);
+        }
+        return job;
+    }
+
+    private SalesOrder stubOrder(Long id, Long warehouseId) {
+        SalesOrder order = SalesOrder.builder().id(id).status(OrderStatus.CREATED)
+                .warehouse(Warehouse.builder().id(warehouseId).build()).lines(new ArrayList<>(List.of(new SalesOrderLine()))).build();
+        when(salesOrderRepository.findById(id)).thenReturn(Optional.of(order));
+        return order;
+    }
+
+    private SalesOrderLineResponseDto line(int ordered, int reserved) {
+        return SalesOrderLineResponseDto.builder().qtyOrdered(ordered).qtyReserved(reserved).build();
+    }
+}
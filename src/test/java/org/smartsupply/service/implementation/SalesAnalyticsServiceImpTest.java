@@ -0,0 +1,269 @@
+package org.smartsupply.service.implementation;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.smartsupply.dto.response.SalesAnalyticsRowDto;
+import org.smartsupply.exception.BusinessException;
+import org.smartsupply.model.entity.*;
+import org.smartsupply.model.enums.OrderStatus;
+import org.smartsupply.model.enums.Role;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// sans transaction de test : le rollup est écrit après le commit, dans sa propre transaction
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(SalesAnalyticsServiceImp.class)
+class SalesAnalyticsServiceImpTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 10);
+
+    @Autowired
+    private SalesAnalyticsServiceImp service;
+    @Autowired
+    private EntityManager em;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate tx;
+    private User client;
+    private Warehouse north;
+    private Warehouse south;
+    private Product apple;
+    private Product pear;
+
+    @BeforeEach
+    void setup() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(s -> {
+            client = User.builder().firstName("Alice").lastName("Test").email("alice@example.com")
+                    .password("password123").role(Role.CLIENT).isActive(true).build();
+            em.persist(client);
+            north = warehouse("WH-N");
+            south = warehouse("WH-S");
+            apple = product("APPLE");
+            pear = product("PEAR");
+        });
+    }
+
+    @AfterEach
+    void cleanup() {
+        tx.executeWithoutResult(s -> {
+            em.createQuery("delete from SalesDailyRollup").executeUpdate();
+            em.createQuery("delete from SalesDailyOrderRollup").executeUpdate();
+            em.createQuery("delete from SalesOrderLine").executeUpdate();
+            em.createQuery("delete from SalesOrder").executeUpdate();
+            em.createQuery("delete from Product").executeUpdate();
+            em.createQuery("delete from Warehouse").executeUpdate();
+            em.createQuery("delete from User").executeUpdate();
+        });
+    }
+
+    @Test
+    void rebuild_aggregatesOneDayByWarehouseProductAndStatus() {
+        // deux lignes du même produit : la commande ne compte qu'une fois
+        order(north, OrderStatus.CREATED, DAY, line(apple, 2, "20"), line(apple, 1, "10"));
+        order(north, OrderStatus.CREATED, DAY, line(apple, 3, "30"), line(pear, 1, "5"));
+        order(south, OrderStatus.SHIPPED, DAY, line(pear, 4, "40"));
+        order(north, OrderStatus.CREATED, DAY.plusDays(1), line(apple, 9, "90"));
+
+        assertEquals(3, service.rebuild(DAY));
+
+        List<SalesAnalyticsRowDto> rows = service.aggregate(DAY, DAY, null, null, null, List.of("WAREHOUSE", "PRODUCT"));
+        SalesAnalyticsRowDto northApple = rows.get(0);
+        assertEquals(north.getId(), northApple.getWarehouseId());
+        assertEquals(apple.getId(), northApple.getProductId());
+        assertNull(northApple.getDay());
+        assertEquals(2, northApple.getOrderCount());
+        assertEquals(6, northApple.getQtyOrdered());
+        assertEquals(0, new BigDecimal("60").compareTo(northApple.getAmount()));
+        assertEquals(3, rows.size());
+    }
+
+    @Test
+    void rebuild_replacesExistingRowsOfTheDay() {
+        order(north, OrderStatus.CREATED, DAY, line(apple, 2, "20"));
+        service.rebuild(DAY);
+        tx.executeWithoutResult(s -> {
+            em.createQuery("update SalesDailyRollup r set r.qtyOrdered = 999").executeUpdate();
+            em.createQuery("update SalesDailyOrderRollup r set r.qtyOrdered = 999").executeUpdate();
+        });
+
+        service.rebuild(DAY);
+
+        assertEquals(2, service.aggregate(DAY, DAY, null, null, null, List.of("DAY")).get(0).getQtyOrdered());
+    }
+
+    @Test
+    void record_afterCommit_addsNewOrderAndMovesItOnStatusChange() {
+        order(north, OrderStatus.CREATED, DAY, line(apple, 2, "20"));
+        service.rebuild(DAY);
+
+        // création : contribution appliquée après le commit de la transaction qui crée la commande
+        SalesOrder created = tx.execute(s -> {
+            SalesOrder order = persistOrder(north, OrderStatus.CREATED, DAY, line(apple, 3, "30"));
+            service.record(order, order.getStatus(), 1);
+            return order;
+        });
+        SalesAnalyticsRowDto apples = service.aggregate(DAY, DAY, null, apple.getId(), "CREATED", List.of("DAY")).get(0);
+        assertEquals(2, apples.getOrderCount());
+        assertEquals(5, apples.getQtyOrdered());
+
+        tx.executeWithoutResult(s -> {
+            SalesOrder order = em.find(SalesOrder.class, created.getId());
+            service.record(order, OrderStatus.CREATED, -1);
+            order.setStatus(OrderStatus.RESERVED);
+            service.record(order, OrderStatus.RESERVED, 1);
+        });
+
+        List<SalesAnalyticsRowDto> byStatus = service.aggregate(DAY, DAY, north.getId(), null, null, List.of("STATUS"));
+        assertEquals(OrderStatus.CREATED, byStatus.get(0).getStatus());
+        assertEquals(1, byStatus.get(0).getOrderCount());
+        assertEquals(2, byStatus.get(0).getQtyOrdered());
+        assertEquals(OrderStatus.RESERVED, byStatus.get(1).getStatus());
+        assertEquals(1, byStatus.get(1).getOrderCount());
+        assertEquals(0, new BigDecimal("30").compareTo(byStatus.get(1).getAmount()));
+    }
+
+    @Test
+    void record_rolledBackTransaction_leavesRollupUntouched() {
+        order(north, OrderStatus.CREATED, DAY, line(apple, 2, "20"));
+        service.rebuild(DAY);
+
+        tx.executeWithoutResult(s -> {
+            SalesOrder order = persistOrder(north, OrderStatus.CREATED, DAY, line(apple, 3, "30"));
+            service.record(order, order.getStatus(), 1);
+            s.setRollbackOnly();
+        });
+
+        assertEquals(2, service.aggregate(DAY, DAY, null, null, null, List.of("DAY")).get(0).getQtyOrdered());
+    }
+
+    @Test
+    void record_firstSalesOfAKey_eachCountedOnce() {
+        // aucune ligne pour la clé : la première contribution crée la ligne, la suivante s'y ajoute
+        for (int qty = 1; qty <= 2; qty++) {
+            int q = qty;
+            tx.executeWithoutResult(s -> {
+                SalesOrder order = persistOrder(north, OrderStatus.CREATED, DAY, line(apple, q, "10"));
+                service.record(order, order.getStatus(), 1);
+            });
+        }
+
+        SalesAnalyticsRowDto row = service.aggregate(DAY, DAY, null, null, null, List.of("DAY")).get(0);
+        assertEquals(2, row.getOrderCount());
+        assertEquals(3, row.getQtyOrdered());
+    }
+
+    @Test
+    void record_failedUpdate_marksTheDayStaleUntilRebuilt() {
+        order(north, OrderStatus.CREATED, DAY, line(apple, 2, "20"));
+        // montant hors de la précision de la colonne : la contribution ne peut pas être écrite
+        SalesOrder order = SalesOrder.builder().client(client).warehouse(north).status(OrderStatus.CREATED)
+                .createdAt(DAY.atTime(9, 0)).build();
+        SalesOrderLine line = line(apple, 1, "1000000000000000");
+        line.setSalesOrder(order);
+        order.getLines().add(line);
+
+        service.record(order, OrderStatus.CREATED, 1);
+
+        assertEquals(Set.of(DAY), service.staleDays());
+        service.rebuild(DAY);
+        assertTrue(service.staleDays().isEmpty());
+        assertEquals(2, service.aggregate(DAY, DAY, null, null, null, List.of("DAY")).get(0).getQtyOrdered());
+    }
+
+    @Test
+    void aggregate_groupsByDayOverRange() {
+        order(north, OrderStatus.CREATED, DAY, line(apple, 1, "10"));
+        order(north, OrderStatus.CREATED, DAY.plusDays(1), line(apple, 2, "20"));
+        order(south, OrderStatus.CREATED, DAY.plusDays(1), line(pear, 3, "30"));
+        service.rebuild(DAY);
+        service.rebuild(DAY.plusDays(1));
+
+        List<SalesAnalyticsRowDto> rows = service.aggregate(DAY, DAY.plusDays(1), null, null, null, null);
+
+        assertEquals(List.of(DAY, DAY.plusDays(1)), rows.stream().map(SalesAnalyticsRowDto::getDay).toList());
+        assertEquals(List.of(1L, 2L), rows.stream().map(SalesAnalyticsRowDto::getOrderCount).toList());
+        assertEquals(0, new BigDecimal("50").compareTo(rows.get(1).getAmount()));
+        assertNull(rows.get(0).getWarehouseId());
+    }
+
+    @Test
+    void aggregate_withoutProductAxis_countsAMultiProductOrderOnce() {
+        order(north, OrderStatus.CREATED, DAY, line(apple, 1, "10"), line(pear, 2, "20"));
+        order(north, OrderStatus.CREATED, DAY, line(apple, 3, "30"));
+        service.rebuild(DAY);
+        // troisième commande à deux produits, appliquée de façon incrémentale
+        tx.executeWithoutResult(s -> {
+            SalesOrder order = persistOrder(north, OrderStatus.CREATED, DAY, line(apple, 1, "5"), line(pear, 1, "5"));
+            service.record(order, order.getStatus(), 1);
+        });
+
+        SalesAnalyticsRowDto byDay = service.aggregate(DAY, DAY, null, null, null, List.of("DAY")).get(0);
+        assertEquals(3, byDay.getOrderCount());
+        assertEquals(8, byDay.getQtyOrdered());
+        assertEquals(0, new BigDecimal("70").compareTo(byDay.getAmount()));
+
+        SalesAnalyticsRowDto byStatus = service.aggregate(DAY, DAY, null, null, null, List.of("WAREHOUSE", "STATUS")).get(0);
+        assertEquals(3, byStatus.getOrderCount());
+
+        // par produit, chaque commande compte une fois pour chacun de ses produits
+        List<SalesAnalyticsRowDto> byProduct = service.aggregate(DAY, DAY, null, null, null, List.of("PRODUCT"));
+        assertEquals(List.of(3L, 2L), byProduct.stream().map(SalesAnalyticsRowDto::getOrderCount).toList());
+        assertEquals(2, service.aggregate(DAY, DAY, null, pear.getId(), null, List.of("DAY")).get(0).getOrderCount());
+    }
+
+    @Test
+    void aggregate_invalidArguments_throw() {
+        assertThrows(BusinessException.class, () -> service.aggregate(DAY, DAY.minusDays(1), null, null, null, null));
+        assertThrows(BusinessException.class, () -> service.aggregate(DAY, DAY, null, null, null, List.of("CLIENT")));
+        assertThrows(BusinessException.class, () -> service.aggregate(DAY, DAY, null, null, "LOST", null));
+    }
+
+    private void order(Warehouse warehouse, OrderStatus status, LocalDate day, SalesOrderLine... lines) {
+        tx.executeWithoutResult(s -> persistOrder(warehouse, status, day, lines));
+    }
+
+    private SalesOrder persistOrder(Warehouse warehouse, OrderStatus status, LocalDate day, SalesOrderLine... lines) {
+        SalesOrder order = SalesOrder.builder().client(client).warehouse(warehouse).status(status)
+                .createdAt(day.atTime(10, 0)).build();
+        for (SalesOrderLine line : lines) {
+            line.setSalesOrder(order);
+            order.getLines().add(line);
+        }
+        em.persist(order);
+        return order;
+    }
+
+    private SalesOrderLine line(Product product, int qty, String price) {
+        return SalesOrderLine.builder().product(product).qtyOrdered(qty).qtyReserved(0).price(new BigDecimal(price)).build();
+    }
+
+    private Warehouse warehouse(String code) {
+        Warehouse warehouse = Warehouse.builder().code(code).name(code).active(true).build();
+        em.persist(warehouse);
+        return warehouse;
+    }
+
+    private Product product(String sku) {
+        Product product = Product.builder().sku(sku).name(sku).active(true)
+                .originalPrice(BigDecimal.ONE).profite(BigDecimal.ONE).build();
+        em.persist(product);
+        return product;
+    }
+}
@@ -0,0 +1,88 @@
+package org.smartsupply.service.implementation;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.OptimisticLockException;
+import org.junit.jupiter.api.Test;
+import org.smartsupply.model.entity.*;
+import org.smartsupply.model.enums.OrderStatus;
+import org.smartsupply.model.enums.Role;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * qtyReserved d'une ligne et le statut de la commande sont écrits par plusieurs chemins (updateStatus,
+ * backorders, vagues) : une écriture sur une version périmée de la ligne ou de la commande doit échouer.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class SalesOrderLineVersionTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Test
+    void staleLineWrite_failsInsteadOfOverwriting() {
+        SalesOrderLine line = persistOrderLine();
+        em.flush();
+        em.clear();
+
+        SalesOrderLine stale = em.find(SalesOrderLine.class, line.getId());
+        // écriture concurrente déjà validée : qtyReserved et version changent en base
+        em.createQuery("update SalesOrderLine l set l.qtyReserved = 2, l.version = l.version + 1 where l.id = :id")
+                .setParameter("id", line.getId())
+                .executeUpdate();
+
+        stale.setQtyReserved(1);
+        assertThrows(OptimisticLockException.class, () -> em.flush());
+    }
+
+    @Test
+    void lineWrite_incrementsVersion() {
+        SalesOrderLine line = persistOrderLine();
+        em.flush();
+        long before = line.getVersion();
+
+        line.setQtyReserved(2);
+        em.flush();
+
+        assertEquals(before + 1, line.getVersion());
+    }
+
+    @Test
+    void staleOrderStatusWrite_failsInsteadOfOverwriting() {
+        SalesOrder order = persistOrderLine().getSalesOrder();
+        em.flush();
+        em.clear();
+
+        SalesOrder stale = em.find(SalesOrder.class, order.getId());
+        // une vague a réservé la commande entre-temps, sans toucher aux lignes vues par l'annulation
+        em.createQuery("update SalesOrder o set o.status = :status, o.version = o.version + 1 where o.id = :id")
+                .setParameter("status", OrderStatus.RESERVED)
+                .setParameter("id", order.getId())
+                .executeUpdate();
+
+        stale.setStatus(OrderStatus.CANCELED);
+        assertThrows(OptimisticLockException.class, () -> em.flush());
+    }
+
+    private SalesOrderLine persistOrderLine() {
+        User client = User.builder().firstName("Client").lastName("Test").email("client@example.com")
+                .password("password123").role(Role.CLIENT).isActive(true).build();
+        Warehouse warehouse = Warehouse.builder().code("WH1").name("Warehouse 1").active(true).build();
+        Product product = Product.builder().sku("SKU-1").name("P1").active(true)
+                .originalPrice(BigDecimal.ONE).profite(BigDecimal.ONE).build();
+        em.persist(client);
+        em.persist(warehouse);
+        em.persist(product);
+
+        SalesOrder order = SalesOrder.builder().client(client).warehouse(warehouse).status(OrderStatus.CREATED).build();
+        SalesOrderLine line = SalesOrderLine.builder().salesOrder(order).product(product)
+                .qtyOrdered(2).qtyReserved(0).price(BigDecimal.TEN).build();
+        order.getLines().add(line);
+        em.persist(order);
+        return line;
+    }
+}
@@ -0,0 +1,141 @@
+package org.smartsupply.service.implementation;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.smartsupply.dto.request.SalesOrderFilterDto;
+import org.smartsupply.dto.response.SalesOrderResponseDto;
+import org.smartsupply.dto.response.SalesOrderSummaryDto;
+import org.smartsupply.mapper.SalesOrderLineMapperImpl;
+import org.smartsupply.mapper.SalesOrderMapperImpl;
+import org.smartsupply.model.entity.*;
+import org.smartsupply.model.enums.OrderStatus;
+import org.smartsupply.model.enums.Role;
+import org.smartsupply.service.BackorderService;
+import org.smartsupply.service.InventoryService;
+import org.smartsupply.service.ProductAvailabilityService;
+import org.smartsupply.service.SalesAnalyticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compte les requêtes SQL des lectures de commandes : une page coûte un nombre fixe de requêtes,
+ * quels que soient le nombre de commandes, de clients, d'entrepôts et de lignes.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({SalesOrderServiceImp.class, AvailabilityCache.class, SalesOrderMapperImpl.class, SalesOrderLineMapperImpl.class})
+class SalesOrderReadStatementCountTest {
+
+    private static final int ORDERS = 30;
+    private static final int LINES = 4;
+
+    @Autowired
+    private SalesOrderServiceImp service;
+    @Autowired
+    private EntityManager em;
+
+    @MockitoBean
+    private InventoryService inventoryService;
+    @MockitoBean
+    private ProductAvailabilityService availabilityService;
+    @MockitoBean
+    private BackorderService backorderService;
+    @MockitoBean
+    private SalesAnalyticsService salesAnalyticsService;
+
+    private Long firstOrderId;
+
+    @BeforeEach
+    void setup() {
+        for (int n = 0; n < ORDERS; n++) {
+            // un client et un entrepôt distincts par commande : pire cas pour le N+1
+            User client = User.builder().firstName("Client").lastName("N" + n).email("c" + n + "@example.com")
+                    .password("password123").role(Role.CLIENT).isActive(true).build();
+            Warehouse warehouse = Warehouse.builder().code("WH" + n).name("Warehouse " + n).active(true).build();
+            em.persist(client);
+            em.persist(warehouse);
+            SalesOrder order = SalesOrder.builder().client(client).warehouse(warehouse).status(OrderStatus.CREATED).build();
+            for (int i = 0; i < LINES; i++) {
+                Product product = Product.builder().sku("SKU-" + n + "-" + i).name("P" + i).active(true)
+                        .originalPrice(BigDecimal.ONE).profite(BigDecimal.ONE).build();
+                em.persist(product);
+                order.getLines().add(SalesOrderLine.builder().salesOrder(order).product(product)
+                        .qtyOrdered(2).qtyReserved(0).price(BigDecimal.TEN).build());
+            }
+            em.persist(order);
+            if (firstOrderId == null) {
+                firstOrderId = order.getId();
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void listAll_pageWithLinesCostsPageCountAndLinesQueries() {
+        Statistics stats = statistics();
+
+        Page<SalesOrderResponseDto> page = service.listAll(null, null, null, null, null, null, PageRequest.of(0, 25));
+
+        assertEquals(25, page.getContent().size());
+        assertEquals("Client N0", page.getContent().get(0).getClientName());
+        assertTrue(page.getContent().stream().allMatch(o -> o.getLines().size() == LINES));
+        assertTrue(page.getContent().get(0).getLines().stream().allMatch(l -> l.getProductSku() != null));
+        assertEquals(3, stats.getPrepareStatementCount());
+    }
+
+    @Test
+    void listSummaries_pageCostsPageQueryAndCountQuery() {
+        Statistics stats = statistics();
+
+        Page<SalesOrderSummaryDto> page = service.listSummaries(null, null, null, null, null, null, PageRequest.of(0, 25));
+
+        assertEquals(25, page.getContent().size());
+        assertEquals("Client N0", page.getContent().get(0).getClientName());
+        assertEquals(LINES, page.getContent().get(0).getLineCount());
+        assertEquals(2L * LINES, page.getContent().get(0).getTotalQty());
+        assertEquals(2, stats.getPrepareStatementCount());
+    }
+
+    @Test
+    void search_withoutCount_costsOneStatement() {
+        Statistics stats = statistics();
+
+        List<SalesOrderSummaryDto> content = service.search(new SalesOrderFilterDto(), null, null, 25, false).getContent();
+
+        assertEquals(25, content.size());
+        assertTrue(content.stream().allMatch(o -> o.getWarehouseName() != null));
+        assertEquals(1, stats.getPrepareStatementCount());
+    }
+
+    @Test
+    void getById_loadsOrderWithLinesAndProductsInOneStatement() {
+        Statistics stats = statistics();
+
+        SalesOrderResponseDto dto = service.getById(firstOrderId);
+
+        assertEquals(LINES, dto.getLines().size());
+        assertTrue(dto.getLines().stream().allMatch(l -> l.getProductSku() != null));
+        assertEquals(1, stats.getPrepareStatementCount());
+    }
+
+    private Statistics statistics() {
+        Statistics stats = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        return stats;
+    }
+}
@@ -0,0 +1,208 @@
+package org.smartsupply.service.implementation;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.smartsupply.dto.request.SalesOrderFilterDto;
+import org.smartsupply.dto.response.KeysetPageDto;
+import org.smartsupply.dto.response.SalesOrderResponseDto;
+import org.smartsupply.dto.response.SalesOrderSummaryDto;
+import org.smartsupply.exception.BusinessException;
+import org.smartsupply.mapper.SalesOrderLineMapperImpl;
+import org.smartsupply.mapper.SalesOrderMapperImpl;
+import org.smartsupply.model.entity.*;
+import org.smartsupply.model.enums.OrderStatus;
+import org.smartsupply.model.enums.Role;
+import org.smartsupply.repository.SalesOrderRepository;
+import org.smartsupply.service.BackorderService;
+import org.smartsupply.service.InventoryService;
+import org.smartsupply.service.ProductAvailabilityService;
+import org.smartsupply.service.SalesAnalyticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({SalesOrderServiceImp.class, AvailabilityCache.class, SalesOrderMapperImpl.class, SalesOrderLineMapperImpl.class})
+class SalesOrderSearchTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 1, 1, 8, 0);
+
+    @Autowired
+    private SalesOrderServiceImp service;
+    @Autowired
+    private EntityManager em;
+    @Autowired
+    private SalesOrderRepository salesOrderRepository;
+
+    @MockitoBean
+    private InventoryService inventoryService;
+    @MockitoBean
+    private ProductAvailabilityService availabilityService;
+    @MockitoBean
+    private BackorderService backorderService;
+    @MockitoBean
+    private SalesAnalyticsService salesAnalyticsService;
+
+    private User alice;
+    private User bob;
+    private Warehouse north;
+    private Warehouse south;
+    private Product apple;
+    private Product pear;
+    private final List<SalesOrder> orders = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        alice = client("alice");
+        bob = client("bob");
+        north = warehouse("WH-N");
+        south = warehouse("WH-S");
+        apple = product("APPLE");
+        pear = product("PEAR");
+
+        // 2 commandes au même instant, pour exercer le départage sur l'id
+        order(alice, north, OrderStatus.CREATED, T0, apple, "10");
+        order(alice, north, OrderStatus.RESERVED, T0.plusHours(1), pear, "50");
+        order(bob, south, OrderStatus.CREATED, T0.plusHours(1), apple, "200");
+        order(bob, north, OrderStatus.SHIPPED, T0.plusHours(2), pear, "5");
+        order(alice, south, OrderStatus.CREATED, T0.plusHours(3), apple, "80");
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void search_walksAllPagesInKeysetOrder() {
+        List<Long> seen = new ArrayList<>();
+        LocalDateTime after = null;
+        Long afterId = null;
+        KeysetPageDto<SalesOrderSummaryDto> page;
+        do {
+            page = service.search(new SalesOrderFilterDto(), after, afterId, 2, false);
+            page.getContent().forEach(o -> seen.add(o.getId()));
+            after = page.getNextAfter();
+            afterId = page.getNextAfterId();
+        } while (page.isHasNext());
+
+        assertEquals(orders.stream().map(SalesOrder::getId).toList(), seen);
+        assertNull(page.getTotalElements());
+    }
+
+    @Test
+    void search_combinesWarehouseProductAndAmountFilters() {
+        SalesOrderFilterDto filter = SalesOrderFilterDto.builder()
+                .productId(apple.getId())
+                .minAmount(new BigDecimal("50"))
+                .build();
+
+        KeysetPageDto<SalesOrderSummaryDto> page = service.search(filter, null, null, 10, true);
+
+        assertEquals(List.of(orders.get(2).getId(), orders.get(4).getId()), page.getContent().stream().map(SalesOrderSummaryDto::getId).toList());
+        assertEquals(2L, page.getTotalElements());
+        assertEquals(0, new BigDecimal("200").compareTo(page.getContent().get(0).getTotalAmount()));
+        assertEquals(1, page.getContent().get(0).getLineCount());
+
+        filter.setWarehouseId(south.getId());
+        filter.setMaxAmount(new BigDecimal("100"));
+        assertEquals(List.of(orders.get(4).getId()),
+                service.search(filter, null, null, 10, false).getContent().stream().map(SalesOrderSummaryDto::getId).toList());
+    }
+
+    @Test
+    void search_statusClientAndWindow() {
+        SalesOrderFilterDto filter = SalesOrderFilterDto.builder()
+                .status(OrderStatus.CREATED)
+                .clientId(alice.getId())
+                .from(T0)
+                .to(T0.plusHours(3))
+                .build();
+
+        KeysetPageDto<SalesOrderSummaryDto> page = service.search(filter, null, null, 10, false);
+
+        assertEquals(List.of(orders.get(0).getId()), page.getContent().stream().map(SalesOrderSummaryDto::getId).toList());
+        assertFalse(page.isHasNext());
+    }
+
+    @Test
+    void listAll_usesSameFilter() {
+        Page<SalesOrderResponseDto> page = service.listAll("CREATED", bob.getId(), null, null, null, null, PageRequest.of(0, 10));
+
+        assertEquals(1, page.getTotalElements());
+        assertEquals(orders.get(2).getId(), page.getContent().get(0).getId());
+    }
+
+    @Test
+    void listAll_endDateIsInclusive() {
+        Page<SalesOrderResponseDto> page = service.listAll(null, null, T0.plusHours(1), T0.plusHours(2), null, null,
+                PageRequest.of(0, 10, Sort.by("id")));
+
+        assertEquals(List.of(orders.get(1).getId(), orders.get(2).getId(), orders.get(3).getId()),
+                page.getContent().stream().map(SalesOrderResponseDto::getId).toList());
+    }
+
+    @Test
+    void listAll_filtersAndSortsOnStoredTotal() {
+        Page<SalesOrderResponseDto> page = service.listAll(null, null, null, null, new BigDecimal("10"), new BigDecimal("100"),
+                PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "totalAmount")));
+
+        assertEquals(List.of(orders.get(4).getId(), orders.get(1).getId(), orders.get(0).getId()),
+                page.getContent().stream().map(SalesOrderResponseDto::getId).toList());
+    }
+
+    @Test
+    void backfillTotals_fillsOrdersCreatedBeforeTheColumns() {
+        em.createQuery("update SalesOrder o set o.lineCount = 0, o.totalQty = 0, o.totalAmount = 0").executeUpdate();
+
+        assertEquals(orders.size(), salesOrderRepository.backfillTotals());
+        assertEquals(0, salesOrderRepository.backfillTotals());
+
+        em.clear();
+        SalesOrder order = em.find(SalesOrder.class, orders.get(2).getId());
+        assertEquals(1, order.getLineCount());
+        assertEquals(0, new BigDecimal("200").compareTo(order.getTotalAmount()));
+    }
+
+    @Test
+    void search_invalidSize_throws() {
+        assertThrows(BusinessException.class, () -> service.search(new SalesOrderFilterDto(), null, null, 0, false));
+    }
+
+    private void order(User client, Warehouse warehouse, OrderStatus status, LocalDateTime createdAt, Product product, String price) {
+        SalesOrder order = SalesOrder.builder().client(client).warehouse(warehouse).status(status).createdAt(createdAt).build();
+        order.getLines().add(SalesOrderLine.builder().salesOrder(order).product(product)
+                .qtyOrdered(1).qtyReserved(0).price(new BigDecimal(price)).build());
+        em.persist(order);
+        orders.add(order);
+    }
+
+    private User client(String name) {
+        User user = User.builder().firstName(name).lastName("Test").email(name + "@example.com")
+                .password("password123").role(Role.CLIENT).isActive(true).build();
+        em.persist(user);
+        return user;
+    }
+
+    private Warehouse warehouse(String code) {
+        Warehouse warehouse = Warehouse.builder().code(code).name(code).active(true).build();
+        em.persist(warehouse);
+        return warehouse;
+    }
+
+    private Product product(String sku) {
+        Product product = Product.builder().sku(sku).name(sku).active(true)
+                .originalPrice(BigDecimal.ONE).profite(BigDecimal.ONE).build();
+        em.persist(product);
+        return product;
+    }
+}
@@ -7,7 +7,12 @@ import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.smartsupply.dto.request.SalesOrderLineRequestDto;
 import org.smartsupply.dto.request.SalesOrderRequestDto;
+import org.smartsupply.dto.request.ShipOrderRequestDto;
+import org.smartsupply.dto.response.InventoryKeyDto;
+import org.smartsupply.dto.response.SalesOrderBatchResultDto;
+import org.smartsupply.dto.response.SalesOrderLineResponseDto;
 import org.smartsupply.dto.response.SalesOrderResponseDto;
+import org.smartsupply.dto.response.ShipOrderResultDto;
 import org.smartsupply.exception.BusinessException;
 import org.smartsupply.exception.ResourceNotFoundException;
 import org.smartsupply.exception.StockUnavailableException;
@@ -16,7 +21,10 @@ import org.smartsupply.model.entity.*;
 import org.smartsupply.model.enums.OrderStatus;
 import org.smartsupply.model.enums.MovementType;
 import org.smartsupply.repository.*;
+import org.smartsupply.service.BackorderService;
 import org.smartsupply.service.InventoryService;
+import org.smartsupply.service.ProductAvailabilityService;
+import org.smartsupply.service.SalesAnalyticsService;
 
 import java.math.BigDecimal;
 import java.util.*;
@@ -44,6 +52,15 @@ class SalesOrderServiceImpTest {
     private InventoryService inventoryService;
     @Mock
     private InventoryMovementRepository inventoryMovementRepository;
+    @Mock
+    private ProductAvailabilityService availabilityService;
+    // désactivé : les lectures vont au repository mocké, les invalidations restent vérifiables
+    @Mock
+    private BackorderService backorderService;
+    @Mock
+    private SalesAnalyticsService salesAnalyticsService;
+    @Spy
+    private AvailabilityCache availabilityCache = new AvailabilityCache(false, 1024, 2000);
 
     @InjectMocks
     private SalesOrderServiceImp service;
@@ -155,6 +172,9 @@ class SalesOrderServiceImpTest {
         assertNotNull(res);
         assertEquals(11L, res.getId());
         assertEquals(1, order.getLines().size());
+        assertEquals(1, order.getLineCount());
+        assertEquals(3, order.getTotalQty());
+        assertEquals(0, new BigDecimal("4.5").compareTo(order.getTotalAmount()));
         verify(salesOrderRepository).save(order);
     }
 
@@ -193,17 +213,21 @@ class SalesOrderServiceImpTest {
 
         when(salesOrderRepository.findById(200L)).thenReturn(Optional.of(order));
 
-        // inventoryService.smartReserve succeeds (no exception)
-        doNothing().when(inventoryService).smartReserve(30L, 50L, 2, "SO200");
+        // the batch reservation covers every product in the main warehouse
+        when(inventoryService.reserveAll(50L, Map.of(30L, 2), "SO200")).thenReturn(Collections.emptyList());
 
         SalesOrderResponseDto res = service.updateStatus(200L, "RESERVED");
 
         // order status should be RESERVED
         assertEquals("RESERVED", res.getStatus());
-        verify(inventoryService).smartReserve(30L, 50L, 2, "SO200");
+        verify(inventoryService).reserveAll(50L, Map.of(30L, 2), "SO200");
+        verify(inventoryService, never()).smartReserve(anyLong(), anyLong(), anyInt(), anyString());
         verify(salesOrderRepository).save(order);
         // line should have qtyReserved set
         assertEquals(2, order.getLines().get(0).getQtyReserved());
+        // the order moves from the CREATED to the RESERVED row of the sales rollup
+        verify(salesAnalyticsService).record(order, OrderStatus.CREATED, -1);
+        verify(salesAnalyticsService).record(order, OrderStatus.RESERVED, 1);
     }
 
     @Test
@@ -223,8 +247,8 @@ class SalesOrderServiceImpTest {
         order.setLines(new ArrayList<>(List.of(l1, l2)));
         when(salesOrderRepository.findById(201L)).thenReturn(Optional.of(order));
 
-        // first product reserves ok, second throws StockUnavailableException
-        doNothing().when(inventoryService).smartReserve(31L, 51L, 1, "SO201");
+        // first product is covered by the batch, second falls back to smartReserve which throws
+        when(inventoryService.reserveAll(eq(51L), anyMap(), eq("SO201"))).thenReturn(List.of(32L));
         doThrow(new StockUnavailableException("PO_CREATED:999")).when(inventoryService).smartReserve(32L, 51L, 2, "SO201");
 
         SalesOrderResponseDto res = service.updateStatus(201L, "RESERVED");
@@ -232,11 +256,86 @@ class SalesOrderServiceImpTest {
         // because not all lines reserved, status must remain CREATED
         assertEquals("CREATED", res.getStatus());
         assertFalse(res.getWarnings().isEmpty());
-        verify(inventoryService).smartReserve(31L, 51L, 1, "SO201");
+        verifyNoInteractions(salesAnalyticsService);
+        assertEquals(1, l1.getQtyReserved());
+        assertEquals(0, l2.getQtyReserved());
+        verify(inventoryService, never()).smartReserve(31L, 51L, 1, "SO201");
         verify(inventoryService).smartReserve(32L, 51L, 2, "SO201");
+        verify(backorderService).enqueue(l2);
+        verify(backorderService, never()).enqueue(l1);
         verify(salesOrderRepository).save(order);
     }
 
+    @Test
+    void updateStatus_reserveAgain_onlyRequestsMissingQuantities() {
+        SalesOrder order = new SalesOrder();
+        order.setId(203L);
+        order.setStatus(OrderStatus.CREATED);
+        Warehouse wh = new Warehouse(); wh.setId(53L);
+        order.setWarehouse(wh);
+
+        Product p1 = new Product(); p1.setId(34L); p1.setName("P34");
+        Product p2 = new Product(); p2.setId(35L); p2.setName("P35");
+        // première ligne couverte lors d'une tentative précédente, seconde couverte en partie par un backorder
+        SalesOrderLine l1 = SalesOrderLine.builder().product(p1).qtyOrdered(2).qtyReserved(2).build();
+        SalesOrderLine l2 = SalesOrderLine.builder().product(p2).qtyOrdered(5).qtyReserved(3).build();
+        order.setLines(new ArrayList<>(List.of(l1, l2)));
+        when(salesOrderRepository.findById(203L)).thenReturn(Optional.of(order));
+        when(inventoryService.reserveAll(53L, Map.of(35L, 2), "SO203")).thenReturn(Collections.emptyList());
+
+        SalesOrderResponseDto res = service.updateStatus(203L, "RESERVED");
+
+        assertEquals("RESERVED", res.getStatus());
+        assertEquals(2, l1.getQtyReserved());
+        assertEquals(5, l2.getQtyReserved());
+        verify(inventoryService).reserveAll(53L, Map.of(35L, 2), "SO203");
+    }
+
+    @Test
+    void updateStatus_cancelCreatedWithPartialReservation_releasesIt() {
+        SalesOrder order = new SalesOrder();
+        order.setId(204L);
+        order.setStatus(OrderStatus.CREATED);
+        Warehouse wh = new Warehouse(); wh.setId(54L);
+        order.setWarehouse(wh);
+
+        Product p = new Product(); p.setId(36L); p.setName("P36");
+        SalesOrderLine line = SalesOrderLine.builder().product(p).qtyOrdered(5).qtyReserved(3).build();
+        order.setLines(new ArrayList<>(List.of(line)));
+        when(salesOrderRepository.findById(204L)).thenReturn(Optional.of(order));
+        Inventory inv = Inventory.builder().product(p).warehouse(wh).qtyOnHand(10).qtyReserved(3).build();
+        when(inventoryRepository.findWithLockByProductIdAndWarehouseId(36L, 54L)).thenReturn(Optional.of(inv));
+
+        service.updateStatus(204L, "CANCELED");
+
+        assertEquals(0, inv.getQtyReserved());
+        assertEquals(0, line.getQtyReserved());
+        assertEquals(OrderStatus.CANCELED, order.getStatus());
+    }
+
+    @Test
+    void updateStatus_reserve_mergesDuplicateProductsIntoOneBatch() {
+        SalesOrder order = new SalesOrder();
+        order.setId(202L);
+        order.setStatus(OrderStatus.CREATED);
+        Warehouse wh = new Warehouse(); wh.setId(52L);
+        order.setWarehouse(wh);
+
+        Product p = new Product(); p.setId(33L); p.setName("P33");
+        SalesOrderLine l1 = SalesOrderLine.builder().product(p).qtyOrdered(2).qtyReserved(0).build();
+        SalesOrderLine l2 = SalesOrderLine.builder().product(p).qtyOrdered(3).qtyReserved(0).build();
+        order.setLines(new ArrayList<>(List.of(l1, l2)));
+        when(salesOrderRepository.findById(202L)).thenReturn(Optional.of(order));
+        when(inventoryService.reserveAll(52L, Map.of(33L, 5), "SO202")).thenReturn(Collections.emptyList());
+
+        SalesOrderResponseDto res = service.updateStatus(202L, "RESERVED");
+
+        assertEquals("RESERVED", res.getStatus());
+        assertEquals(2, l1.getQtyReserved());
+        assertEquals(3, l2.getQtyReserved());
+        verify(inventoryService).reserveAll(52L, Map.of(33L, 5), "SO202");
+    }
+
     @Test
     void updateStatus_releaseReserved_releasesInventoryAndClearsQtyReserved() {
         SalesOrder order = new SalesOrder();
@@ -279,7 +378,7 @@ class SalesOrderServiceImpTest {
 
     @Test
     void delete_nonExistent_throws() {
-        when(salesOrderRepository.existsById(999L)).thenReturn(false);
+        when(salesOrderRepository.findById(999L)).thenReturn(Optional.empty());
         ResourceNotFoundException ex = assertThrows(ResourceNotFoundException.class, () -> service.delete(999L));
         assertTrue(ex.getMessage().contains("SalesOrder non trouvée"));
     }
@@ -303,8 +402,7 @@ class SalesOrderServiceImpTest {
         inv.setWarehouse(wh);
         inv.setQtyOnHand(10);
         inv.setQtyReserved(3);
-        when(inventoryRepository.findWithLockByProductIdAndWarehouseId(80L, 70L)).thenReturn(Optional.of(inv));
-        when(inventoryMovementRepository.save(any())).thenAnswer(i -> i.getArgument(0));
+        when(inventoryRepository.findAllWithLockByProductIdInAndWarehouseIdIn(Set.of(80L), List.of(70L))).thenReturn(List.of(inv));
         when(salesOrderRepository.save(any())).thenAnswer(i -> i.getArgument(0));
 
         service.shipOrder(500L, "TRACK-1");
@@ -312,12 +410,15 @@ class SalesOrderServiceImpTest {
         // inventory onHand decreased by qty shipped (3) and reserved decreased
         assertEquals(7, inv.getQtyOnHand());
         assertEquals(0, inv.getQtyReserved());
-        // movement recorded
-        ArgumentCaptor<InventoryMovement> mvCaptor = ArgumentCaptor.forClass(InventoryMovement.class);
-        verify(inventoryMovementRepository).save(mvCaptor.capture());
-        InventoryMovement mv = mvCaptor.getValue();
+        // movement recorded, in one batch
+        ArgumentCaptor<List<InventoryMovement>> mvCaptor = ArgumentCaptor.forClass(List.class);
+        verify(inventoryMovementRepository).saveAll(mvCaptor.capture());
+        assertEquals(1, mvCaptor.getValue().size());
+        InventoryMovement mv = mvCaptor.getValue().get(0);
         assertEquals(MovementType.OUTBOUND, mv.getType());
         assertEquals(3, mv.getQty());
+        assertEquals("TRACK-1", order.getTrackingNumber());
+        assertNotNull(order.getShippedAt());
     }
 
     @Test
@@ -338,23 +439,55 @@ class SalesOrderServiceImpTest {
         inv.setWarehouse(wh);
         inv.setQtyOnHand(2); // less than reserved
         inv.setQtyReserved(4);
-        when(inventoryRepository.findWithLockByProductIdAndWarehouseId(81L, 71L)).thenReturn(Optional.of(inv));
-        when(inventoryMovementRepository.save(any())).thenAnswer(i -> i.getArgument(0));
+        when(inventoryRepository.findAllWithLockByProductIdInAndWarehouseIdIn(Set.of(81L), List.of(71L))).thenReturn(List.of(inv));
         when(salesOrderRepository.save(any())).thenAnswer(i -> i.getArgument(0));
 
         service.shipOrder(510L, "TR2");
 
         // shipped only 2 units (onHand)
         assertEquals(0, inv.getQtyOnHand());
+        verify(availabilityService).record(81L, -2, -2);
+        verify(availabilityCache).invalidate(81L, 71L);
         // reserved decreased by shipped 2 -> becomes 2
         assertEquals(2, inv.getQtyReserved());
         // movement recorded with qty 2
-        ArgumentCaptor<InventoryMovement> mvCaptor = ArgumentCaptor.forClass(InventoryMovement.class);
-        verify(inventoryMovementRepository).save(mvCaptor.capture());
-        InventoryMovement mv = mvCaptor.getValue();
+        ArgumentCaptor<List<InventoryMovement>> mvCaptor = ArgumentCaptor.forClass(List.class);
+        verify(inventoryMovementRepository).saveAll(mvCaptor.capture());
+        InventoryMovement mv = mvCaptor.getValue().get(0);
         assertEquals(2, mv.getQty());
     }
 
+    @Test
+    void shipOrder_multipleLines_locksAllInventoriesInOneQuery() {
+        SalesOrder order = new SalesOrder();
+        order.setId(520L);
+        Warehouse wh = new Warehouse(); wh.setId(72L);
+        order.setWarehouse(wh);
+        order.setStatus(OrderStatus.RESERVED);
+
+        Product p1 = new Product(); p1.setId(82L);
+        Product p2 = new Product(); p2.setId(83L);
+        order.setLines(new ArrayList<>(List.of(
+                SalesOrderLine.builder().product(p1).qtyOrdered(2).qtyReserved(2).build(),
+                SalesOrderLine.builder().product(p2).qtyOrdered(1).qtyReserved(1).build())));
+        when(salesOrderRepository.findById(520L)).thenReturn(Optional.of(order));
+
+        Inventory inv1 = Inventory.builder().product(p1).warehouse(wh).qtyOnHand(5).qtyReserved(2).build();
+        Inventory inv2 = Inventory.builder().product(p2).warehouse(wh).qtyOnHand(5).qtyReserved(1).build();
+        when(inventoryRepository.findAllWithLockByProductIdInAndWarehouseIdIn(Set.of(82L, 83L), List.of(72L)))
+                .thenReturn(List.of(inv1, inv2));
+
+        service.shipOrder(520L, "TR3");
+
+        assertEquals(3, inv1.getQtyOnHand());
+        assertEquals(4, inv2.getQtyOnHand());
+        verify(inventoryRepository, never()).findWithLockByProductIdAndWarehouseId(any(), any());
+        ArgumentCaptor<List<InventoryMovement>> mvCaptor = ArgumentCaptor.forClass(List.class);
+        verify(inventoryMovementRepository).saveAll(mvCaptor.capture());
+        assertEquals(2, mvCaptor.getValue().size());
+        assertEquals(OrderStatus.SHIPPED, order.getStatus());
+    }
+
     @Test
     void shipOrder_orderNotFound_throws() {
         when(salesOrderRepository.findById(777L)).thenReturn(Optional.empty());
@@ -372,4 +505,211 @@ class SalesOrderServiceImpTest {
         BusinessException ex = assertThrows(BusinessException.class, () -> service.shipOrder(600L, "T"));
         assertTrue(ex.getMessage().contains("Impossible d'expédier une commande annulée"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void shipBatch_combinesQuantitiesPerInventoryRow() {
+        Warehouse wh = Warehouse.builder().id(73L).build();
+        Product p = Product.builder().id(84L).build();
+        SalesOrder first = shippableOrder(700L, wh, p, 2);
+        SalesOrder second = shippableOrder(701L, wh, p, 3);
+        Inventory inv = Inventory.builder().id(90L).product(p).warehouse(wh).qtyOnHand(10).qtyReserved(5).build();
+        stubBatch(List.of(700L, 701L), List.of(inv), first, second);
+
+        List<ShipOrderResultDto> results = service.shipBatch(List.of(
+                ShipOrderRequestDto.builder().orderId(700L).trackingNumber("T-700").build(),
+                ShipOrderRequestDto.builder().orderId(701L).trackingNumber("T-701").build()));
+
+        assertTrue(results.stream().allMatch(ShipOrderResultDto::isShipped));
+        assertEquals(5, inv.getQtyOnHand());
+        assertEquals(0, inv.getQtyReserved());
+        assertEquals("T-700", first.getTrackingNumber());
+        assertEquals("T-701", second.getTrackingNumber());
+        assertEquals(OrderStatus.SHIPPED, second.getStatus());
+        verify(inventoryRepository, times(1)).findAllWithLockByIdIn(List.of(90L));
+        verify(availabilityService).record(84L, -5, -5);
+
+        ArgumentCaptor<Collection<Inventory>> saved = ArgumentCaptor.forClass(Collection.class);
+        verify(inventoryRepository).saveAll(saved.capture());
+        assertEquals(1, saved.getValue().size());
+        ArgumentCaptor<List<InventoryMovement>> mvCaptor = ArgumentCaptor.forClass(List.class);
+        verify(inventoryMovementRepository).saveAll(mvCaptor.capture());
+        assertEquals(List.of("SO:700", "SO:701"), mvCaptor.getValue().stream().map(InventoryMovement::getReference).toList());
+    }
+
+    @Test
+    void shipBatch_reportsFailuresWithoutBlockingOtherOrders() {
+        Warehouse wh = Warehouse.builder().id(74L).build();
+        Product p = Product.builder().id(85L).build();
+        SalesOrder ok = shippableOrder(710L, wh, p, 1);
+        SalesOrder canceled = shippableOrder(711L, wh, p, 1);
+        canceled.setStatus(OrderStatus.CANCELED);
+        Inventory inv = Inventory.builder().id(91L).product(p).warehouse(wh).qtyOnHand(10).qtyReserved(2).build();
+        stubBatch(List.of(710L, 711L, 712L), List.of(inv), ok, canceled);
+
+        List<ShipOrderResultDto> results = service.shipBatch(List.of(
+                ShipOrderRequestDto.builder().orderId(710L).build(),
+                ShipOrderRequestDto.builder().orderId(711L).build(),
+                ShipOrderRequestDto.builder().orderId(712L).build()));
+
+        assertTrue(results.get(0).isShipped());
+        assertFalse(results.get(1).isShipped());
+        assertTrue(results.get(1).getError().contains("annulée"));
+        assertFalse(results.get(2).isShipped());
+        assertEquals(9, inv.getQtyOnHand());
+        assertEquals(OrderStatus.CANCELED, canceled.getStatus());
+        assertEquals(1, canceled.getLines().get(0).getQtyReserved());
+    }
+
+    @Test
+    void shipBatch_missingInventoryRow_failsOnlyThatOrder() {
+        Warehouse wh = Warehouse.builder().id(75L).build();
+        Product p = Product.builder().id(86L).build();
+        SalesOrder order = shippableOrder(720L, wh, p, 1);
+        stubBatch(List.of(720L), List.of(), order);
+
+        List<ShipOrderResultDto> results = service.shipBatch(List.of(ShipOrderRequestDto.builder().orderId(720L).build()));
+
+        assertFalse(results.get(0).isShipped());
+        assertTrue(results.get(0).getError().contains("Inventory introuvable"));
+        assertEquals(OrderStatus.RESERVED, order.getStatus());
+    }
+
+    private SalesOrder shippableOrder(Long id, Warehouse wh, Product p, int qty) {
+        SalesOrder order = SalesOrder.builder().id(id).warehouse(wh).status(OrderStatus.RESERVED).lines(new ArrayList<>()).build();
+        order.getLines().add(SalesOrderLine.builder().salesOrder(order).product(p).qtyOrdered(qty).qtyReserved(qty).build());
+        return order;
+    }
+
+    private void stubBatch(List<Long> orderIds, List<Inventory> inventories, SalesOrder... orders) {
+        when(inventoryRepository.findKeysUsedByOrderIdIn(orderIds)).thenReturn(inventories.stream()
+                .map(i -> new InventoryKeyDto(i.getId(), i.getProduct().getId(), i.getWarehouse().getId()))
+                .toList());
+        if (!inventories.isEmpty()) {
+            when(inventoryRepository.findAllWithLockByIdIn(inventories.stream().map(Inventory::getId).toList()))
+                    .thenReturn(inventories);
+        }
+        when(salesOrderRepository.findAllWithLinesAndLockByIdIn(orderIds)).thenReturn(List.of(orders));
+    }
+
+    @Test
+    void createBatch_loadsReferencesOnceAndReportsEachOrder() {
+        User client = User.builder().id(1L).isActive(true).build();
+        User inactive = User.builder().id(2L).isActive(false).build();
+        Warehouse wh = Warehouse.builder().id(10L).active(true).build();
+        Product p = Product.builder().id(80L).active(true).originalPrice(BigDecimal.ONE).profite(BigDecimal.ONE).build();
+        when(userRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(client, inactive));
+        when(warehouseRepository.findAllById(Set.of(10L))).thenReturn(List.of(wh));
+        when(productRepository.findAllById(Set.of(80L, 81L))).thenReturn(List.of(p));
+        when(salesOrderRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<SalesOrder> orders = inv.getArgument(0);
+            for (int i = 0; i < orders.size(); i++) orders.get(i).setId(900L + i);
+            return orders;
+        });
+
+        List<SalesOrderBatchResultDto> results = service.createBatch(List.of(
+                batchOrder(1L, 10L, 80L, 3),
+                batchOrder(2L, 10L, 80L, 1),
+                batchOrder(1L, 10L, 81L, 1),
+                batchOrder(1L, 10L, 80L, 2)));
+
+        assertEquals(List.of(true, false, false, true), results.stream().map(SalesOrderBatchResultDto::isCreated).toList());
+        assertEquals(900L, results.get(0).getOrderId());
+        assertEquals(901L, results.get(3).getOrderId());
+        assertTrue(results.get(1).getError().contains("Client inactif"));
+        assertTrue(results.get(2).getError().contains("Produit non trouvé"));
+        assertEquals(3, results.get(3).getIndex());
+        verify(userRepository, never()).findById(any());
+        verify(productRepository, never()).findById(any());
+
+        ArgumentCaptor<List<SalesOrder>> saved = ArgumentCaptor.forClass(List.class);
+        verify(salesOrderRepository).saveAll(saved.capture());
+        assertEquals(2, saved.getValue().size());
+        assertEquals(0, new BigDecimal("6").compareTo(saved.getValue().get(0).getLines().get(0).getPrice()));
+    }
+
+    @Test
+    void createBatch_missingIds_failOnlyThatOrder() {
+        Warehouse wh = Warehouse.builder().id(10L).active(true).build();
+        User client = User.builder().id(1L).isActive(true).build();
+        when(userRepository.findAllById(Set.of(1L))).thenReturn(List.of(client));
+        when(warehouseRepository.findAllById(Set.of(10L))).thenReturn(List.of(wh));
+        when(productRepository.findAllById(Set.of())).thenReturn(List.of());
+        when(salesOrderRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        SalesOrderRequestDto noClient = SalesOrderRequestDto.builder().warehouseId(10L).build();
+        SalesOrderRequestDto empty = SalesOrderRequestDto.builder().clientId(1L).warehouseId(10L).build();
+
+        List<SalesOrderBatchResultDto> results = service.createBatch(List.of(noClient, empty));
+
+        assertFalse(results.get(0).isCreated());
+        assertTrue(results.get(1).isCreated());
+    }
+
+    @Test
+    void createWithReserve_reservesEveryLineInSameCall() {
+        stubCreateReferences();
+        when(inventoryService.reserveAll(10L, Map.of(80L, 3, 81L, 1), "SO100")).thenReturn(Collections.emptyList());
+
+        SalesOrderResponseDto res = service.create(batchOrderWithLines(80L, 3, 81L, 1), true);
+
+        assertEquals("RESERVED", res.getStatus());
+        assertEquals(List.of("RESERVED", "RESERVED"), res.getLines().stream().map(SalesOrderLineResponseDto::getReservation).toList());
+        assertEquals(List.of(3, 1), res.getLines().stream().map(SalesOrderLineResponseDto::getQtyReserved).toList());
+        assertTrue(res.getWarnings().isEmpty());
+        verify(productRepository, times(2)).findById(any());
+        verify(salesOrderRepository, never()).findById(any());
+        verify(inventoryService, never()).smartReserve(any(), any(), any(), any());
+    }
+
+    @Test
+    void createWithReserve_shortfall_keepsCreatedAndReportsBackorderedLine() {
+        stubCreateReferences();
+        when(inventoryService.reserveAll(10L, Map.of(80L, 3, 81L, 1), "SO100")).thenReturn(List.of(81L));
+        doThrow(new StockUnavailableException("PO_CREATED:1")).when(inventoryService).smartReserve(81L, 10L, 1, "SO100");
+
+        SalesOrderResponseDto res = service.create(batchOrderWithLines(80L, 3, 81L, 1), true);
+
+        assertEquals("CREATED", res.getStatus());
+        assertEquals(List.of("RESERVED", "BACKORDERED"), res.getLines().stream().map(SalesOrderLineResponseDto::getReservation).toList());
+        assertEquals(1, res.getWarnings().size());
+        verify(backorderService).enqueue(argThat(line -> line.getProduct().getId().equals(81L)));
+    }
+
+    @Test
+    void createWithoutReserve_doesNotTouchStock() {
+        stubCreateReferences();
+
+        SalesOrderResponseDto res = service.create(batchOrderWithLines(80L, 3, 81L, 1), false);
+
+        assertEquals("CREATED", res.getStatus());
+        assertNull(res.getLines().get(0).getReservation());
+        verifyNoInteractions(inventoryService);
+    }
+
+    private void stubCreateReferences() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(User.builder().id(1L).isActive(true).build()));
+        when(warehouseRepository.findById(10L)).thenReturn(Optional.of(Warehouse.builder().id(10L).active(true).build()));
+        for (long id : new long[]{80L, 81L}) {
+            when(productRepository.findById(id)).thenReturn(Optional.of(Product.builder().id(id).name("P" + id).active(true)
+                    .originalPrice(BigDecimal.ONE).profite(BigDecimal.ONE).build()));
+        }
+        when(salesOrderMapper.toResponse(any(SalesOrder.class))).thenAnswer(inv -> {
+            SalesOrder o = inv.getArgument(0);
+            return SalesOrderResponseDto.builder().id(o.getId()).status(o.getStatus().name()).warnings(new ArrayList<>())
+                    .lines(o.getLines().stream().map(l -> SalesOrderLineResponseDto.builder()
+                            .productId(l.getProduct().getId()).qtyReserved(l.getQtyReserved()).build()).toList())
+                    .build();
+        });
+    }
+
+    private SalesOrderRequestDto batchOrderWithLines(Long firstProduct, int firstQty, Long secondProduct, int secondQty) {
+        return SalesOrderRequestDto.builder().clientId(1L).warehouseId(10L)
+                .lines(List.of(SalesOrderLineRequestDto.builder().productId(firstProduct).qtyOrdered(firstQty).build(),
+                        SalesOrderLineRequestDto.builder().productId(secondProduct).qtyOrdered(secondQty).build())).build();
+    }
+
+    private SalesOrderRequestDto batchOrder(Long clientId, Long warehouseId, Long productId, int qty) {
+        return SalesOrderRequestDto.builder().clientId(clientId).warehouseId(warehouseId)
+                .lines(List.of(SalesOrderLineRequestDto.builder().productId(productId).qtyOrdered(qty).build())).build();
+    }
+}
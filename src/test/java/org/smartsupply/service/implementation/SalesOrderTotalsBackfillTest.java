@@ -0,0 +1,27 @@
+package org.smartsupply.service.implementation;
+
+import org.junit.jupiter.api.Test;
+import org.smartsupply.repository.SalesOrderRepository;
+
+import static org.mockito.Mockito.*;
+
+class SalesOrderTotalsBackfillTest {
+
+    private final SalesOrderRepository salesOrderRepository = mock(SalesOrderRepository.class);
+
+    @Test
+    void backfill_disabledByDefault_doesNotTouchOrders() {
+        new SalesOrderTotalsBackfill(salesOrderRepository, false).backfill();
+
+        verifyNoInteractions(salesOrderRepository);
+    }
+
+    @Test
+    void backfill_enabled_runsTheUpdateOnce() {
+        when(salesOrderRepository.backfillTotals()).thenReturn(3);
+
+        new SalesOrderTotalsBackfill(salesOrderRepository, true).backfill();
+
+        verify(salesOrderRepository, times(1)).backfillTotals();
+    }
+}
@@ -0,0 +1,38 @@
+package org.smartsupply.service.implementation;
+
+import org.junit.jupiter.api.Test;
+import org.smartsupply.service.SalesAnalyticsService;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SalesRollupJobTest {
+
+    private final SalesAnalyticsService analyticsService = mock(SalesAnalyticsService.class);
+
+    @Test
+    void rebuildRecentDays_alsoRebuildsOlderStaleDays() {
+        LocalDate old = LocalDate.now().minusDays(40);
+        when(analyticsService.staleDays()).thenReturn(Set.of(old, LocalDate.now().minusDays(1)));
+
+        new SalesRollupJob(analyticsService, 2).rebuildRecentDays();
+
+        verify(analyticsService).rebuild(old);
+        verify(analyticsService).rebuild(LocalDate.now().minusDays(1));
+        verify(analyticsService).rebuild(LocalDate.now().minusDays(2));
+        verify(analyticsService, times(3)).rebuild(any());
+    }
+
+    @Test
+    void rebuildRecentDays_failureOnOneDay_continuesWithTheOthers() {
+        when(analyticsService.staleDays()).thenReturn(Set.of());
+        when(analyticsService.rebuild(LocalDate.now().minusDays(1))).thenThrow(new IllegalStateException("db"));
+
+        new SalesRollupJob(analyticsService, 2).rebuildRecentDays();
+
+        verify(analyticsService).rebuild(LocalDate.now().minusDays(2));
+    }
+}
@@ -0,0 +1,102 @@
+package org.smartsupply.service.implementation;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.smartsupply.mapper.SalesOrderLineMapperImpl;
+import org.smartsupply.mapper.SalesOrderMapperImpl;
+import org.smartsupply.model.entity.*;
+import org.smartsupply.model.enums.OrderStatus;
+import org.smartsupply.model.enums.Role;
+import org.smartsupply.service.BackorderService;
+import org.smartsupply.service.InventoryService;
+import org.smartsupply.service.ProductAvailabilityService;
+import org.smartsupply.service.SalesAnalyticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compte les requêtes SQL préparées par une expédition : avec les séquences et le batching JDBC,
+ * le coût d'une commande ne dépend plus de son nombre de lignes.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({SalesOrderServiceImp.class, AvailabilityCache.class, SalesOrderMapperImpl.class, SalesOrderLineMapperImpl.class})
+class ShipOrderStatementCountTest {
+
+    @Autowired
+    private SalesOrderServiceImp service;
+    @Autowired
+    private EntityManager em;
+
+    @MockitoBean
+    private InventoryService inventoryService;
+    // le rollup ajoute une mise à jour par produit au commit, hors du périmètre mesuré ici
+    @MockitoBean
+    private ProductAvailabilityService availabilityService;
+    @MockitoBean
+    private BackorderService backorderService;
+    @MockitoBean
+    private SalesAnalyticsService salesAnalyticsService;
+
+    private int sequence;
+
+    @Test
+    void statementsPerShippedOrder_doNotGrowWithLineCount() {
+        // premier passage : initialisation des pools de séquences
+        statementsToShip(1);
+        long twoLines = statementsToShip(2);
+        long twentyLines = statementsToShip(20);
+
+        assertEquals(twoLines, twentyLines);
+    }
+
+    @Test
+    void shipOrder_recordsOneOutboundMovementPerLine() {
+        statementsToShip(5);
+
+        Long movements = em.createQuery("select count(m) from InventoryMovement m", Long.class).getSingleResult();
+        assertEquals(5L, movements);
+    }
+
+    private long statementsToShip(int lineCount) {
+        int n = ++sequence;
+        User client = User.builder().firstName("Client").lastName("Test").email("client" + n + "@example.com")
+                .password("password123").role(Role.CLIENT).isActive(true).build();
+        Warehouse warehouse = Warehouse.builder().code("WH" + n).name("Warehouse " + n).active(true).build();
+        em.persist(client);
+        em.persist(warehouse);
+
+        SalesOrder order = SalesOrder.builder().client(client).warehouse(warehouse).status(OrderStatus.RESERVED).build();
+        for (int i = 0; i < lineCount; i++) {
+            Product product = Product.builder().sku("SKU-" + n + "-" + i).name("P" + i).active(true)
+                    .originalPrice(BigDecimal.ONE).profite(BigDecimal.ONE).build();
+            em.persist(product);
+            em.persist(Inventory.builder().product(product).warehouse(warehouse).qtyOnHand(10).qtyReserved(2).build());
+            order.getLines().add(SalesOrderLine.builder().salesOrder(order).product(product)
+                    .qtyOrdered(2).qtyReserved(2).price(BigDecimal.TEN).build());
+        }
+        em.persist(order);
+        em.flush();
+        em.clear();
+
+        Statistics stats = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+
+        service.shipOrder(order.getId(), "TRACK-" + n);
+        em.flush();
+
+        long statements = stats.getPrepareStatementCount();
+        em.clear();
+        return statements;
+    }
+}
@@ -0,0 +1,49 @@
+package org.smartsupply.service.implementation;
+
+import org.junit.jupiter.api.Test;
+import org.smartsupply.dto.response.WarehouseAvailabilityDto;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SourcingPlannerTest {
+
+    @Test
+    void plan_mainWarehouseCoversEverything_noTransfer() {
+        SourcingPlanner.Plan plan = SourcingPlanner.plan(10L, 3, List.of(
+                new WarehouseAvailabilityDto(20L, 50),
+                new WarehouseAvailabilityDto(10L, 5)));
+
+        assertEquals(3, plan.getFromMain());
+        assertTrue(plan.getTransfers().isEmpty());
+        assertTrue(plan.isCovered());
+    }
+
+    @Test
+    void plan_takesFromLargestSourcesFirst_andStopsWhenCovered() {
+        SourcingPlanner.Plan plan = SourcingPlanner.plan(10L, 12, List.of(
+                new WarehouseAvailabilityDto(30L, 6),
+                new WarehouseAvailabilityDto(20L, 5),
+                new WarehouseAvailabilityDto(10L, 2),
+                new WarehouseAvailabilityDto(40L, 1)));
+
+        assertEquals(2, plan.getFromMain());
+        assertEquals(2, plan.getTransfers().size());
+        assertEquals(30L, plan.getTransfers().get(0).getSourceWarehouseId());
+        assertEquals(6, plan.getTransfers().get(0).getQty());
+        assertEquals(20L, plan.getTransfers().get(1).getSourceWarehouseId());
+        assertEquals(4, plan.getTransfers().get(1).getQty());
+        assertTrue(plan.isCovered());
+    }
+
+    @Test
+    void plan_notEnoughAnywhere_reportsShortfall() {
+        SourcingPlanner.Plan plan = SourcingPlanner.plan(10L, 10, List.of(new WarehouseAvailabilityDto(20L, 4)));
+
+        assertEquals(0, plan.getFromMain());
+        assertEquals(1, plan.getTransfers().size());
+        assertEquals(6, plan.getShortfall());
+        assertFalse(plan.isCovered());
+    }
+}
@@ -0,0 +1,186 @@
+package org.smartsupply.service.implementation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.smartsupply.dto.response.InventoryKeyDto;
+import org.smartsupply.dto.response.WaveReportDto;
+import org.smartsupply.exception.BusinessException;
+import org.smartsupply.model.entity.*;
+import org.smartsupply.model.enums.MovementType;
+import org.smartsupply.model.enums.OrderStatus;
+import org.smartsupply.model.enums.WavePriority;
+import org.smartsupply.repository.InventoryMovementRepository;
+import org.smartsupply.repository.InventoryRepository;
+import org.smartsupply.repository.SalesOrderRepository;
+import org.smartsupply.service.InventoryShardingService;
+import org.smartsupply.service.ProductAvailabilityService;
+import org.smartsupply.service.SalesAnalyticsService;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WaveAllocationServiceImpTest {
+
+    @Mock
+    private SalesOrderRepository salesOrderRepository;
+    @Mock
+    private InventoryRepository inventoryRepository;
+    @Mock
+    private InventoryMovementRepository movementRepository;
+    @Mock
+    private ProductAvailabilityService availabilityService;
+    @Mock
+    private SalesAnalyticsService salesAnalyticsService;
+    @Mock
+    private InventoryShardingService shardingService;
+
+    private WaveAllocationServiceImp service;
+
+    private Warehouse warehouse;
+    private Product product;
+    private Inventory inventory;
+    private LocalDateTime start;
+
+    @BeforeEach
+    void setup() {
+        service = new WaveAllocationServiceImp(salesOrderRepository, inventoryRepository, movementRepository,
+                availabilityService, new AvailabilityCache(false, 1024, 2000), salesAnalyticsService, shardingService, 2000);
+        warehouse = Warehouse.builder().id(10L).build();
+        product = Product.builder().id(1L).build();
+        inventory = Inventory.builder().id(5L).product(product).warehouse(warehouse).qtyOnHand(0).qtyReserved(0).build();
+        start = LocalDateTime.now().minusHours(2);
+    }
+
+    @Test
+    void runWave_age_servesOldestOrdersFirst_andLocksInventoryOnce() {
+        inventory.setQtyOnHand(8);
+        SalesOrder newer = order(101L, 20L, 10, 5, "10");
+        SalesOrder oldest = order(100L, 21L, 0, 5, "10");
+        SalesOrder middle = order(102L, 22L, 5, 3, "10");
+        stubWave(newer, oldest, middle);
+
+        WaveReportDto report = service.runWave(start, start.plusHours(2), WavePriority.AGE, null);
+
+        assertEquals(OrderStatus.RESERVED, oldest.getStatus());
+        assertEquals(OrderStatus.RESERVED, middle.getStatus());
+        assertEquals(OrderStatus.CREATED, newer.getStatus());
+        assertEquals(8, inventory.getQtyReserved());
+        assertEquals(3, report.getOrdersConsidered());
+        assertEquals(2, report.getOrdersReserved());
+        assertEquals(1, report.getOrdersSkipped());
+        assertEquals(8, report.getUnitsReserved());
+        assertEquals(1, report.getInventoryRowsLocked());
+        verify(inventoryRepository, times(1)).findAllWithLockByIdIn(any());
+
+        ArgumentCaptor<List<InventoryMovement>> movements = ArgumentCaptor.forClass(List.class);
+        verify(movementRepository).saveAll(movements.capture());
+        assertEquals(List.of("SO100", "SO102"), movements.getValue().stream().map(InventoryMovement::getReference).toList());
+        assertTrue(movements.getValue().stream().allMatch(m -> m.getType() == MovementType.RESERVATION));
+        verify(availabilityService).record(1L, 0, 5);
+        verify(availabilityService).record(1L, 0, 3);
+    }
+
+    @Test
+    void runWave_value_servesMostValuableOrderFirst() {
+        inventory.setQtyOnHand(5);
+        SalesOrder cheap = order(100L, 20L, 0, 5, "10");
+        SalesOrder valuable = order(101L, 21L, 10, 5, "90");
+        stubWave(cheap, valuable);
+
+        service.runWave(start, start.plusHours(2), WavePriority.VALUE, null);
+
+        assertEquals(OrderStatus.RESERVED, valuable.getStatus());
+        assertEquals(OrderStatus.CREATED, cheap.getStatus());
+    }
+
+    @Test
+    void runWave_client_alternatesBetweenClients() {
+        inventory.setQtyOnHand(4);
+        SalesOrder first = order(100L, 20L, 0, 2, "10");
+        SalesOrder secondSameClient = order(101L, 20L, 1, 2, "10");
+        SalesOrder otherClient = order(102L, 21L, 2, 2, "10");
+        stubWave(first, secondSameClient, otherClient);
+
+        service.runWave(start, start.plusHours(2), WavePriority.CLIENT, null);
+
+        assertEquals(OrderStatus.RESERVED, first.getStatus());
+        assertEquals(OrderStatus.RESERVED, otherClient.getStatus());
+        assertEquals(OrderStatus.CREATED, secondSameClient.getStatus());
+    }
+
+    @Test
+    void runWave_partiallyCoverableOrder_isSkippedWithoutHoldingStock() {
+        inventory.setQtyOnHand(5);
+        Product other = Product.builder().id(2L).build();
+        SalesOrder incomplete = order(100L, 20L, 0, 5, "10");
+        incomplete.getLines().add(SalesOrderLine.builder().salesOrder(incomplete).product(other)
+                .qtyOrdered(1).qtyReserved(0).price(BigDecimal.ONE).build());
+        SalesOrder next = order(101L, 21L, 5, 5, "10");
+        stubWave(incomplete, next);
+
+        WaveReportDto report = service.runWave(start, start.plusHours(2), WavePriority.AGE, null);
+
+        assertEquals(OrderStatus.CREATED, incomplete.getStatus());
+        assertEquals(0, incomplete.getLines().get(0).getQtyReserved());
+        assertEquals(OrderStatus.RESERVED, next.getStatus());
+        assertEquals(5, inventory.getQtyReserved());
+        assertEquals(1, report.getOrdersSkipped());
+    }
+
+    @Test
+    void runWave_orderNoLongerCreated_isIgnored() {
+        inventory.setQtyOnHand(5);
+        SalesOrder alreadyReserved = order(100L, 20L, 0, 5, "10");
+        alreadyReserved.setStatus(OrderStatus.RESERVED);
+        stubWave(alreadyReserved);
+
+        WaveReportDto report = service.runWave(start, start.plusHours(2), WavePriority.AGE, null);
+
+        assertEquals(0, report.getOrdersConsidered());
+        assertEquals(0, inventory.getQtyReserved());
+    }
+
+    @Test
+    void runWave_noCandidates_locksNothing() {
+        when(salesOrderRepository.findIdsForWave(eq(OrderStatus.CREATED), any(), any(), any(), any())).thenReturn(List.of());
+
+        WaveReportDto report = service.runWave(start, start.plusHours(2), WavePriority.AGE, 10L);
+
+        assertEquals(0, report.getOrdersConsidered());
+        verifyNoInteractions(inventoryRepository, movementRepository);
+    }
+
+    @Test
+    void runWave_invalidWindow_throws() {
+        assertThrows(BusinessException.class,
+                () -> service.runWave(start, start.minusHours(1), WavePriority.AGE, null));
+    }
+
+    private void stubWave(SalesOrder... orders) {
+        List<Long> ids = java.util.Arrays.stream(orders).map(SalesOrder::getId).toList();
+        when(salesOrderRepository.findIdsForWave(eq(OrderStatus.CREATED), any(), any(), any(), any())).thenReturn(ids);
+        when(inventoryRepository.findKeysUsedByOrderIdIn(ids)).thenReturn(List.of(new InventoryKeyDto(5L, 1L, 10L)));
+        when(inventoryRepository.findAllWithLockByIdIn(List.of(5L))).thenReturn(List.of(inventory));
+        when(salesOrderRepository.findAllWithLinesAndLockByIdIn(ids)).thenReturn(List.of(orders));
+    }
+
+    private SalesOrder order(Long id, Long clientId, int minutes, int qty, String price) {
+        SalesOrder order = SalesOrder.builder().id(id).client(User.builder().id(clientId).build()).warehouse(warehouse)
+                .status(OrderStatus.CREATED).createdAt(start.plusMinutes(minutes)).lines(new ArrayList<>()).build();
+        order.getLines().add(SalesOrderLine.builder().salesOrder(order).product(product)
+                .qtyOrdered(qty).qtyReserved(0).price(new BigDecimal(price)).build());
+        return order;
+    }
+}